@@ -2,6 +2,8 @@ package com.lambda.investing.algorithmic_trading;
 
 import com.lambda.investing.Configuration;
 import com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn.CandleManager;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.market_data_connector.MarketDataListener;
 import com.lambda.investing.market_data_connector.Statistics;
 import com.lambda.investing.model.asset.Instrument;
@@ -59,10 +61,11 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 
 		QuoteManager quoteManager = instrumentQuoteManagerMap.get(instrumentPk);
 		if (quoteManager == null) {
-			quoteManager = new QuoteManager(this, Instrument.getInstrument(instrumentPk));
-			instrumentQuoteManagerMap.put(instrumentPk, quoteManager);
+			//only one per instrument , owns the quotes of the instrument
+			quoteManager = instrumentQuoteManagerMap.computeIfAbsent(instrumentPk,
+					key -> new QuoteManager(this, Instrument.getInstrument(key)));
 		}
-		return instrumentQuoteManagerMap.get(instrumentPk);
+		return quoteManager;
 	}
 
 	private Map<String, Object> defaultParameters;
@@ -93,13 +96,14 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 	private static int HISTORICAL_TRADES_SAVE = 50;
 	private boolean plotStopHistorical = true;
 	private boolean exitOnStop = true;
+	private String outputPath = BASE_PATH_OUTPUT;
 	private int lastCurrentDay = 0;
 	//	private List<String> pendingToRemoveClientOrderId;
 	private Map<String, QuoteManager> instrumentQuoteManagerMap;
 
 	private Map<String, OrderRequest> clientOrderIdToCancelWhenActive;
 	private CandleFromTickUpdater candleFromTickUpdater;
-	public static final Object EXECUTION_REPORT_LOCK = new Object();
+	private static final LatencyRecorder QUOTE_REQUEST_LATENCY = Metrics.getLatencyRecorder(Metrics.QUOTE_REQUEST);
 
 	public Algorithm(AlgorithmConnectorConfiguration algorithmConnectorConfiguration, String algorithmInfo,
 			Map<String, Object> parameters) {
@@ -271,13 +275,32 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		this.exitOnStop = exitOnStop;
 	}
 
+	/**
+	 * Directory of the trades table saved on the stop command
+	 */
+	public void setOutputPath(String outputPath) {
+		this.outputPath = outputPath;
+	}
+
+	public String getOutputPath() {
+		return outputPath;
+	}
+
+	/**
+	 * @return path without instrument and extension of the trades table saved on the stop command
+	 */
+	public String getTradesTableBasePath() {
+		return outputPath + File.separator + "trades_table_" + algorithmInfo;
+	}
+
 	public InstrumentManager getInstrumentManager(String instrumentPk) {
 		InstrumentManager instrumentManager = instrumentToManager.get(instrumentPk);
 		if (instrumentManager == null) {
-			instrumentManager = new InstrumentManager(Instrument.getInstrument(instrumentPk), isBacktest);
-			instrumentToManager.put(instrumentPk, instrumentManager);
+			//only one per instrument , owns the order state of the instrument
+			instrumentManager = instrumentToManager.computeIfAbsent(instrumentPk,
+					key -> new InstrumentManager(Instrument.getInstrument(key), isBacktest));
 		}
-		return instrumentToManager.get(instrumentPk);
+		return instrumentManager;
 	}
 
 	public Map<String, ExecutionReport> getActiveOrders(Instrument instrument) {
@@ -361,6 +384,10 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		if (algorithmState.equals(AlgorithmState.INITIALIZED) || algorithmState.equals(AlgorithmState.STOPPED)) {
 			algorithmState = AlgorithmState.STARTING;
 			logger.info("[{}]Starting algorithm {}", getCurrentTime(), algorithmInfo);
+			//restarted after a stop
+			for (InstrumentManager instrumentManager : instrumentToManager.values()) {
+				instrumentManager.startCleanMaps();
+			}
 
 			algorithmState = AlgorithmState.STARTED;
 
@@ -382,6 +409,7 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 				logger.error("cant sleep on stopped algorithm", e);
 			}
 			for (InstrumentManager instrumentManager : instrumentToManager.values()) {
+				instrumentManager.stopCleanMaps();
 				Instrument instrument = instrumentManager.getInstrument();
 				try {
 					getQuoteManager(instrument.getPrimaryKey()).unquote();
@@ -514,7 +542,10 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		return false;
 	}
 
-	private void updateAllActiveOrders(ExecutionReport executionReport) {
+	/**
+	 * Updates the order state of the instrument in place , called holding its orderStateLock
+	 */
+	private void updateAllActiveOrders(InstrumentManager instrumentManager, ExecutionReport executionReport) {
 		boolean isActive =
 				executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.Active) || executionReport
 						.getExecutionReportStatus().equals(ExecutionReportStatus.PartialFilled);
@@ -530,9 +561,6 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		boolean isFilled = executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.PartialFilled)
 				|| executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.CompletellyFilled);
 
-		String instrumentPk = executionReport.getInstrument();
-		InstrumentManager instrumentManager = getInstrumentManager(instrumentPk);
-
 		Queue<String> tradesInstrument = instrumentManager.getCfTradesReceived();
 
 		//remove from requestOrders
@@ -542,7 +570,6 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		//			pendingToRemoveClientOrderId.add(executionReport.getClientOrderId());
 		//		}
 		instrumentSendOrders.remove(executionReport.getClientOrderId());
-		setAllRequestOrders(instrumentManager.getInstrument(), instrumentSendOrders);
 
 		if (isActive) {
 			boolean wasACfTrade = tradesInstrument.contains(executionReport.getClientOrderId());
@@ -555,8 +582,6 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 				if (executionReport.getOrigClientOrderId() != null) {
 					instrumentActiveOrders.remove(executionReport.getOrigClientOrderId());
 				}
-				//update it
-				instrumentManager.setAllActiveOrders(instrumentActiveOrders);
 				if (LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
 					logger.debug("ER {} received active  {} ", executionReport.getClientOrderId(),
 							executionReport.getVerb());
@@ -587,7 +612,6 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		if (isInactive) {
 			if (executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.CompletellyFilled)) {
 				tradesInstrument.add(executionReport.getClientOrderId());
-				instrumentManager.setCfTradesReceived(tradesInstrument);
 			}
 
 			Map<String, ExecutionReport> instrumentActiveOrders = instrumentManager.getAllActiveOrders();
@@ -596,7 +620,6 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 			if (executionReport.getOrigClientOrderId() != null) {
 				instrumentActiveOrders.remove(executionReport.getOrigClientOrderId());
 			}
-			instrumentManager.setAllActiveOrders(instrumentActiveOrders);
 			if (LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
 				logger.debug("ER {} received inactive ", executionReport.getClientOrderId());
 			}
@@ -610,7 +633,6 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 				//remove it from active
 				instrumentActiveOrders.remove(executionReport.getOrigClientOrderId());
 				instrumentActiveOrders.remove(executionReport.getClientOrderId());//just in case
-				instrumentManager.setAllActiveOrders(instrumentActiveOrders);
 			}
 			if (LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
 				logger.debug("ER {} cancel rejected on {} ", executionReport.getClientOrderId(),
@@ -626,9 +648,7 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 						executionReport.getPrice());
 			}
 
-			Map<Verb, Long> currentLastTradeTimestamp = instrumentManager.getLastTradeTimestamp();
-			currentLastTradeTimestamp.put(executionReport.getVerb(), getCurrentTimestamp());
-			instrumentManager.setLastTradeTimestamp(currentLastTradeTimestamp);
+			instrumentManager.getLastTradeTimestamp().put(executionReport.getVerb(), getCurrentTimestamp());
 		}
 
 	}
@@ -698,7 +718,9 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 			throw new LambdaTradingException("cant quote with algo not started");
 		}
 		QuoteManager quoteManager = getQuoteManager(quoteRequest.getInstrument().getPrimaryKey());
+		long startNanos = Metrics.nanoTime();
 		quoteManager.quoteRequest(quoteRequest);
+		QUOTE_REQUEST_LATENCY.recordSince(startNanos);
 	}
 
 	private void addStatistics(String topic) {
@@ -720,14 +742,15 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 		orderRequest = checkOrderRequest(orderRequest);
 		orderRequest.setTimestampCreation(getCurrentTimestamp());
 
-		//updating the OrderRequestMap before sending
-		Map<String, OrderRequest> instrumentSendOrders = instrumentManager.getAllRequestOrders();
-		//		if(pendingToRemoveClientOrderId.contains(orderRequest.getClientOrderId())){
-		//			pendingToRemoveClientOrderId.remove(orderRequest.getClientOrderId());
-		//		}else {
-		instrumentSendOrders.put(orderRequest.getClientOrderId(), orderRequest);
-		setAllRequestOrders(instrumentManager.getInstrument(), instrumentSendOrders);
-		//		}
+		//updating the OrderRequestMap before sending , same lock as the execution reports removing from it
+		synchronized (instrumentManager.getOrderStateLock()) {
+			Map<String, OrderRequest> instrumentSendOrders = instrumentManager.getAllRequestOrders();
+			//		if(pendingToRemoveClientOrderId.contains(orderRequest.getClientOrderId())){
+			//			pendingToRemoveClientOrderId.remove(orderRequest.getClientOrderId());
+			//		}else {
+			instrumentSendOrders.put(orderRequest.getClientOrderId(), orderRequest);
+			//		}
+		}
 
 		this.algorithmConnectorConfiguration.getTradingEngineConnector().orderRequest(orderRequest);
 
@@ -830,7 +853,7 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 
 		logger.info("command received {}  ", command.getMessage());
 		if (command.getMessage().equalsIgnoreCase(Command.ClassMessage.stop.name())) {
-			String basePath = BASE_PATH_OUTPUT + File.separator + "trades_table_" + algorithmInfo;
+			String basePath = getTradesTableBasePath();
 			logger.info("Stop received => saving {} trades in {}.csv", portfolioManager.numberOfTrades, basePath);
 			if (isBacktest) {
 				File file = new File(basePath).getParentFile();
@@ -865,31 +888,35 @@ public abstract class Algorithm implements MarketDataListener, ExecutionReportLi
 
 	/**
 	 * Has to be called by the algo extending
+	 * Order state is serialized per instrument on its InstrumentManager orderStateLock , other instruments are not blocked
 	 *
 	 * @param executionReport
 	 */
 	@Override public boolean onExecutionReportUpdate(ExecutionReport executionReport) {
-		synchronized (EXECUTION_REPORT_LOCK) {
-			updateAllActiveOrders(executionReport);
+		InstrumentManager instrumentManager = getInstrumentManager(executionReport.getInstrument());
+		synchronized (instrumentManager.getOrderStateLock()) {
+			updateAllActiveOrders(instrumentManager, executionReport);
 
 			boolean isTrade = executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.CompletellyFilled)
 					|| executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.PartialFilled);
 			if (isTrade) {
 				addToPersist(executionReport);
-				addPosition(executionReport);
+				addPosition(instrumentManager, executionReport);
 				if (executionReport.getExecutionReportStatus().equals(ExecutionReportStatus.CompletellyFilled)) {
 					clientOrderIdLastCompletelyFillReceived.put(executionReport.getClientOrderId(), executionReport);
 				}
 			}
 			getQuoteManager(executionReport.getInstrument()).onExecutionReportUpdate(executionReport);
-			addStatistics(RECEIVE_STATS + " executionReport." + executionReport.getExecutionReportStatus().name());
-			algorithmNotifier.notifyObserversonExecutionReportUpdate(executionReport);
-			return true;
+			if (!isBacktest) {
+				instrumentManager.cleanMaps();
+			}
 		}
+		addStatistics(RECEIVE_STATS + " executionReport." + executionReport.getExecutionReportStatus().name());
+		algorithmNotifier.notifyObserversonExecutionReportUpdate(executionReport);
+		return true;
 	}
 
-	private void addPosition(ExecutionReport executionReport) {
-		InstrumentManager instrumentManager = getInstrumentManager(executionReport.getInstrument());
+	private void addPosition(InstrumentManager instrumentManager, ExecutionReport executionReport) {
 		double previousPosition = instrumentManager.getPosition();
 		double newPosition = previousPosition + executionReport.getLastQuantity();
 		instrumentManager.setPosition(newPosition);
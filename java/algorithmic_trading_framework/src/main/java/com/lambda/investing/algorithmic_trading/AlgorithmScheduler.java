@@ -0,0 +1,39 @@
+package com.lambda.investing.algorithmic_trading;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/***
+ * Scheduler shared by the QuoteManager and InstrumentManager of all the instruments of the JVM
+ * Deferred quote updates and periodic order state checks run here instead of one polling thread per instrument
+ * Tasks must be short and never block , they are serialized on THREADS daemon threads
+ */
+public final class AlgorithmScheduler {
+
+	public static int THREADS = 1;//read once on first use
+
+	private static volatile ScheduledExecutorService SCHEDULER;
+
+	private AlgorithmScheduler() {
+	}
+
+	public static ScheduledExecutorService getScheduler() {
+		ScheduledExecutorService scheduler = SCHEDULER;
+		if (scheduler == null) {
+			synchronized (AlgorithmScheduler.class) {
+				scheduler = SCHEDULER;
+				if (scheduler == null) {
+					ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+					threadFactoryBuilder.setNameFormat("AlgorithmScheduler-%d");
+					threadFactoryBuilder.setDaemon(true);
+					scheduler = Executors.newScheduledThreadPool(Math.max(1, THREADS), threadFactoryBuilder.build());
+					SCHEDULER = scheduler;
+				}
+			}
+		}
+		return scheduler;
+	}
+
+}
@@ -13,68 +13,44 @@ public class FileUtils {
 	public static void persistArray(double[][] inputData, String filepath, String csvSeparator) {
 		File file = new File(filepath);
 		file.getParentFile().mkdirs();
-		StringBuilder outputString = new StringBuilder();
-		for (int row = 0; row < inputData.length; row++) {
-			for (int column = 0; column < inputData[row].length; column++) {
-				outputString.append(inputData[row][column]);
-				outputString.append(csvSeparator);
-			}
-			outputString.append(System.lineSeparator());
-		}
-
-		outputString = outputString.delete(outputString.lastIndexOf(System.lineSeparator()),
-				outputString.length());//remove last line separator
-
-		String content = outputString.toString();
-		BufferedWriter writer = null;
-		try {
-			writer = new BufferedWriter(new FileWriter(filepath));
-
-			try {
-				writer.write(content);
-			} catch (Exception e) {
-				logger.error("error saving array values to file {} ", filepath, e);
-			} finally {
-				writer.close();
+		//streamed row by row , no full copy of the array as a String
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(filepath), 1 << 16)) {
+			for (int row = 0; row < inputData.length; row++) {
+				if (row > 0) {
+					writer.write(System.lineSeparator());
+				}
+				for (int column = 0; column < inputData[row].length; column++) {
+					writer.write(Double.toString(inputData[row][column]));
+					writer.write(csvSeparator);
+				}
 			}
 		} catch (IOException e) {
-			logger.error("error IOException on BuffredWriter {} ", filepath, e);
+			logger.error("error saving array values to file {} ", filepath, e);
 		}
 	}
 
 	public static double[][] loadArrayFromPath(String filepath, String csvSeparator) throws IOException {
-
-		BufferedReader csvReader = new BufferedReader(new FileReader(filepath));
-		// we don't know the amount of data ahead of time so we use lists
-
-		Map<Integer, List<Double>> colMap = new HashMap<>();
-		String row;
-		int rowsTotal = 0;
-
-		while ((row = csvReader.readLine()) != null) {
-			String[] data = row.split(csvSeparator);
-			for (int column = 0; column < data.length; column++) {
-				List<Double> columnList = colMap.getOrDefault(column, new ArrayList<>());
-				columnList.add(Double.parseDouble(data[column]));
-				colMap.put(column, columnList);
+		// we don't know the amount of data ahead of time so we use a list of rows
+		List<double[]> rows = new ArrayList<>();
+		int columnsTotal = 0;
+		try (BufferedReader csvReader = new BufferedReader(new FileReader(filepath), 1 << 16)) {
+			String row;
+			while ((row = csvReader.readLine()) != null) {
+				String[] data = row.split(csvSeparator);
+				double[] rowValues = new double[data.length];
+				for (int column = 0; column < data.length; column++) {
+					rowValues[column] = Double.parseDouble(data[column]);
+				}
+				rows.add(rowValues);
+				columnsTotal = Math.max(columnsTotal, rowValues.length);
 			}
-			rowsTotal++;
 		}
-		csvReader.close();
-		int columnsTotal = colMap.size();
-
-		//transform colMap into array
-		double[][] output = new double[rowsTotal][columnsTotal];//states rows , actions columns
 
-		for (int column : colMap.keySet()) {
-			List<Double> rows = colMap.get(column);
-			int rowIter = 0;
-			for (double rowVal : rows) {
-				output[rowIter][column] = rowVal;
-				rowIter++;
-			}
+		double[][] output = new double[rows.size()][];//states rows , actions columns
+		for (int row = 0; row < output.length; row++) {
+			double[] rowValues = rows.get(row);
+			output[row] = rowValues.length == columnsTotal ? rowValues : Arrays.copyOf(rowValues, columnsTotal);
 		}
-
 		return output;
 
 	}
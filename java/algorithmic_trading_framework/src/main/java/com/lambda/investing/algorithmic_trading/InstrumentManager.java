@@ -6,21 +6,29 @@ import com.lambda.investing.model.market_data.Trade;
 import com.lambda.investing.model.trading.ExecutionReport;
 import com.lambda.investing.model.trading.OrderRequest;
 import com.lambda.investing.model.trading.Verb;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.curator.shaded.com.google.common.collect.EvictingQueue;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Order state of one instrument : active/request orders , Cf trades , position and last market data
+ * The order state is written only holding orderStateLock , one per instrument => instruments never contend
+ * The maps are updated in place , never replaced by copies
+ * Stale entries are cleaned on execution reports and on a timer of the shared AlgorithmScheduler , no thread per instrument
+ */
 @Getter @Setter public class InstrumentManager {
 
 	private static int BUFFER_CF_TRADES = 60;
+	public static long CLEAN_MAPS_PERIOD_MS = 1000;//live only , <=0 cleaned only on execution reports
 	protected Logger logger = LogManager.getLogger(InstrumentManager.class);
 	private Instrument instrument;
 	private Map<String, ExecutionReport> allActiveOrders;//clientOrderId to Active execution report
@@ -31,100 +39,93 @@ import java.util.concurrent.ConcurrentHashMap;
 	private double position;
 
 	private Map<Verb, Long> lastTradeTimestamp;
+	private final Object orderStateLock = new Object();
+	private final boolean isBacktest;
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) private ScheduledFuture<?> cleanMapsFuture;
 
 	public InstrumentManager(Instrument instrument, boolean isBacktest) {
 		this.instrument = instrument;
-		if (!isBacktest) {
-			new Thread(new MapManager(), instrument.getPrimaryKey() + "_instrumentManager").start();
-		}
-
+		this.isBacktest = isBacktest;
 		reset();
+		startCleanMaps();
 	}
 
-	public void reset() {
-		allActiveOrders = new ConcurrentHashMap<>();
-		allRequestOrders = new ConcurrentHashMap<>();
-		cfTradesReceived = EvictingQueue.create(BUFFER_CF_TRADES);
-		lastTradeTimestamp = new ConcurrentHashMap<>();
-
-		//daily restart?
-		position = 0;
+	/**
+	 * Schedules cleanMaps on the AlgorithmScheduler if is live and not already scheduled
+	 */
+	public synchronized void startCleanMaps() {
+		if (isBacktest || CLEAN_MAPS_PERIOD_MS <= 0 || cleanMapsFuture != null) {
+			return;
+		}
+		cleanMapsFuture = AlgorithmScheduler.getScheduler()
+				.scheduleWithFixedDelay(this::cleanMaps, CLEAN_MAPS_PERIOD_MS, CLEAN_MAPS_PERIOD_MS,
+						TimeUnit.MILLISECONDS);
 	}
 
-	public synchronized void setAllActiveOrders(Map<String, ExecutionReport> allActiveOrders) {
-		this.allActiveOrders = allActiveOrders;
+	/**
+	 * Cancels the periodic cleanMaps , the shared scheduler keeps running for the other algorithms
+	 */
+	public synchronized void stopCleanMaps() {
+		if (cleanMapsFuture != null) {
+			cleanMapsFuture.cancel(false);
+			cleanMapsFuture = null;
+		}
 	}
 
-	public synchronized void setAllRequestOrders(Map<String, OrderRequest> allRequestOrders) {
-		this.allRequestOrders = allRequestOrders;
+	public void reset() {
+		synchronized (orderStateLock) {
+			allActiveOrders = new ConcurrentHashMap<>();
+			allRequestOrders = new ConcurrentHashMap<>();
+			cfTradesReceived = EvictingQueue.create(BUFFER_CF_TRADES);
+			lastTradeTimestamp = new ConcurrentHashMap<>();
+
+			//daily restart?
+			position = 0;
+		}
 	}
 
-	public synchronized void setCfTradesReceived(Queue<String> cfTradesReceived) {
-		this.cfTradesReceived = cfTradesReceived;
+	public void setAllActiveOrders(Map<String, ExecutionReport> allActiveOrders) {
+		synchronized (orderStateLock) {
+			this.allActiveOrders = allActiveOrders;
+		}
 	}
 
-	private class MapManager implements Runnable {
-
-		private boolean enable = true;
-
-		@Override public void run() {
-			while (enable) {
-				Map<String, OrderRequest> requestOrdersCopy = new ConcurrentHashMap<>(getAllRequestOrders());
-				boolean foundErrorsRequest = false;
-				List<String> cfTrades = null;
-				//checking requestOrderMap is okey
-				if (requestOrdersCopy.size() > 0) {
-					//check with active
-					for (String activeOrdersClientOrderId : getAllActiveOrders().keySet()) {
-						if (requestOrdersCopy.containsKey(activeOrdersClientOrderId)) {
-							//remove it
-							requestOrdersCopy.remove(activeOrdersClientOrderId);
-							foundErrorsRequest = true;
-						}
-					}
-					//check with trades
-					cfTrades = new ArrayList<>(getCfTradesReceived());
-					for (String cfTradesClientOrderId : cfTrades) {
-						if (requestOrdersCopy.containsKey(cfTradesClientOrderId)) {
-							//remove it
-							requestOrdersCopy.remove(cfTradesClientOrderId);
-							foundErrorsRequest = true;
-						}
-					}
+	public void setAllRequestOrders(Map<String, OrderRequest> allRequestOrders) {
+		synchronized (orderStateLock) {
+			this.allRequestOrders = allRequestOrders;
+		}
+	}
 
-					if (foundErrorsRequest) {
-						//correct it
-						logger.warn("Error found in the AllRequestMaps ,cleaning from {} to {}",
-								getAllRequestOrders().size(), requestOrdersCopy.size());
-						setAllRequestOrders(requestOrdersCopy);
-					}
-				}
-				//
-				boolean foundErrorsActive = false;
-				Map<String, ExecutionReport> activeOrdersCopy = new ConcurrentHashMap<>(getAllActiveOrders());
+	public void setCfTradesReceived(Queue<String> cfTradesReceived) {
+		synchronized (orderStateLock) {
+			this.cfTradesReceived = cfTradesReceived;
+		}
+	}
 
-				if (activeOrdersCopy.size() > 0) {
-					if (cfTrades == null) {
-						cfTrades = new ArrayList<>(getCfTradesReceived());
-					}
-					for (String cfClientOrderId : cfTrades) {
-						if (activeOrdersCopy.containsKey(cfClientOrderId)) {
-							activeOrdersCopy.remove(cfClientOrderId);
-							foundErrorsActive = true;
-						}
-					}
-				}
-				if (foundErrorsActive) {
-					//correct it
-					logger.warn("Error found in the AllActiveMaps ,cleaning from {} to {}", getAllActiveOrders().size(),
-							activeOrdersCopy.size());
-					setAllActiveOrders(activeOrdersCopy);
+	/**
+	 * Removes the Cf trades and the active orders still in the request map
+	 * Called after every execution report and periodically from the AlgorithmScheduler for requests answered before sent
+	 */
+	public void cleanMaps() {
+		synchronized (orderStateLock) {
+			int requestOrdersSize = allRequestOrders.size();
+			if (requestOrdersSize > 0) {
+				//check with active
+				allRequestOrders.keySet().removeAll(allActiveOrders.keySet());
+				//check with trades
+				allRequestOrders.keySet().removeAll(cfTradesReceived);
+				if (allRequestOrders.size() != requestOrdersSize) {
+					logger.warn("Error found in the AllRequestMaps ,cleaning from {} to {}", requestOrdersSize,
+							allRequestOrders.size());
 				}
+			}
 
-				try {
-					Thread.sleep(10);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+			int activeOrdersSize = allActiveOrders.size();
+			if (activeOrdersSize > 0) {
+				allActiveOrders.keySet().removeAll(cfTradesReceived);
+				if (allActiveOrders.size() != activeOrdersSize) {
+					logger.warn("Error found in the AllActiveMaps ,cleaning from {} to {}", activeOrdersSize,
+							allActiveOrders.size());
 				}
 			}
 		}
@@ -0,0 +1,456 @@
+package com.lambda.investing.algorithmic_trading;
+
+import com.lambda.investing.model.trading.Verb;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Types;
+import tech.tablesaw.api.DateTimeColumn;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.LongColumn;
+import tech.tablesaw.api.StringColumn;
+import tech.tablesaw.api.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.lambda.investing.Configuration.TEMP_PATH;
+import static org.apache.parquet.hadoop.ParquetFileWriter.Mode.OVERWRITE;
+
+/***
+ * Append only historical of a PnlSnapshot stored in primitive columns sharing the same row index
+ * Updates with the same timestamp as the last row overwrite it , custom columns are NaN in rows without value
+ * Optionally full chunks of rows are spilled to a memory mapped file to keep the heap small
+ */
+public class PnlJournal {
+
+	public static int INITIAL_CAPACITY = 1024;
+	public static int SPILL_ROWS = 0;//rows in memory before spilling to TEMP_PATH , 0 disabled
+
+	public static final int PRICE = 0;
+	public static final int QUANTITY = 1;
+	public static final int NET_POSITION = 2;
+	public static final int AVG_OPEN_PRICE = 3;
+	public static final int NET_INVESTMENT = 4;
+	public static final int REALIZED_PNL = 5;
+	public static final int UNREALIZED_PNL = 6;
+	public static final int TOTAL_PNL = 7;
+	//same names as the old trades table
+	public static final String[] DOUBLE_COLUMNS = new String[] { "price", "quantity", "netPosition", "avgOpenPrice",
+			"netInvestment", "historicalRealizedPnl", "historicalUnrealizedPnl", "historicalTotalPnl" };
+
+	private static final byte NO_VERB = 0;//verbs saved as ordinal+1
+	private static final Verb[] VERBS = Verb.values();
+
+	protected Logger logger = LogManager.getLogger(PnlJournal.class);
+
+	private int capacity;
+	private int rows;
+	private long[] timestamps;
+	private int[] numberOfTrades;
+	private byte[] verbs;
+	private final double[][] values;//[column][row]
+	private final Map<String, double[]> customColumns = new LinkedHashMap<>();
+
+	//spill
+	private File spillFile;
+	private int spillRows;
+	private FileChannel spillChannel;
+	private long spillPosition;
+	private int spilledRows;
+
+	public PnlJournal() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public PnlJournal(int capacity) {
+		this.capacity = Math.max(16, capacity);
+		timestamps = new long[this.capacity];
+		numberOfTrades = new int[this.capacity];
+		verbs = new byte[this.capacity];
+		values = new double[DOUBLE_COLUMNS.length][this.capacity];
+	}
+
+	/**
+	 * @return journal spilling to a temp file if SPILL_ROWS is enabled
+	 */
+	public static PnlJournal create() {
+		PnlJournal output = new PnlJournal();
+		if (SPILL_ROWS > 0) {
+			try {
+				File tempPath = new File(TEMP_PATH);
+				tempPath.mkdirs();
+				File spillFile = File.createTempFile("pnl_journal_", ".bin", tempPath);
+				spillFile.deleteOnExit();
+				output.setSpillFile(spillFile, SPILL_ROWS);
+			} catch (IOException e) {
+				output.logger.error("can't create pnl journal spill file -> keep it in memory", e);
+			}
+		}
+		return output;
+	}
+
+	/**
+	 * Rows in memory are written to spillFile every time they reach spillRows
+	 */
+	public synchronized void setSpillFile(File spillFile, int spillRows) throws IOException {
+		closeSpill();
+		this.spillFile = spillFile;
+		this.spillRows = spillRows;
+		spillFile.getParentFile().mkdirs();
+		spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+		spillChannel.truncate(0);
+		spillPosition = 0;
+		spilledRows = 0;
+	}
+
+	/**
+	 * @return rows in memory and spilled
+	 */
+	public int size() {
+		return spilledRows + rows;
+	}
+
+	public int getRowsInMemory() {
+		return rows;
+	}
+
+	public long getLastTimestamp() {
+		return rows == 0 ? 0 : timestamps[rows - 1];
+	}
+
+	public double getLast(int column) {
+		return rows == 0 ? Double.NaN : values[column][rows - 1];
+	}
+
+	/**
+	 * @return last rows of the column in memory , used for checks without boxing the historical
+	 */
+	public double[] getLastValues(int column, int maxRows) {
+		int from = Math.max(0, rows - maxRows);
+		return Arrays.copyOfRange(values[column], from, rows);
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity <= capacity) {
+			return;
+		}
+		int newCapacity = Math.max(minCapacity, capacity << 1);
+		timestamps = Arrays.copyOf(timestamps, newCapacity);
+		numberOfTrades = Arrays.copyOf(numberOfTrades, newCapacity);
+		verbs = Arrays.copyOf(verbs, newCapacity);
+		for (int column = 0; column < values.length; column++) {
+			values[column] = Arrays.copyOf(values[column], newCapacity);
+		}
+		for (Map.Entry<String, double[]> entry : customColumns.entrySet()) {
+			double[] grown = Arrays.copyOf(entry.getValue(), newCapacity);
+			Arrays.fill(grown, capacity, newCapacity, Double.NaN);
+			entry.setValue(grown);
+		}
+		capacity = newCapacity;
+	}
+
+	/**
+	 * @return row written
+	 */
+	public synchronized int append(long timestamp, int numberOfTrades, String verb, double price, double quantity,
+			double netPosition, double avgOpenPrice, double netInvestment, double realizedPnl, double unrealizedPnl,
+			double totalPnl) {
+		int row;
+		if (rows > 0 && timestamps[rows - 1] == timestamp) {
+			row = rows - 1;
+		} else {
+			if (spillChannel != null && rows >= spillRows) {
+				spill();
+			}
+			ensureCapacity(rows + 1);
+			row = rows++;
+			for (double[] customColumn : customColumns.values()) {
+				customColumn[row] = Double.NaN;
+			}
+		}
+		timestamps[row] = timestamp;
+		this.numberOfTrades[row] = numberOfTrades;
+		verbs[row] = verb == null ? NO_VERB : (byte) (Verb.valueOf(verb).ordinal() + 1);
+		values[PRICE][row] = price;
+		values[QUANTITY][row] = quantity;
+		values[NET_POSITION][row] = netPosition;
+		values[AVG_OPEN_PRICE][row] = avgOpenPrice;
+		values[NET_INVESTMENT][row] = netInvestment;
+		values[REALIZED_PNL][row] = realizedPnl;
+		values[UNREALIZED_PNL][row] = unrealizedPnl;
+		values[TOTAL_PNL][row] = totalPnl;
+		return row;
+	}
+
+	private double[] getOrCreateCustomColumn(String key) {
+		double[] customColumn = customColumns.get(key);
+		if (customColumn == null) {
+			customColumn = new double[capacity];
+			Arrays.fill(customColumn, Double.NaN);
+			customColumns.put(key, customColumn);
+		}
+		return customColumn;
+	}
+
+	/**
+	 * Sets the custom column of the last row if it's of the same timestamp
+	 */
+	public synchronized void setCustom(long timestamp, String key, double value) {
+		if (rows == 0 || timestamps[rows - 1] != timestamp) {
+			return;
+		}
+		getOrCreateCustomColumn(key)[rows - 1] = value;
+	}
+
+	public synchronized List<String> getCustomColumns() {
+		return new ArrayList<>(customColumns.keySet());
+	}
+
+	////////// spill
+	private int chunkLength(int chunkRows, byte[][] customNames) {
+		int length = 4 + 4;//rows,custom columns
+		for (byte[] customName : customNames) {
+			length += 4 + customName.length;
+		}
+		length += chunkRows * (8 + 4 + 1 + 8 * (DOUBLE_COLUMNS.length + customNames.length));
+		return length;
+	}
+
+	private void spill() {
+		byte[][] customNames = new byte[customColumns.size()][];
+		int index = 0;
+		for (String key : customColumns.keySet()) {
+			customNames[index++] = key.getBytes(StandardCharsets.UTF_8);
+		}
+		int length = chunkLength(rows, customNames);
+		try {
+			MappedByteBuffer buffer = spillChannel.map(FileChannel.MapMode.READ_WRITE, spillPosition, length);
+			buffer.putInt(rows);
+			buffer.putInt(customNames.length);
+			for (byte[] customName : customNames) {
+				buffer.putInt(customName.length);
+				buffer.put(customName);
+			}
+			buffer.asLongBuffer().put(timestamps, 0, rows);
+			buffer.position(buffer.position() + rows * 8);
+			buffer.asIntBuffer().put(numberOfTrades, 0, rows);
+			buffer.position(buffer.position() + rows * 4);
+			buffer.put(verbs, 0, rows);
+			for (double[] column : values) {
+				buffer.asDoubleBuffer().put(column, 0, rows);
+				buffer.position(buffer.position() + rows * 8);
+			}
+			for (double[] customColumn : customColumns.values()) {
+				buffer.asDoubleBuffer().put(customColumn, 0, rows);
+				buffer.position(buffer.position() + rows * 8);
+			}
+			spillPosition += length;
+			spilledRows += rows;
+			rows = 0;
+		} catch (IOException e) {
+			//keep growing in memory
+			logger.error("can't spill pnl journal to {} -> keep it in memory", spillFile, e);
+			spillRows = Integer.MAX_VALUE;
+		}
+	}
+
+	private void readChunk(MappedByteBuffer buffer) {
+		int chunkRows = buffer.getInt();
+		String[] customNames = new String[buffer.getInt()];
+		for (int column = 0; column < customNames.length; column++) {
+			byte[] customName = new byte[buffer.getInt()];
+			buffer.get(customName);
+			customNames[column] = new String(customName, StandardCharsets.UTF_8);
+		}
+		ensureCapacity(rows + chunkRows);
+		buffer.asLongBuffer().get(timestamps, rows, chunkRows);
+		buffer.position(buffer.position() + chunkRows * 8);
+		buffer.asIntBuffer().get(numberOfTrades, rows, chunkRows);
+		buffer.position(buffer.position() + chunkRows * 4);
+		buffer.get(verbs, rows, chunkRows);
+		for (double[] column : values) {
+			buffer.asDoubleBuffer().get(column, rows, chunkRows);
+			buffer.position(buffer.position() + chunkRows * 8);
+		}
+		for (String customName : customNames) {
+			buffer.asDoubleBuffer().get(getOrCreateCustomColumn(customName), rows, chunkRows);
+			buffer.position(buffer.position() + chunkRows * 8);
+		}
+		rows += chunkRows;
+	}
+
+	private void appendRows(PnlJournal other) {
+		ensureCapacity(rows + other.rows);
+		System.arraycopy(other.timestamps, 0, timestamps, rows, other.rows);
+		System.arraycopy(other.numberOfTrades, 0, numberOfTrades, rows, other.rows);
+		System.arraycopy(other.verbs, 0, verbs, rows, other.rows);
+		for (int column = 0; column < values.length; column++) {
+			System.arraycopy(other.values[column], 0, values[column], rows, other.rows);
+		}
+		for (Map.Entry<String, double[]> entry : other.customColumns.entrySet()) {
+			System.arraycopy(entry.getValue(), 0, getOrCreateCustomColumn(entry.getKey()), rows, other.rows);
+		}
+		rows += other.rows;
+	}
+
+	/**
+	 * Appends the rows of a journal starting after this one , as if the trades of both were done by the same portfolio
+	 * numberTrades , realized and total pnl continue from the last row of this one , position is not carried
+	 */
+	public synchronized void appendContinuous(PnlJournal next) throws IOException {
+		int firstRow = rows;
+		double realizedPnlOffset = rows == 0 ? 0.0 : values[REALIZED_PNL][rows - 1];
+		double totalPnlOffset = rows == 0 ? 0.0 : values[TOTAL_PNL][rows - 1];
+		int numberOfTradesOffset = rows == 0 ? 0 : numberOfTrades[rows - 1];
+		synchronized (next) {
+			appendRows(next.readAll());
+		}
+		for (int row = firstRow; row < rows; row++) {
+			numberOfTrades[row] += numberOfTradesOffset;
+			values[REALIZED_PNL][row] += realizedPnlOffset;
+			values[TOTAL_PNL][row] += totalPnlOffset;
+		}
+	}
+
+	/**
+	 * @return journal with all the rows in memory , this one if nothing was spilled
+	 */
+	private PnlJournal readAll() throws IOException {
+		if (spilledRows == 0) {
+			return this;
+		}
+		PnlJournal output = new PnlJournal(size());
+		MappedByteBuffer buffer = spillChannel.map(FileChannel.MapMode.READ_ONLY, 0, spillPosition);
+		while (buffer.hasRemaining()) {
+			output.readChunk(buffer);
+		}
+		output.appendRows(this);
+		return output;
+	}
+
+	private void closeSpill() {
+		if (spillChannel != null) {
+			try {
+				spillChannel.close();
+			} catch (IOException e) {
+				logger.warn("can't close {}", spillFile, e);
+			}
+			spillChannel = null;
+		}
+	}
+
+	////////// exports
+	private static class JournalDoubleColumn extends DoubleColumn {
+
+		private JournalDoubleColumn(String name, double[] values, int rows) {
+			super(name, DoubleArrayList.wrap(values, rows));
+		}
+	}
+
+	private static class JournalIntColumn extends IntColumn {
+
+		private JournalIntColumn(String name, int[] values, int rows) {
+			super(name, IntArrayList.wrap(values, rows));
+		}
+	}
+
+	/**
+	 * Double and int columns wrap the journal arrays without copying , the table must be used before next updates
+	 */
+	public synchronized Table toTable(String name) throws IOException {
+		PnlJournal journal = readAll();
+		int rows = journal.rows;
+		LocalDateTime[] dates = new LocalDateTime[rows];
+		String[] verbs = new String[rows];
+		for (int row = 0; row < rows; row++) {
+			dates[row] = LocalDateTime
+					.ofInstant(Instant.ofEpochMilli(journal.timestamps[row]), TimeService.DEFAULT_ZONEID);
+			byte verb = journal.verbs[row];
+			verbs[row] = verb == NO_VERB ? null : VERBS[verb - 1].name();
+		}
+		Table output = Table.create(name);
+		output.addColumns(LongColumn.create("timestamp", Arrays.copyOf(journal.timestamps, rows)),
+				DateTimeColumn.create("date", dates), StringColumn.create("verb", verbs));
+		for (int column = 0; column < DOUBLE_COLUMNS.length; column++) {
+			output.addColumns(new JournalDoubleColumn(DOUBLE_COLUMNS[column], journal.values[column], rows));
+		}
+		output.addColumns(new JournalIntColumn("numberTrades", journal.numberOfTrades, rows));
+		for (Map.Entry<String, double[]> entry : journal.customColumns.entrySet()) {
+			output.addColumns(new JournalDoubleColumn(entry.getKey(), entry.getValue(), rows));
+		}
+		return output;
+	}
+
+	public synchronized void writeParquet(String filepath) throws IOException {
+		PnlJournal journal = readAll();
+		Types.MessageTypeBuilder schemaBuilder = Types.buildMessage();
+		schemaBuilder.required(PrimitiveType.PrimitiveTypeName.INT64).named("timestamp");
+		schemaBuilder.optional(PrimitiveType.PrimitiveTypeName.BINARY).as(OriginalType.UTF8).named("verb");
+		for (String column : DOUBLE_COLUMNS) {
+			schemaBuilder.required(PrimitiveType.PrimitiveTypeName.DOUBLE).named(column);
+		}
+		schemaBuilder.required(PrimitiveType.PrimitiveTypeName.INT32).named("numberTrades");
+		List<String> customNames = new ArrayList<>(journal.customColumns.keySet());
+		for (String customName : customNames) {
+			schemaBuilder.optional(PrimitiveType.PrimitiveTypeName.DOUBLE).named(customName);
+		}
+		MessageType schema = schemaBuilder.named("pnl_journal");
+
+		SimpleGroupFactory groupFactory = new SimpleGroupFactory(schema);
+		try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new Path(filepath)).withType(schema)
+				.withConf(new Configuration()).withCompressionCodec(CompressionCodecName.GZIP)
+				.withWriteMode(OVERWRITE).build()) {
+			for (int row = 0; row < journal.rows; row++) {
+				Group group = groupFactory.newGroup();
+				group.append("timestamp", journal.timestamps[row]);
+				byte verb = journal.verbs[row];
+				if (verb != NO_VERB) {
+					group.append("verb", VERBS[verb - 1].name());
+				}
+				for (int column = 0; column < DOUBLE_COLUMNS.length; column++) {
+					group.append(DOUBLE_COLUMNS[column], journal.values[column][row]);
+				}
+				group.append("numberTrades", journal.numberOfTrades[row]);
+				for (String customName : customNames) {
+					double value = journal.customColumns.get(customName)[row];
+					if (!Double.isNaN(value)) {
+						group.append(customName, value);
+					}
+				}
+				writer.write(group);
+			}
+		}
+	}
+
+	public synchronized void close() {
+		closeSpill();
+		if (spillFile != null) {
+			spillFile.delete();
+		}
+	}
+
+}
@@ -1,12 +1,12 @@
 package com.lambda.investing.algorithmic_trading;
 
+import com.lambda.investing.algorithmic_trading.rolling_statistics.RollingVariance;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.trading.ExecutionReport;
 import com.lambda.investing.model.trading.ExecutionReportStatus;
 import com.lambda.investing.model.trading.Verb;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.curator.shaded.com.google.common.collect.EvictingQueue;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -14,7 +14,6 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetStd;
 import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore;
 
 @Getter public class PnlSnapshot {
@@ -24,10 +23,7 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 	Logger logger = LogManager.getLogger(PnlSnapshot.class);
 	public double netPosition, avgOpenPrice, netInvestment, realizedPnl, unrealizedPnl, totalPnl, lastPriceForUnrealized;
 	public Map<Double, Double> openPriceToVolume;
-	public Map<Long, Double> historicalNetPosition, historicalAvgOpenPrice, historicalNetInvestment, historicalRealizedPnl, historicalUnrealizedPnl, historicalTotalPnl, historicalPrice, historicalQuantity;
-	public Map<Long, List<CustomColumn>> historicalCustomColumns;
-	public Map<Long, String> historicalVerb;
-	public Map<Long, Integer> historicalNumberOfTrades;
+	public PnlJournal journal;
 	private Map<String, ExecutionReportStatus> processedClOrdId;
 	private boolean nextCustomReject = false;
 	public double lastPrice, lastQuantity;
@@ -37,7 +33,7 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 	public AtomicInteger numberOfTrades = new AtomicInteger(0);
 	private boolean isBacktest = false;
 	private boolean isPaper = false;
-	private Queue<Double> midpricesQueue;
+	private RollingVariance midpricesQueue;
 	private double maxExecutionPriceValid = Double.MAX_VALUE;
 	private double minExecutionPriceValid = -Double.MAX_VALUE;
 	private int windowTick = 10;
@@ -45,22 +41,10 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 
 	public PnlSnapshot() {
 		openPriceToVolume = new ConcurrentHashMap<>();
-		historicalCustomColumns = new ConcurrentHashMap<>();
-
-		historicalNetPosition = new ConcurrentHashMap<>();
-		historicalAvgOpenPrice = new ConcurrentHashMap<>();
-		historicalNetInvestment = new ConcurrentHashMap<>();
-		historicalRealizedPnl = new ConcurrentHashMap<>();
-		historicalUnrealizedPnl = new ConcurrentHashMap<>();
-		historicalTotalPnl = new ConcurrentHashMap<>();
 		processedClOrdId = new ConcurrentHashMap<>();
+		journal = PnlJournal.create();
 
-		historicalPrice = new ConcurrentHashMap<>();
-		historicalQuantity = new ConcurrentHashMap<>();
-		historicalVerb = new ConcurrentHashMap<>();
-		historicalNumberOfTrades = new ConcurrentHashMap<>();
-
-		midpricesQueue = EvictingQueue.create(windowTick);
+		midpricesQueue = new RollingVariance(windowTick);
 	}
 
 	public void setNumberOfTrades(int numberOfTrades) {
@@ -80,17 +64,15 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 	}
 
 	private boolean checkUnrealizedHistorical(double unrealizedPnlProposal) {
-		if (historicalUnrealizedPnl.size() < 25) {
+		if (journal.size() < 25) {
 			return true;
 		}
-		List<Double> unrealizedPnlList = new ArrayList<Double>(historicalUnrealizedPnl.values());
 		//subsample it
-		int startIndex = Math.max(0, unrealizedPnlList.size() - 100);//its inclusive
-		int endIndex = unrealizedPnlList.size();//its exclusive
-		unrealizedPnlList = unrealizedPnlList.subList(startIndex, endIndex);
-
-		Double[] unrealizedPnlArr = new Double[unrealizedPnlList.size()];
-		unrealizedPnlArr = unrealizedPnlList.toArray(unrealizedPnlArr);
+		double[] unrealizedPnlLast = journal.getLastValues(PnlJournal.UNREALIZED_PNL, 100);
+		Double[] unrealizedPnlArr = new Double[unrealizedPnlLast.length];
+		for (int index = 0; index < unrealizedPnlLast.length; index++) {
+			unrealizedPnlArr[index] = unrealizedPnlLast[index];
+		}
 		double zscore = GetZscore(unrealizedPnlArr, unrealizedPnlProposal);
 		double maxZscoreWarning = 4;
 		if (Math.abs(zscore) > maxZscoreWarning) {
@@ -110,17 +92,8 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 			//			}
 
 			lastTimestampUpdate = timestamp;
-			historicalNetPosition.put(timestamp, netPosition);
-			historicalAvgOpenPrice.put(timestamp, avgOpenPrice);
-			historicalNetInvestment.put(timestamp, netInvestment);
-			historicalRealizedPnl.put(timestamp, realizedPnl);
-			historicalUnrealizedPnl.put(timestamp, unrealizedPnl);
-			historicalTotalPnl.put(timestamp, totalPnl);
-
-			historicalPrice.put(timestamp, lastPrice);
-			historicalQuantity.put(timestamp, lastQuantity);
-			historicalVerb.put(timestamp, lastVerb);
-			historicalNumberOfTrades.put(timestamp, numberOfTrades.get());
+			journal.append(timestamp, numberOfTrades.get(), lastVerb, lastPrice, lastQuantity, netPosition,
+					avgOpenPrice, netInvestment, realizedPnl, unrealizedPnl, totalPnl);
 		}
 
 	}
@@ -131,12 +104,7 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 		//			return;
 		//		}
 		if (numberOfTrades.get() > 0 && timestamp > 0) {
-			CustomColumn customColumn = new CustomColumn(key, value);
-			List<CustomColumn> columnsList = historicalCustomColumns.getOrDefault(timestamp, new ArrayList<>());
-			if (!columnsList.contains(customColumn)) {
-				columnsList.add(customColumn);
-			}
-			historicalCustomColumns.put(timestamp, columnsList);
+			journal.setCustom(timestamp, key, value);
 		}
 	}
 
@@ -325,42 +293,7 @@ import static com.lambda.investing.algorithmic_trading.TimeseriesUtils.GetZscore
 			//calculate once only
 			return stdMidPrice;
 		}
-		Double[] midPricesArr = new Double[windowTick];
-		try {
-			Double[] midPricesArrtemp = new Double[midpricesQueue.size()];
-			midPricesArrtemp = midpricesQueue.toArray(midPricesArrtemp);
-			if (midpricesQueue.size() == windowTick) {
-				midPricesArr = midPricesArrtemp;
-			} else {
-				int indexArr = windowTick - 1;
-				for (int lastElements = midPricesArrtemp.length - 1; lastElements >= 0; lastElements--) {
-					midPricesArr[indexArr] = midPricesArrtemp[lastElements];
-					indexArr--;
-					if (indexArr < 0) {
-						break;
-					}
-				}
-			}
-
-		} catch (IndexOutOfBoundsException e) {
-			logger.error("error calculating std on {} windows tick with size {}-> return last stdMidPrice", windowTick,
-					midpricesQueue.size());
-			return this.stdMidPrice;
-		}
-
-		double std = GetStd(midPricesArr);
-		//		double sum = 0.;
-		//		for (int i = 0; i < windowTick; i++) {
-		//			sum += midPricesArr[i];
-		//		}
-		//		double mean = sum / (double) windowTick;
-		//		double sqDiff = 0;
-		//		for (int i = 0; i < windowTick; i++) {
-		//			sqDiff += (midPricesArr[i] - mean) * (midPricesArr[i] - mean);
-		//		}
-		//		double var = (double) sqDiff / windowTick;
-		//		double std = Math.sqrt(var);
-		return std;
+		return midpricesQueue.getStd();
 	}
 
 	private void calculateBoundariesPrice(double lastPrice) {
@@ -5,7 +5,6 @@ import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
 import com.lambda.investing.model.trading.ExecutionReport;
 import com.lambda.investing.model.trading.Verb;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import tech.tablesaw.aggregate.AggregateFunctions;
@@ -17,6 +16,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 //
 import tech.tablesaw.plotly.Plot;
@@ -27,17 +27,18 @@ import tech.tablesaw.selection.Selection;
 
 public class PortfolioManager {
 
+	public static boolean TRADES_TABLE_PARQUET = false;//save all the pnl journal rows in parquet too
+
 	private Logger logger = LogManager.getLogger(PortfolioManager.class);
 	private Algorithm algorithm;
 	//	private Map<String, List<ExecutionReport>> instrumentToExecutionReportsFilled;
 	protected Map<String, PnlSnapshot> instrumentPnlSnapshotMap;
 	private Map<String, Map<String, Double>> customColumns;
-	private Set<String> customColumnsKeys;
 	private boolean isBacktest;
 	private boolean isPaper;
 
 
-	public long numberOfTrades = 0;
+	public AtomicLong numberOfTrades = new AtomicLong(0);
 
 	public PortfolioManager(Algorithm algorithm) {
 		this.algorithm = algorithm;
@@ -55,7 +56,6 @@ public class PortfolioManager {
 		//		instrumentToExecutionReportsFilled = new ConcurrentHashMap<>();
 		instrumentPnlSnapshotMap = new ConcurrentHashMap<>();
 		customColumns = new ConcurrentHashMap<>();
-		customColumnsKeys = new HashSet<>();
 	}
 
 	public void updateDepth(Depth depth) {
@@ -72,7 +72,6 @@ public class PortfolioManager {
 		Map<String, Double> customColumnsInstrument = customColumns.getOrDefault(instrument, new HashMap<>());
 		customColumnsInstrument.put(key, value);
 		customColumns.put(instrument, customColumnsInstrument);
-		customColumnsKeys.add(key);
 	}
 
 	private void updateCustomHistoricals(String instrumentPk, long timestamp, PnlSnapshot pnlSnapshot) {
@@ -102,7 +101,7 @@ public class PortfolioManager {
 
 
 		instrumentPnlSnapshotMap.put(executionReport.getInstrument(), pnlSnapshot);
-		numberOfTrades++;
+		numberOfTrades.incrementAndGet();
 
 		return pnlSnapshot;
 	}
@@ -127,11 +126,6 @@ public class PortfolioManager {
 
 	}
 
-	private Double[] fromList(List<Double> input) {
-		Double[] output = new Double[input.size()];
-		return input.toArray(output);
-	}
-
 	public void plotHistorical(Instrument instrument) {
 		Map<Instrument, Table> tradesTable = getTradesTable(null);
 		Table tradeTable = tradesTable.get(instrument);
@@ -197,108 +191,66 @@ public class PortfolioManager {
 			PnlSnapshot pnlSnapshot = instrumentPnlSnapshotMap.get(instrumentPk);
 
 			Table output1 = Table.create(algorithm.algorithmInfo);
-			if (numberOfTrades == 0) {
+			if (numberOfTrades.get() == 0) {
 				logger.warn("no trades detected!");
 				return output;
 			}
-			List<Long> timestamp = new ArrayList<>(pnlSnapshot.historicalAvgOpenPrice.keySet());
-			List<Double> netPosition = new ArrayList<>(pnlSnapshot.historicalNetPosition.values());
-			List<Double> avgOpenPrice = new ArrayList<>(pnlSnapshot.historicalAvgOpenPrice.values());
-			List<Double> netInvestment = new ArrayList<>(pnlSnapshot.historicalNetInvestment.values());
-			List<Double> historicalRealizedPnl = new ArrayList<>(pnlSnapshot.historicalRealizedPnl.values());
-			List<Double> historicalUnrealizedPnl = new ArrayList<>(pnlSnapshot.historicalUnrealizedPnl.values());
-			List<Double> historicalTotalPnl = new ArrayList<>(pnlSnapshot.historicalTotalPnl.values());
-			List<Double> historicalPrice = new ArrayList<>(pnlSnapshot.historicalPrice.values());
-			List<Double> historicalQuantity = new ArrayList<>(pnlSnapshot.historicalQuantity.values());
-
-			List<Integer> numberTrades = new ArrayList<>(pnlSnapshot.historicalNumberOfTrades.values());
-
-			List<String> verb = new ArrayList<>(pnlSnapshot.historicalVerb.values());
-
-			Long[] timestampArr = new Long[timestamp.size()];
-			timestampArr = timestamp.toArray(timestampArr);
-
-			LocalDateTime[] dates = new LocalDateTime[timestamp.size()];
-			int index = 0;
-			for (Long timestam : timestamp) {
-				LocalDateTime date = LocalDateTime
-						.ofInstant(Instant.ofEpochMilli(timestam), TimeService.DEFAULT_ZONEID);
-				dates[index] = date;
-				index++;
+			try {
+				output1 = getTradesTable(pnlSnapshot.journal, algorithm.algorithmInfo);
+			} catch (IOException e) {
+				logger.error("can't read pnl journal of {}", instrumentPk, e);
+				continue;
 			}
-
-			LongColumn timestampColumn = LongColumn.create("timestamp", ArrayUtils.toPrimitive(timestampArr));
-			DateTimeColumn dateTimeColumn = DateTimeColumn.create("date", dates);
-
-			String[] verbArr = new String[verb.size()];
-			verbArr = verb.toArray(verbArr);
-
-			StringColumn verbColumn = StringColumn.create("verb", verbArr);
-			DoubleColumn priceColumn = DoubleColumn.create("price", fromList(historicalPrice));
-			DoubleColumn quantityColumn = DoubleColumn.create("quantity", fromList(historicalQuantity));
-			DoubleColumn netPositionColumn = DoubleColumn.create("netPosition", fromList(netPosition));
-			DoubleColumn avgOpenPriceColumn = DoubleColumn.create("avgOpenPrice", fromList(avgOpenPrice));
-			DoubleColumn netInvestmentColumn = DoubleColumn.create("netInvestment", fromList(netInvestment));
-			DoubleColumn historicalRealizedPnlColumn = DoubleColumn
-					.create("historicalRealizedPnl", fromList(historicalRealizedPnl));
-			DoubleColumn historicalUnrealizedPnltColumn = DoubleColumn
-					.create("historicalUnrealizedPnl", fromList(historicalUnrealizedPnl));
-			DoubleColumn historicalTotalPnlColumn = DoubleColumn
-					.create("historicalTotalPnl", fromList(historicalTotalPnl));
-
-			Integer[] numberTradesArr = new Integer[numberTrades.size()];
-			numberTradesArr = numberTrades.toArray(numberTradesArr);
-			IntColumn numberTradesColumn = IntColumn.create("numberTrades", numberTradesArr);
-
-			output1 = output1.addColumns(timestampColumn, dateTimeColumn, verbColumn, priceColumn, quantityColumn,
-					netPositionColumn, avgOpenPriceColumn, netInvestmentColumn, historicalRealizedPnlColumn,
-					historicalUnrealizedPnltColumn, historicalTotalPnlColumn, numberTradesColumn);
-
-			//add custom columns
-			if (customColumnsKeys.size() > 0) {
-				Map<Long, List<CustomColumn>> historicalsCustoms = pnlSnapshot.historicalCustomColumns;
-				for (String customKey : customColumnsKeys) {
-					List<Double> customDouble = new ArrayList<>();
-					for (List<CustomColumn> customColumn : historicalsCustoms.values()) {
-						for (CustomColumn customColumn1 : customColumn) {
-							if (customKey.equalsIgnoreCase(customColumn1.getKey())) {
-								customDouble.add(customColumn1.getValue());
-							}
-						}
-					}
-					DoubleColumn customColumn = DoubleColumn.create(customKey, fromList(customDouble));
-					output1 = output1.addColumns(customColumn);
-				}
-			}
-
-			// filtered!
-			output1 = output1.sortAscendingOn(dateTimeColumn.name());
-			IntColumn numberTradesSorted = output1.intColumn("numberTrades");
-			Table output2 = output1.where(numberTradesSorted.difference().isNotEqualTo(0.0));
-			//			output2= firstRow.append(output2);
-			//			double lastUnrealizedPnl = historicalUnrealizedPnl.get(historicalUnrealizedPnl.size() - 1);
-			//			double lastRealizedPnl = historicalRealizedPnl.get(historicalRealizedPnl.size() - 1);
-			//			if (lastUnrealizedPnl != 0.0) {
-			//				Row lastRow = output2.row(output2.rowCount() - 1);
-			//				lastRow.setDouble("historicalUnrealizedPnl", lastUnrealizedPnl);
-			//				lastRow.setDouble("historicalRealizedPnl", lastRealizedPnl);
-			//				double lastTotalPnl = lastRealizedPnl + lastUnrealizedPnl;
-			//				lastRow.setDouble("historicalTotalPnl", lastTotalPnl);
-			//			}
-			output1 = output2;
-			output1 = output1.sortAscendingOn(dateTimeColumn.name());
-			//filtere the trades
 			if (basePath != null) {
-				String filename = basePath + "_" + instrumentPk + ".csv";
-				try {
-					output1.write().csv(filename);
-				} catch (IOException e) {
-					logger.error("cant save tradestable to {} ", filename, e);
-				}
+				saveTradesTable(output1, pnlSnapshot.journal, basePath + "_" + instrumentPk);
 			}
 			output.put(instrument, output1);
 		}
 		return output;
 	}
 
+	/**
+	 * @return rows of the journal where the number of trades changed sorted by date
+	 */
+	public static Table getTradesTable(PnlJournal journal, String name) throws IOException {
+		Table output = journal.toTable(name);
+		DateTimeColumn dateTimeColumn = output.dateTimeColumn("date");
+
+		// filtered!
+		output = output.sortAscendingOn(dateTimeColumn.name());
+		IntColumn numberTradesSorted = output.intColumn("numberTrades");
+		output = output.where(numberTradesSorted.difference().isNotEqualTo(0.0));
+		//			output2= firstRow.append(output2);
+		//			double lastUnrealizedPnl = historicalUnrealizedPnl.get(historicalUnrealizedPnl.size() - 1);
+		//			double lastRealizedPnl = historicalRealizedPnl.get(historicalRealizedPnl.size() - 1);
+		//			if (lastUnrealizedPnl != 0.0) {
+		//				Row lastRow = output2.row(output2.rowCount() - 1);
+		//				lastRow.setDouble("historicalUnrealizedPnl", lastUnrealizedPnl);
+		//				lastRow.setDouble("historicalRealizedPnl", lastRealizedPnl);
+		//				double lastTotalPnl = lastRealizedPnl + lastUnrealizedPnl;
+		//				lastRow.setDouble("historicalTotalPnl", lastTotalPnl);
+		//			}
+		return output.sortAscendingOn(dateTimeColumn.name());
+	}
+
+	/**
+	 * @param basePath without extension , journal saved in basePath_journal.parquet if TRADES_TABLE_PARQUET
+	 */
+	public static void saveTradesTable(Table tradesTable, PnlJournal journal, String basePath) {
+		String filename = basePath + ".csv";
+		try {
+			tradesTable.write().csv(filename);
+		} catch (IOException e) {
+			LogManager.getLogger(PortfolioManager.class).error("cant save tradestable to {} ", filename, e);
+		}
+		if (TRADES_TABLE_PARQUET) {
+			String parquetFilename = basePath + "_journal.parquet";
+			try {
+				journal.writeParquet(parquetFilename);
+			} catch (IOException e) {
+				LogManager.getLogger(PortfolioManager.class).error("cant save pnl journal to {} ", parquetFilename, e);
+			}
+		}
+	}
+
 }
@@ -9,18 +9,23 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import static com.lambda.investing.algorithmic_trading.Algorithm.EXECUTION_REPORT_LOCK;
+/***
+ * Bid and ask QuoteSideManager of one instrument
+ * With UPDATE_QUOTE_SCHEDULER the quote requests are conflated and sent from the shared AlgorithmScheduler ,
+ * only when there is a new request or an execution report , never polling
+ */
+public class QuoteManager implements ExecutionReportListener {
 
-public class QuoteManager implements ExecutionReportListener, Runnable {
-
-	private static boolean UPDATE_QUOTE_BUFFER_THREAD = false;//if true will be update timely on a different thread
+	public static boolean UPDATE_QUOTE_SCHEDULER = false;//if true will be updated on the AlgorithmScheduler thread
 
 	Logger logger = LogManager.getLogger(QuoteManager.class);
 	private Algorithm algorithm;
 	private Instrument instrument;
 
-	private QuoteRequest lastQuoteRequest;
+	private volatile QuoteRequest lastQuoteRequest;
+	private final AtomicBoolean updatePending = new AtomicBoolean(false);
 	private QuoteSideManager bidQuoteSideManager;
 	private QuoteSideManager askQuoteSideManager;
 
@@ -30,48 +35,64 @@ public class QuoteManager implements ExecutionReportListener, Runnable {
 		this.limitOrders = limitOrders;
 	}
 
-	Thread quoteThread;
-
 	public QuoteManager(Algorithm algorithm, Instrument instrument) {
 		this.algorithm = algorithm;
 		this.instrument = instrument;
 		this.bidQuoteSideManager = new QuoteSideManager(this.algorithm, this.instrument, Verb.Buy);
 		this.askQuoteSideManager = new QuoteSideManager(this.algorithm, this.instrument, Verb.Sell);
-
-		if (UPDATE_QUOTE_BUFFER_THREAD) {
-			quoteThread = new Thread(this, "quoteManager");
-			quoteThread.setPriority(Thread.MIN_PRIORITY);
-			quoteThread.start();
-		}
-
 	}
 
 	public void reset() {
+		this.lastQuoteRequest = null;
 		this.bidQuoteSideManager.reset();
 		this.askQuoteSideManager.reset();
 	}
 
 	public void quoteRequest(QuoteRequest quoteRequest) throws LambdaTradingException {
 		this.lastQuoteRequest = quoteRequest;
-		if (!UPDATE_QUOTE_BUFFER_THREAD) {
+		if (!UPDATE_QUOTE_SCHEDULER) {
 			try {
 				updateQuote();
 			} catch (Exception e) {
 				//				logger.error(e);
 			}
+		} else {
+			scheduleUpdateQuote();
+		}
+	}
+
+	/**
+	 * One pending update at most , it sends the last quote request received
+	 */
+	private void scheduleUpdateQuote() {
+		if (updatePending.compareAndSet(false, true)) {
+			AlgorithmScheduler.getScheduler().execute(this::runUpdateQuote);
+		}
+	}
+
+	private void runUpdateQuote() {
+		updatePending.set(false);
+		if (lastQuoteRequest == null) {
+			return;
+		}
+		try {
+			updateQuote();
+		} catch (Exception e) {
+
 		}
 	}
 
 	private void updateQuote() throws LambdaTradingException {
-		checkQuoteRequest(this.lastQuoteRequest);
+		QuoteRequest quoteRequest = this.lastQuoteRequest;
+		checkQuoteRequest(quoteRequest);
 		LambdaTradingException ex = null;
 		try {
-			bidQuoteSideManager.quoteRequest(this.lastQuoteRequest);
+			bidQuoteSideManager.quoteRequest(quoteRequest);
 		} catch (Exception e) {
 			ex = new LambdaTradingException(e);
 		}
 
-		askQuoteSideManager.quoteRequest(this.lastQuoteRequest);
+		askQuoteSideManager.quoteRequest(quoteRequest);
 		if (ex != null) {
 			throw ex;
 		}
@@ -121,6 +142,10 @@ public class QuoteManager implements ExecutionReportListener, Runnable {
 	@Override public boolean onExecutionReportUpdate(ExecutionReport executionReport) {
 		bidQuoteSideManager.onExecutionReportUpdate(executionReport);
 		askQuoteSideManager.onExecutionReportUpdate(executionReport);
+		if (UPDATE_QUOTE_SCHEDULER && lastQuoteRequest != null) {
+			//the side waiting for this execution report can send the last quote now
+			scheduleUpdateQuote();
+		}
 		return true;
 
 	}
@@ -139,21 +164,4 @@ public class QuoteManager implements ExecutionReportListener, Runnable {
 
 	}
 
-	@Override public void run() {
-		while (true) {
-
-			try {
-				updateQuote();
-			} catch (Exception e) {
-
-			}
-
-			try {
-				Thread.sleep(1);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
-	}
-
 }
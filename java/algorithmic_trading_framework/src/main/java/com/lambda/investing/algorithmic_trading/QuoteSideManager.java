@@ -12,7 +12,6 @@ import java.util.*;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 
-import static com.lambda.investing.algorithmic_trading.Algorithm.EXECUTION_REPORT_LOCK;
 import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 
 public class QuoteSideManager {
@@ -23,6 +22,7 @@ public class QuoteSideManager {
 	private Algorithm algorithm;
 	private Instrument instrument;
 	private Verb verb;
+	private Object orderStateLock;//of the instrument , shared with the execution reports
 
 	private String clientOrderIdSent, clientOrderIdSentBackup;
 	private String activeClientOrderId, activeClientOrderIdToBeCanceled;
@@ -39,6 +39,7 @@ public class QuoteSideManager {
 		this.algorithm = algorithm;
 		this.instrument = instrument;
 		this.verb = verb;
+		this.orderStateLock = algorithm.getInstrumentManager(instrument.getPrimaryKey()).getOrderStateLock();
 		reset();
 	}
 
@@ -72,7 +73,7 @@ public class QuoteSideManager {
 	}
 
 	public void quoteRequest(QuoteRequest quoteRequest) throws LambdaTradingException {
-		synchronized (EXECUTION_REPORT_LOCK) {
+		synchronized (orderStateLock) {
 			//			Already check on algorithm
 			//			if(quoteRequest.getQuoteRequestAction().equals(QuoteRequestAction.On) && !algorithm.getAlgorithmState().equals(AlgorithmState.STARTED)){
 			//				throw new LambdaTradingException("cant quote with algo not started");
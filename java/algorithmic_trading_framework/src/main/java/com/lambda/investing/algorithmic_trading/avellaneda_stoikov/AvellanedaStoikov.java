@@ -1,16 +1,16 @@
 package com.lambda.investing.algorithmic_trading.avellaneda_stoikov;
 
 import com.lambda.investing.algorithmic_trading.*;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.DoubleRingBuffer;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.RollingVariance;
 import com.lambda.investing.model.asset.Instrument;
 import com.lambda.investing.model.exception.LambdaTradingException;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
 import com.lambda.investing.model.trading.*;
 import org.apache.commons.math3.util.Precision;
-import org.apache.curator.shaded.com.google.common.collect.EvictingQueue;
 
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -55,10 +55,10 @@ public class AvellanedaStoikov extends SingleInstrumentAlgorithm {
 	private double targetPosition = 0.;
 	private double positionMultiplier = 1.;
 
-	private Queue<Double> midpricesQueue;
-	private Queue<Long> counterTradesPerMinute;
-	private Queue<Long> counterBuyTradesPerMinute;
-	private Queue<Long> counterSellTradesPerMinute;
+	private RollingVariance midpricesQueue;
+	private DoubleRingBuffer counterTradesPerMinute;
+	private DoubleRingBuffer counterBuyTradesPerMinute;
+	private DoubleRingBuffer counterSellTradesPerMinute;
 	private long counterStartingMinuteMs = 0;
 	private long counterTrades = 0;
 	private long counterBuyTrades = 0;
@@ -119,19 +119,20 @@ public class AvellanedaStoikov extends SingleInstrumentAlgorithm {
 		if (this.midpricesQueue == null) {
 			//dont delete it if exists
 			logger.info("creating midpricesQueue of len {}", this.windowTick);
-			this.midpricesQueue = EvictingQueue.create(this.windowTick);
+			this.midpricesQueue = new RollingVariance(Math.max(1, this.windowTick));
 		}
 
-		this.counterTradesPerMinute = EvictingQueue.create(60);//last element in the -1 index
-		this.counterBuyTradesPerMinute = EvictingQueue.create(60);//last element in the -1 index
-		this.counterSellTradesPerMinute = EvictingQueue.create(60);//last element in the -1 index
+		this.counterTradesPerMinute = new DoubleRingBuffer(60);//last element in the size-1 index
+		this.counterBuyTradesPerMinute = new DoubleRingBuffer(60);//last element in the size-1 index
+		this.counterSellTradesPerMinute = new DoubleRingBuffer(60);//last element in the size-1 index
 		sideActive = new ConcurrentHashMap<>();
 
 	}
 
 	protected void setMidPricesQueue(int windowTick) {
 		//For RL
-		this.midpricesQueue = EvictingQueue.create(windowTick);
+		//window is changed on getVarianceMidPrice with the current windowTick
+		this.midpricesQueue = new RollingVariance(Math.max(1, windowTick));
 	}
 
 
@@ -340,19 +341,16 @@ public class AvellanedaStoikov extends SingleInstrumentAlgorithm {
 	 *
 	 * @return K_total
 	 */
-	private double calculateK(Queue<Long> counterTradesPerMinuteInput) {
+	private double calculateK(DoubleRingBuffer counterTradesPerMinuteInput) {
 		if (kDefault != null) {
 			return kDefault;
 		}
 		if (counterTradesPerMinuteInput.size() < minutesChangeK + 1) {
 			return 0.;
 		}
-		Long[] counterTradesPerMinute = new Long[counterTradesPerMinuteInput.size()];
-		counterTradesPerMinute = counterTradesPerMinuteInput.toArray(counterTradesPerMinute);
-
-		double lastMinuteTrades = Double.valueOf(counterTradesPerMinute[counterTradesPerMinuteInput.size() - 1]);
-		double initialMinuteTrades = Double
-				.valueOf(counterTradesPerMinute[counterTradesPerMinuteInput.size() - (minutesChangeK + 1)]);
+		double lastMinuteTrades = counterTradesPerMinuteInput.get(counterTradesPerMinuteInput.size() - 1);
+		double initialMinuteTrades = counterTradesPerMinuteInput
+				.get(counterTradesPerMinuteInput.size() - (minutesChangeK + 1));
 
 		//		 k_total = count_total / (
 		//                    (count_total - count_total_before) / count_total_before
@@ -362,43 +360,14 @@ public class AvellanedaStoikov extends SingleInstrumentAlgorithm {
 	}
 
 	private Double getVarianceMidPrice() {
-
-		if (midpricesQueue.size() < windowTick) {
+		if (windowTick <= 0 || windowTick > midpricesQueue.getCapacity()) {
 			return null;
 		}
-		Double[] midPricesArr = new Double[windowTick];
-		try {
-			Double[] midPricesArrtemp = new Double[midpricesQueue.size()];
-			midPricesArrtemp = midpricesQueue.toArray(midPricesArrtemp);
-			if (midpricesQueue.size() == windowTick) {
-				midPricesArr = midPricesArrtemp;
-			} else {
-				int indexArr = windowTick - 1;
-				for (int lastElements = midPricesArrtemp.length - 1; lastElements >= 0; lastElements--) {
-					midPricesArr[indexArr] = midPricesArrtemp[lastElements];
-					indexArr--;
-					if (indexArr < 0) {
-						break;
-					}
-				}
-			}
-
-		} catch (IndexOutOfBoundsException e) {
-			logger.error("error calculating variance on {} windows tick with size {}-> return last varianceMidPrice",
-					windowTick, midpricesQueue.size());
-			return this.varianceMidPrice;
-		}
-		double sum = 0.;
-		for (int i = 0; i < windowTick; i++) {
-			sum += midPricesArr[i];
-		}
-		double mean = sum / (double) windowTick;
-		double sqDiff = 0;
-		for (int i = 0; i < windowTick; i++) {
-			sqDiff += (midPricesArr[i] - mean) * (midPricesArr[i] - mean);
+		midpricesQueue.setWindow(windowTick);
+		if (midpricesQueue.size() < windowTick) {
+			return null;
 		}
-		double var = (double) sqDiff / windowTick;
-		return var;
+		return midpricesQueue.getVariance();
 	}
 
 	private double getTt() {
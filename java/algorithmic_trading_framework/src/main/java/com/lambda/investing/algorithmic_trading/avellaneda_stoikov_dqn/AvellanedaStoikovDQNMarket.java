@@ -23,6 +23,7 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 	private static int DEFAULT_EPOCH = (int) 50;
 	private static int DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD = -1;
 	private static int DEFAULT_TRAINING_TARGET_ITERATION_PERIOD = DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD * 5;
+	private static int DEFAULT_ASYNC_TRAINING = 0;//1 => train in background while quoting with the old models
 
 	private DeepQLearning memoryReplay;
 
@@ -31,8 +32,8 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
 	private int trainingPredictIterationPeriod = DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD;
 	private int trainingTargetIterationPeriod = DEFAULT_TRAINING_TARGET_ITERATION_PERIOD;
-	private MemoryReplayModel predictionModel;
-	private MemoryReplayModel targetModel;
+	private boolean asyncTraining = DEFAULT_ASYNC_TRAINING != 0;
+	private MemoryReplayModelTrainer modelTrainer = new MemoryReplayModelTrainer(algorithmInfo);
 
 	private int numberDecimalsMarketState, numberDecimalsCandleState;
 	private double minMarketState, maxMarketState, minCandleState, maxCandleState;
@@ -62,10 +63,11 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 		double learningRate = getParameterDoubleOrDefault(parameters, "learningRate", 0.);
 		double discountFactor = getParameterDoubleOrDefault(parameters, "discountFactor", 0.5);
 
-		predictionModel = new Dl4jMemoryReplayModel(getPredictModelPath(), learningRate, discountFactor, epoch,
-				maxBatchSize, l2, l1);
-		targetModel = new Dl4jMemoryReplayModel(getTargetModelPath(), learningRate, discountFactor, epoch, maxBatchSize,
-				l2, l1);
+		MemoryReplayModel predictionModel = new Dl4jMemoryReplayModel(getPredictModelPath(), learningRate,
+				discountFactor, epoch, maxBatchSize, l2, l1);
+		MemoryReplayModel targetModel = new Dl4jMemoryReplayModel(getTargetModelPath(), learningRate, discountFactor,
+				epoch, maxBatchSize, l2, l1);
+		modelTrainer.setModels(null, predictionModel, targetModel, getTargetModelPath());
 	}
 
 	@Override public void setEpsilon(double epsilon) {
@@ -76,6 +78,9 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 	public void init() {
 		super.init(false);
 		candleManager = new CandleManager(this.stateManager);
+		//init again keeps the models trained
+		MemoryReplayModel predictionModel = modelTrainer.getPredictionModel();
+		MemoryReplayModel targetModel = modelTrainer.getTargetModel();
 
 		if (this.trainingStats > 0 && predictionModel instanceof Dl4jMemoryReplayModel) {
 			((Dl4jMemoryReplayModel) predictionModel).setTrainingStats(true);
@@ -86,8 +91,8 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 		IExplorationPolicy explorationPolicy = new EpsilonGreedyExploration(this.epsilon);
 		try {
 			memoryReplay = new DeepQLearning(this.state, this.avellanedaAction, explorationPolicy,
-					predictionModel.getBatchSize(),
-					this.predictionModel, this.targetModel);
+					predictionModel.getBatchSize(), predictionModel, targetModel);
+			modelTrainer.setModels(memoryReplay, predictionModel, targetModel, getTargetModelPath());
 			long seed = System.currentTimeMillis();
 			memoryReplay.setSeed(seed);
 
@@ -107,7 +112,7 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 	}
 
 	protected String getMemoryPath() {
-		return BASE_MEMORY_PATH + "memoryReplay_" + algorithmInfo + ".csv";
+		return BASE_MEMORY_PATH + "memoryReplay_" + algorithmInfo + DeepQLearning.getMemoryExtension();
 	}
 
 	protected String getPredictModelPath() {
@@ -139,6 +144,7 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 				DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD);
 		this.trainingTargetIterationPeriod = getParameterIntOrDefault(parameters, "trainingTargetIterationPeriod",
 				DEFAULT_TRAINING_TARGET_ITERATION_PERIOD);
+		this.asyncTraining = getParameterIntOrDefault(parameters, "asyncTraining", DEFAULT_ASYNC_TRAINING) != 0;
 
 		this.numberDecimalsMarketState = getParameterIntOrDefault(parameters, "numberDecimalsMarketState", 0);
 		this.numberDecimalsCandleState = getParameterIntOrDefault(parameters, "numberDecimalsCandleState", 0);
@@ -189,38 +195,19 @@ public class AvellanedaStoikovDQNMarket extends AvellanedaStoikovQLearn {
 
 	public int getNextAction(AbstractState state) {
 		iterations++;
-		if (trainingPredictIterationPeriod > 0 && (iterations % this.trainingPredictIterationPeriod) == 0) {
-			System.out.println("training prediction model on " + iterations + " iteration");
-			trainPrediction();
-
-			if (!targetModel.isTrained()) {
-				//copy first if not exist
-				trainTarget();
-			}
-		}
-
-		if (trainingTargetIterationPeriod > 0 && (iterations % this.trainingTargetIterationPeriod) == 0) {
-			System.out.println("training target model on " + iterations + " iteration=> copy it");
-			trainTarget();
-		}
-
+		modelTrainer.onIteration(iterations, trainingPredictIterationPeriod, trainingTargetIterationPeriod,
+				asyncTraining);
 		return memoryReplay.GetAction(state);
 	}
 
-	private void trainPrediction() {
-		double[][] input = memoryReplay.getInputTrain();
-		double[][] target = memoryReplay.getTargetTrain();
-		assert input.length == target.length;
-		this.predictionModel.train(input, target);
-		memoryReplay.setPredictModel(this.predictionModel);
+	@Override public void stop() {
+		super.stop();
+		modelTrainer.shutdown();
 	}
 
-	private void trainTarget() {
-		this.targetModel = this.predictionModel.cloneIt();
-		this.targetModel.setModelPath(getTargetModelPath());
-		this.targetModel.saveModel();
-		memoryReplay.setTargetModel(this.targetModel);
-
+	@Override public void reset() {
+		super.reset();
+		modelTrainer.shutdown();
 	}
 
 	@Override public boolean onCommandUpdate(Command command) {
@@ -19,6 +19,7 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 	private static int DEFAULT_EPOCH = (int) 50;
 	private static int DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD = 500;
 	private static int DEFAULT_TRAINING_TARGET_ITERATION_PERIOD = DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD * 5;
+	private static int DEFAULT_ASYNC_TRAINING = 0;//1 => train in background while quoting with the old models
 
 	private DeepQLearning memoryReplay;
 
@@ -27,8 +28,8 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
 	private int trainingPredictIterationPeriod = DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD;
 	private int trainingTargetIterationPeriod = DEFAULT_TRAINING_TARGET_ITERATION_PERIOD;
-	private MemoryReplayModel predictionModel;
-	private MemoryReplayModel targetModel;
+	private boolean asyncTraining = DEFAULT_ASYNC_TRAINING != 0;
+	private MemoryReplayModelTrainer modelTrainer = new MemoryReplayModelTrainer(algorithmInfo);
 
 	private CandleManager candleManager;
 
@@ -53,10 +54,10 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 		//		predictionModel=new OnnxMemoryReplayModel(getPredictModelPath(),null);
 		//		targetModel=new OnnxMemoryReplayModel(getTargetModelPath(),null);
 
-		predictionModel = new Dl4jMemoryReplayModel(getPredictModelPath(), learningRate, 0.5, epoch, maxBatchSize,
-				0.0001, 0);
-		targetModel = new Dl4jMemoryReplayModel(getTargetModelPath(), learningRate, 0.5, epoch, maxBatchSize, 0.0001,
-				0);
+		MemoryReplayModel predictionModel = new Dl4jMemoryReplayModel(getPredictModelPath(), learningRate, 0.5, epoch,
+				maxBatchSize, 0.0001, 0);
+		MemoryReplayModel targetModel = new Dl4jMemoryReplayModel(getTargetModelPath(), learningRate, 0.5, epoch,
+				maxBatchSize, 0.0001, 0);
 
 		if (this.trainingStats > 0 && predictionModel instanceof Dl4jMemoryReplayModel) {
 			((Dl4jMemoryReplayModel) predictionModel).setTrainingStats(true);
@@ -66,7 +67,8 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 		IExplorationPolicy explorationPolicy = new EpsilonGreedyExploration(this.epsilon);
 		try {
 			memoryReplay = new DeepQLearning(this.state, this.avellanedaAction, explorationPolicy,
-					maxBatchSize, this.predictionModel, this.targetModel);
+					maxBatchSize, predictionModel, targetModel);
+			modelTrainer.setModels(memoryReplay, predictionModel, targetModel, getTargetModelPath());
 
 			this.memoryReplay.loadMemory(getMemoryPath());
 
@@ -83,7 +85,7 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 
 
 	protected String getMemoryPath() {
-		return BASE_MEMORY_PATH + "memoryReplay_" + algorithmInfo + ".csv";
+		return BASE_MEMORY_PATH + "memoryReplay_" + algorithmInfo + DeepQLearning.getMemoryExtension();
 	}
 
 	protected String getPredictModelPath() {
@@ -103,6 +105,7 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 				DEFAULT_TRAINING_PREDICT_ITERATION_PERIOD);
 		this.trainingTargetIterationPeriod = getParameterIntOrDefault(parameters, "trainingTargetIterationPeriod",
 				DEFAULT_TRAINING_TARGET_ITERATION_PERIOD);
+		this.asyncTraining = getParameterIntOrDefault(parameters, "asyncTraining", DEFAULT_ASYNC_TRAINING) != 0;
 	}
 
 	public void updateMemoryReplay(double[] lastStateArr, int lastStatePosition, int lastAction, double rewardDelta,
@@ -117,40 +120,19 @@ public class AvellanedaStoikovDQNPrivate extends AvellanedaStoikovQLearn {
 
 	public int getNextAction(AbstractState state) {
 		iterations++;
-		if (trainingPredictIterationPeriod > 0 && (iterations % this.trainingPredictIterationPeriod) == 0) {
-			System.out.println("training prediction model on " + iterations + " iteration");
-			trainPrediction();
-
-			if (!targetModel.isTrained()) {
-				//copy first if not exist
-				trainTarget();
-			}
-		}
-
-		if (trainingTargetIterationPeriod > 0 && (iterations % this.trainingTargetIterationPeriod) == 0) {
-			System.out.println("training target model on " + iterations + " iteration=> copy it");
-			trainTarget();
-		}
-
+		modelTrainer.onIteration(iterations, trainingPredictIterationPeriod, trainingTargetIterationPeriod,
+				asyncTraining);
 		return memoryReplay.GetAction(state);
 	}
 
-	private void trainPrediction() {
-		double[][] input = memoryReplay.getInputTrain();
-		double[][] target = memoryReplay.getTargetTrain();
-		assert input.length == target.length;
-		this.predictionModel.train(input, target);
-		memoryReplay.setPredictModel(this.predictionModel);
+	@Override public void stop() {
+		super.stop();
+		modelTrainer.shutdown();
 	}
 
-	private void trainTarget() {
-		this.targetModel = this.predictionModel.cloneIt();
-		this.targetModel.setModelPath(getTargetModelPath());
-		this.targetModel.saveModel();
-		memoryReplay.setTargetModel(this.targetModel);
-
-
-
+	@Override public void reset() {
+		super.reset();
+		modelTrainer.shutdown();
 	}
 
 	@Override public boolean onCommandUpdate(Command command) {
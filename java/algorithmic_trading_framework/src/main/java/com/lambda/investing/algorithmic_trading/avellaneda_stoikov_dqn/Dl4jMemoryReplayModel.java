@@ -36,6 +36,7 @@ import org.deeplearning4j.ui.model.storage.InMemoryStatsStorage;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.evaluation.regression.RegressionEvaluation;
 import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.SplitTestAndTrain;
@@ -51,6 +52,9 @@ import org.datavec.api.split.FileSplit;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
@@ -83,6 +87,9 @@ public class Dl4jMemoryReplayModel implements MemoryReplayModel, Cloneable {
 	private MultiLayerNetwork model = null;
 
 	private boolean isTrained = false;
+	//reused on predict/predictBatch
+	private INDArray inputBuffer;
+	private double[] flatInputBuffer;
 	private boolean trainingStats = false;
 	ScoreIterationListener scoreIterationListener = new ScoreIterationListener(10);
 
@@ -150,16 +157,33 @@ public class Dl4jMemoryReplayModel implements MemoryReplayModel, Cloneable {
 
 	}
 
+	/**
+	 * Written in a temp file of the same folder and renamed => a model trained in background never leaves
+	 * a half written file for other thread or process loading modelPath
+	 */
 	public void saveModel() {
 		File savedModelFile = new File(this.modelPath);
+		File tempFile = null;
 		try {
 			//			this.model.save(savedModelFile,true);
-			writeModel(this.model, savedModelFile, true, (DataNormalization) this.dataNormalization);
+			File folder = savedModelFile.getAbsoluteFile().getParentFile();
+			folder.mkdirs();
+			tempFile = File.createTempFile(savedModelFile.getName(), ".tmp", folder);
+			writeModel(this.model, tempFile, true, (DataNormalization) this.dataNormalization);
+			try {
+				Files.move(tempFile.toPath(), savedModelFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), savedModelFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
 			System.out.println(String.format("saved model %s", this.modelPath));
 			logger.info(String.format("saved model %s", this.modelPath));
 		} catch (IOException e) {
 			System.err.println(String.format("cant save model %s", this.modelPath));
 			logger.error("cant save model ", e);
+			if (tempFile != null) {
+				tempFile.delete();
+			}
 		}
 
 	}
@@ -292,6 +316,32 @@ public class Dl4jMemoryReplayModel implements MemoryReplayModel, Cloneable {
 		saveModel();
 	}
 
+	/**
+	 * Input array of rows x columns reused between predictions , only reallocated when the shape changes
+	 */
+	private INDArray getInputBuffer(int rows, int columns) {
+		if (inputBuffer == null || inputBuffer.rows() != rows || inputBuffer.columns() != columns) {
+			inputBuffer = Nd4j.create(DataType.DOUBLE, rows, columns);
+			flatInputBuffer = new double[rows * columns];
+		}
+		return inputBuffer;
+	}
+
+	/**
+	 * @return output of the network for the normalized input , input is modified
+	 */
+	private INDArray output(INDArray input) {
+		((NormalizerStandardize) dataNormalization).transform(input);
+		return this.model.output(input);
+	}
+
+	private static double[] nanToNull(double[] output) {
+		if (Double.isNaN(Doubles.max(output))) {
+			return null;
+		}
+		return output;
+	}
+
 	@Override public double[] predict(double[] input) {
 		if (this.model == null) {
 			//			logger.error("to predict you need to fit it first!");
@@ -300,17 +350,11 @@ public class Dl4jMemoryReplayModel implements MemoryReplayModel, Cloneable {
 
 		double[] output = null;
 		try {
-			double[][] inputArr = new double[1][input.length];
-			inputArr[0] = input;
-			INDArray inputND = Nd4j.create(inputArr);
-
-			((NormalizerStandardize) dataNormalization).transform(inputND);
-			INDArray outputNd = this.model.output(inputND);
+			INDArray inputND = getInputBuffer(1, input.length);
+			inputND.data().setData(input);
+			INDArray outputNd = output(inputND);
 
-			output = outputNd.toDoubleVector();
-			if (Double.isNaN(Doubles.max(output))) {
-				output = null;
-			}
+			output = nanToNull(outputNd.toDoubleVector());
 		} catch (Exception e) {
 			logger.error("error predicting ", e);
 		}
@@ -318,9 +362,46 @@ public class Dl4jMemoryReplayModel implements MemoryReplayModel, Cloneable {
 		return output;
 	}
 
+	/**
+	 * One forward pass for all the rows , rows of a NaN prediction are null
+	 */
+	@Override public double[][] predictBatch(double[][] input) {
+		if (this.model == null) {
+			return new double[input.length][];
+		}
+		double[][] output = new double[input.length][];
+		if (input.length == 0) {
+			return output;
+		}
+		try {
+			int columns = input[0].length;
+			INDArray inputND = getInputBuffer(input.length, columns);
+			for (int row = 0; row < input.length; row++) {
+				System.arraycopy(input[row], 0, flatInputBuffer, row * columns, columns);
+			}
+			inputND.data().setData(flatInputBuffer);
+			double[][] outputMatrix = output(inputND).toDoubleMatrix();
+			for (int row = 0; row < outputMatrix.length; row++) {
+				output[row] = nanToNull(outputMatrix[row]);
+			}
+		} catch (Exception e) {
+			logger.error("error predicting batch of {} rows", input.length, e);
+		}
+		return output;
+	}
+
 	@Override public MemoryReplayModel cloneIt() {
 		try {
-			return (Dl4jMemoryReplayModel) this.clone();
+			//deep copy of the network , the clone can be trained without touching this one
+			Dl4jMemoryReplayModel output = (Dl4jMemoryReplayModel) this.clone();
+			if (this.model != null) {
+				output.model = this.model.clone();
+			}
+			output.scoreIterationListener = new ScoreIterationListener(10);
+			//buffers are not shared between threads
+			output.inputBuffer = null;
+			output.flatInputBuffer = null;
+			return output;
 		} catch (CloneNotSupportedException e) {
 			logger.error("cant clone Dl4jMemoryReplayModel ", e);
 		}
@@ -6,6 +6,18 @@ public interface MemoryReplayModel {
 
 	double[] predict(double[] input);
 
+	/**
+	 * @param input states by rows
+	 * @return action scores by rows , a row is null if it can't be predicted
+	 */
+	default double[][] predictBatch(double[][] input) {
+		double[][] output = new double[input.length][];
+		for (int row = 0; row < input.length; row++) {
+			output[row] = predict(input[row]);
+		}
+		return output;
+	}
+
 	void setModelPath(String modelPath);
 
 	MemoryReplayModel cloneIt();
@@ -0,0 +1,229 @@
+package com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn.DeepQLearning;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Training of the prediction and target models of a DeepQLearning on the iteration periods of the algorithm
+ * Synchronous or in a background thread on a copy of the prediction model while the algorithm keeps predicting with the old one
+ * Trained models are picked up with pollPredictModel/pollTargetModel from the algorithm thread to swap them
+ * Only one background training runs at the same time , requests while training are discarded
+ * The thread is created on the first background request and finished on shutdown
+ */
+public class MemoryReplayModelTrainer {
+
+	protected Logger logger = LogManager.getLogger(MemoryReplayModelTrainer.class);
+
+	private final String name;
+	private ExecutorService trainerPool;
+	private final AtomicBoolean isTraining = new AtomicBoolean(false);
+	private final AtomicReference<MemoryReplayModel> trainedPredictModel = new AtomicReference<>();
+	private final AtomicReference<MemoryReplayModel> trainedTargetModel = new AtomicReference<>();
+
+	private DeepQLearning memoryReplay;
+	private MemoryReplayModel predictionModel;
+	private MemoryReplayModel targetModel;
+	private String targetModelPath;
+
+	public MemoryReplayModelTrainer(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param memoryReplay    where the trained models are set
+	 * @param targetModelPath where the prediction model is saved when copied as target model
+	 */
+	public void setModels(DeepQLearning memoryReplay, MemoryReplayModel predictionModel, MemoryReplayModel targetModel,
+			String targetModelPath) {
+		this.memoryReplay = memoryReplay;
+		this.predictionModel = predictionModel;
+		this.targetModel = targetModel;
+		this.targetModelPath = targetModelPath;
+	}
+
+	public MemoryReplayModel getPredictionModel() {
+		return predictionModel;
+	}
+
+	public MemoryReplayModel getTargetModel() {
+		return targetModel;
+	}
+
+	private synchronized ExecutorService getTrainerPool() {
+		if (trainerPool == null) {
+			ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+			threadFactoryBuilder.setNameFormat(name + "_trainer" + "-%d");
+			threadFactoryBuilder.setPriority(Thread.MIN_PRIORITY);
+			threadFactoryBuilder.setDaemon(true);
+			trainerPool = Executors.newSingleThreadExecutor(threadFactoryBuilder.build());
+		}
+		return trainerPool;
+	}
+
+	public boolean isTraining() {
+		return isTraining.get();
+	}
+
+	/**
+	 * Trains the prediction model every trainingPredictIterationPeriod iterations and copies it as target model
+	 * every trainingTargetIterationPeriod iterations (or the first time if the target is not trained) , <=0 never
+	 * Only from the algorithm thread
+	 *
+	 * @param async train in background , the models trained before are swapped first
+	 */
+	public void onIteration(int iterations, int trainingPredictIterationPeriod, int trainingTargetIterationPeriod,
+			boolean async) {
+		if (memoryReplay == null) {
+			logger.error("{} trainer without models", name);
+			return;
+		}
+		if (async) {
+			swapTrainedModels();
+		}
+		boolean trainPredict = trainingPredictIterationPeriod > 0 && (iterations % trainingPredictIterationPeriod) == 0;
+		boolean trainTarget = trainingTargetIterationPeriod > 0 && (iterations % trainingTargetIterationPeriod) == 0;
+
+		if (async) {
+			if (trainPredict) {
+				System.out.println("training prediction model in background on " + iterations + " iteration");
+				//copy first if not exist
+				boolean copyTarget = trainTarget || !targetModel.isTrained();
+				trainPrediction(predictionModel, memoryReplay.getInputTrain(), memoryReplay.getTargetTrain(),
+						copyTarget ? targetModelPath : null);
+			} else if (trainTarget) {
+				System.out.println("copy target model in background on " + iterations + " iteration");
+				copyTarget(predictionModel, targetModelPath);
+			}
+			return;
+		}
+
+		if (trainPredict) {
+			System.out.println("training prediction model on " + iterations + " iteration");
+			double[][] input = memoryReplay.getInputTrain();
+			double[][] target = memoryReplay.getTargetTrain();
+			predictionModel.train(input, target);
+			memoryReplay.setPredictModel(predictionModel);
+			if (!targetModel.isTrained()) {
+				//copy first if not exist
+				trainTarget = true;
+			}
+		}
+		if (trainTarget) {
+			System.out.println("training target model on " + iterations + " iteration=> copy it");
+			targetModel = predictionModel.cloneIt();
+			targetModel.setModelPath(targetModelPath);
+			targetModel.saveModel();
+			memoryReplay.setTargetModel(targetModel);
+		}
+	}
+
+	/**
+	 * Swap the models trained in background , only in the algorithm thread
+	 */
+	private void swapTrainedModels() {
+		MemoryReplayModel newPredictionModel = pollPredictModel();
+		if (newPredictionModel != null) {
+			logger.info("{} swap to the new prediction model", name);
+			predictionModel = newPredictionModel;
+			memoryReplay.setPredictModel(newPredictionModel);
+		}
+		MemoryReplayModel newTargetModel = pollTargetModel();
+		if (newTargetModel != null) {
+			logger.info("{} swap to the new target model", name);
+			targetModel = newTargetModel;
+			memoryReplay.setTargetModel(newTargetModel);
+		}
+	}
+
+	/**
+	 * @param predictModel    current prediction model , is not modified
+	 * @param input           snapshot of the memory replay states
+	 * @param target          snapshot of the memory replay action scores
+	 * @param targetModelPath if not null , the trained model is copied as target model too
+	 * @return false if there is another training running
+	 */
+	public boolean trainPrediction(MemoryReplayModel predictModel, double[][] input, double[][] target,
+			String targetModelPath) {
+		if (!isTraining.compareAndSet(false, true)) {
+			logger.warn("{} still training -> skip training prediction model", name);
+			return false;
+		}
+		//cloned in the caller thread , nobody is predicting with the copy
+		MemoryReplayModel newPredictModel = predictModel.cloneIt();
+		getTrainerPool().submit(() -> {
+			try {
+				long start = System.currentTimeMillis();
+				newPredictModel.train(input, target);
+				trainedPredictModel.set(newPredictModel);
+				logger.info("{} prediction model trained with {} rows in {} seconds", name, input.length,
+						(System.currentTimeMillis() - start) / 1000);
+				if (targetModelPath != null) {
+					MemoryReplayModel newTargetModel = newPredictModel.cloneIt();
+					newTargetModel.setModelPath(targetModelPath);
+					newTargetModel.saveModel();
+					trainedTargetModel.set(newTargetModel);
+				}
+			} catch (Exception e) {
+				logger.error("{} error training prediction model", name, e);
+			} finally {
+				isTraining.set(false);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Copy the prediction model as target model and save it in background
+	 */
+	public boolean copyTarget(MemoryReplayModel predictModel, String targetModelPath) {
+		if (!isTraining.compareAndSet(false, true)) {
+			logger.warn("{} still training -> skip copy target model", name);
+			return false;
+		}
+		MemoryReplayModel newTargetModel = predictModel.cloneIt();
+		newTargetModel.setModelPath(targetModelPath);
+		getTrainerPool().submit(() -> {
+			try {
+				newTargetModel.saveModel();
+				trainedTargetModel.set(newTargetModel);
+			} catch (Exception e) {
+				logger.error("{} error copying target model", name, e);
+			} finally {
+				isTraining.set(false);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * @return last trained prediction model not polled yet or null
+	 */
+	public MemoryReplayModel pollPredictModel() {
+		return trainedPredictModel.getAndSet(null);
+	}
+
+	/**
+	 * @return last target model not polled yet or null
+	 */
+	public MemoryReplayModel pollTargetModel() {
+		return trainedTargetModel.getAndSet(null);
+	}
+
+	/**
+	 * Finishes the thread after the training running , a new request creates it again
+	 */
+	public synchronized void shutdown() {
+		if (trainerPool != null) {
+			trainerPool.shutdown();
+			trainerPool = null;
+		}
+	}
+
+}
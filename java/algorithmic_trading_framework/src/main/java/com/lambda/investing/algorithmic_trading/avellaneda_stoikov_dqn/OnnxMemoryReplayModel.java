@@ -8,6 +8,11 @@ import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -27,6 +32,10 @@ public class OnnxMemoryReplayModel implements Cloneable, MemoryReplayModel {
 	OrtSession model = null;
 	private UUID fileGenerator = UUID.randomUUID();
 	private String pythonExePath = "python3";
+	//reused on predict/predictBatch
+	private DoubleBuffer inputBuffer;
+	private String inputName;
+	private Map<String, OnnxTensor> inputContainer = new HashMap<>();
 
 	private static void launchPythonScript(String scriptPath, String... args) {
 
@@ -57,6 +66,7 @@ public class OnnxMemoryReplayModel implements Cloneable, MemoryReplayModel {
 				//				int gpuDeviceId = 0; // The GPU device ID to execute on
 				//				sessionOptions.addCUDA(gpuDeviceId);
 				this.model = env.createSession(modelPath, sessionOptions);
+				this.inputName = null;
 			} catch (OrtException e) {
 				logger.error("error loadModel ", e);
 				e.printStackTrace();
@@ -130,12 +140,9 @@ public class OnnxMemoryReplayModel implements Cloneable, MemoryReplayModel {
 			return null;
 		}
 
-		Map<String, OnnxTensor> inputDataOnnx = null;
 		try {
-			inputDataOnnx = preprocessData(input);
-			OrtSession.Result results = model.run(inputDataOnnx);
-
-			return postprocessData(results);
+			double[][] outputs = run(new double[][] { input }, new long[] { input.length });
+			return outputs != null ? outputs[0] : null;
 		} catch (OrtException e) {
 			e.printStackTrace();
 		}
@@ -143,23 +150,101 @@ public class OnnxMemoryReplayModel implements Cloneable, MemoryReplayModel {
 
 	}
 
-	private Map<String, OnnxTensor> preprocessData(double[] inputData) throws OrtException {
-		Map<String, NodeInfo> inputMetaMap = model.getInputInfo();
-		Map<String, OnnxTensor> container = new HashMap<>();
-		NodeInfo inputMeta = inputMetaMap.values().iterator().next();
-		OnnxTensor inputTensor = OnnxTensor.createTensor(env, inputData);
-		container.put(inputMeta.getName(), inputTensor);
-		return container;
+	/**
+	 * One session run for all the rows , input tensor of rows x columns
+	 */
+	@Override public double[][] predictBatch(double[][] input) {
+		if (model == null) {
+			logger.error("cant predict with a model created!");
+			return new double[input.length][];
+		}
+		if (input.length == 0) {
+			return new double[0][];
+		}
+		try {
+			double[][] output = run(input, new long[] { input.length, input[0].length });
+			if (output != null) {
+				return output;
+			}
+		} catch (OrtException e) {
+			logger.error("error predicting batch of {} rows", input.length, e);
+		}
+		return new double[input.length][];
+	}
+
+	/**
+	 * Direct buffer reused between runs , onnxruntime reads it without copying
+	 */
+	private DoubleBuffer getInputBuffer(int size) {
+		if (inputBuffer == null || inputBuffer.capacity() < size) {
+			inputBuffer = ByteBuffer.allocateDirect(size * Double.BYTES).order(ByteOrder.nativeOrder())
+					.asDoubleBuffer();
+		}
+		inputBuffer.clear();
+		return inputBuffer;
 	}
 
-	private double[] postprocessData(OrtSession.Result results) throws OrtException {
-		double[] output = new double[results.size()];
+	private String getInputName() throws OrtException {
+		if (inputName == null) {
+			inputName = model.getInputInfo().keySet().iterator().next();
+		}
+		return inputName;
+	}
+
+	private double[][] run(double[][] input, long[] shape) throws OrtException {
+		int columns = input[0].length;
+		DoubleBuffer buffer = getInputBuffer(input.length * columns);
+		for (double[] row : input) {
+			buffer.put(row, 0, columns);
+		}
+		buffer.flip();
+		try (OnnxTensor inputTensor = OnnxTensor.createTensor(env, buffer, shape)) {
+			inputContainer.put(getInputName(), inputTensor);
+			try (OrtSession.Result results = model.run(inputContainer)) {
+				return postprocessData(results, input.length);
+			} finally {
+				inputContainer.clear();
+			}
+		}
+	}
+
+	private static double[] toDoubleArray(OnnxTensor tensor) {
+		if (tensor.getInfo().type == OnnxJavaType.FLOAT) {
+			FloatBuffer floatBuffer = tensor.getFloatBuffer();
+			double[] output = new double[floatBuffer.remaining()];
+			for (int index = 0; index < output.length; index++) {
+				output[index] = floatBuffer.get();
+			}
+			return output;
+		}
+		DoubleBuffer doubleBuffer = tensor.getDoubleBuffer();
+		double[] output = new double[doubleBuffer.remaining()];
+		doubleBuffer.get(output);
+		return output;
+	}
+
+	/**
+	 * One output of rows x actions or one output of rows values per action
+	 */
+	private double[][] postprocessData(OrtSession.Result results, int rows) {
+		double[][] output = null;
 		int index = 0;
 		for (Map.Entry<String, OnnxValue> r : results) {
-			OnnxValue resultValue = r.getValue();
-			OnnxTensor resultTensor = (OnnxTensor) resultValue;
-			double prediction = (double) resultTensor.getValue();
-			output[index] = prediction;
+			double[] values = toDoubleArray((OnnxTensor) r.getValue());
+			if (results.size() == 1) {
+				int actions = values.length / rows;
+				output = new double[rows][];
+				for (int row = 0; row < rows; row++) {
+					output[row] = Arrays.copyOfRange(values, row * actions, (row + 1) * actions);
+				}
+				return output;
+			}
+			if (output == null) {
+				output = new double[rows][results.size()];
+			}
+			for (int row = 0; row < rows; row++) {
+				output[row][index] = values[row];
+			}
 			index++;
 		}
 		return output;
@@ -168,7 +253,11 @@ public class OnnxMemoryReplayModel implements Cloneable, MemoryReplayModel {
 
 	public OnnxMemoryReplayModel cloneIt() {
 		try {
-			return (OnnxMemoryReplayModel) this.clone();
+			OnnxMemoryReplayModel output = (OnnxMemoryReplayModel) this.clone();
+			//buffers are not shared between threads
+			output.inputBuffer = null;
+			output.inputContainer = new HashMap<>();
+			return output;
 		} catch (CloneNotSupportedException e) {
 			e.printStackTrace();
 		}
@@ -1,21 +1,20 @@
 package com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn;
 
 import com.lambda.investing.algorithmic_trading.AlgorithmConnectorConfiguration;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.RollingRsi;
 import com.lambda.investing.model.candle.Candle;
+import com.lambda.investing.model.candle.CandleType;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
 import com.lambda.investing.model.messaging.Command;
 import com.lambda.investing.model.trading.Verb;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.curator.shaded.com.google.common.collect.EvictingQueue;
 
 import java.util.Map;
 
-import static com.lambda.investing.algorithmic_trading.technical_indicators.Calculator.RSICalculate;
-
 public class RSI extends AvellanedaStoikovDNQMarketDirectional {
 
 	private int period;
+	private RollingRsi rsi;//updated with the 1 min candles
 	private double upperBound = 70;
 	private double lowerBound = 30;
 	private double upperBoundExit = 50;
@@ -32,7 +31,11 @@ public class RSI extends AvellanedaStoikovDNQMarketDirectional {
 
 	@Override public void setParameters(Map<String, Object> parameters) {
 		super.setParameters(parameters);
-		period = getParameterIntOrDefault(parameters, "period", 14);
+		int period = getParameterIntOrDefault(parameters, "period", 14);
+		if (rsi == null || period != this.period) {
+			rsi = new RollingRsi(Math.max(1, period));
+		}
+		this.period = period;
 		upperBound = getParameterDoubleOrDefault(parameters, "upperBound", 70);
 		lowerBound = getParameterDoubleOrDefault(parameters, "lowerBound", 30);
 		upperBoundExit = getParameterDoubleOrDefault(parameters, "upperBoundExit", 50);
@@ -41,11 +44,11 @@ public class RSI extends AvellanedaStoikovDNQMarketDirectional {
 	}
 
 	@Override public void setCandleSideRules(Candle candle) {
-		if (queueTrades.size() >= period) {
-			//sma
-			Double[] candlesArr = new Double[queueTrades.size()];
-			candlesArr = queueTrades.toArray(candlesArr);
-			double rsiValue = RSICalculate(ArrayUtils.toPrimitive(candlesArr), period);
+		if (candle.getCandleType().equals(CandleType.time_1_min)) {
+			rsi.add(candle.getClose());
+		}
+		if (rsi.isReady()) {
+			double rsiValue = rsi.getRsi();
 			if (period <= 0) {
 				//for training
 				setSide(null);
@@ -1,19 +1,20 @@
 package com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn;
 
 import com.lambda.investing.algorithmic_trading.AlgorithmConnectorConfiguration;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.RollingMean;
 import com.lambda.investing.model.candle.Candle;
+import com.lambda.investing.model.candle.CandleType;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
 import com.lambda.investing.model.messaging.Command;
 import com.lambda.investing.model.trading.Verb;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.curator.shaded.com.google.common.collect.EvictingQueue;
 
 import java.util.Map;
 
 public class SMACross extends AvellanedaStoikovDNQMarketDirectional {
 
 	private int fastPeriodMin, slowPeriodMin;
+	private RollingMean fastMa, slowMa;//updated with the 1 min candles
 
 	public SMACross(AlgorithmConnectorConfiguration algorithmConnectorConfiguration, String algorithmInfo,
 			Map<String, Object> parameters) {
@@ -26,30 +27,29 @@ public class SMACross extends AvellanedaStoikovDNQMarketDirectional {
 
 	@Override public void setParameters(Map<String, Object> parameters) {
 		super.setParameters(parameters);
-		fastPeriodMin = getParameterIntOrDefault(parameters, "fastPeriodMin", 5);
-		slowPeriodMin = getParameterIntOrDefault(parameters, "slowPeriodMin", 25);
+		int fastPeriodMin = getParameterIntOrDefault(parameters, "fastPeriodMin", 5);
+		int slowPeriodMin = getParameterIntOrDefault(parameters, "slowPeriodMin", 25);
+		if (fastMa == null || fastPeriodMin != this.fastPeriodMin) {
+			fastMa = new RollingMean(Math.max(1, fastPeriodMin));
+		}
+		if (slowMa == null || slowPeriodMin != this.slowPeriodMin) {
+			slowMa = new RollingMean(Math.max(1, slowPeriodMin));
+		}
+		this.fastPeriodMin = fastPeriodMin;
+		this.slowPeriodMin = slowPeriodMin;
 		changeSide = getParameterIntOrDefault(parameters, "changeSide", 0) != 0;
 
 	}
 
-	private double getMATrades(int period) {
-		Double[] lastPeriodTrades = new Double[queueTrades.size()];
-		lastPeriodTrades = queueTrades.toArray(lastPeriodTrades);
-		//have to take the last elements of the array, are the latest ones
-		Double[] subArray = ArrayUtils.subarray(lastPeriodTrades, queueTrades.size() - period, queueTrades.size());
-		double ma = 0.;
-		for (int i = 0; i < subArray.length; i++) {
-			ma += subArray[i];
-		}
-		ma /= subArray.length;
-		return ma;
-	}
-
 	@Override public void setCandleSideRules(Candle candle) {
-		if (queueTrades.size() >= slowPeriodMin) {
+		if (candle.getCandleType().equals(CandleType.time_1_min)) {
+			this.fastMa.add(candle.getClose());
+			this.slowMa.add(candle.getClose());
+		}
+		if (this.slowMa.isFull() && this.fastMa.isFull()) {
 			//sma
-			double fastMa = getMATrades(fastPeriodMin);
-			double slowMa = getMATrades(slowPeriodMin);
+			double fastMa = this.fastMa.getMean();
+			double slowMa = this.slowMa.getMean();
 			if (fastPeriodMin == slowPeriodMin || fastPeriodMin < 0 || slowPeriodMin < 0) {
 				setSide(null);
 				return;
@@ -67,11 +67,7 @@ public class AvellanedaStoikovQLearn extends AvellanedaStoikov {
 	}
 
 	protected String getMemoryPath() {
-		return BASE_MEMORY_PATH + "qmatrix_" + algorithmInfo + ".csv";
-	}
-
-	private String getCachePermutationsPath() {
-		return BASE_MEMORY_PATH + "permutationsStates_" + algorithmInfo + ".csv";
+		return BASE_MEMORY_PATH + "qmatrix_" + algorithmInfo + QLearning.getMemoryExtension();
 	}
 
 	@Override public void setParameters(Map<String, Object> parameters) {
@@ -135,9 +131,6 @@ public class AvellanedaStoikovQLearn extends AvellanedaStoikov {
 	public void init(boolean withMemory) {
 		super.init();
 		if (withMemory) {
-			//enumerate states
-			this.state.enumerateStates(getCachePermutationsPath());
-
 			IExplorationPolicy explorationPolicy = new EpsilonGreedyExploration(this.epsilon);
 			this.memoryReplay = new QLearning(this.state.getNumberStates(),
 					this.avellanedaAction.getNumberActions(), explorationPolicy);
@@ -1,6 +1,7 @@
 package com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn;
 
 import com.google.common.primitives.Doubles;
+import com.lambda.investing.algorithmic_trading.FileUtils;
 import com.lambda.investing.algorithmic_trading.LogLevels;
 import com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn.Dl4jMemoryReplayModel;
 import com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn.MemoryReplayModel;
@@ -22,7 +23,6 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 
 @Getter @Setter public class DeepQLearning extends QLearning {
 	public static boolean TRAIN_FROM_FILE_MODEL= false;
-	private static Comparator<double[]> ARRAY_COMPARATOR = Doubles.lexicographicalComparator();
 	protected static Logger logger = LogManager.getLogger(DeepQLearning.class);
 	private static double DEFAULT_PREDICTION_ACTION_SCORE = -1;
 
@@ -31,11 +31,22 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 	private Random r = new Random();
 	private AbstractState state;
 	private AbstractAction action;
-	private int memoryReplayIndex, maxMemorySize, memoryReplaySize;
-	private StateRow[] stateRowSet;
+	private int maxMemorySize;
+	private ReplayMemory replayMemory;
 	private MemoryReplayModel predictModel, targetModel;
 
 	private double[] defaultActionPredictScore;
+	private double[] currentStateBuffer;//reused on GetAction
+
+	//transitions waiting for the target network , evaluated with predictBatch every PREDICT_BATCH_SIZE
+	public static int PREDICT_BATCH_SIZE = 1024;
+	private int[] pendingRows;
+	private int[] pendingActions;
+	private double[] pendingRewards;
+	private double[][] pendingNextStates;
+	private int pendingSize = 0;
+
+	private String lastCheckpointPath;//dirty rows of replayMemory are relative to it
 
 	/**
 	 * Initializes a new instance of the QLearning class.
@@ -53,7 +64,6 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 		this.maxMemorySize = maxMemorySize;
 		this.state = state;
 		this.action = action;
-		this.stateRowSet = new StateRow[this.maxMemorySize];
 		this.predictModel = predictModel;
 		this.targetModel = targetModel;
 		if (!(explorationPolicy instanceof EpsilonGreedyExploration)) {
@@ -61,9 +71,7 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 		}
 
 		// create Q-array
-		int numberOfColumns =
-				getStateColumns() + action.getNumberActions() + getStateColumns();//state action next_state
-		memoryReplay = new double[this.maxMemorySize][numberOfColumns];
+		replayMemory = new ReplayMemory(this.maxMemorySize, getStateColumns(), action.getNumberActions());
 		epsilon = ((EpsilonGreedyExploration) explorationPolicy).getEpsilon();
 	}
 
@@ -79,7 +87,7 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 			System.err.println(memoryPath + " not exist to train");
 			return false;
 		}
-		double[][] memoryData = loadCSV(memoryPath, stateColumns);
+		double[][] memoryData = loadMemoryData(memoryPath);
 		//check load dimension
 		int columnsRead = memoryData[0].length;
 		assert columnsRead == (stateColumns * 2) + actionColumns;
@@ -112,6 +120,8 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 	}
 
 	public void setTargetModel(MemoryReplayModel targetModel) {
+		//pending transitions with the target network they were observed
+		flushPendingTransitions();
 		this.targetModel = targetModel;
 	}
 
@@ -119,189 +129,149 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 		return state.getNumberOfColumns();
 	}
 
+	public int getMemoryReplaySize() {
+		return replayMemory.size();
+	}
+
+	public int getMemoryReplayIndex() {
+		return replayMemory.getNextRow();
+	}
+
 	public void saveMemory(String filepath) throws IOException {
-		if (memoryReplayIndex <= 0) {
+		flushPendingTransitions();
+		if (replayMemory.size() <= 0) {
 			logger.warn("no data in DeepQlearning memoryReplay to save!");
 			return;
 		}
 		File file = new File(filepath);
 		file.getParentFile().mkdirs();
-		StringBuilder outputString = new StringBuilder();
-		for (int row = 0; row < memoryReplayIndex; row++) {
-			for (int column = 0; column < memoryReplay[row].length; column++) {
-				outputString.append(memoryReplay[row][column]);
-				outputString.append(CSV_SEPARATOR);
-			}
-			outputString.append(System.lineSeparator());
+		if (MemoryCheckpoint.isCheckpoint(filepath)) {
+			boolean incremental = filepath.equals(lastCheckpointPath);
+			replayMemory.saveCheckpoint(filepath, incremental);
+			lastCheckpointPath = filepath;
+			logger.info("saved memory replay checkpoint {} of {}/{} rows and {} states-actions-next-states to {}",
+					incremental ? "incremental" : "full", replayMemory.size(), maxMemorySize,
+					replayMemory.getRowColumns(), filepath);
+			System.out.println("saved memory " + replayMemory.size() + " rows into " + filepath);
+			return;
 		}
 
-		outputString = outputString.delete(outputString.lastIndexOf(System.lineSeparator()),
-				outputString.length());//remove last line separator
-
-		String content = outputString.toString();
-		BufferedWriter writer = new BufferedWriter(new FileWriter(filepath));
-		try {
-			writer.write(content);
+		//streamed row by row from the oldest one , same format and order as before
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(filepath), 1 << 16)) {
+			int oldestRow = replayMemory.getOldestRow();
+			for (int index = 0; index < replayMemory.size(); index++) {
+				if (index > 0) {
+					writer.write(System.lineSeparator());
+				}
+				int row = (oldestRow + index) % replayMemory.getCapacity();
+				for (double value : replayMemory.getRow(row)) {
+					writer.write(Double.toString(value));
+					writer.write(CSV_SEPARATOR);
+				}
+			}
 			logger.info("saved memory replay size of  {}/{} rows and {} states-actions-next-states to {}",
-					memoryReplaySize, maxMemorySize, memoryReplay[0].length, filepath);
-			System.out.println("saved memory " + memoryReplaySize + " rows into " + filepath);
-		} catch (Exception e) {
+					replayMemory.size(), maxMemorySize, replayMemory.getRowColumns(), filepath);
+			System.out.println("saved memory " + replayMemory.size() + " rows into " + filepath);
+		} catch (IOException e) {
 			logger.error("error saving memory replay to file {} ", filepath, e);
-		} finally {
-			writer.close();
 		}
 	}
 
-	private static double[][] loadCSV(String filepath, int columnsStates) throws IOException {
+	private static double[][] loadMemoryData(String filepath) throws IOException {
 		//only used on trainOnData
 		File file = new File(filepath);
 		if (!file.exists()) {
 			logger.warn("memory not found {}-> start empty", filepath);
 			return null;
 		}
-
-		BufferedReader csvReader = new BufferedReader(new FileReader(filepath));
-		// we don't know the amount of data ahead of time so we use lists
-
-		Map<Integer, List<Double>> colMap = new HashMap<>();
-		String row;
-		int rowsTotal = 0;
-
-		while ((row = csvReader.readLine()) != null) {
-			String[] data = row.split(CSV_SEPARATOR);
-			double[] stateRow = new double[columnsStates];
-			for (int column = 0; column < data.length; column++) {
-				List<Double> columnList = colMap.getOrDefault(column, new ArrayList<>());
-				double value = Double.parseDouble(data[column]);
-				columnList.add(value);
-				colMap.put(column, columnList);
-
-				if (column < stateRow.length) {
-					stateRow[column] = value;
-				}
-
-			}
-			rowsTotal++;
-		}
-		csvReader.close();
-		int columnsTotal = colMap.size();
-
-		//transform colMap into array
-		double[][] loadedQvalues = new double[rowsTotal][columnsTotal];//states rows , actions columns
-		int rowsFilled = 0;
-		for (int column : colMap.keySet()) {
-			List<Double> rows = colMap.get(column);
-			int rowIter = 0;
-			for (double rowVal : rows) {
-				loadedQvalues[rowIter][column] = rowVal;
-				rowsFilled = rowIter;
-				rowIter++;
-
-			}
+		double[][] loadedQvalues;
+		if (MemoryCheckpoint.isCheckpoint(filepath)) {
+			MemoryCheckpoint.Header header = MemoryCheckpoint.readHeader(filepath);
+			double[][] checkpointValues = new double[header.getRows()][header.getColumns()];
+			MemoryCheckpoint.read(filepath, (row, buffer) -> buffer.get(checkpointValues[row]));
+			loadedQvalues = checkpointValues;
+		} else {
+			loadedQvalues = FileUtils.loadArrayFromPath(filepath, CSV_SEPARATOR);
 		}
 
-		//		loadedQvalues=ArrayUtils.subarray(loadedQvalues, 0, rowsTotal);
-
-		System.out.println(
-				String.format("loaded a memory replay of %d/%d rows-states   and %d states-actions-next-states",
-						rowsFilled, loadedQvalues.length, loadedQvalues[0].length));
+		System.out.println(String.format("loaded a memory replay of %d rows-states and %d states-actions-next-states",
+				loadedQvalues.length, loadedQvalues.length > 0 ? loadedQvalues[0].length : 0));
 
 		return loadedQvalues;
 
 	}
 
 	public void loadMemory(String filepath) throws IOException {
+		flushPendingTransitions();
+		if (MemoryCheckpoint.isCheckpoint(filepath) && !new File(filepath).exists() && new File(
+				MemoryCheckpoint.toCsvPath(filepath)).exists()) {
+			//not migrated yet , saved as checkpoint the next time
+			filepath = MemoryCheckpoint.toCsvPath(filepath);
+		}
 		File file = new File(filepath);
 		if (!file.exists()) {
 			logger.warn("memory not found {}-> start empty", filepath);
 			return;
 		}
-		BufferedReader csvReader = new BufferedReader(new FileReader(filepath));
-		// we don't know the amount of data ahead of time so we use lists
-
-		Map<Integer, List<Double>> colMap = new HashMap<>();
-		String row;
-		int rowsTotal = 0;
-
-		while ((row = csvReader.readLine()) != null) {
-			String[] data = row.split(CSV_SEPARATOR);
-			double[] stateRow = new double[state.getNumberOfColumns()];
-			for (int column = 0; column < data.length; column++) {
-				List<Double> columnList = colMap.getOrDefault(column, new ArrayList<>());
-				double value = Double.parseDouble(data[column]);
-				columnList.add(value);
-				colMap.put(column, columnList);
-
-				if (column < stateRow.length) {
-					stateRow[column] = value;
-				}
-
+		lastCheckpointPath = null;
+		if (MemoryCheckpoint.isCheckpoint(filepath)) {
+			int rowsLoaded = replayMemory.loadCheckpoint(filepath);
+			if (rowsLoaded < 0) {
+				System.err.println("cant load " + filepath + " columns are not equal!-> starting from empty memory");
+				logger.error("cant load " + filepath + " columns are not equal!-> starting from empty memory");
+				replayMemory.clear();
+				return;
 			}
-			try {
-				stateRowSet[rowsTotal] = new StateRow(stateRow);
-			} catch (IndexOutOfBoundsException e) {
-				logger.warn("IndexOutOfBoundsException loading memory -> loading first {} rows -> set as index ,size",
-						rowsTotal);
-				memoryReplayIndex = -1;
-				break;
-			}
-			memoryReplaySize = rowsTotal;//starts at 0
-			memoryReplayIndex = rowsTotal;
-			rowsTotal++;
-		}
-		csvReader.close();
-		int columnsTotal = colMap.size();
-
-		int actionColumns = columnsTotal - 2 * state.getNumberOfColumns();
-		if (actionColumns != action.getNumberActions()) {
-			System.err.println("cant load " + filepath + " columns are not equal!-> starting from empty memory");
-			logger.error("cant load " + filepath + " columns are not equal!-> starting from empty memory");
+			lastCheckpointPath = filepath;
+			logger.info(String.format(
+					"loaded a memory replay checkpoint of %d rows-states and %d states-actions-next-states on a %d maxMemorySize and index start on %d from %s",
+					replayMemory.size(), replayMemory.getRowColumns(), this.maxMemorySize, replayMemory.getNextRow(),
+					filepath));
 			return;
 		}
 
-		//transform colMap into array
-
-		double[][] loadedQvalues = new double[this.maxMemorySize][columnsTotal];//states rows , actions columns
-		for (int column : colMap.keySet()) {
-			List<Double> rows = colMap.get(column);
-			int rowIter = 0;
-			for (double rowVal : rows) {
-				try {
-					loadedQvalues[rowIter][column] = rowVal;
-					rowIter++;
-				} catch (IndexOutOfBoundsException e) {
-					this.memoryReplaySize = rowIter;//starts at 1
-					break;
+		int stateColumns = replayMemory.getStateColumns();
+		int actionColumns = replayMemory.getActionColumns();
+		int rowsTotal = 0;
+		try (BufferedReader csvReader = new BufferedReader(new FileReader(filepath), 1 << 16)) {
+			String row;
+			while ((row = csvReader.readLine()) != null) {
+				String[] data = row.split(CSV_SEPARATOR);
+				if (data.length != replayMemory.getRowColumns()) {
+					System.err.println("cant load " + filepath + " columns are not equal!-> starting from empty memory");
+					logger.error("cant load " + filepath + " columns are not equal!-> starting from empty memory");
+					replayMemory.clear();
+					return;
+				}
+				double[] rowValues = new double[data.length];
+				for (int column = 0; column < data.length; column++) {
+					rowValues[column] = Double.parseDouble(data[column]);
 				}
+				double[] stateRow = Arrays.copyOfRange(rowValues, 0, stateColumns);
+				double[] actionRow = Arrays.copyOfRange(rowValues, stateColumns, stateColumns + actionColumns);
+				int rowIndex = replayMemory.find(stateRow);
+				if (rowIndex > -1) {
+					//repeated state -> last one
+					for (int actionIndex = 0; actionIndex < actionColumns; actionIndex++) {
+						replayMemory.setActionScore(rowIndex, actionIndex, actionRow[actionIndex]);
+					}
+				} else {
+					replayMemory.add(stateRow, actionRow,
+							Arrays.copyOfRange(rowValues, stateColumns + actionColumns, rowValues.length));
+				}
+				rowsTotal++;
 			}
 		}
 
-		this.memoryReplay = loadedQvalues;
 		System.out.println(String.format(
 				"loaded a memory replay of %d/%d rows-states and %d states-actions-next-states on a %d maxMemorySize and index start on %d",
-				rowsTotal, this.memoryReplay.length, this.memoryReplay[0].length, this.maxMemorySize,
-				this.memoryReplayIndex));
+				replayMemory.size(), rowsTotal, replayMemory.getRowColumns(), this.maxMemorySize,
+				replayMemory.getNextRow()));
 
 		logger.info(String.format(
 				"loaded a memory replay of %d/%d rows-states and %d states-actions-next-states on a %d maxMemorySize and index start on %d from %s",
-				rowsTotal, this.memoryReplay.length, this.memoryReplay[0].length, this.maxMemorySize,
-				this.memoryReplayIndex,
-				filepath));
-
-		iterateIndex();
-
-	}
-
-	private void iterateIndex() {
-		if (memoryReplayIndex > maxMemorySize - 1) {
-			//complete memory => restart from beginning
-			memoryReplayIndex = 0;
-		} else {
-			memoryReplayIndex++;
-		}
-
-		this.memoryReplaySize++;//0-49
-		this.memoryReplaySize = Math.min(memoryReplaySize, maxMemorySize - 1);
+				replayMemory.size(), rowsTotal, replayMemory.getRowColumns(), this.maxMemorySize,
+				replayMemory.getNextRow(), filepath));
 
 	}
 
@@ -346,8 +316,13 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 	}
 
 	public int GetAction(AbstractState lastState) {
-		double[] currentState = lastState.getCurrentStateRounded();
-		double[] actionScoreEstimation = getPredict(currentState);
+		if (currentStateBuffer == null || currentStateBuffer.length != lastState.getNumberOfColumns()) {
+			currentStateBuffer = new double[lastState.getNumberOfColumns()];
+		}
+		double[] actionScoreEstimation = null;
+		if (lastState.fillCurrentStateRounded(currentStateBuffer)) {
+			actionScoreEstimation = getPredict(currentStateBuffer);
+		}
 
 		int greedyAction = -1;
 		int index = 0;
@@ -384,119 +359,112 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 		System.err.println("updateState:int not used in dqn");
 	}
 
-	private int getInputSizeLimit() {
-		if (this.memoryReplaySize > this.maxMemorySize - 1) {
-			return this.maxMemorySize;
-		} else {
-			return this.memoryReplaySize;
-		}
-
-	}
-
-	private StateRow[] getSubsetAllStates() {
-		int limit = getInputSizeLimit();
-		if (limit < this.maxMemorySize) {
-			limit = limit - 1;//not all updated yet and pointing to the next row-> discard it
-		}
-
-		while (true) {
-			StateRow[] subset = ArrayUtils
-					.subarray(stateRowSet, 0, limit);//include the end limit because is not updated yet!
-			if (subset == null || subset.length == 0) {
-				return null;
-			}
-
-			try {
-				Arrays.sort(subset);
-				return subset;
-			} catch (NullPointerException e) {
-				logger.error(
-						"NullPointerException Arrays.sort strange with limit:{}  memoryReplaySize:{}  maxMemorySize:{} -> less limit",
-						limit, memoryReplaySize, maxMemorySize, e);
-				limit--;
-			}
-
-		}
-	}
-
 	private int stateExistRow(double[] previousStateArr) {
-		if (this.memoryReplaySize == 0) {
-			return -1;
-		}
-
-		StateRow[] subset = getSubsetAllStates();
-		if (subset == null || subset.length == 0) {
-			return -1;
-		}
-
-		int indexOfState = Arrays.binarySearch(subset, new StateRow(previousStateArr));
-		if (indexOfState > 0 && !ArrayUtils.isEquals(previousStateArr, subset[indexOfState].inputArray)) {
-			//different state checking ,prevent mix them-> not found
-			return -1;
-		}
-
-		if (indexOfState > 0 && LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
+		int indexOfState = replayMemory.find(previousStateArr);
+		if (indexOfState > -1 && LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
 			logger.info("state found {} -> {}", indexOfState, ArrayUtils.toString(previousStateArr));
 		}
-		if (indexOfState <= 0 && LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
+		if (indexOfState < 0 && LOG_LEVEL > LogLevels.SOME_ITERATION_LOG.ordinal()) {
 			logger.info("state not found  -> {}", ArrayUtils.toString(previousStateArr));
 		}
 		return indexOfState;
 
 	}
 
+	/**
+	 * Q update of the action score of previousStateArr , a state already in memory updates its own row
+	 * (before the replay memory only kept the score of the first visit of the state) and a new one is added with 0 scores
+	 */
 	public void updateState(double[] previousStateArr, int action, double reward, AbstractState nextState) {
-		boolean isNewRow = true;
+		if (action < 0 || action >= getActions()) {
+			System.err.println(
+					"Trying to save action index " + action + " in an actions array of len " + getActions());
+			throw new IndexOutOfBoundsException("action " + action + " not in [0," + getActions() + ")");
+		}
 		int indexOfState = stateExistRow(previousStateArr);
-		if (indexOfState > -1) {
-			isNewRow = false;
+		double[] nextStateArr = nextState.getCurrentStateRounded();
+		if (indexOfState < 0) {
+			if (replayMemory.size() == replayMemory.getCapacity() && isPending(replayMemory.getNextRow())) {
+				//row to overwrite has transitions not applied yet
+				flushPendingTransitions();
+			}
+			//score of the action is updated from 0 when the transition is applied
+			indexOfState = replayMemory.add(previousStateArr, new double[getActions()], nextStateArr);
 		}
+		addPendingTransition(indexOfState, action, reward, nextStateArr);
+	}
 
-		double[] actionArr = new double[getActions()];
-		if (indexOfState > -1) {
-			double[] arrayRow = memoryReplay[indexOfState];
-			double[] stateArr = ArrayUtils.subarray(memoryReplay[indexOfState], 0, state.getNumberOfColumns());
-			actionArr = ArrayUtils.subarray(memoryReplay[indexOfState], state.getNumberOfColumns(),
-					state.getNumberOfColumns() + this.action.getNumberActions());
+	private void addPendingTransition(int row, int action, double reward, double[] nextStateArr) {
+		if (pendingRows == null) {
+			int batchSize = Math.max(1, PREDICT_BATCH_SIZE);
+			pendingRows = new int[batchSize];
+			pendingActions = new int[batchSize];
+			pendingRewards = new double[batchSize];
+			pendingNextStates = new double[batchSize][];
+		}
+		pendingRows[pendingSize] = row;
+		pendingActions[pendingSize] = action;
+		pendingRewards[pendingSize] = reward;
+		pendingNextStates[pendingSize] = nextStateArr;
+		pendingSize++;
+		if (pendingSize == pendingRows.length) {
+			flushPendingTransitions();
 		}
-		double maxNextExpectedReward = getPredictNextStateBestReward(
-				nextState.getCurrentStateRounded());//from target network
+	}
 
-		if (Double.isNaN(maxNextExpectedReward)) {
-			//			logger.error("something is wrong on prediciton model => expected next reward nan");
-			//			System.err.println("something is wrong on prediction model => expected next reward nan");
-			maxNextExpectedReward = DEFAULT_PREDICTION_ACTION_SCORE;
+	private boolean isPending(int row) {
+		for (int index = 0; index < pendingSize; index++) {
+			if (pendingRows[index] == row) {
+				return true;
+			}
 		}
+		return false;
+	}
 
-		// previous state's action estimations
+	/**
+	 * Max expected reward of the next states from the target network in one predictBatch call
+	 */
+	private double[] getPredictNextStatesBestReward(double[][] nextStates) {
+		double[] output = new double[nextStates.length];
+		Arrays.fill(output, Double.NaN);
 		try {
-			// update expexted summary reward of the previous state
-			actionArr[action] *= (1.0 - learningRate);
-			actionArr[action] += (learningRate * (reward + discountFactor * maxNextExpectedReward));
-		} catch (IndexOutOfBoundsException e) {
-			System.err.println(
-					"Trying to save action index " + action + " in an actions array of len " + actionArr.length);
-			throw e;
-		}
-
-		if (isNewRow) {
-			double[] nextStateArr = nextState.getCurrentStateRounded();
-			double[] newRow = ArrayUtils.addAll(previousStateArr, actionArr);
-			newRow = ArrayUtils.addAll(newRow, nextStateArr);
-			try {
-				this.memoryReplay[this.memoryReplayIndex] = newRow;
-				this.stateRowSet[this.memoryReplayIndex] = new StateRow(previousStateArr);
-			} catch (IndexOutOfBoundsException e) {
-				logger.error(
-						"out of bounds error updating memoryReplay with memoryReplayIndex {} and maxMemorySize {} -> save to zero",
-						memoryReplayIndex, maxMemorySize);
-				this.memoryReplayIndex = 0;
-				this.memoryReplay[this.memoryReplayIndex] = newRow;
+			double[][] actionsArr = this.targetModel.predictBatch(nextStates);
+			for (int row = 0; row < output.length; row++) {
+				if (actionsArr[row] != null) {
+					output[row] = Doubles.max(actionsArr[row]);
+				}
 			}
-			iterateIndex();
-
+		} catch (Exception e) {
+			//NaN => default score
 		}
+		return output;
+	}
 
+	/**
+	 * Applies the pending transitions in arrival order , same scores as updating them one by one
+	 */
+	public void flushPendingTransitions() {
+		if (pendingSize == 0) {
+			return;
+		}
+		double[][] nextStates = pendingSize == pendingNextStates.length ?
+				pendingNextStates :
+				Arrays.copyOf(pendingNextStates, pendingSize);
+		double[] maxNextExpectedRewards = getPredictNextStatesBestReward(nextStates);
+		for (int index = 0; index < pendingSize; index++) {
+			double maxNextExpectedReward = maxNextExpectedRewards[index];
+			if (Double.isNaN(maxNextExpectedReward)) {
+				maxNextExpectedReward = DEFAULT_PREDICTION_ACTION_SCORE;
+			}
+			// update expexted summary reward of the previous state
+			int row = pendingRows[index];
+			int action = pendingActions[index];
+			double score = replayMemory.getActionScore(row, action) * (1.0 - learningRate);
+			score += (learningRate * (pendingRewards[index] + discountFactor * maxNextExpectedReward));
+			replayMemory.setActionScore(row, action, score);
+			pendingNextStates[index] = null;
+		}
+		pendingSize = 0;
 	}
 
 	public static double[][] getColumnsArray(double[][] input, int firstColumn, int lastColumn) {
@@ -512,48 +480,16 @@ import static com.lambda.investing.algorithmic_trading.Algorithm.LOG_LEVEL;
 	}
 
 	public double[][] getInputTrain() {
-		double[][] validArr = ArrayUtils.subarray(memoryReplay, 0, getInputSizeLimit());
-		logger.info("training input array of {} rows and {} columns", getInputSizeLimit(), getStateColumns());
-		return getColumnsArray(validArr, 0, getStateColumns());
+		flushPendingTransitions();
+		logger.info("training input array of {} rows and {} columns", replayMemory.size(), getStateColumns());
+		return replayMemory.getStates();
 	}
 
 	public double[][] getTargetTrain() {
-		double[][] validArr = ArrayUtils.subarray(memoryReplay, 0, getInputSizeLimit());
-		logger.info("training target array of {} rows and {} columns", validArr.length, action.getNumberActions());
-		return getColumnsArray(validArr, getStateColumns(), getStateColumns() + action.getNumberActions());
-	}
-
-	/***
-	 * Class used to have index of the states saved
-	 */
-	private class StateRow implements Comparable<StateRow> {
-
-		private double[] inputArray;
-
-		public StateRow(double[] inputArray) {
-			this.inputArray = inputArray;
-		}
-
-		@Override public boolean equals(Object o) {
-			if (this == o)
-				return true;
-			if (!(o instanceof StateRow))
-				return false;
-			StateRow stateRow = (StateRow) o;
-			return Arrays.equals(inputArray, stateRow.inputArray);
-		}
-
-		@Override public int hashCode() {
-			return Arrays.hashCode(inputArray);
-		}
-
-		@Override public int compareTo(StateRow o) {
-			if (o.equals(this.inputArray)) {
-				return 0;
-			}
-			return ARRAY_COMPARATOR.compare(inputArray, o.inputArray);
-		}
-
+		flushPendingTransitions();
+		logger.info("training target array of {} rows and {} columns", replayMemory.size(),
+				action.getNumberActions());
+		return replayMemory.getActionScores();
 	}
 
 }
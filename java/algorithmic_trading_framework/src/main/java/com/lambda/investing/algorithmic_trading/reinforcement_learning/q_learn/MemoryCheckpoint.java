@@ -0,0 +1,236 @@
+package com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/***
+ * Binary checkpoint of a rows x columns matrix of doubles
+ * HEADER_BYTES header (magic , version , rows , columns , metadata longs) + rows of raw little endian doubles
+ * Loaded memory mapped by chunks of rows , saved incrementally writing only the dirty rows when the file has the same columns
+ */
+public class MemoryCheckpoint {
+
+	public static final String EXTENSION = ".bin";
+	public static final int MAX_METADATA = 5;
+
+	private static final int MAGIC = 0x4C514D31;//LQM1
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	private static final long MAX_CHUNK_BYTES = 1L << 28;//256MB mapped at the same time
+	private static final int WRITE_CHUNK_BYTES = 1 << 20;
+
+	/**
+	 * Copies a row between the matrix and the file buffer
+	 */
+	public interface RowCopier {
+
+		void copy(int row, DoubleBuffer buffer);
+	}
+
+	public static class Header {
+
+		private final int rows;
+		private final int columns;
+		private final long[] metadata;
+
+		public Header(int rows, int columns, long[] metadata) {
+			if (metadata.length > MAX_METADATA) {
+				throw new IllegalArgumentException("checkpoint metadata max length is " + MAX_METADATA);
+			}
+			this.rows = rows;
+			this.columns = columns;
+			this.metadata = metadata;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public int getColumns() {
+			return columns;
+		}
+
+		public long getMetadata(int index) {
+			return index < metadata.length ? metadata[index] : 0L;
+		}
+
+		private ByteBuffer toBuffer() {
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns).putInt(metadata.length);
+			for (long value : metadata) {
+				buffer.putLong(value);
+			}
+			buffer.clear();
+			return buffer;
+		}
+
+		private static Header fromBuffer(ByteBuffer buffer) throws IOException {
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("not a memory checkpoint");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("memory checkpoint version " + version + " not supported");
+			}
+			int rows = buffer.getInt();
+			int columns = buffer.getInt();
+			long[] metadata = new long[Math.min(buffer.getInt(), MAX_METADATA)];
+			for (int index = 0; index < metadata.length; index++) {
+				metadata[index] = buffer.getLong();
+			}
+			return new Header(rows, columns, metadata);
+		}
+	}
+
+	public static boolean isCheckpoint(String filepath) {
+		return filepath != null && filepath.endsWith(EXTENSION);
+	}
+
+	/**
+	 * @return same path with csv extension , the format before the checkpoints
+	 */
+	public static String toCsvPath(String checkpointPath) {
+		return checkpointPath.substring(0, checkpointPath.length() - EXTENSION.length()) + ".csv";
+	}
+
+	public static Header readHeader(String filepath) throws IOException {
+		try (FileChannel channel = FileChannel.open(new File(filepath).toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+			if (buffer.remaining() < HEADER_BYTES) {
+				throw new IOException("memory checkpoint header incomplete " + filepath);
+			}
+			return Header.fromBuffer(buffer);
+		}
+	}
+
+	private static int getChunkRows(int columns, long chunkBytes) {
+		long rowBytes = Math.max(1L, (long) columns * Double.BYTES);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, chunkBytes / rowBytes));
+	}
+
+	/**
+	 * Memory maps the rows by chunks and passes them to rowCopier
+	 *
+	 * @return header of the file
+	 */
+	public static Header read(String filepath, RowCopier rowCopier) throws IOException {
+		Header header = readHeader(filepath);
+		long rowBytes = (long) header.columns * Double.BYTES;
+		int chunkRows = getChunkRows(header.columns, MAX_CHUNK_BYTES);
+		try (FileChannel channel = FileChannel.open(new File(filepath).toPath(), StandardOpenOption.READ)) {
+			long expectedSize = HEADER_BYTES + header.rows * rowBytes;
+			if (channel.size() < expectedSize) {
+				throw new IOException(
+						"memory checkpoint " + filepath + " truncated " + channel.size() + " < " + expectedSize);
+			}
+			for (int firstRow = 0; firstRow < header.rows; firstRow += chunkRows) {
+				int rows = Math.min(chunkRows, header.rows - firstRow);
+				MappedByteBuffer mappedByteBuffer = channel
+						.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + firstRow * rowBytes, rows * rowBytes);
+				DoubleBuffer doubleBuffer = mappedByteBuffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+				for (int row = firstRow; row < firstRow + rows; row++) {
+					int position = doubleBuffer.position();
+					rowCopier.copy(row, doubleBuffer);
+					doubleBuffer.position(position + header.columns);
+				}
+			}
+		}
+		return header;
+	}
+
+	/**
+	 * Writes only dirtyRows when filepath has the same columns and no more rows than header , else the full matrix
+	 *
+	 * @param dirtyRows rows changed since the last write to filepath , null to write all
+	 * @return true if it was an incremental write
+	 */
+	public static boolean write(String filepath, Header header, RowCopier rowCopier, BitSet dirtyRows)
+			throws IOException {
+		File file = new File(filepath);
+		if (dirtyRows != null && file.exists()) {
+			Header fileHeader = null;
+			try {
+				fileHeader = readHeader(filepath);
+			} catch (IOException e) {
+				//rewritten
+			}
+			if (fileHeader != null && fileHeader.columns == header.columns && fileHeader.rows <= header.rows) {
+				writeRows(file.toPath(), header, rowCopier, dirtyRows);
+				return true;
+			}
+		}
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		//full write in a temporary file moved at the end , a crash never leaves a half checkpoint
+		Path temporaryPath = new File(filepath + ".tmp").toPath();
+		BitSet allRows = new BitSet(header.rows);
+		allRows.set(0, header.rows);
+		try (FileChannel channel = FileChannel
+				.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeRows(channel, header, rowCopier, allRows);
+		}
+		Files.move(temporaryPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return false;
+	}
+
+	private static void writeRows(Path path, Header header, RowCopier rowCopier, BitSet rows) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			writeRows(channel, header, rowCopier, rows);
+		}
+	}
+
+	/**
+	 * Consecutive rows are written in chunks of WRITE_CHUNK_BYTES
+	 */
+	private static void writeRows(FileChannel channel, Header header, RowCopier rowCopier, BitSet rows)
+			throws IOException {
+		long rowBytes = (long) header.columns * Double.BYTES;
+		int chunkRows = getChunkRows(header.columns, WRITE_CHUNK_BYTES);
+		int bufferRows = Math.min(chunkRows, Math.max(1, header.rows));
+		ByteBuffer byteBuffer = ByteBuffer.allocateDirect((int) (bufferRows * rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+		DoubleBuffer doubleBuffer = byteBuffer.asDoubleBuffer();
+
+		int row = rows.nextSetBit(0);
+		while (row >= 0 && row < header.rows) {
+			int firstRow = row;
+			doubleBuffer.clear();
+			while (row >= 0 && row < header.rows && row - firstRow < chunkRows && (row == firstRow
+					|| rows.get(row))) {
+				int position = doubleBuffer.position();
+				rowCopier.copy(row, doubleBuffer);
+				doubleBuffer.position(position + header.columns);
+				row++;
+			}
+			int rowsInChunk = row - firstRow;
+			byteBuffer.clear();
+			byteBuffer.limit((int) (rowsInChunk * rowBytes));
+			writeFully(channel, byteBuffer, HEADER_BYTES + firstRow * rowBytes);
+			row = rows.nextSetBit(row);
+		}
+		//header at the end , rows are there before the new size is visible
+		writeFully(channel, header.toBuffer(), 0);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+}
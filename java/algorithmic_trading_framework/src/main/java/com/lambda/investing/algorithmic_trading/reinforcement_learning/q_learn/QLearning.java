@@ -54,6 +54,8 @@ import java.util.*;
 @Getter @Setter public class QLearning {
 
 	protected static String CSV_SEPARATOR = ",";
+	//binary MemoryCheckpoint instead of csv , python training scripts read the csv memories
+	public static boolean BINARY_MEMORY = false;
 	protected Logger logger = LogManager.getLogger(QLearning.class);
 	// amount of possible states
 	private int states;
@@ -69,6 +71,10 @@ import java.util.*;
 	// learning rate
 	protected double learningRate = 0.25;
 
+	//rows updated since the last save
+	private final BitSet dirtyRows = new BitSet();
+	private String lastCheckpointPath;
+
 	/**
 	 * Initializes a new instance of the QLearning class.
 	 *
@@ -116,6 +122,32 @@ import java.util.*;
 				}
 			}
 		}
+		markDirty(0, states);
+	}
+
+	/**
+	 * @return extension of the memory files saved
+	 */
+	public static String getMemoryExtension() {
+		return BINARY_MEMORY ? MemoryCheckpoint.EXTENSION : ".csv";
+	}
+
+	protected synchronized void markDirty(int fromRow, int toRow) {
+		dirtyRows.set(fromRow, toRow);
+	}
+
+	protected synchronized boolean isDirty() {
+		return !dirtyRows.isEmpty();
+	}
+
+	private synchronized BitSet takeDirtyRows() {
+		BitSet output = (BitSet) dirtyRows.clone();
+		dirtyRows.clear();
+		return output;
+	}
+
+	private synchronized void restoreDirtyRows(BitSet rows) {
+		dirtyRows.or(rows);
 	}
 
 	public void enablePeriodPersist(String filename) {
@@ -158,53 +190,60 @@ import java.util.*;
 		// update expexted summary reward of the previous state
 		previousActionEstimations[action] *= (1.0 - learningRate);
 		previousActionEstimations[action] += (learningRate * (reward + discountFactor * maxNextExpectedReward));
+		markDirty(previousState, previousState + 1);
 	}
 
 	public void saveMemory(String filepath) throws IOException {
-		FileUtils.persistArray(memoryReplay, filepath, CSV_SEPARATOR);
+		if (memoryReplay == null) {
+			return;
+		}
+		BitSet rowsToSave = takeDirtyRows();
+		try {
+			if (MemoryCheckpoint.isCheckpoint(filepath)) {
+				//only the rows updated since the last save to the same checkpoint
+				boolean incremental = filepath.equals(lastCheckpointPath);
+				int columns = memoryReplay.length > 0 ? memoryReplay[0].length : actions;
+				MemoryCheckpoint.Header header = new MemoryCheckpoint.Header(memoryReplay.length, columns,
+						new long[0]);
+				MemoryCheckpoint.write(filepath, header, (row, buffer) -> buffer.put(memoryReplay[row]),
+						incremental ? rowsToSave : null);
+				lastCheckpointPath = filepath;
+			} else {
+				FileUtils.persistArray(memoryReplay, filepath, CSV_SEPARATOR);
+			}
+		} catch (IOException e) {
+			restoreDirtyRows(rowsToSave);
+			throw e;
+		}
 	}
 
 	public void loadMemory(String filepath) throws IOException {
-
-		BufferedReader csvReader = new BufferedReader(new FileReader(filepath));
-		// we don't know the amount of data ahead of time so we use lists
-
-		Map<Integer, List<Double>> colMap = new HashMap<>();
-		String row;
-		int rowsTotal = 0;
-
-		while ((row = csvReader.readLine()) != null) {
-			String[] data = row.split(CSV_SEPARATOR);
-			for (int column = 0; column < data.length; column++) {
-				List<Double> columnList = colMap.getOrDefault(column, new ArrayList<>());
-				columnList.add(Double.parseDouble(data[column]));
-				colMap.put(column, columnList);
-			}
-			rowsTotal++;
+		double[][] loadedQvalues;
+		if (MemoryCheckpoint.isCheckpoint(filepath) && !new File(filepath).exists() && new File(
+				MemoryCheckpoint.toCsvPath(filepath)).exists()) {
+			//not migrated yet , saved as checkpoint the next time
+			filepath = MemoryCheckpoint.toCsvPath(filepath);
 		}
-		csvReader.close();
-		int columnsTotal = colMap.size();
-
-		//transform colMap into array
-		double[][] loadedQvalues = new double[rowsTotal][columnsTotal];//states rows , actions columns
-		this.states = rowsTotal;
-		this.actions = columnsTotal;
-		for (int column : colMap.keySet()) {
-			List<Double> rows = colMap.get(column);
-			int rowIter = 0;
-			for (double rowVal : rows) {
-				loadedQvalues[rowIter][column] = rowVal;
-				rowIter++;
-			}
+		if (MemoryCheckpoint.isCheckpoint(filepath)) {
+			MemoryCheckpoint.Header header = MemoryCheckpoint.readHeader(filepath);
+			double[][] checkpointValues = new double[header.getRows()][header.getColumns()];
+			MemoryCheckpoint.read(filepath, (row, buffer) -> buffer.get(checkpointValues[row]));
+			loadedQvalues = checkpointValues;
+			lastCheckpointPath = filepath;
+		} else {
+			loadedQvalues = FileUtils.loadArrayFromPath(filepath, CSV_SEPARATOR);
+			lastCheckpointPath = null;
 		}
 
+		this.states = loadedQvalues.length;
+		this.actions = loadedQvalues.length > 0 ? loadedQvalues[0].length : 0;
 		this.memoryReplay = loadedQvalues;
+		takeDirtyRows();
 		System.out.println(
-				String.format("loaded a qMatrix of %d rows-states and %d columns-actions", this.memoryReplay.length,
-						this.memoryReplay[0].length));
+				String.format("loaded a qMatrix of %d rows-states and %d columns-actions", this.states, this.actions));
 
-		logger.info(String.format("loaded a qMatrix of %d rows-states and %d columns-actions from %s",
-				this.memoryReplay.length, this.memoryReplay[0].length, filepath));
+		logger.info(String.format("loaded a qMatrix of %d rows-states and %d columns-actions from %s", this.states,
+				this.actions, filepath));
 
 	}
 
@@ -220,7 +259,9 @@ import java.util.*;
 			while (true) {
 
 				try {
-					saveMemory(this.filename);
+					if (isDirty()) {
+						saveMemory(this.filename);
+					}
 				} catch (IOException e) {
 					logger.error("cant save qMatrix periodically ", e);
 				}
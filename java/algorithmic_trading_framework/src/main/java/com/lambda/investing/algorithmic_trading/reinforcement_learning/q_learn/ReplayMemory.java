@@ -0,0 +1,292 @@
+package com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/***
+ * Memory replay of state | action scores | next state rows stored in one flat double[] slab
+ * States are indexed by an open addressing hash table on the rounded state values => lookups are O(1)
+ * NaN values of a state match NaN (and -0.0 matches 0.0) so a state with NaN is found again and not added per update
+ * When it's full the oldest row is overwritten (ring buffer)
+ * Rows changed since the last checkpoint are tracked to save them incrementally
+ */
+public class ReplayMemory {
+
+	private static final int EMPTY_SLOT = -1;
+
+	private final int capacity;
+	private final int stateColumns;
+	private final int actionColumns;
+	private final int rowColumns;
+	private final double[] slab;//capacity rows of rowColumns
+	private final int[] rowHashes;
+
+	private final int[] hashTable;//slot -> row
+	private final int hashMask;
+
+	private int nextRow;//ring position of the next row to write
+	private int size;
+	private final BitSet dirtyRows = new BitSet();
+
+	public ReplayMemory(int capacity, int stateColumns, int actionColumns) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("ReplayMemory capacity must be positive " + capacity);
+		}
+		this.capacity = capacity;
+		this.stateColumns = stateColumns;
+		this.actionColumns = actionColumns;
+		this.rowColumns = stateColumns + actionColumns + stateColumns;//state action next_state
+		long slabSize = (long) capacity * rowColumns;
+		if (slabSize > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException(
+					"ReplayMemory of " + capacity + " rows and " + rowColumns + " columns is too big");
+		}
+		this.slab = new double[(int) slabSize];
+		this.rowHashes = new int[capacity];
+
+		//load factor <= 0.5
+		int tableSize = Integer.highestOneBit(capacity) << 2;
+		this.hashTable = new int[tableSize];
+		this.hashMask = tableSize - 1;
+		Arrays.fill(hashTable, EMPTY_SLOT);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getNextRow() {
+		return nextRow;
+	}
+
+	/**
+	 * @return row of the oldest state , rows from it in ring order are chronological
+	 */
+	public int getOldestRow() {
+		return size == capacity ? nextRow : 0;
+	}
+
+	public int getStateColumns() {
+		return stateColumns;
+	}
+
+	public int getActionColumns() {
+		return actionColumns;
+	}
+
+	public int getRowColumns() {
+		return rowColumns;
+	}
+
+	public void clear() {
+		Arrays.fill(hashTable, EMPTY_SLOT);
+		nextRow = 0;
+		size = 0;
+		dirtyRows.clear();
+	}
+
+	private static int hash(double[] state, int offset, int length) {
+		long hash = 1;
+		for (int column = offset; column < offset + length; column++) {
+			double value = state[column];
+			hash = 31 * hash + Double.doubleToLongBits(value == 0.0 ? 0.0 : value);//-0.0 == 0.0
+		}
+		//murmur3 finalizer
+		hash ^= (hash >>> 33);
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= (hash >>> 33);
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= (hash >>> 33);
+		return (int) hash;
+	}
+
+	private boolean isSameState(int row, double[] state) {
+		int offset = row * rowColumns;
+		for (int column = 0; column < stateColumns; column++) {
+			double value = slab[offset + column];
+			if (value != state[column] && !(Double.isNaN(value) && Double.isNaN(state[column]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param state rounded state
+	 * @return row of the state or -1 if not in memory
+	 */
+	public int find(double[] state) {
+		if (size == 0) {
+			return -1;
+		}
+		int hash = hash(state, 0, stateColumns);
+		int slot = hash & hashMask;
+		while (hashTable[slot] != EMPTY_SLOT) {
+			int row = hashTable[slot];
+			if (rowHashes[row] == hash && isSameState(row, state)) {
+				return row;
+			}
+			slot = (slot + 1) & hashMask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds a new row , overwriting the oldest one when the memory is full. State must not be in memory
+	 *
+	 * @return row written
+	 */
+	public int add(double[] state, double[] actionScores, double[] nextState) {
+		if (state.length != stateColumns || actionScores.length != actionColumns
+				|| nextState.length != stateColumns) {
+			throw new IllegalArgumentException(
+					"ReplayMemory row of " + state.length + "|" + actionScores.length + "|" + nextState.length
+							+ " columns doesn't match " + stateColumns + "|" + actionColumns + "|" + stateColumns);
+		}
+		int row = nextRow;
+		if (size == capacity) {
+			removeFromIndex(row);
+		} else {
+			size++;
+		}
+		int offset = row * rowColumns;
+		System.arraycopy(state, 0, slab, offset, stateColumns);
+		System.arraycopy(actionScores, 0, slab, offset + stateColumns, actionColumns);
+		System.arraycopy(nextState, 0, slab, offset + stateColumns + actionColumns, stateColumns);
+
+		addToIndex(row);
+		dirtyRows.set(row);
+
+		nextRow++;
+		if (nextRow == capacity) {
+			nextRow = 0;
+		}
+		return row;
+	}
+
+	private void addToIndex(int row) {
+		int hash = hash(slab, row * rowColumns, stateColumns);
+		rowHashes[row] = hash;
+		int slot = hash & hashMask;
+		while (hashTable[slot] != EMPTY_SLOT) {
+			slot = (slot + 1) & hashMask;
+		}
+		hashTable[slot] = row;
+	}
+
+	/**
+	 * Linear probing deletion shifting back the next entries of the cluster , no tombstones are left
+	 */
+	private void removeFromIndex(int row) {
+		int hole = rowHashes[row] & hashMask;
+		while (hashTable[hole] != row) {
+			hole = (hole + 1) & hashMask;
+		}
+		int slot = (hole + 1) & hashMask;
+		while (hashTable[slot] != EMPTY_SLOT) {
+			int idealSlot = rowHashes[hashTable[slot]] & hashMask;
+			//move it if the hole is between its ideal slot and the current one
+			if (((slot - idealSlot) & hashMask) >= ((slot - hole) & hashMask)) {
+				hashTable[hole] = hashTable[slot];
+				hole = slot;
+			}
+			slot = (slot + 1) & hashMask;
+		}
+		hashTable[hole] = EMPTY_SLOT;
+	}
+
+	public double getActionScore(int row, int action) {
+		return slab[row * rowColumns + stateColumns + action];
+	}
+
+	public void setActionScore(int row, int action, double score) {
+		slab[row * rowColumns + stateColumns + action] = score;
+		dirtyRows.set(row);
+	}
+
+	public double[] getActionScores(int row) {
+		int offset = row * rowColumns + stateColumns;
+		return Arrays.copyOfRange(slab, offset, offset + actionColumns);
+	}
+
+	public double[] getRow(int row) {
+		int offset = row * rowColumns;
+		return Arrays.copyOfRange(slab, offset, offset + rowColumns);
+	}
+
+	/**
+	 * @return copy of the columns [firstColumn,lastColumn) of all the rows
+	 */
+	public double[][] getColumns(int firstColumn, int lastColumn) {
+		double[][] output = new double[size][lastColumn - firstColumn];
+		for (int row = 0; row < size; row++) {
+			System.arraycopy(slab, row * rowColumns + firstColumn, output[row], 0, lastColumn - firstColumn);
+		}
+		return output;
+	}
+
+	public double[][] getStates() {
+		return getColumns(0, stateColumns);
+	}
+
+	public double[][] getActionScores() {
+		return getColumns(stateColumns, stateColumns + actionColumns);
+	}
+
+	/**
+	 * Saves the rows in use as a MemoryCheckpoint
+	 *
+	 * @param incremental only the rows changed since the last saveCheckpoint/loadCheckpoint of filepath
+	 */
+	public void saveCheckpoint(String filepath, boolean incremental) throws IOException {
+		MemoryCheckpoint.Header header = new MemoryCheckpoint.Header(size, rowColumns,
+				new long[] { nextRow, stateColumns, actionColumns });
+		MemoryCheckpoint.write(filepath, header,
+				(row, buffer) -> buffer.put(slab, row * rowColumns, rowColumns), incremental ? dirtyRows : null);
+		dirtyRows.clear();
+	}
+
+	/**
+	 * Replaces the memory by the MemoryCheckpoint rows , rows over the capacity are added overwriting the oldest ones
+	 *
+	 * @return rows loaded or -1 if the columns don't match
+	 */
+	public int loadCheckpoint(String filepath) throws IOException {
+		MemoryCheckpoint.Header header = MemoryCheckpoint.readHeader(filepath);
+		if (header.getColumns() != rowColumns || header.getMetadata(1) != stateColumns) {
+			return -1;
+		}
+		clear();
+		if (header.getRows() <= capacity) {
+			//same layout , rows read directly into the slab
+			MemoryCheckpoint.read(filepath, (row, buffer) -> buffer.get(slab, row * rowColumns, rowColumns));
+			size = header.getRows();
+			for (int row = 0; row < size; row++) {
+				addToIndex(row);
+			}
+			nextRow = size < capacity ? size : (int) (header.getMetadata(0) % capacity);
+		} else {
+			double[] rowValues = new double[rowColumns];
+			MemoryCheckpoint.read(filepath, (row, buffer) -> {
+				buffer.get(rowValues);
+				double[] state = Arrays.copyOfRange(rowValues, 0, stateColumns);
+				int existingRow = find(state);
+				if (existingRow > -1) {
+					System.arraycopy(rowValues, stateColumns, slab, existingRow * rowColumns + stateColumns,
+							actionColumns);
+				} else {
+					add(state, Arrays.copyOfRange(rowValues, stateColumns, stateColumns + actionColumns),
+							Arrays.copyOfRange(rowValues, stateColumns + actionColumns, rowColumns));
+				}
+			});
+		}
+		dirtyRows.clear();
+		return size;
+	}
+
+}
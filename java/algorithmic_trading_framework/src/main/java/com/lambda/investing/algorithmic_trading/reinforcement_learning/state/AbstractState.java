@@ -1,43 +1,32 @@
 package com.lambda.investing.algorithmic_trading.reinforcement_learning.state;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.lambda.investing.algorithmic_trading.PnlSnapshot;
-import com.lambda.investing.algorithmic_trading.reinforcement_learning.action.AvellanedaAction;
 import com.lambda.investing.model.candle.Candle;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
 import lombok.Getter;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.exception.NumberIsTooLargeException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.paukov.combinatorics3.Generator;
 
-import java.io.*;
-import java.math.BigDecimal;
-import java.math.MathContext;
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficientDouble;
 
 /**
- * https://softwareengineering.stackexchange.com/questions/286822/fast-indexing-of-k-combinations
+ * Discrete state index is the mixed radix number of the rounded columns , each column is a digit of base valuesPerColum
+ * and the first column is the least significant one (same order as the permutations with repetition of combinatoricslib3
+ * used before , so the indexes of the saved memories keep pointing to the same states)
  */
 @Getter public abstract class AbstractState {
 
-	private static String SEPARATOR_CACHE = ",";
 	protected Logger logger = LogManager.getLogger(AbstractState.class);
 	protected double maxNumber, minNumber, decimalDen;
 	protected int valuesPerColum, numberOfDecimals, numberOfColumns;
-	private int referenceIndex = -1;
-	private BiMap<Integer, StateRow> stateIndexToArr;
 
 	protected String[] columnsFilter = null;
+	private int[] columnsFilterIndex = null;
 
 	public void setColumnsFilter(String[] columnsFilter) {
 		this.columnsFilter = columnsFilter;
+		this.columnsFilterIndex = null;
 	}
 
 	public int getNumberOfColumns() {
@@ -48,29 +37,38 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 		}
 	}
 
-	protected double[] getFilteredState(double[] inputState) {
-		if (this.columnsFilter == null) {
-			return inputState;
-		}
-
-		int[] columnsSelected = new int[this.columnsFilter.length];
+	private int[] getColumnsFilterIndex() {
+		if (columnsFilterIndex == null) {
+			int[] columnsSelected = new int[this.columnsFilter.length];
 
-		int index = 0;
-		List<String> allColumns = getColumns();
-		for (String column : columnsFilter) {
-			if (allColumns.contains(column)) {
-				columnsSelected[index] = allColumns.indexOf(column);
-				index++;
+			int index = 0;
+			List<String> allColumns = getColumns();
+			for (String column : columnsFilter) {
+				if (allColumns.contains(column)) {
+					columnsSelected[index] = allColumns.indexOf(column);
+					index++;
+				}
 			}
+			columnsFilterIndex = columnsSelected;
 		}
+		return columnsFilterIndex;
+	}
 
+	protected double[] getFilteredState(double[] inputState) {
+		if (this.columnsFilter == null) {
+			return inputState;
+		}
 		double[] output = new double[this.columnsFilter.length];
+		getFilteredState(inputState, output);
+		return output;
+	}
+
+	protected void getFilteredState(double[] inputState, double[] output) {
 		int indexOut = 0;
-		for (int column : columnsSelected) {
+		for (int column : getColumnsFilterIndex()) {
 			output[indexOut] = inputState[column];
 			indexOut++;
 		}
-		return output;
 	}
 
 	public abstract List<String> getColumns();
@@ -86,76 +84,10 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 
 	public abstract int getCurrentStatePosition();
 
-	public abstract void enumerateStates(String cachePermutationsPath);
-
 	public AbstractState(int numberOfDecimals) {
 		this.numberOfDecimals = numberOfDecimals;
 		//		this.numberOfColumns=numberOfColumns;
-		if (numberOfDecimals > 0) {
-			decimalDen = Math.pow(10, numberOfDecimals);
-		}
-		stateIndexToArr = HashBiMap.create();
-
-	}
-
-	public void loadCacheFile(String filePath) {
-		stateIndexToArr = loadMapFromFile(filePath);
-	}
-
-	public void saveCacheFile(String filePath) {
-		saveMapToFile(stateIndexToArr, filePath);
-	}
-
-	public void deleteCacheFile(String filePath) {
-		File file = new File(filePath);
-		file.delete();
-	}
-
-	protected void fillCache(String cachePermutationsPath) {
-		stateIndexToArr = loadMapFromFile(cachePermutationsPath);
-		if (stateIndexToArr.size() > 0) {
-			logger.info("load cache permutations {}  of size {}", cachePermutationsPath, stateIndexToArr.size());
-			return;
-		}
-		logger.info("Calculating cachePermutations to save in " + cachePermutationsPath);
-
-		double[] array = new double[numberOfColumns];
-
-		List<Double> values = new ArrayList<>();
-		for (int i = 0; i < valuesPerColum; i++) {
-			values.add(getColumnValue(i));
-		}
-
-		assert values.contains(-5E-7);
-
-		System.out.println(
-				"calculating permutations on " + values.size() + " permutations taken by " + numberOfColumns + " -> "
-						+ getNumberStates() + " possibilities to save on " + cachePermutationsPath);
-		long start = System.currentTimeMillis();
-		List<List<Double>> permutations = Generator.permutation(values).withRepetitions(numberOfColumns).stream()
-				.collect(Collectors.<List<Double>>toList());
-		long elapsedMinutes = (System.currentTimeMillis() - start) / (1000 * 60);
-		System.out.println("done in " + elapsedMinutes + " minutes");
-		for (List<Double> arrayPermuta : permutations) {
-			double[] arrayValues = ArrayUtils.toPrimitive(arrayPermuta.toArray(new Double[numberOfColumns]));
-			stateIndexToArr.put(permutations.indexOf(arrayPermuta), new StateRow(arrayValues));
-		}
-
-		//		double sumPosition = 0.;
-		//		double maxPosition = maxNumber * numberOfColumns;
-		//		while (sumPosition < maxPosition) {
-		//			int calculatedPos = getStateFromArray(array);
-		//			incrementArray(array, 1);
-		//
-		//			sumPosition = 0.;
-		//			for (int column = 0; column < array.length; column++) {
-		//				sumPosition += array[column];
-		//			}
-		//
-		//		}
-
-		saveCacheFile(cachePermutationsPath);
-		logger.info("saved cache permutations {}  of size {}", cachePermutationsPath, stateIndexToArr.size());
+		decimalDen = Math.pow(10, Math.max(0, numberOfDecimals));
 
 	}
 
@@ -163,8 +95,11 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 		this.numberOfColumns = numberOfColumns;
 	}
 
+	/**
+	 * Inverse of getColumnValue , position of the value in [minNumber,maxNumber]
+	 */
 	protected int getColumnPosition(double roundedNumber) {
-		double value = roundedNumber + Math.floor(minNumber);
+		double value = roundedNumber - minNumber;
 		int positionInColumn = (int) Math.round(value * decimalDen);
 		return positionInColumn;
 	}
@@ -189,12 +124,22 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 	//	}
 
 	protected static double[] getRoundedState(double[] state, double maxNumber, double minNumber, int numDecimals) {
-		double[] stateRound = new double[state.length];
+		double[] stateRound = state.clone();
+		roundState(stateRound, 0, stateRound.length, maxNumber, minNumber, numDecimals);
+		return stateRound;
+
+	}
+
+	/**
+	 * Rounds in place the columns [from,to) of state
+	 */
+	protected static void roundState(double[] state, int from, int to, double maxNumber, double minNumber,
+			int numDecimals) {
 		double decimalDen = 0;
 		if (numDecimals > 0) {
 			decimalDen = Math.pow(10, numDecimals);
 		}
-		for (int column = 0; column < state.length; column++) {
+		for (int column = from; column < to; column++) {
 			double value = state[column];
 			if (maxNumber > minNumber) {
 				value = Math.min(maxNumber, state[column]);
@@ -203,10 +148,8 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 			if (decimalDen != 0) {
 				value = round(value, decimalDen);
 			}
-			stateRound[column] = value;
+			state[column] = value;
 		}
-		return stateRound;
-
 	}
 
 	protected double[] getRoundedState(double[] state) {
@@ -235,51 +178,53 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 		return getRoundedState(outputArr);
 	}
 
+	/**
+	 * Writes the current state rounded in output , to be overridden by states that can do it without allocating
+	 *
+	 * @return false if is not ready
+	 */
+	public boolean fillCurrentStateRounded(double[] output) {
+		double[] outputArr = getCurrentStateRounded();
+		if (outputArr == null) {
+			return false;
+		}
+		System.arraycopy(outputArr, 0, output, 0, outputArr.length);
+		return true;
+	}
+
+	/**
+	 * States enumerated by position need the mixed radix index of all the columns to fit in an int
+	 *
+	 * @throws IllegalArgumentException if valuesPerColum^numberOfColumns is bigger than Integer.MAX_VALUE
+	 */
+	protected void checkNumberOfStates() {
+		double numberOfStates = Math.pow(valuesPerColum, numberOfColumns);
+		if (numberOfStates > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(String.format(
+					"%d columns of %d values are %.0f states , more than %d that can be indexed => reduce horizon , decimals or [%.2f,%.2f]",
+					numberOfColumns, valuesPerColum, numberOfStates, Integer.MAX_VALUE, minNumber, maxNumber));
+		}
+	}
+
+	/**
+	 * @return mixed radix index of the rounded state or -1 if any column is out of [minNumber,maxNumber]
+	 */
 	protected int getStateFromArray(double[] state) {
 		double[] stateRounded = getRoundedState(state);
-		Integer cachePos = stateIndexToArr.inverse().get(new StateRow(stateRounded));
-		if (cachePos != null) {
-			return cachePos;
+		long index = 0;
+		for (int column = stateRounded.length - 1; column >= 0; column--) {
+			int positionInColumn = getColumnPosition(stateRounded[column]);
+			if (positionInColumn < 0 || positionInColumn >= valuesPerColum) {
+				return -1;
+			}
+			index = index * valuesPerColum + positionInColumn;
+			if (index > Integer.MAX_VALUE) {
+				logger.error("state index out of int range with {} columns of {} values", stateRounded.length,
+						valuesPerColum);
+				return -1;
+			}
 		}
-		//		double[] stateRounded2 = getRoundedStateBD(state);
-		//		Integer cachePos2 = stateIndexToArr.inverse().get(new StateRow(stateRounded2));
-		//		if (cachePos2 != null) {
-		//			return cachePos2;
-		//		}
-
-		//		logger.error("cant calculate , only working in cache mode!");
-		return -1;
-
-		//		int out = 0;
-		//		int sumStatesIndex = 0;
-		//		for (int columnState = 0; columnState < state.length; columnState++) {
-		//			double positionColumn = 0;
-		//			try {
-		//				int columnIndex = getColumnPosition(stateRounded[columnState]);
-		//				sumStatesIndex += columnIndex;
-		//				positionColumn = binomialCoefficientDouble(valuesPerColum - columnIndex, columnState + 1);
-		//
-		////				permutation with repeatition
-		////				positionColumn = Math.pow(valuesPerColum-columnIndex,columnState);
-		//
-		//			} catch (NumberIsTooLargeException ex) {
-		//			}
-		//
-		//			out += positionColumn;
-		//
-		//		}
-
-		//		if (sumStatesIndex==0){
-		//			referenceIndex=out;
-		//		}
-		//		if (referenceIndex<0){
-		//			logger.warn("reference index is <0 => calculating reference");
-		//			getStateFromArray(new double[numberOfColumns]);
-		//		}
-		//		out = out-referenceIndex;
-
-		//		stateIndexToArr.put((int) out, new StateRow(stateRounded));
-		//		return (int) out;
+		return (int) index;
 	}
 
 	public void incrementArray(double[] inputArray, int increment) {
@@ -339,121 +284,27 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 
 	}
 
+	/**
+	 * Decodes the mixed radix index into the rounded state
+	 */
 	protected double[] getState(int statePosition) {
-		if (numberOfColumns == 0) {
+		int columns = getNumberOfColumns();
+		if (columns == 0) {
 			logger.error("need to set number of columns first!");
 		}
-		//working stimation
-
-		double[] stateRow = stateIndexToArr.get(statePosition).inputArray;
-		if (stateRow != null) {
-			return stateRow;
-		}
-
-		int closestCachePosition = 9999999;
-		if (stateIndexToArr.size() == 0) {
-			double[] zeroArra = new double[numberOfColumns];
-			closestCachePosition = getStateFromArray(zeroArra);
-		}
-
-		for (int stateCache : stateIndexToArr.keySet()) {
-			if (Math.abs(stateCache - statePosition) < closestCachePosition) {
-				closestCachePosition = stateCache;
-			}
-		}
-		double[] closestArray = stateIndexToArr.get(closestCachePosition).inputArray;
-		double[] input = closestArray;
-
-		while (closestCachePosition != statePosition) {
-
-			if (closestCachePosition < statePosition) {
-				incrementArray(input, -1);
-			} else {
-				//increment  one position
-				incrementArray(input, 1);
-			}
-
-			closestCachePosition = getStateFromArray(input);
-
-		}
-
-		double[] output = input;
-		return output;
-
-	}
-
-	private static String getStringRow(double[] input) {
-		StringBuilder outSB = new StringBuilder();
-
-		for (int column = 0; column < input.length; column++) {
-			outSB.append(input[column]);
-			outSB.append(SEPARATOR_CACHE);
+		if (statePosition < 0) {
+			logger.error("can't decode negative state position {}", statePosition);
+			return null;
 		}
-
-		return outSB.toString();
-	}
-
-	public static void saveMapToFile(BiMap<Integer, StateRow> map, String filePath) {
-		//new file object
-		File file = new File(filePath);
-		file.getParentFile().mkdirs();
-		BufferedWriter bf = null;
-		try {
-			//create new BufferedWriter for the output file
-			bf = new BufferedWriter(new FileWriter(file));
-
-			//iterate map entries
-			for (Map.Entry<Integer, StateRow> entry : map.entrySet()) {
-				//put key and value separated by a colon
-				bf.write(entry.getKey() + ":" + getStringRow(entry.getValue().inputArray));
-				//new line
-				bf.newLine();
-			}
-
-			bf.flush();
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
-
-			try {
-				//always close the writer
-				bf.close();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+		double[] output = new double[columns];
+		long position = statePosition;
+		for (int column = 0; column < columns; column++) {
+			output[column] = getColumnValue((int) (position % valuesPerColum));
+			position /= valuesPerColum;
 		}
-
-	}
-
-	public static BiMap<Integer, StateRow> loadMapFromFile(String filePath) {
-		BiMap<Integer, StateRow> output = HashBiMap.create();
-		File file = new File(filePath);
-		if (file.exists()) {
-			try {
-
-				BufferedReader csvReader = new BufferedReader(new FileReader(filePath));
-				String row;
-				while ((row = csvReader.readLine()) != null) {
-					String[] data = row.split(":");
-					int index = Integer.valueOf(data[0]);
-					String[] stringsSplitted = data[1].split(SEPARATOR_CACHE);
-					double[] arrayValues = new double[stringsSplitted.length];
-					int counter = 0;
-					for (String element : stringsSplitted) {
-						arrayValues[counter] = Double.valueOf(element);
-						counter++;
-					}
-					output.put(index, new StateRow(arrayValues));
-
-				}
-
-			} catch (FileNotFoundException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-
+		if (position != 0) {
+			logger.error("state position {} is bigger than the number of states", statePosition);
+			return null;
 		}
 		return output;
 
@@ -467,26 +318,4 @@ import static org.apache.commons.math3.util.CombinatoricsUtils.binomialCoefficie
 
 	public abstract void updateDepthState(Depth depth);
 
-	public static class StateRow {
-
-		private double[] inputArray;
-
-		public StateRow(double... inputs) {
-			this.inputArray = inputs;
-		}
-
-		@Override public boolean equals(Object o) {
-			if (this == o)
-				return true;
-			if (!(o instanceof StateRow))
-				return false;
-			StateRow stateRow = (StateRow) o;
-			return Arrays.equals(inputArray, stateRow.inputArray);
-		}
-
-		@Override public int hashCode() {
-			return Arrays.hashCode(inputArray);
-		}
-	}
-
 }
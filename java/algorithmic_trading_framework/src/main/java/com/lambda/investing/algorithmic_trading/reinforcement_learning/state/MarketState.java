@@ -1,21 +1,18 @@
 package com.lambda.investing.algorithmic_trading.reinforcement_learning.state;
 
-import com.google.common.primitives.Doubles;
 import com.lambda.investing.algorithmic_trading.PnlSnapshot;
 import com.lambda.investing.algorithmic_trading.reinforcement_learning.ScoreEnum;
 import com.lambda.investing.algorithmic_trading.reinforcement_learning.ScoreUtils;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.DoubleRingBuffer;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.RollingMinMax;
+import com.lambda.investing.algorithmic_trading.rolling_statistics.RollingVariance;
 import com.lambda.investing.model.candle.Candle;
 import com.lambda.investing.model.candle.CandleType;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.curator.shaded.com.google.common.collect.EvictingQueue;
-import org.apache.curator.shaded.com.google.common.collect.Queues;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 
 import static com.lambda.investing.algorithmic_trading.reinforcement_learning.MatrixRoundUtils.*;
 
@@ -47,16 +44,22 @@ public class MarketState extends AbstractState {
 	private int privateNumberDecimals, marketNumberDecimals, candleNumberDecimals;
 	private double privateMinNumber, privateMaxNumber, marketMinNumber, marketMaxNumber, candleMinNumber, candleMaxNumber;
 
-	private Queue<Double> inventoryBuffer, scoreBuffer;
+	private DoubleRingBuffer inventoryBuffer, scoreBuffer;
 	private double quantity;
 
 	//market buffer
-	private Queue<Double> bidPriceBuffer, askPriceBuffer, bidQtyBuffer, askQtyBuffer, spreadBuffer, midpriceBuffer, imbalanceBuffer, micropriceBuffer, lastClosePriceBuffer, lastCloseQuantityBuffer;
+	private DoubleRingBuffer bidPriceBuffer, askPriceBuffer, bidQtyBuffer, askQtyBuffer, spreadBuffer, midpriceBuffer, imbalanceBuffer, micropriceBuffer, lastClosePriceBuffer, lastCloseQuantityBuffer;
 
-	private Queue<Double> candlesOpen;
-	private Queue<Double> candlesHigh;
-	private Queue<Double> candlesLow;
-	private Queue<Double> candlesClose;
+	private DoubleRingBuffer candlesOpen;
+	private DoubleRingBuffer candlesHigh;
+	private DoubleRingBuffer candlesLow;
+	private DoubleRingBuffer candlesClose;
+	private RollingMinMax candlesHighMinMax, candlesLowMinMax;
+	private RollingVariance candlesCloseVariance;
+
+	//state vectors reused on every query
+	private double[] stateVector;
+	private double[] filteredStateVector;
 
 	private CandleType candleType;
 
@@ -93,33 +96,44 @@ public class MarketState extends AbstractState {
 		//private
 		//save one more to diff it
 		if (PRIVATE_DELTA_STATES) {
-			inventoryBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.privateHorizonSave + 1));
-			scoreBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.privateHorizonSave + 1));
+			inventoryBuffer = new DoubleRingBuffer(this.privateHorizonSave + 1);
+			scoreBuffer = new DoubleRingBuffer(this.privateHorizonSave + 1);
 		} else {
-			inventoryBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.privateHorizonSave));
-			scoreBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.privateHorizonSave));
+			inventoryBuffer = new DoubleRingBuffer(this.privateHorizonSave);
+			scoreBuffer = new DoubleRingBuffer(this.privateHorizonSave);
 		}
 
 		//market
-		bidPriceBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		askPriceBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		bidQtyBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		askQtyBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		spreadBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		midpriceBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		imbalanceBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		micropriceBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		lastClosePriceBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
-		lastCloseQuantityBuffer = Queues.synchronizedQueue(EvictingQueue.create(this.marketHorizonSave));
+		bidPriceBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		askPriceBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		bidQtyBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		askQtyBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		spreadBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		midpriceBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		imbalanceBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		micropriceBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		lastClosePriceBuffer = new DoubleRingBuffer(this.marketHorizonSave);
+		lastCloseQuantityBuffer = new DoubleRingBuffer(this.marketHorizonSave);
 
 		//candle
-		candlesOpen = Queues.synchronizedQueue(EvictingQueue.create(this.candleHorizonSave));
-		candlesHigh = Queues.synchronizedQueue(EvictingQueue.create(this.candleHorizonSave));
-		candlesLow = Queues.synchronizedQueue(EvictingQueue.create(this.candleHorizonSave));
-		candlesClose = Queues.synchronizedQueue(EvictingQueue.create(this.candleHorizonSave));
+		candlesOpen = new DoubleRingBuffer(this.candleHorizonSave);
+		candlesHigh = new DoubleRingBuffer(this.candleHorizonSave);
+		candlesLow = new DoubleRingBuffer(this.candleHorizonSave);
+		candlesClose = new DoubleRingBuffer(this.candleHorizonSave);
+		if (this.candleHorizonSave > 0) {
+			candlesHighMinMax = new RollingMinMax(this.candleHorizonSave);
+			candlesLowMinMax = new RollingMinMax(this.candleHorizonSave);
+			candlesCloseVariance = new RollingVariance(this.candleHorizonSave);
+		}
 
 		numberOfColumns = getColumns().size();
+		stateVector = new double[numberOfColumns];
+
+	}
 
+	@Override public void setColumnsFilter(String[] columnsFilter) {
+		super.setColumnsFilter(columnsFilter);
+		filteredStateVector = null;
 	}
 
 	public List<String> getPrivateColumns() {
@@ -200,7 +214,7 @@ public class MarketState extends AbstractState {
 
 	}
 
-	@Override public void updateCandle(Candle candle) {
+	@Override public synchronized void updateCandle(Candle candle) {
 		//last update on last element
 
 		double open = candle.getOpen();
@@ -221,23 +235,17 @@ public class MarketState extends AbstractState {
 		candlesLow.add(low);
 		candlesClose.add(close);
 
-		if (candlesClose.size() >= candleHorizonSave) {
-			Double[] highCandlesDouble = new Double[candleHorizonSave];
-			candlesHigh.toArray(highCandlesDouble);
-			double[] highCandles = ArrayUtils.toPrimitive(highCandlesDouble);
-			lastCandleMax = maxValue(highCandles);
-
-			Double[] lowCandlesDouble = new Double[candleHorizonSave];
-			candlesLow.toArray(lowCandlesDouble);
-			double[] lowCandles = ArrayUtils.toPrimitive(lowCandlesDouble);
-			lastCandleMin = minValue(lowCandles);
-
-			Double[] closeCandlesDouble = new Double[candleHorizonSave];
-			candlesClose.toArray(closeCandlesDouble);
-			double[] closeCandles = ArrayUtils.toPrimitive(closeCandlesDouble);
-
-			lastCandlesMA = meanValue(closeCandles);
-			lastCandleStd = stdValue(closeCandles);
+		if (candleHorizonSave <= 0) {
+			return;
+		}
+		candlesHighMinMax.add(high);
+		candlesLowMinMax.add(low);
+		candlesCloseVariance.add(close);
+		if (candlesCloseVariance.isFull()) {
+			lastCandleMax = candlesHighMinMax.getMax();
+			lastCandleMin = candlesLowMinMax.getMin();
+			lastCandlesMA = candlesCloseVariance.getMean();
+			lastCandleStd = candlesCloseVariance.getVariance();//as stdValue
 		}
 
 	}
@@ -301,138 +309,94 @@ public class MarketState extends AbstractState {
 
 	}
 
-	private double[] getPrivateState() {
-		List<Double> outputList = new ArrayList<>(this.numberOfColumns);
+	/**
+	 * Writes private , market and candle columns rounded into stateVector
+	 *
+	 * @return false if the buffers don't fill all the columns
+	 */
+	private boolean fillStateVector() {
+		int offset = 0;
+		//private
 		if (PRIVATE_DELTA_STATES) {
-			outputList.addAll(getDiffQueue(inventoryBuffer));
-			outputList.addAll(getDiffQueue(scoreBuffer));
+			offset = inventoryBuffer.copyDiffTo(stateVector, offset);
+			offset = scoreBuffer.copyDiffTo(stateVector, offset);
 		} else {
-			outputList.addAll(inventoryBuffer);
-			outputList.addAll(scoreBuffer);
-		}
-		if (outputList.size() == 0) {
-			return null;
+			offset = inventoryBuffer.copyTo(stateVector, offset);
+			offset = scoreBuffer.copyTo(stateVector, offset);
 		}
+		roundState(stateVector, 0, offset, privateMaxNumber, privateMinNumber, privateNumberDecimals);
 
-		double[] outputArr = outputList.stream().mapToDouble(Double::doubleValue).toArray();
-		outputArr = getRoundedState(outputArr, privateMaxNumber, privateMinNumber, privateNumberDecimals);
-		return outputArr;
-	}
-
-	private double[] getMarketState() {
-		List<Double> outputList = new ArrayList<>(this.numberOfColumns);
+		//market
 		//		{ "bid_price", "ask_price", "bid_qty", "ask_qty",
 		//			"spread", "midprice", "imbalance", "microprice", "last_close_price", "last_close_qty" };
-		try {
-			outputList.addAll(bidPriceBuffer);
-			outputList.addAll(askPriceBuffer);
-			outputList.addAll(bidQtyBuffer);
-			outputList.addAll(askQtyBuffer);
-			outputList.addAll(spreadBuffer);
-			outputList.addAll(midpriceBuffer);
-			outputList.addAll(imbalanceBuffer);
-			outputList.addAll(micropriceBuffer);
-			outputList.addAll(lastClosePriceBuffer);
-			outputList.addAll(lastCloseQuantityBuffer);
-		} catch (Exception e) {
-			logger.error("error getting marketState ", e);
-			outputList.clear();
-		}
-		if (outputList.size() == 0) {
-			return null;
-		}
-		double[] outputArr = outputList.stream().mapToDouble(Double::doubleValue).toArray();
-		outputArr = getRoundedState(outputArr, marketMaxNumber, marketMinNumber, marketNumberDecimals);
-		return outputArr;
+		int marketOffset = offset;
+		offset = bidPriceBuffer.copyTo(stateVector, offset);
+		offset = askPriceBuffer.copyTo(stateVector, offset);
+		offset = bidQtyBuffer.copyTo(stateVector, offset);
+		offset = askQtyBuffer.copyTo(stateVector, offset);
+		offset = spreadBuffer.copyTo(stateVector, offset);
+		offset = midpriceBuffer.copyTo(stateVector, offset);
+		offset = imbalanceBuffer.copyTo(stateVector, offset);
+		offset = micropriceBuffer.copyTo(stateVector, offset);
+		offset = lastClosePriceBuffer.copyTo(stateVector, offset);
+		offset = lastCloseQuantityBuffer.copyTo(stateVector, offset);
+		roundState(stateVector, marketOffset, offset, marketMaxNumber, marketMinNumber, marketNumberDecimals);
 
-	}
-
-	private  double[] getCandleState() {
-		List<Double> outputList = new ArrayList<>(this.numberOfColumns);
-
-		//	private static String[] CANDLE_COLUMNS_PATTERN = new String[] {"open","high","low","close"};
-		//
-		//	private static String[] CANDLE_INDICATORS = new String[] { "ma", "std", "max", "min" };
-
-		outputList.addAll(candlesOpen);
-		outputList.addAll(candlesHigh);
-		outputList.addAll(candlesLow);
-		outputList.addAll(candlesClose);
-
-		outputList.add(lastCandlesMA);
-		outputList.add(lastCandleStd);
-		outputList.add(lastCandleMax);
-		outputList.add(lastCandleMin);
-		if (outputList.size() == 0) {
-			return null;
+		//candles
+		int candleOffset = offset;
+		offset = candlesOpen.copyTo(stateVector, offset);
+		offset = candlesHigh.copyTo(stateVector, offset);
+		offset = candlesLow.copyTo(stateVector, offset);
+		offset = candlesClose.copyTo(stateVector, offset);
+		stateVector[offset++] = lastCandlesMA;
+		stateVector[offset++] = lastCandleStd;
+		stateVector[offset++] = lastCandleMax;
+		stateVector[offset++] = lastCandleMin;
+		roundState(stateVector, candleOffset, offset, candleMaxNumber, candleMinNumber, candleNumberDecimals);
+
+		if (offset != numberOfColumns) {
+			logger.error("something is wrong when state has {} columns and is ready with {}", offset,
+					numberOfColumns);
+			return false;
 		}
-		double[] outputArr = outputList.stream().mapToDouble(Double::doubleValue).toArray();
-		outputArr = getRoundedState(outputArr, candleMaxNumber, candleMinNumber, candleNumberDecimals);
-		return outputArr;
+		return true;
 	}
 
-	@Override public synchronized double[] getCurrentStateRounded() {
-		//returns it rounded!
+	/**
+	 * Writes the current state rounded and filtered in output without allocating
+	 *
+	 * @return false if is not ready
+	 */
+	@Override public synchronized boolean fillCurrentStateRounded(double[] output) {
 		if (!isReady()) {
 			logger.error("not enough market states received");
-			return null;
+			return false;
 		}
-		double[] privateState = null;
-		double[] marketState = null;
-		double[] candleState = null;
-		try {
-			privateState = getPrivateState();
-			marketState = getMarketState();
-			candleState = getCandleState();
-
-		} catch (Exception e) {
-			logger.error("error getting state", e);
+		if (!fillStateVector()) {
+			return false;
 		}
-		if (privateState == null || marketState == null || candleState == null) {
-			logger.error("something is wrong when one states is null and is ready");
+		if (columnsFilter == null) {
+			System.arraycopy(stateVector, 0, output, 0, numberOfColumns);
+		} else {
+			getFilteredState(stateVector, output);
 		}
-
-		privateState = getRoundedState(privateState, privateMaxNumber, privateMinNumber, privateNumberDecimals);
-		marketState = getRoundedState(marketState, marketMaxNumber, marketMinNumber, marketNumberDecimals);
-		candleState = getRoundedState(candleState, candleMaxNumber, candleMinNumber, candleNumberDecimals);
-
-		double[] output = ArrayUtils.addAll(privateState, marketState);
-		output = ArrayUtils.addAll(output, candleState);
-		assert output.length == numberOfColumns;
-
-		output = getFilteredState(output);//get filter
-		return output;
-
+		return true;
 	}
 
-	//Sort it
-	@Override public synchronized double[] getCurrentState() {
+	@Override public synchronized double[] getCurrentStateRounded() {
 		//returns it rounded!
-		if (!isReady()) {
-			logger.error("not enough market states received");
-			return null;
+		if (filteredStateVector == null) {
+			filteredStateVector = new double[getNumberOfColumns()];
 		}
-		double[] privateState = null;
-		double[] marketState = null;
-		double[] candleState = null;
-		try {
-			privateState = getPrivateState();
-			marketState = getMarketState();
-			candleState = getCandleState();
-
-		} catch (Exception e) {
-			logger.error("error getting state", e);
-		}
-		if (privateState == null || marketState == null || candleState == null) {
-			logger.error("something is wrong when one states is null and is ready");
+		if (!fillCurrentStateRounded(filteredStateVector)) {
+			return null;
 		}
+		return filteredStateVector.clone();
+	}
 
-		double[] output = ArrayUtils.addAll(privateState, marketState);
-		output = ArrayUtils.addAll(output, candleState);
-		assert output.length == numberOfColumns;
-		output = getFilteredState(output);//get filter
-		return output;
-
+	@Override public synchronized double[] getCurrentState() {
+		//buffers are rounded when written
+		return getCurrentStateRounded();
 	}
 
 	@Override public int getCurrentStatePosition() {
@@ -445,8 +409,4 @@ public class MarketState extends AbstractState {
 		return state;
 	}
 
-	@Override public void enumerateStates(String cachePermutationsPath) {
-
-	}
-
 }
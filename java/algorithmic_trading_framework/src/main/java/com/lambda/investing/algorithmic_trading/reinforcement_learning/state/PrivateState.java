@@ -1,7 +1,5 @@
 package com.lambda.investing.algorithmic_trading.reinforcement_learning.state;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.lambda.investing.algorithmic_trading.PnlSnapshot;
 import com.lambda.investing.algorithmic_trading.reinforcement_learning.MatrixRoundUtils;
 import com.lambda.investing.algorithmic_trading.reinforcement_learning.ScoreEnum;
@@ -55,6 +53,7 @@ import static com.lambda.investing.algorithmic_trading.reinforcement_learning.Ma
 		this.maxNumber = maxNumber;
 		this.minNumber = minNumber;
 		this.valuesPerColum = getValuesPerColumn(this.numberOfDecimals, this.maxNumber, this.minNumber);
+		checkNumberOfStates();
 
 		//save one more to diff it
 		if (DELTA_STATES) {
@@ -168,8 +167,4 @@ import static com.lambda.investing.algorithmic_trading.reinforcement_learning.Ma
 		return getStateFromArray(currentStateArr);
 	}
 
-	@Override public void enumerateStates(String cachePermutationsPath) {
-		fillCache(cachePermutationsPath);
-	}
-
 }
@@ -0,0 +1,78 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Fixed capacity window of primitive doubles , when full the oldest value is overwritten
+ * Not thread safe , owner must synchronize
+ */
+public class DoubleRingBuffer {
+
+	private final double[] values;
+	private int next;
+	private int size;
+
+	public DoubleRingBuffer(int capacity) {
+		values = new double[Math.max(0, capacity)];
+	}
+
+	public void add(double value) {
+		if (values.length == 0) {
+			return;
+		}
+		values[next] = value;
+		next = (next + 1) % values.length;
+		if (size < values.length) {
+			size++;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return values.length;
+	}
+
+	public boolean isFull() {
+		return size == values.length;
+	}
+
+	/**
+	 * @param index 0 is the oldest value
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " of buffer with size " + size);
+		}
+		return values[(next - size + index + values.length) % values.length];
+	}
+
+	/**
+	 * Copies from the oldest to the newest value
+	 *
+	 * @return next offset of output
+	 */
+	public int copyTo(double[] output, int offset) {
+		for (int index = 0; index < size; index++) {
+			output[offset++] = get(index);
+		}
+		return offset;
+	}
+
+	/**
+	 * Copies the differences between consecutive values , size-1 elements
+	 *
+	 * @return next offset of output
+	 */
+	public int copyDiffTo(double[] output, int offset) {
+		for (int index = 1; index < size; index++) {
+			output[offset++] = get(index) - get(index - 1);
+		}
+		return offset;
+	}
+
+	public void clear() {
+		next = 0;
+		size = 0;
+	}
+}
@@ -0,0 +1,67 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Exponentially weighted mean and variance , O(1) without window
+ */
+public class Ewma {
+
+	private final double alpha;
+	private double mean = Double.NaN;
+	private double variance = Double.NaN;
+	private long count;
+
+	/**
+	 * @param alpha weight of the new value in (0,1]
+	 */
+	public Ewma(double alpha) {
+		if (alpha <= 0 || alpha > 1) {
+			throw new IllegalArgumentException("alpha " + alpha + " must be in (0,1]");
+		}
+		this.alpha = alpha;
+	}
+
+	/**
+	 * alpha = 2/(span+1) as pandas ewm(span)
+	 */
+	public static Ewma fromSpan(int span) {
+		return new Ewma(2.0 / (span + 1.0));
+	}
+
+	public void add(double value) {
+		if (count == 0) {
+			mean = value;
+			variance = 0;
+		} else {
+			double delta = value - mean;
+			mean += alpha * delta;
+			variance = (1 - alpha) * (variance + alpha * delta * delta);
+		}
+		count++;
+	}
+
+	public double getAlpha() {
+		return alpha;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public double getVariance() {
+		return variance;
+	}
+
+	public double getStd() {
+		return Math.sqrt(variance);
+	}
+
+	public void clear() {
+		mean = Double.NaN;
+		variance = Double.NaN;
+		count = 0;
+	}
+}
@@ -0,0 +1,117 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Mean of the last window values updated in O(1)
+ * Buffer can keep more values than the window (capacity) so the window can be changed on the fly
+ * Sums are recomputed from the buffer every window evictions to avoid floating point drift
+ */
+public class RollingMean {
+
+	protected final DoubleRingBuffer buffer;
+	protected int window;
+	protected int count;
+	protected double sum;
+	private int evictions;
+
+	public RollingMean(int window) {
+		this(window, window);
+	}
+
+	public RollingMean(int window, int capacity) {
+		if (window <= 0 || window > capacity) {
+			throw new IllegalArgumentException("window " + window + " must be in [1," + capacity + "]");
+		}
+		this.buffer = new DoubleRingBuffer(capacity);
+		this.window = window;
+	}
+
+	public void add(double value) {
+		if (count == window) {
+			double removed = buffer.get(buffer.size() - window);
+			buffer.add(value);
+			onReplace(removed, value);
+			evictions++;
+			if (evictions >= window) {
+				recompute();
+			}
+		} else {
+			buffer.add(value);
+			count++;
+			onAdd(value);
+		}
+	}
+
+	protected void onAdd(double value) {
+		sum += value;
+	}
+
+	protected void onReplace(double removed, double value) {
+		sum += value - removed;
+	}
+
+	/**
+	 * Calculates again the statistics of the last count values of the buffer
+	 */
+	protected void recompute() {
+		evictions = 0;
+		sum = 0;
+		for (int index = buffer.size() - count; index < buffer.size(); index++) {
+			sum += buffer.get(index);
+		}
+	}
+
+	/**
+	 * O(window) , only recomputed when the window changes
+	 */
+	public void setWindow(int window) {
+		if (window <= 0 || window > buffer.capacity()) {
+			throw new IllegalArgumentException("window " + window + " must be in [1," + buffer.capacity() + "]");
+		}
+		if (this.window == window) {
+			return;
+		}
+		this.window = window;
+		this.count = Math.min(buffer.size(), window);
+		recompute();
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * @return number of values in the window
+	 */
+	public int size() {
+		return count;
+	}
+
+	public boolean isFull() {
+		return count == window;
+	}
+
+	public double getMean() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return sum / count;
+	}
+
+	public double getLast() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return buffer.get(buffer.size() - 1);
+	}
+
+	public void clear() {
+		buffer.clear();
+		count = 0;
+		evictions = 0;
+		recompute();
+	}
+}
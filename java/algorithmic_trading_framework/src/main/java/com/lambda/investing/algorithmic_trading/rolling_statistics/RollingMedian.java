@@ -0,0 +1,159 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Median of the last window values with two indexed heaps of ring slots , O(log window) per update
+ * low is a max heap with the smaller half , high is a min heap with the bigger half
+ * When full the value leaving the window is replaced in its heap position by the new one
+ */
+public class RollingMedian {
+
+	private static final int LOW = 0;
+	private static final int HIGH = 1;
+
+	private final int window;
+	private final double[] values;//by slot
+	private final int[][] heaps;//slots
+	private final int[] heapSize = new int[2];
+	private final int[] slotHeap;
+	private final int[] slotPosition;
+	private int next;
+	private int size;
+
+	public RollingMedian(int window) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("window " + window + " must be > 0");
+		}
+		this.window = window;
+		this.values = new double[window];
+		this.heaps = new int[][] { new int[window], new int[window] };
+		this.slotHeap = new int[window];
+		this.slotPosition = new int[window];
+	}
+
+	public void add(double value) {
+		int slot = next;
+		next = (next + 1) % window;
+		values[slot] = value;
+		if (size == window) {
+			//slot was the oldest , same place in the heaps with the new value
+			int heap = slotHeap[slot];
+			int position = siftUp(heap, slotPosition[slot]);
+			siftDown(heap, position);
+		} else {
+			size++;
+			if (heapSize[LOW] > 0 && value > values[heaps[LOW][0]]) {
+				push(HIGH, slot);
+			} else {
+				push(LOW, slot);
+			}
+			//low has the same or one more than high
+			if (heapSize[LOW] > heapSize[HIGH] + 1) {
+				push(HIGH, pop(LOW));
+			} else if (heapSize[HIGH] > heapSize[LOW]) {
+				push(LOW, pop(HIGH));
+			}
+		}
+		//all low <= all high
+		while (heapSize[LOW] > 0 && heapSize[HIGH] > 0 && values[heaps[LOW][0]] > values[heaps[HIGH][0]]) {
+			int lowTop = heaps[LOW][0];
+			int highTop = heaps[HIGH][0];
+			set(LOW, 0, highTop);
+			set(HIGH, 0, lowTop);
+			siftDown(LOW, 0);
+			siftDown(HIGH, 0);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isFull() {
+		return size == window;
+	}
+
+	public double getMedian() {
+		if (size == 0) {
+			return Double.NaN;
+		}
+		if (heapSize[LOW] > heapSize[HIGH]) {
+			return values[heaps[LOW][0]];
+		}
+		return (values[heaps[LOW][0]] + values[heaps[HIGH][0]]) / 2;
+	}
+
+	public void clear() {
+		next = 0;
+		size = 0;
+		heapSize[LOW] = 0;
+		heapSize[HIGH] = 0;
+	}
+
+	/**
+	 * @return true if first has to be over second in the heap
+	 */
+	private boolean isBefore(int heap, int first, int second) {
+		if (heap == LOW) {
+			return values[first] > values[second];
+		}
+		return values[first] < values[second];
+	}
+
+	private void set(int heap, int position, int slot) {
+		heaps[heap][position] = slot;
+		slotHeap[slot] = heap;
+		slotPosition[slot] = position;
+	}
+
+	private void push(int heap, int slot) {
+		int position = heapSize[heap]++;
+		set(heap, position, slot);
+		siftUp(heap, position);
+	}
+
+	private int pop(int heap) {
+		int top = heaps[heap][0];
+		int last = heaps[heap][--heapSize[heap]];
+		if (heapSize[heap] > 0) {
+			set(heap, 0, last);
+			siftDown(heap, 0);
+		}
+		return top;
+	}
+
+	private int siftUp(int heap, int position) {
+		int slot = heaps[heap][position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			int parentSlot = heaps[heap][parent];
+			if (!isBefore(heap, slot, parentSlot)) {
+				break;
+			}
+			set(heap, position, parentSlot);
+			position = parent;
+		}
+		set(heap, position, slot);
+		return position;
+	}
+
+	private void siftDown(int heap, int position) {
+		int slot = heaps[heap][position];
+		int length = heapSize[heap];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= length) {
+				break;
+			}
+			if (child + 1 < length && isBefore(heap, heaps[heap][child + 1], heaps[heap][child])) {
+				child++;
+			}
+			int childSlot = heaps[heap][child];
+			if (!isBefore(heap, childSlot, slot)) {
+				break;
+			}
+			set(heap, position, childSlot);
+			position = child;
+		}
+		set(heap, position, slot);
+	}
+}
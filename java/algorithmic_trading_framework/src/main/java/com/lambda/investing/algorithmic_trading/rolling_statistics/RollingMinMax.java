@@ -0,0 +1,85 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Min and max of the last window values with monotonic deques , O(1) amortized per update
+ * Deques keep the sequence of the values , values are in the ring slot sequence % window
+ */
+public class RollingMinMax {
+
+	private final int window;
+	private final double[] values;
+	private final long[] maxDeque;//sequences with decreasing values
+	private final long[] minDeque;//sequences with increasing values
+	private int maxHead, maxSize, minHead, minSize;
+	private long sequence;
+
+	public RollingMinMax(int window) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("window " + window + " must be > 0");
+		}
+		this.window = window;
+		this.values = new double[window];
+		this.maxDeque = new long[window];
+		this.minDeque = new long[window];
+	}
+
+	public void add(double value) {
+		long oldest = sequence - window;
+		//remove the sequence leaving the window
+		if (maxSize > 0 && maxDeque[maxHead] <= oldest) {
+			maxHead = (maxHead + 1) % window;
+			maxSize--;
+		}
+		if (minSize > 0 && minDeque[minHead] <= oldest) {
+			minHead = (minHead + 1) % window;
+			minSize--;
+		}
+		values[(int) (sequence % window)] = value;
+
+		//remove from the tail the ones that can't be max/min anymore
+		while (maxSize > 0 && getValue(maxDeque[(maxHead + maxSize - 1) % window]) <= value) {
+			maxSize--;
+		}
+		maxDeque[(maxHead + maxSize) % window] = sequence;
+		maxSize++;
+
+		while (minSize > 0 && getValue(minDeque[(minHead + minSize - 1) % window]) >= value) {
+			minSize--;
+		}
+		minDeque[(minHead + minSize) % window] = sequence;
+		minSize++;
+
+		sequence++;
+	}
+
+	private double getValue(long valueSequence) {
+		return values[(int) (valueSequence % window)];
+	}
+
+	public int size() {
+		return (int) Math.min(sequence, window);
+	}
+
+	public boolean isFull() {
+		return sequence >= window;
+	}
+
+	public double getMax() {
+		if (maxSize == 0) {
+			return Double.NaN;
+		}
+		return getValue(maxDeque[maxHead]);
+	}
+
+	public double getMin() {
+		if (minSize == 0) {
+			return Double.NaN;
+		}
+		return getValue(minDeque[minHead]);
+	}
+
+	public void clear() {
+		maxHead = maxSize = minHead = minSize = 0;
+		sequence = 0;
+	}
+}
@@ -0,0 +1,60 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Wilder RSI updated in O(1) , first average is the mean of the first period changes as ta-lib
+ */
+public class RollingRsi {
+
+	private final int period;
+	private double lastValue = Double.NaN;
+	private double averageGain, averageLoss;
+	private int changes;
+
+	public RollingRsi(int period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period " + period + " must be > 0");
+		}
+		this.period = period;
+	}
+
+	public void add(double value) {
+		if (Double.isNaN(lastValue)) {
+			lastValue = value;
+			return;
+		}
+		double change = value - lastValue;
+		lastValue = value;
+		double gain = Math.max(change, 0);
+		double loss = Math.max(-change, 0);
+		changes++;
+		if (changes <= period) {
+			averageGain += gain / period;
+			averageLoss += loss / period;
+		} else {
+			averageGain = (averageGain * (period - 1) + gain) / period;
+			averageLoss = (averageLoss * (period - 1) + loss) / period;
+		}
+	}
+
+	public boolean isReady() {
+		return changes >= period;
+	}
+
+	public double getRsi() {
+		if (!isReady()) {
+			return Double.NaN;
+		}
+		double sum = averageGain + averageLoss;
+		if (sum == 0) {
+			return 0;
+		}
+		return 100 * averageGain / sum;
+	}
+
+	public void clear() {
+		lastValue = Double.NaN;
+		averageGain = 0;
+		averageLoss = 0;
+		changes = 0;
+	}
+}
@@ -0,0 +1,67 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+/***
+ * Population variance of the last window values with the sliding Welford update in O(1)
+ */
+public class RollingVariance extends RollingMean {
+
+	private double mean;
+	private double m2;//sum of squared differences to the mean
+
+	public RollingVariance(int window) {
+		super(window);
+	}
+
+	public RollingVariance(int window, int capacity) {
+		super(window, capacity);
+	}
+
+	@Override protected void onAdd(double value) {
+		super.onAdd(value);
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+	}
+
+	@Override protected void onReplace(double removed, double value) {
+		super.onReplace(removed, value);
+		double previousMean = mean;
+		mean += (value - removed) / count;
+		m2 += (value - removed) * (value - mean + removed - previousMean);
+		if (m2 < 0) {
+			m2 = 0;
+		}
+	}
+
+	@Override protected void recompute() {
+		super.recompute();
+		mean = count == 0 ? 0 : sum / count;
+		m2 = 0;
+		for (int index = buffer.size() - count; index < buffer.size(); index++) {
+			double delta = buffer.get(index) - mean;
+			m2 += delta * delta;
+		}
+	}
+
+	@Override public double getMean() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return mean;
+	}
+
+	public double getVariance() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return m2 / count;
+	}
+
+	public double getStd() {
+		return Math.sqrt(getVariance());
+	}
+
+	public double getZscore(double value) {
+		return (value - getMean()) / getStd();
+	}
+}
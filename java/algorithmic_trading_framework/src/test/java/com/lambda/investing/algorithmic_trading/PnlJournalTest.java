@@ -0,0 +1,105 @@
+package com.lambda.investing.algorithmic_trading;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.Table;
+
+import java.io.File;
+import java.nio.file.Files;
+
+public class PnlJournalTest {
+
+	private void appendRows(PnlJournal journal, int rows) {
+		for (int row = 0; row < rows; row++) {
+			long timestamp = 1000 + row;
+			journal.append(timestamp, row + 1, row % 2 == 0 ? "Buy" : "Sell", 100 + row, 1, row, 100, 100, row,
+					-row, 0);
+			if (row % 3 == 0) {
+				journal.setCustom(timestamp, "reward", row);
+			}
+		}
+	}
+
+	@Test public void testAppendAndTable() throws Exception {
+		PnlJournal journal = new PnlJournal(16);
+		appendRows(journal, 40);
+		//same timestamp overwrites last row
+		journal.append(1039, 41, "Buy", 500, 1, 0, 100, 100, 0, 0, 0);
+		journal.setCustom(1039, "reward", 7);
+		Assert.assertEquals(40, journal.size());
+		Assert.assertEquals(500, journal.getLast(PnlJournal.PRICE), 0.0);
+
+		Table table = journal.toTable("test");
+		Assert.assertEquals(40, table.rowCount());
+		Assert.assertEquals(1005, table.longColumn("timestamp").get(5), 0);
+		Assert.assertEquals("Sell", table.stringColumn("verb").get(5));
+		Assert.assertEquals(105, table.doubleColumn("price").get(5), 0.0);
+		Assert.assertEquals(-5, table.doubleColumn("historicalUnrealizedPnl").get(5), 0.0);
+		Assert.assertEquals(6, table.intColumn("numberTrades").get(5), 0);
+		Assert.assertEquals(3, table.doubleColumn("reward").get(3), 0.0);
+		Assert.assertTrue(Double.isNaN(table.doubleColumn("reward").get(4)));
+		Assert.assertEquals(7, table.doubleColumn("reward").get(39), 0.0);
+
+		//operations of the trades table
+		Table sorted = table.sortAscendingOn("date");
+		IntColumn numberTrades = sorted.intColumn("numberTrades");
+		Assert.assertEquals(40, sorted.where(numberTrades.difference().isNotEqualTo(0.0)).rowCount());
+	}
+
+	@Test public void testSpill() throws Exception {
+		File spillFile = new File(Files.createTempDirectory("pnl_journal").toFile(), "journal.bin");
+		PnlJournal journal = new PnlJournal(16);
+		journal.setSpillFile(spillFile, 10);
+		appendRows(journal, 35);
+		Assert.assertEquals(35, journal.size());
+		Assert.assertEquals(5, journal.getRowsInMemory());
+		Assert.assertTrue(spillFile.length() > 0);
+
+		Table table = journal.toTable("test");
+		Assert.assertEquals(35, table.rowCount());
+		for (int row = 0; row < 35; row++) {
+			Assert.assertEquals(1000 + row, table.longColumn("timestamp").get(row), 0);
+			Assert.assertEquals(100 + row, table.doubleColumn("price").get(row), 0.0);
+			Assert.assertEquals(row % 3 == 0, !Double.isNaN(table.doubleColumn("reward").get(row)));
+		}
+		File parquetFile = new File(spillFile.getParentFile(), "journal.parquet");
+		journal.writeParquet(parquetFile.getAbsolutePath());
+		Assert.assertTrue(parquetFile.length() > 0);
+
+		journal.close();
+		Assert.assertFalse(spillFile.exists());
+	}
+
+	@Test public void testAppendContinuous() throws Exception {
+		PnlJournal firstDay = new PnlJournal(16);
+		firstDay.append(1000, 1, "Buy", 100, 1, 1, 100, 100, 0, 0, 0);
+		firstDay.append(1001, 2, "Sell", 102, 1, 0, 0, 0, 2, 0, 2);
+		File spillFile = new File(Files.createTempDirectory("pnl_journal").toFile(), "journal.bin");
+		PnlJournal secondDay = new PnlJournal(16);
+		secondDay.setSpillFile(spillFile, 2);
+		secondDay.append(2000, 1, "Sell", 200, 1, -1, 200, -200, 0, 0, 0);
+		secondDay.append(2001, 2, "Buy", 201, 1, 0, 0, 0, -1, 0, -1);
+		secondDay.append(2002, 3, "Buy", 199, 1, 1, 199, 199, -1, 0.5, -0.5);
+		secondDay.setCustom(2002, "reward", 3);
+
+		PnlJournal merged = new PnlJournal();
+		merged.appendContinuous(firstDay);
+		merged.appendContinuous(secondDay);
+		Assert.assertEquals(5, merged.size());
+
+		Table table = merged.toTable("merged");
+		Assert.assertEquals(2000, table.longColumn("timestamp").get(2), 0);
+		Assert.assertEquals(3, table.intColumn("numberTrades").get(2), 0);
+		Assert.assertEquals(5, table.intColumn("numberTrades").get(4), 0);
+		Assert.assertEquals(2, table.doubleColumn("historicalRealizedPnl").get(2), 0.0);
+		Assert.assertEquals(1, table.doubleColumn("historicalRealizedPnl").get(4), 0.0);
+		Assert.assertEquals(0.5, table.doubleColumn("historicalUnrealizedPnl").get(4), 0.0);
+		Assert.assertEquals(1.5, table.doubleColumn("historicalTotalPnl").get(4), 0.0);
+		Assert.assertEquals(1, table.doubleColumn("netPosition").get(4), 0.0);
+		Assert.assertTrue(Double.isNaN(table.doubleColumn("reward").get(1)));
+		Assert.assertEquals(3, table.doubleColumn("reward").get(4), 0.0);
+		secondDay.close();
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class MemoryReplayModelTrainerTest {
+
+	private static class SlowModel implements MemoryReplayModel, Cloneable {
+
+		private CountDownLatch trainingLatch;
+		private String modelPath;
+		private int rowsTrained = 0;
+
+		public SlowModel(CountDownLatch trainingLatch) {
+			this.trainingLatch = trainingLatch;
+		}
+
+		@Override public void train(double[][] input, double[][] target) {
+			try {
+				trainingLatch.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			rowsTrained = input.length;
+		}
+
+		@Override public double[] predict(double[] input) {
+			return new double[] { rowsTrained };
+		}
+
+		@Override public void setModelPath(String modelPath) {
+			this.modelPath = modelPath;
+		}
+
+		@Override public MemoryReplayModel cloneIt() {
+			try {
+				return (SlowModel) this.clone();
+			} catch (CloneNotSupportedException e) {
+				return null;
+			}
+		}
+
+		@Override public void loadModel() {
+		}
+
+		@Override public void saveModel() {
+		}
+
+		@Override public boolean isTrained() {
+			return rowsTrained > 0;
+		}
+
+		@Override public int getBatchSize() {
+			return 0;
+		}
+	}
+
+	@Test public void testTrainInBackground() throws InterruptedException {
+		CountDownLatch trainingLatch = new CountDownLatch(1);
+		SlowModel model = new SlowModel(trainingLatch);
+		MemoryReplayModelTrainer trainer = new MemoryReplayModelTrainer("test");
+
+		double[][] input = new double[3][2];
+		double[][] target = new double[3][1];
+		Assert.assertTrue(trainer.trainPrediction(model, input, target, "target.model"));
+		//still training -> old model and skip new requests
+		Assert.assertTrue(trainer.isTraining());
+		Assert.assertFalse(trainer.copyTarget(model, "target.model"));
+		Assert.assertNull(trainer.pollPredictModel());
+		Assert.assertEquals(0, model.predict(input[0])[0], 0.0);
+
+		trainingLatch.countDown();
+		long timeout = System.currentTimeMillis() + 5000;
+		while (trainer.isTraining() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		MemoryReplayModel trainedModel = trainer.pollPredictModel();
+		Assert.assertNotNull(trainedModel);
+		Assert.assertNotSame(model, trainedModel);
+		Assert.assertEquals(3, trainedModel.predict(input[0])[0], 0.0);
+		Assert.assertFalse(model.isTrained());
+		Assert.assertNull(trainer.pollPredictModel());
+
+		SlowModel targetModel = (SlowModel) trainer.pollTargetModel();
+		Assert.assertNotNull(targetModel);
+		Assert.assertEquals("target.model", targetModel.modelPath);
+		Assert.assertTrue(targetModel.isTrained());
+		trainer.shutdown();
+
+		//thread created again after shutdown
+		Assert.assertTrue(trainer.copyTarget(model, "target2.model"));
+		timeout = System.currentTimeMillis() + 5000;
+		while (trainer.isTraining() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals("target2.model", ((SlowModel) trainer.pollTargetModel()).modelPath);
+		trainer.shutdown();
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn;
+
+import com.lambda.investing.algorithmic_trading.PnlSnapshot;
+import com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn.MemoryReplayModel;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.action.AvellanedaAction;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn.exploration_policy.EpsilonGreedyExploration;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.state.AbstractState;
+import com.lambda.investing.model.candle.Candle;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class DeepQLearningTest {
+
+	private static final int TRANSITIONS = 200;
+
+	private static class FixedState extends AbstractState {
+
+		private double[] currentState;
+
+		public FixedState() {
+			super(0);
+			numberOfColumns = 2;
+		}
+
+		@Override public List<String> getColumns() {
+			return Arrays.asList("x0", "x1");
+		}
+
+		@Override public int getNumberStates() {
+			return 100;
+		}
+
+		@Override public boolean isReady() {
+			return true;
+		}
+
+		@Override public double[] getCurrentState() {
+			return currentState;
+		}
+
+		@Override public int getCurrentStatePosition() {
+			return 0;
+		}
+
+		@Override public void updateCandle(Candle candle) {
+		}
+
+		@Override public void updateTrade(Trade trade) {
+		}
+
+		@Override public void updatePrivateState(PnlSnapshot pnlSnapshot) {
+		}
+
+		@Override public void updateDepthState(Depth depth) {
+		}
+	}
+
+	/**
+	 * Linear scores of the state , counts the calls
+	 */
+	private static class LinearModel implements MemoryReplayModel {
+
+		private final int numberActions;
+		private int predictCalls = 0;
+		private int predictBatchCalls = 0;
+
+		public LinearModel(int numberActions) {
+			this.numberActions = numberActions;
+		}
+
+		private double[] score(double[] input) {
+			double[] output = new double[numberActions];
+			for (int action = 0; action < numberActions; action++) {
+				output[action] = input[0] * (action + 1) - input[1];
+			}
+			return output;
+		}
+
+		@Override public double[] predict(double[] input) {
+			predictCalls++;
+			return score(input);
+		}
+
+		@Override public double[][] predictBatch(double[][] input) {
+			predictBatchCalls++;
+			double[][] output = new double[input.length][];
+			for (int row = 0; row < input.length; row++) {
+				output[row] = score(input[row]);
+			}
+			return output;
+		}
+
+		@Override public void train(double[][] input, double[][] target) {
+		}
+
+		@Override public void setModelPath(String modelPath) {
+		}
+
+		@Override public MemoryReplayModel cloneIt() {
+			return this;
+		}
+
+		@Override public void loadModel() {
+		}
+
+		@Override public void saveModel() {
+		}
+
+		@Override public boolean isTrained() {
+			return true;
+		}
+
+		@Override public int getBatchSize() {
+			return 0;
+		}
+	}
+
+	@After public void tearDown() {
+		DeepQLearning.PREDICT_BATCH_SIZE = 1024;
+	}
+
+	private static AvellanedaAction createAction() {
+		return new AvellanedaAction(new int[] { 5, 10 }, new double[] { 0.1, 0.5 }, new double[] { 0. });
+	}
+
+	/**
+	 * same transitions in memories smaller than the replay to check the overwritten rows
+	 */
+	private DeepQLearning replay(int predictBatchSize, int maxMemorySize, LinearModel targetModel)
+			throws Exception {
+		DeepQLearning.PREDICT_BATCH_SIZE = predictBatchSize;
+		FixedState state = new FixedState();
+		AvellanedaAction action = createAction();
+		DeepQLearning deepQLearning = new DeepQLearning(state, action, new EpsilonGreedyExploration(0.2),
+				maxMemorySize, targetModel, targetModel);
+		Random random = new Random(42);
+		for (int transition = 0; transition < TRANSITIONS; transition++) {
+			double[] previousState = new double[] { random.nextInt(6), random.nextInt(6) };
+			state.currentState = new double[] { random.nextInt(6), random.nextInt(6) };
+			deepQLearning.updateState(previousState, random.nextInt(action.getNumberActions()), random.nextGaussian(),
+					state);
+		}
+		return deepQLearning;
+	}
+
+	@Test public void testBatchedTargetsAsRowByRow() throws Exception {
+		for (int maxMemorySize : new int[] { 1000, 20 }) {
+			LinearModel rowByRowModel = new LinearModel(createAction().getNumberActions());
+			DeepQLearning rowByRow = replay(1, maxMemorySize, rowByRowModel);
+			LinearModel batchModel = new LinearModel(createAction().getNumberActions());
+			DeepQLearning batched = replay(16, maxMemorySize, batchModel);
+
+			double[][] expectedInput = rowByRow.getInputTrain();
+			double[][] expectedTarget = rowByRow.getTargetTrain();
+			double[][] input = batched.getInputTrain();
+			double[][] target = batched.getTargetTrain();
+			Assert.assertEquals(expectedInput.length, input.length);
+			for (int row = 0; row < expectedInput.length; row++) {
+				Assert.assertArrayEquals(expectedInput[row], input[row], 0.0);
+				Assert.assertArrayEquals(expectedTarget[row], target[row], 1E-12);
+			}
+
+			Assert.assertEquals(0, batchModel.predictCalls);
+			Assert.assertTrue(batchModel.predictBatchCalls <= TRANSITIONS / 8);
+		}
+	}
+
+}
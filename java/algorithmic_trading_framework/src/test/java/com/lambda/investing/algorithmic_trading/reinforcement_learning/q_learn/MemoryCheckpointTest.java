@@ -0,0 +1,116 @@
+package com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn;
+
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn.exploration_policy.EpsilonGreedyExploration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class MemoryCheckpointTest {
+
+	private File folder;
+
+	@Before public void setUp() throws Exception {
+		folder = Files.createTempDirectory("MemoryCheckpointTest").toFile();
+	}
+
+	@After public void tearDown() {
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	private static ReplayMemory createReplayMemory(int capacity, int rows, long seed) {
+		ReplayMemory replayMemory = new ReplayMemory(capacity, 2, 3);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			double[] state = new double[] { row, random.nextInt(10) };
+			replayMemory.add(state, new double[] { random.nextGaussian(), random.nextGaussian(), random.nextGaussian() },
+					new double[] { row + 1, random.nextInt(10) });
+		}
+		return replayMemory;
+	}
+
+	private static void assertSameRows(ReplayMemory expected, ReplayMemory actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(expected.getNextRow(), actual.getNextRow());
+		for (int row = 0; row < expected.size(); row++) {
+			Assert.assertArrayEquals(expected.getRow(row), actual.getRow(row), 0.0);
+		}
+	}
+
+	@Test public void testReplayMemoryRoundTrip() throws Exception {
+		String path = new File(folder, "memory" + MemoryCheckpoint.EXTENSION).getPath();
+		//wrapped ring
+		ReplayMemory replayMemory = createReplayMemory(50, 70, 1);
+		replayMemory.saveCheckpoint(path, false);
+
+		ReplayMemory loaded = new ReplayMemory(50, 2, 3);
+		Assert.assertEquals(50, loaded.loadCheckpoint(path));
+		assertSameRows(replayMemory, loaded);
+		Assert.assertEquals(replayMemory.find(new double[] { 60, 0 }) > -1, loaded.find(new double[] { 60, 0 }) > -1);
+		for (int row = 0; row < loaded.size(); row++) {
+			double[] rowValues = loaded.getRow(row);
+			Assert.assertEquals(row, loaded.find(new double[] { rowValues[0], rowValues[1] }));
+		}
+
+		//smaller memory keeps the last ones
+		ReplayMemory smaller = new ReplayMemory(10, 2, 3);
+		Assert.assertEquals(10, smaller.loadCheckpoint(path));
+
+		//other columns not loaded
+		Assert.assertEquals(-1, new ReplayMemory(50, 3, 3).loadCheckpoint(path));
+	}
+
+	@Test public void testIncrementalSave() throws Exception {
+		String path = new File(folder, "memory" + MemoryCheckpoint.EXTENSION).getPath();
+		ReplayMemory replayMemory = createReplayMemory(100, 40, 2);
+		replayMemory.saveCheckpoint(path, true);
+
+		//updates and new rows , only them are written
+		replayMemory.setActionScore(3, 1, 99.0);
+		replayMemory.add(new double[] { -1, -1 }, new double[] { 1, 2, 3 }, new double[] { -2, -2 });
+		replayMemory.saveCheckpoint(path, true);
+
+		ReplayMemory loaded = new ReplayMemory(100, 2, 3);
+		Assert.assertEquals(41, loaded.loadCheckpoint(path));
+		assertSameRows(replayMemory, loaded);
+		Assert.assertEquals(99.0, loaded.getActionScore(3, 1), 0.0);
+	}
+
+	@Test public void testQLearningRoundTripAndCsvMigration() throws Exception {
+		String csvPath = new File(folder, "qmatrix.csv").getPath();
+		String path = new File(folder, "qmatrix" + MemoryCheckpoint.EXTENSION).getPath();
+		QLearning qLearning = new QLearning(20, 4, new EpsilonGreedyExploration(0.1));
+		qLearning.init(true);
+		qLearning.saveMemory(csvPath);
+
+		//checkpoint not found , loaded from the csv
+		QLearning migrated = new QLearning(20, 4, new EpsilonGreedyExploration(0.1));
+		migrated.loadMemory(path);
+		for (int state = 0; state < 20; state++) {
+			Assert.assertArrayEquals(qLearning.getMemoryReplay()[state], migrated.getMemoryReplay()[state], 0.0);
+		}
+		migrated.updateState(5, 2, 1.0, 6);
+		migrated.saveMemory(path);
+		migrated.updateState(7, 1, -1.0, 8);
+		migrated.saveMemory(path);
+
+		QLearning loaded = new QLearning(20, 4, new EpsilonGreedyExploration(0.1));
+		loaded.loadMemory(path);
+		Assert.assertEquals(20, loaded.getStates());
+		Assert.assertEquals(4, loaded.getActions());
+		for (int state = 0; state < 20; state++) {
+			Assert.assertArrayEquals(migrated.getMemoryReplay()[state], loaded.getMemoryReplay()[state], 0.0);
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class ReplayMemoryTest {
+
+	private static double[] state(double... values) {
+		return values;
+	}
+
+	@Test public void testAddAndFind() {
+		ReplayMemory replayMemory = new ReplayMemory(10, 2, 3);
+		Assert.assertEquals(-1, replayMemory.find(state(0.1, 0.2)));
+		int row = replayMemory.add(state(0.1, 0.2), new double[] { 1, 2, 3 }, state(0.3, 0.4));
+		Assert.assertEquals(row, replayMemory.find(state(0.1, 0.2)));
+		Assert.assertEquals(-1, replayMemory.find(state(0.2, 0.1)));
+		Assert.assertEquals(row, replayMemory.find(state(0.1, 0.2)));
+
+		replayMemory.setActionScore(row, 1, 5.0);
+		Assert.assertArrayEquals(new double[] { 1, 5, 3 }, replayMemory.getActionScores(row), 0.0);
+		Assert.assertArrayEquals(new double[] { 0.1, 0.2, 1, 5, 3, 0.3, 0.4 }, replayMemory.getRow(row), 0.0);
+		Assert.assertArrayEquals(new double[] { 0.1, 0.2 }, replayMemory.getStates()[0], 0.0);
+	}
+
+	@Test public void testNaNStateFound() {
+		ReplayMemory replayMemory = new ReplayMemory(10, 2, 1);
+		int row = replayMemory.add(state(Double.NaN, 0.0), new double[] { 1 }, state(0.1, 0.2));
+		Assert.assertEquals(row, replayMemory.find(state(Double.NaN, -0.0)));
+		Assert.assertEquals(-1, replayMemory.find(state(0.0, 0.0)));
+	}
+
+	@Test public void testOldestRow() {
+		ReplayMemory replayMemory = new ReplayMemory(3, 1, 1);
+		replayMemory.add(state(1), new double[] { 0 }, state(1));
+		replayMemory.add(state(2), new double[] { 0 }, state(2));
+		Assert.assertEquals(0, replayMemory.getOldestRow());
+		replayMemory.add(state(3), new double[] { 0 }, state(3));
+		replayMemory.add(state(4), new double[] { 0 }, state(4));
+		//4 overwrote 1 in row 0 => oldest is 2 in row 1
+		Assert.assertEquals(1, replayMemory.getOldestRow());
+		Assert.assertEquals(2.0, replayMemory.getRow(replayMemory.getOldestRow())[0], 0.0);
+	}
+
+	@Test public void testRingEviction() {
+		//few possible values to force collisions and back shift deletions
+		int capacity = 64;
+		ReplayMemory replayMemory = new ReplayMemory(capacity, 3, 1);
+		Random random = new Random(1);
+		Deque<List<Double>> alive = new ArrayDeque<>();
+		Set<List<Double>> aliveSet = new HashSet<>();
+		for (int iteration = 0; iteration < 20000; iteration++) {
+			double[] state = state(random.nextInt(8), random.nextInt(8), random.nextInt(8) / 10.0);
+			List<Double> key = new ArrayList<>();
+			for (double value : state) {
+				key.add(value);
+			}
+			int row = replayMemory.find(state);
+			Assert.assertEquals(aliveSet.contains(key), row >= 0);
+			if (row >= 0) {
+				Assert.assertArrayEquals(state, replayMemory.getStates()[row], 0.0);
+				continue;
+			}
+			replayMemory.add(state, new double[] { iteration }, state);
+			alive.addLast(key);
+			aliveSet.add(key);
+			if (alive.size() > capacity) {
+				aliveSet.remove(alive.removeFirst());
+			}
+			Assert.assertEquals(alive.size(), replayMemory.size());
+		}
+		for (List<Double> key : aliveSet) {
+			double[] state = new double[] { key.get(0), key.get(1), key.get(2) };
+			Assert.assertTrue(replayMemory.find(state) >= 0);
+		}
+	}
+
+	@Test public void testUpdateScoreOfExistingState() throws Exception {
+		String filepath = new File(Files.createTempDirectory("ReplayMemoryTest").toFile(), "memory.bin")
+				.getAbsolutePath();
+		ReplayMemory replayMemory = new ReplayMemory(10, 2, 2);
+		int row = replayMemory.add(state(0.1, 0.2), new double[] { 0, 0 }, state(0.3, 0.4));
+		replayMemory.saveCheckpoint(filepath, false);
+
+		//visited again => score written back in its row , no new row
+		double learningRate = 0.5;
+		for (double reward : new double[] { 1.0, 3.0 }) {
+			int existingRow = replayMemory.find(state(0.1, 0.2));
+			Assert.assertEquals(row, existingRow);
+			double score = replayMemory.getActionScore(existingRow, 1) * (1.0 - learningRate) + learningRate * reward;
+			replayMemory.setActionScore(existingRow, 1, score);
+		}
+		Assert.assertEquals(1, replayMemory.size());
+		Assert.assertArrayEquals(new double[] { 0, 1.75 }, replayMemory.getActionScores(row), 0.0);
+
+		//updated row is saved in the incremental checkpoint
+		replayMemory.saveCheckpoint(filepath, true);
+		ReplayMemory loaded = new ReplayMemory(10, 2, 2);
+		Assert.assertEquals(1, loaded.loadCheckpoint(filepath));
+		Assert.assertArrayEquals(new double[] { 0, 1.75 }, loaded.getActionScores(loaded.find(state(0.1, 0.2))), 0.0);
+	}
+
+}
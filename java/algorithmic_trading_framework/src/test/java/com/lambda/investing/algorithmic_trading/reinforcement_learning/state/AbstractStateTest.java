@@ -1,27 +1,25 @@
 package com.lambda.investing.algorithmic_trading.reinforcement_learning.state;
 
-import com.google.common.collect.BiMap;
 import com.lambda.investing.algorithmic_trading.reinforcement_learning.ScoreEnum;
-import org.junit.After;
+import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
-import java.io.File;
+import org.paukov.combinatorics3.Generator;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 public class AbstractStateTest {
 
 	PrivateState privateState;
-	String cacheFile = "testcacheFile.csv";
+
 	public AbstractStateTest() {
 		ScoreEnum scoreEnum = ScoreEnum.realized_pnl;
 
 		privateState = new PrivateState(scoreEnum, 1, 1, 0, 2, 0., 0.001);
-		privateState.loadCacheFile(cacheFile);
-	}
-
-	@After public void tearDown() throws Exception {
-		privateState.deleteCacheFile(cacheFile);
 	}
 
 	@Test public void testIncrement() {
@@ -50,10 +48,10 @@ public class AbstractStateTest {
 	@Test public void testGetStateIndex() {
 
 		int numberStates = this.privateState.getNumberStates();
-		Assert.assertEquals(numberStates, this.privateState.getStateIndexToArr().size());
+		Assert.assertEquals(441, numberStates);
 
 		for (int retry = 0; retry < 5; retry++) {
-			int randomNum = ThreadLocalRandom.current().nextInt(0, this.privateState.getNumberStates() + 1);
+			int randomNum = ThreadLocalRandom.current().nextInt(0, numberStates);
 			double[] state = this.privateState.getState(randomNum);
 			int stateGet = this.privateState.getStateFromArray(state);
 			Assert.assertEquals(stateGet, randomNum);
@@ -83,30 +81,47 @@ public class AbstractStateTest {
 
 	}
 
-	@Test public void testSaveFile() {
-		String filepath = "testFileCache.csv";
-		File file = new File(filepath);
-		if (file.exists()) {
-			file.delete();
+	@Test public void testMixedRadix() {
+		for (int position = 0; position < this.privateState.getNumberStates(); position++) {
+			double[] state = this.privateState.getState(position);
+			Assert.assertEquals(position, this.privateState.getStateFromArray(state));
 		}
+		Assert.assertArrayEquals(new double[] { 0.1, 0.0 }, this.privateState.getState(1), 0.0);
+		Assert.assertArrayEquals(new double[] { 0.0, 0.1 }, this.privateState.getState(21), 0.0);
+		Assert.assertNull(this.privateState.getState(441));
+		//out of range is clipped by the rounding
+		Assert.assertEquals(440, this.privateState.getStateFromArray(new double[] { 5.0, 2.3 }));
+
+		//8 columns without enumerating 11^8 states
+		PrivateState bigState = new PrivateState(ScoreEnum.realized_pnl, 1, 4, 0, 1, 0, 0.001);
+		Assert.assertEquals(8, bigState.getNumberOfColumns());
+		double[] state = new double[] { 1.0, 0.0, 0.5, 0.1, 0.3, 0.9, 1.0, 0.7 };
+		int position = bigState.getStateFromArray(state);
+		Assert.assertEquals(((((((7 * 11 + 10) * 11 + 9) * 11 + 3) * 11 + 1) * 11 + 5) * 11 + 0) * 11 + 10, position);
+		Assert.assertArrayEquals(state, bigState.getState(position), 1E-9);
+	}
 
-		Assert.assertFalse(file.exists());
-
-		BiMap<Integer, AbstractState.StateRow> beforeCache = this.privateState.getStateIndexToArr();
-		this.privateState.saveCacheFile(filepath);
-		Assert.assertTrue(file.exists());
-		BiMap<Integer, AbstractState.StateRow> readCache = AbstractState.loadMapFromFile(filepath);
-		Assert.assertEquals(beforeCache.size(), readCache.size());
-		this.privateState.loadCacheFile(filepath);
-		this.privateState.deleteCacheFile(filepath);
-
-		double[] inputArray3 = new double[] { 2.0, 2.0 };
-		int stateGet3 = this.privateState.getStateFromArray(inputArray3);
-		Assert.assertEquals(440, stateGet3);
-
-		double[] inputArray4 = new double[] { 0.0, 0.0 };
-		int stateGet4 = this.privateState.getStateFromArray(inputArray4);
-		Assert.assertEquals(0, stateGet4);
+	@Test public void testSamePositionsAsPermutationsWithRepetition() {
+		//index of the memories saved when the states were enumerated with combinatoricslib3
+		PrivateState smallState = new PrivateState(ScoreEnum.realized_pnl, 1, 2, 0, 0.2, -0.2, 0.001);
+		int columns = smallState.getNumberOfColumns();
+		Assert.assertEquals(4, columns);
+		List<Double> values = new ArrayList<>();
+		for (int i = 0; i < smallState.getValuesPerColum(); i++) {
+			values.add(smallState.getColumnValue(i));
+		}
+		List<List<Double>> permutations = Generator.permutation(values).withRepetitions(columns).stream()
+				.collect(Collectors.<List<Double>>toList());
+		Assert.assertEquals(smallState.getNumberStates(), permutations.size());
+		for (int position = 0; position < permutations.size(); position++) {
+			double[] permutation = ArrayUtils.toPrimitive(permutations.get(position).toArray(new Double[columns]));
+			Assert.assertEquals(position, smallState.getStateFromArray(permutation));
+			Assert.assertArrayEquals(permutation, smallState.getState(position), 1E-9);
+		}
+	}
 
+	@Test(expected = IllegalArgumentException.class) public void testNumberOfStatesOutOfIndexRange() {
+		//41^6 states don't fit in an int index
+		new PrivateState(ScoreEnum.realized_pnl, 1, 3, 0, 2, -2, 0.001);
 	}
 }
@@ -0,0 +1,34 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DoubleRingBufferTest {
+
+	@Test public void testWindow() {
+		DoubleRingBuffer buffer = new DoubleRingBuffer(3);
+		buffer.add(1);
+		buffer.add(2);
+		Assert.assertFalse(buffer.isFull());
+		Assert.assertEquals(2, buffer.size());
+
+		buffer.add(4);
+		buffer.add(8);//1 is evicted
+		Assert.assertTrue(buffer.isFull());
+		Assert.assertEquals(3, buffer.size());
+		Assert.assertEquals(2, buffer.get(0), 0.0);
+		Assert.assertEquals(8, buffer.get(2), 0.0);
+
+		double[] output = new double[6];
+		int offset = buffer.copyTo(output, 1);
+		Assert.assertEquals(4, offset);
+		offset = buffer.copyDiffTo(output, offset);
+		Assert.assertEquals(6, offset);
+		Assert.assertArrayEquals(new double[] { 0, 2, 4, 8, 2, 4 }, output, 0.0);
+
+		buffer.clear();
+		Assert.assertEquals(0, buffer.size());
+		Assert.assertEquals(0, buffer.copyTo(output, 0));
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.lambda.investing.algorithmic_trading.rolling_statistics;
+
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.MatrixRoundUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class RollingStatisticsTest {
+
+	private static final double DELTA = 1E-9;
+	private final Random random = new Random(42);
+
+	private double[] lastValues(double[] values, int index, int window) {
+		return Arrays.copyOfRange(values, Math.max(0, index + 1 - window), index + 1);
+	}
+
+	private double[] randomPrices(int length) {
+		double[] values = new double[length];
+		double price = 100;
+		for (int index = 0; index < length; index++) {
+			price += random.nextGaussian();
+			values[index] = price;
+		}
+		return values;
+	}
+
+	@Test public void testMeanVariance() {
+		int window = 20;
+		double[] values = randomPrices(500);
+		RollingVariance rollingVariance = new RollingVariance(window);
+		for (int index = 0; index < values.length; index++) {
+			rollingVariance.add(values[index]);
+			double[] last = lastValues(values, index, window);
+			Assert.assertEquals(last.length, rollingVariance.size());
+			Assert.assertEquals(MatrixRoundUtils.meanValue(last), rollingVariance.getMean(), DELTA);
+			Assert.assertEquals(MatrixRoundUtils.stdValue(last), rollingVariance.getVariance(), DELTA);
+		}
+	}
+
+	@Test public void testSetWindow() {
+		double[] values = randomPrices(100);
+		RollingVariance rollingVariance = new RollingVariance(10, 50);
+		for (double value : values) {
+			rollingVariance.add(value);
+		}
+		rollingVariance.setWindow(30);
+		double[] last = lastValues(values, values.length - 1, 30);
+		Assert.assertEquals(30, rollingVariance.size());
+		Assert.assertEquals(MatrixRoundUtils.meanValue(last), rollingVariance.getMean(), DELTA);
+		Assert.assertEquals(MatrixRoundUtils.stdValue(last), rollingVariance.getVariance(), DELTA);
+	}
+
+	@Test public void testMinMax() {
+		int window = 7;
+		RollingMinMax rollingMinMax = new RollingMinMax(window);
+		double[] values = new double[300];
+		for (int index = 0; index < values.length; index++) {
+			values[index] = random.nextInt(20);//repeated values
+			rollingMinMax.add(values[index]);
+			double[] last = lastValues(values, index, window);
+			Assert.assertEquals(MatrixRoundUtils.maxValue(last), rollingMinMax.getMax(), 0.0);
+			Assert.assertEquals(MatrixRoundUtils.minValue(last), rollingMinMax.getMin(), 0.0);
+		}
+	}
+
+	@Test public void testMedian() {
+		for (int window : new int[] { 1, 4, 9 }) {
+			RollingMedian rollingMedian = new RollingMedian(window);
+			double[] values = new double[200];
+			for (int index = 0; index < values.length; index++) {
+				values[index] = random.nextInt(30);
+				rollingMedian.add(values[index]);
+				double[] last = lastValues(values, index, window);
+				Arrays.sort(last);
+				int middle = last.length / 2;
+				double expected = last.length % 2 == 1 ? last[middle] : (last[middle - 1] + last[middle]) / 2;
+				Assert.assertEquals(expected, rollingMedian.getMedian(), 0.0);
+			}
+		}
+	}
+
+	@Test public void testEwma() {
+		Ewma ewma = Ewma.fromSpan(3);
+		Assert.assertEquals(0.5, ewma.getAlpha(), 0.0);
+		ewma.add(1);
+		ewma.add(3);
+		Assert.assertEquals(2, ewma.getMean(), DELTA);
+		Assert.assertEquals(1, ewma.getVariance(), DELTA);
+	}
+
+	@Test public void testRsi() {
+		int period = 3;
+		RollingRsi rollingRsi = new RollingRsi(period);
+		double[] values = new double[] { 10, 11, 10, 12, 13 };
+		for (int index = 0; index < period; index++) {
+			rollingRsi.add(values[index]);
+			Assert.assertFalse(rollingRsi.isReady());
+		}
+		rollingRsi.add(values[3]);
+		Assert.assertTrue(rollingRsi.isReady());
+		//gains 1,0,2 losses 0,1,0
+		Assert.assertEquals(75, rollingRsi.getRsi(), DELTA);
+
+		rollingRsi.add(values[4]);
+		double averageGain = (1. * 2 + 1) / 3;
+		double averageLoss = (1. / 3 * 2) / 3;
+		Assert.assertEquals(100 * averageGain / (averageGain + averageLoss), rollingRsi.getRsi(), DELTA);
+	}
+}
@@ -4,6 +4,8 @@ import com.lambda.investing.algorithmic_trading.AlgorithmConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorProvider;
 import com.lambda.investing.connector.ConnectorPublisher;
+import com.lambda.investing.connector.metrics.Metrics;
+import com.lambda.investing.connector.metrics.MetricsReporter;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorConfiguration;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorPublisherProvider;
 import com.lambda.investing.market_data_connector.MarketDataConnectorPublisher;
@@ -22,8 +24,16 @@ import com.lambda.investing.trading_engine_connector.paper.PaperTradingEngineCon
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class AbstractBacktest {
 
+	//one reporter per process shared by the backtests running in parallel , stopped when the last one stops
+	private static MetricsReporter METRICS_REPORTER = null;
+	private static int METRICS_REPORTER_USERS = 0;
+	private static boolean METRICS_ENABLED_BEFORE = false;
+
 	protected Logger logger = LogManager.getLogger(AbstractBacktest.class);
 
 	protected BacktestConfiguration backtestConfiguration;
@@ -45,6 +55,9 @@ public abstract class AbstractBacktest {
 
 	protected MarketDataProvider algorithmMarketDataProvider;
 	protected AlgorithmConnectorConfiguration algorithmConnectorConfiguration;
+	private boolean metricsReporterUser = false;
+	protected final List<OrdinaryConnectorPublisherProvider> disruptorProviders = new ArrayList<>();//shutdown on stop
+	private boolean reportMetrics = true;
 
 	public AbstractBacktest(BacktestConfiguration backtestConfiguration) throws Exception {
 		this.backtestConfiguration = backtestConfiguration;
@@ -53,6 +66,7 @@ public abstract class AbstractBacktest {
 		ordinaryConnectorConfiguration = new OrdinaryConnectorConfiguration();
 		ordinaryConnectorPublisherProvider = new OrdinaryConnectorPublisherProvider(
 				"OrdinaryConnectorPublisher_backtest", 0);
+		ordinaryConnectorPublisherProvider.setMessageCodec(backtestConfiguration.getMessageCodec());
 		ordinaryMarketDataConnectorProvider = new OrdinaryMarketDataProvider(ordinaryConnectorPublisherProvider,
 				ordinaryConnectorConfiguration);
 
@@ -116,6 +130,7 @@ public abstract class AbstractBacktest {
 
 			ParquetMarketDataConnectorPublisher parquetMarketDataConnectorPublisher = new ParquetMarketDataConnectorPublisher(
 					ordinaryConnectorConfiguration, ordinaryConnectorPublisherProvider, parquetFileConfiguration);
+			parquetMarketDataConnectorPublisher.setMarketDataStore(backtestConfiguration.getParquetMarketDataStore());
 			return parquetMarketDataConnectorPublisher;
 		} else {
 			logger.error("backtest source not found {} in backtestConfiguration-> return null ",
@@ -131,9 +146,51 @@ public abstract class AbstractBacktest {
 
 	protected abstract ConnectorPublisher getBacktestMarketDataAndExecutionReportConnectorPublisher();
 
+	/**
+	 * Backtests running inside another one don't export the metrics , they are already exported by the parent
+	 */
+	public void setReportMetrics(boolean reportMetrics) {
+		this.reportMetrics = reportMetrics;
+	}
+
+	protected void startMetricsReporter() {
+		if (backtestConfiguration.getMetricsPeriodMs() <= 0 || !reportMetrics || metricsReporterUser) {
+			return;
+		}
+		metricsReporterUser = true;
+		synchronized (AbstractBacktest.class) {
+			if (METRICS_REPORTER_USERS == 0) {
+				METRICS_ENABLED_BEFORE = Metrics.ENABLED;
+				Metrics.ENABLED = true;
+				METRICS_REPORTER = new MetricsReporter("backtest", backtestConfiguration.getMetricsPeriodMs());
+				METRICS_REPORTER.setFilePath(backtestConfiguration.getMetricsFilePath());
+				METRICS_REPORTER.setHttpPort(backtestConfiguration.getMetricsHttpPort());
+				METRICS_REPORTER.start();
+			}
+			METRICS_REPORTER_USERS++;
+		}
+	}
+
+	protected void stopMetricsReporter() {
+		if (!metricsReporterUser) {
+			return;
+		}
+		metricsReporterUser = false;
+		synchronized (AbstractBacktest.class) {
+			METRICS_REPORTER_USERS--;
+			if (METRICS_REPORTER_USERS == 0) {
+				METRICS_REPORTER.stop();
+				METRICS_REPORTER = null;
+				Metrics.ENABLED = METRICS_ENABLED_BEFORE;
+			}
+		}
+	}
+
 	public void start() throws LambdaException {
 		afterConstructor();
 
+		startMetricsReporter();
+
 		ordinaryMarketDataConnectorPublisher.start();
 
 		ordinaryMarketDataConnectorProvider.init();
@@ -150,6 +207,18 @@ public abstract class AbstractBacktest {
 	public void stop() {
 		ordinaryMarketDataConnectorPublisher.stop();
 		backtestConfiguration.getAlgorithm().stop();
+		stopMetricsReporter();
+		shutdownDisruptors();
+	}
+
+	/**
+	 * Stops the consumer threads of the ring buffers enabled in the providers
+	 */
+	protected void shutdownDisruptors() {
+		for (OrdinaryConnectorPublisherProvider disruptorProvider : disruptorProviders) {
+			disruptorProvider.shutdownDisruptor();
+		}
+		disruptorProviders.clear();
 	}
 
 	public void reset() {
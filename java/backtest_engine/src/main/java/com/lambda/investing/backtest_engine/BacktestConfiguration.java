@@ -1,6 +1,10 @@
 package com.lambda.investing.backtest_engine;
 
 import com.lambda.investing.algorithmic_trading.Algorithm;
+import com.lambda.investing.connector.codec.MessageCodec;
+import com.lambda.investing.connector.codec.MessageCodecs;
+import com.lambda.investing.connector.ordinary.DisruptorWaitStrategy;
+import com.lambda.investing.market_data_connector.parquet_file_reader.ParquetMarketDataStore;
 import com.lambda.investing.model.asset.Instrument;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,6 +12,7 @@ import lombok.Setter;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.function.Supplier;
 
 @Getter @Setter public class BacktestConfiguration {
 
@@ -26,6 +31,25 @@ import java.util.Date;
 	private BacktestSource backtestSource;
 	private BacktestExternalConnection backtestExternalConnection;
 
+	//parquet files already loaded , shared between backtests of the same JVM
+	private ParquetMarketDataStore parquetMarketDataStore;
+
+	//new instances of the algorithm with the same parameters , one per day of a day sharded backtest
+	private Supplier<Algorithm> algorithmFactory;
+
+	//encoding of the in process bus , MessageCodecs.BINARY is faster to encode and MessageCodecs.OBJECT shares the instances between listeners
+	private MessageCodec messageCodec = MessageCodecs.JSON;
+
+	//multi thread backtests publish on ring buffers instead of thread pools , null to disable
+	private DisruptorWaitStrategy disruptorWaitStrategy = null;
+	private int disruptorRingBufferSize = 1 << 16;
+
+	//stage latencies and events/sec exported every metricsPeriodMs , <=0 disabled
+	//the reporter is shared by the backtests running in parallel , the first one configures it
+	private long metricsPeriodMs = 0;
+	private String metricsFilePath = null;//csv appended
+	private int metricsHttpPort = -1;//http://localhost:port/metrics , <0 disabled
+
 	/**
 	 * @param startTime included
 	 * @throws ParseException
@@ -51,6 +75,14 @@ import java.util.Date;
 		}
 	}
 
+	public void setStartTime(Date startTime) {
+		this.startTime = startTime;
+	}
+
+	public void setEndTime(Date endTime) {
+		this.endTime = endTime;
+	}
+
 	public void setBacktestSource(String backtestSource) {
 		this.backtestSource = BacktestSource.valueOf(backtestSource);
 	}
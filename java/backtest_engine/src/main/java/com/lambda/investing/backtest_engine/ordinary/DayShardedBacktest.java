@@ -0,0 +1,250 @@
+package com.lambda.investing.backtest_engine.ordinary;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.lambda.investing.algorithmic_trading.Algorithm;
+import com.lambda.investing.algorithmic_trading.PnlJournal;
+import com.lambda.investing.algorithmic_trading.PnlSnapshot;
+import com.lambda.investing.algorithmic_trading.PortfolioManager;
+import com.lambda.investing.backtest_engine.BacktestConfiguration;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.exception.LambdaException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import tech.tablesaw.api.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Replays every day of a backtest in its own single thread OrdinaryBacktest with a new algorithm and paper engine
+ * Days are independent for algorithms that reset on the change of day and don't learn between days
+ * The pnl journals of the days are chained in date order into the trades table of the backtest algorithm
+ */
+class DayShardedBacktest {
+
+	protected Logger logger = LogManager.getLogger(DayShardedBacktest.class);
+
+	private final BacktestConfiguration backtestConfiguration;
+	private final int threads;
+	private final long shardTimeoutMs;
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd");
+
+	private static class Shard {
+
+		private final Date day;
+		private final BacktestConfiguration backtestConfiguration;
+		private volatile Exception error;
+
+		private Shard(Date day, BacktestConfiguration backtestConfiguration) {
+			this.day = day;
+			this.backtestConfiguration = backtestConfiguration;
+		}
+	}
+
+	DayShardedBacktest(BacktestConfiguration backtestConfiguration, int threads, long shardTimeoutMs) {
+		this.backtestConfiguration = backtestConfiguration;
+		this.threads = Math.max(1, threads);
+		this.shardTimeoutMs = shardTimeoutMs;
+	}
+
+	/**
+	 * @return start of the calendar days with data between startTime and endTime
+	 */
+	static List<Date> getDays(Date startTime, Date endTime) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(startTime);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		List<Date> output = new ArrayList<>();
+		output.add(calendar.getTime());
+		calendar.add(Calendar.DATE, 1);
+		while (calendar.getTime().before(endTime)) {
+			output.add(calendar.getTime());
+			calendar.add(Calendar.DATE, 1);
+		}
+		return output;
+	}
+
+	/**
+	 * @param day start of the calendar day
+	 * @return configuration of the day clipped to [startTime,endTime) of the backtest
+	 */
+	BacktestConfiguration getShardConfiguration(Date day, Algorithm algorithm) {
+		long startTime = backtestConfiguration.getStartTime().getTime();
+		long endTime = backtestConfiguration.getEndTime().getTime();
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(day);
+		calendar.add(Calendar.DATE, 1);
+
+		long shardStartTime = Math.max(day.getTime(), startTime);
+		long shardEndTime = Math.min(calendar.getTimeInMillis(), endTime) - 1;//next day is in the next shard
+		if (startTime == endTime) {
+			//same start and end is the full day
+			shardStartTime = day.getTime();
+			shardEndTime = day.getTime();
+		}
+
+		BacktestConfiguration output = new BacktestConfiguration();
+		output.setAlgorithm(algorithm);
+		output.setInstrument(backtestConfiguration.getInstrument());
+		output.setStartTime(new Date(shardStartTime));
+		output.setEndTime(new Date(shardEndTime));
+		output.setSpeed(backtestConfiguration.getSpeed());
+		output.setInitialSleepSeconds(0);
+		output.setBacktestSource(backtestConfiguration.getBacktestSource().name());
+		if (backtestConfiguration.getBacktestExternalConnection() != null) {
+			output.setBacktestExternalConnection(backtestConfiguration.getBacktestExternalConnection().name());
+		}
+		output.setParquetMarketDataStore(backtestConfiguration.getParquetMarketDataStore());
+		output.setMessageCodec(backtestConfiguration.getMessageCodec());
+		return output;
+	}
+
+	private List<Shard> createShards() throws LambdaException {
+		if (backtestConfiguration.getAlgorithmFactory() == null) {
+			throw new LambdaException("day sharded backtest needs an algorithmFactory in the BacktestConfiguration");
+		}
+		Algorithm backtestAlgorithm = backtestConfiguration.getAlgorithm();
+		String shardsPath = backtestAlgorithm.getOutputPath() + File.separator + "day_shards_" + backtestAlgorithm
+				.getAlgorithmInfo();
+		List<Shard> output = new ArrayList<>();
+		//algorithms are created in the main thread
+		for (Date day : getDays(backtestConfiguration.getStartTime(), backtestConfiguration.getEndTime())) {
+			Algorithm algorithm = backtestConfiguration.getAlgorithmFactory().get();
+			algorithm.setExitOnStop(false);
+			algorithm.setPlotStopHistorical(false);
+			algorithm.setOutputPath(shardsPath + File.separator + dateFormat.format(day));
+			output.add(new Shard(day, getShardConfiguration(day, algorithm)));
+		}
+		return output;
+	}
+
+	/**
+	 * Blocks the pool thread until the shard reading thread has published all the files of the day
+	 * or shardTimeoutMs , then the shard is failed ; the shard is always stopped to release its threads
+	 */
+	private void runShard(Shard shard) {
+		OrdinaryBacktest ordinaryBacktest = null;
+		try {
+			CountDownLatch endOfFile = new CountDownLatch(1);
+			ordinaryBacktest = new OrdinaryBacktest(shard.backtestConfiguration);
+			ordinaryBacktest.setSingleThread(true);
+			ordinaryBacktest.setExitOnLoadError(false);
+			ordinaryBacktest.setReportMetrics(false);
+			ordinaryBacktest.registerEndOfFile(endOfFile::countDown);
+			ordinaryBacktest.start();
+			if (!endOfFile.await(shardTimeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new LambdaException(
+						"end of file not received in " + shardTimeoutMs + " ms , reading thread finished or stuck");
+			}
+			logger.info("day shard {} finished", dateFormat.format(shard.day));
+		} catch (Exception e) {
+			logger.error("error in day shard {}", shard.day, e);
+			shard.error = e;
+		} finally {
+			if (ordinaryBacktest != null) {
+				try {
+					ordinaryBacktest.stop();
+				} catch (Exception e) {
+					logger.error("error stopping day shard {}", shard.day, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Chains the journals of the days in date order , the journals of the days are closed
+	 *
+	 * @param dayJournals in date order
+	 */
+	static PnlJournal mergeJournals(List<PnlJournal> dayJournals) throws IOException {
+		PnlJournal output = new PnlJournal();
+		for (PnlJournal dayJournal : dayJournals) {
+			output.appendContinuous(dayJournal);
+			dayJournal.close();
+		}
+		return output;
+	}
+
+	/**
+	 * Runs all the days and saves the merged trades table of the instrument
+	 *
+	 * @return merged journal of the instrument , empty if there were no trades
+	 */
+	PnlJournal run() throws LambdaException {
+		long start = System.currentTimeMillis();
+		List<Shard> shards = createShards();
+		Algorithm backtestAlgorithm = backtestConfiguration.getAlgorithm();
+		logger.info("day sharded backtest of {} with {} days in {} threads", backtestAlgorithm.getAlgorithmInfo(),
+				shards.size(), threads);
+
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("DayShardedBacktest-%d");
+		ExecutorService shardsPool = Executors.newFixedThreadPool(threads, threadFactoryBuilder.build());
+		for (Shard shard : shards) {
+			shardsPool.submit(() -> runShard(shard));
+		}
+		shardsPool.shutdown();
+		try {
+			shardsPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			shardsPool.shutdownNow();
+			throw new LambdaException(e);
+		}
+
+		//chained in date order
+		Instrument instrument = backtestConfiguration.getInstrument();
+		List<PnlJournal> dayJournals = new ArrayList<>();
+		int numberOfTrades = 0;
+		for (Shard shard : shards) {
+			if (shard.error != null) {
+				throw new LambdaException(
+						"day shard " + dateFormat.format(shard.day) + " failed: " + shard.error.getMessage());
+			}
+			PnlSnapshot pnlSnapshot = shard.backtestConfiguration.getAlgorithm()
+					.getLastPnlSnapshot(instrument.getPrimaryKey());
+			if (pnlSnapshot == null) {
+				continue;
+			}
+			numberOfTrades += pnlSnapshot.numberOfTrades.get();
+			dayJournals.add(pnlSnapshot.journal);
+		}
+		PnlJournal output;
+		try {
+			output = mergeJournals(dayJournals);
+		} catch (IOException e) {
+			throw new LambdaException(e);
+		}
+
+		if (output.size() > 0) {
+			try {
+				String basePath = backtestAlgorithm.getTradesTableBasePath();
+				new File(basePath).getParentFile().mkdirs();
+				Table tradesTable = PortfolioManager.getTradesTable(output, backtestAlgorithm.getAlgorithmInfo());
+				PortfolioManager.saveTradesTable(tradesTable, output, basePath + "_" + instrument.getPrimaryKey());
+			} catch (IOException e) {
+				throw new LambdaException(e);
+			}
+		}
+		String result = String
+				.format("%s day sharded backtest of %d days trades=%d totalPnl=%.4f realizedPnl=%.4f in %d seconds",
+						backtestAlgorithm.getAlgorithmInfo(), shards.size(), numberOfTrades,
+						output.size() > 0 ? output.getLast(PnlJournal.TOTAL_PNL) : 0.0,
+						output.size() > 0 ? output.getLast(PnlJournal.REALIZED_PNL) : 0.0,
+						(System.currentTimeMillis() - start) / 1000);
+		logger.info(result);
+		return output;
+	}
+
+}
@@ -8,8 +8,10 @@ import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorProvider;
 import com.lambda.investing.connector.ConnectorPublisher;
 import com.lambda.investing.connector.ThreadUtils;
+import com.lambda.investing.connector.ordinary.DisruptorWaitStrategy;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorConfiguration;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorPublisherProvider;
+import com.lambda.investing.market_data_connector.AbstractMarketDataConnectorPublisher;
 import com.lambda.investing.market_data_connector.MarketDataConnectorPublisher;
 import com.lambda.investing.market_data_connector.MarketDataConnectorPublisherListener;
 import com.lambda.investing.market_data_connector.MarketDataProvider;
@@ -18,12 +20,15 @@ import com.lambda.investing.market_data_connector.csv_file_reader.CSVMarketDataC
 import com.lambda.investing.market_data_connector.ordinary.OrdinaryMarketDataProvider;
 import com.lambda.investing.market_data_connector.parquet_file_reader.ParquetFileConfiguration;
 import com.lambda.investing.market_data_connector.parquet_file_reader.ParquetMarketDataConnectorPublisher;
+import com.lambda.investing.model.exception.LambdaException;
 import com.lambda.investing.model.messaging.TypeMessage;
 import com.lambda.investing.trading_engine_connector.TradingEngineConnector;
 import com.lambda.investing.trading_engine_connector.ordinary.OrdinaryTradingEngine;
 import com.lambda.investing.trading_engine_connector.paper.PaperExecutionReportConnectorPublisher;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -38,7 +43,21 @@ public class OrdinaryBacktest extends AbstractBacktest {
 	public static int THREADS_PUBLISHING_EXECUTION_REPORTS = 1;
 	public static int THREADS_LISTENING_EXECUTION_REPORTS = 1;
 	public static int THREADS_LISTENING_ORDER_REQUEST = 1;
+	//days replayed at the same time in day sharded mode
+	public static int DAY_SHARDS_THREADS = Runtime.getRuntime().availableProcessors();
+	public static long DAY_SHARD_TIMEOUT_MS = 6 * 60 * 60 * 1000L;//a day not finished in this time fails the backtest
 	private boolean isSingleThread = true;
+	private boolean isDaySharded = false;
+	private boolean exitOnLoadError = true;
+
+	//copied from the static defaults , backtests of the same JVM don't share them
+	private int threadsPublishingMarketDataFile = THREADS_PUBLISHING_MARKET_DATA_FILE;
+	private int threadsPublishingOrderRequest = THREADS_PUBLISHING_ORDER_REQUEST;
+	private int threadsPublishingMarketData = THREADS_PUBLISHING_MARKETDATA;
+	private int threadsPublishingExecutionReports = THREADS_PUBLISHING_EXECUTION_REPORTS;
+	private int threadsListeningExecutionReports = THREADS_LISTENING_EXECUTION_REPORTS;
+	private int threadsListeningOrderRequest = THREADS_LISTENING_ORDER_REQUEST;
+	private List<MarketDataConnectorPublisherListener> endOfFileListeners = new ArrayList<>();
 
 	private OrdinaryConnectorConfiguration ordinaryConnectorConfiguration = new OrdinaryConnectorConfiguration();
 
@@ -47,22 +66,81 @@ public class OrdinaryBacktest extends AbstractBacktest {
 
 	}
 
+	/**
+	 * Notified when the file publisher has read all the files , must be called before start
+	 */
 	public void registerEndOfFile(MarketDataConnectorPublisherListener marketDataConnectorPublisherListener) {
-		this.paperConnectorMarketDataAndExecutionReportPublisher.register(marketDataConnectorPublisherListener);
+		endOfFileListeners.add(marketDataConnectorPublisherListener);
+	}
+
+	/**
+	 * Backtests running with others in the same JVM throw on start instead of exiting when the files can't be loaded
+	 */
+	public void setExitOnLoadError(boolean exitOnLoadError) {
+		this.exitOnLoadError = exitOnLoadError;
 	}
 
 	public void setSingleThread(boolean singleThread) {
 		isSingleThread = singleThread;
 		if (singleThread) {
-			THREADS_PUBLISHING_MARKET_DATA_FILE = 0;
-			THREADS_PUBLISHING_ORDER_REQUEST = 0;
-			THREADS_PUBLISHING_MARKETDATA = 0;
-			THREADS_PUBLISHING_EXECUTION_REPORTS = 0;
-			THREADS_LISTENING_EXECUTION_REPORTS = 0;
-			THREADS_LISTENING_ORDER_REQUEST = 0;
+			threadsPublishingMarketDataFile = 0;
+			threadsPublishingOrderRequest = 0;
+			threadsPublishingMarketData = 0;
+			threadsPublishingExecutionReports = 0;
+			threadsListeningExecutionReports = 0;
+			threadsListeningOrderRequest = 0;
 		}
 	}
 
+	/**
+	 * Every day is replayed in parallel by a new algorithm from BacktestConfiguration.algorithmFactory
+	 * start blocks until all the days are finished and their trades tables are merged
+	 */
+	public void setDaySharded(boolean daySharded) {
+		isDaySharded = daySharded;
+	}
+
+	@Override public void start() throws LambdaException {
+		if (!isDaySharded) {
+			super.start();
+			return;
+		}
+		startMetricsReporter();
+		try {
+			new DayShardedBacktest(backtestConfiguration, DAY_SHARDS_THREADS, DAY_SHARD_TIMEOUT_MS).run();
+		} finally {
+			stopMetricsReporter();
+		}
+		for (MarketDataConnectorPublisherListener endOfFileListener : endOfFileListeners) {
+			endOfFileListener.notifyEndOfFile();
+		}
+	}
+
+	@Override public void stop() {
+		if (!isDaySharded) {
+			super.stop();
+		} else {
+			shutdownDisruptors();
+		}
+	}
+
+	/**
+	 * Pipeline of rings market data -> algorithm -> order requests -> paper engine -> execution reports
+	 *
+	 * @return true if the provider publishes on a ring buffer
+	 */
+	private boolean enableDisruptor(OrdinaryConnectorPublisherProvider ordinaryConnectorPublisherProvider,
+			int threads) {
+		DisruptorWaitStrategy disruptorWaitStrategy = backtestConfiguration.getDisruptorWaitStrategy();
+		if (disruptorWaitStrategy == null || threads <= 0) {
+			return false;
+		}
+		ordinaryConnectorPublisherProvider.enableDisruptor(backtestConfiguration.getDisruptorRingBufferSize(), threads,
+				disruptorWaitStrategy);
+		disruptorProviders.add(ordinaryConnectorPublisherProvider);
+		return true;
+	}
+
 	@Override protected void constructPaperExecutionReportConnectorPublisher() {
 		paperExecutionReportConnectorPublisher = new PaperExecutionReportConnectorPublisher(paperTradingEngine,
 				ordinaryMarketDataConnectorProvider, backtestOrderRequestProvider, tradingEngineConnectorConfiguration);
@@ -93,7 +171,9 @@ public class OrdinaryBacktest extends AbstractBacktest {
 
 	@Override protected MarketDataProvider getAlgorithmMarketDataProvider() {
 		OrdinaryConnectorPublisherProvider ordinaryConnectorPublisherProvider = new OrdinaryConnectorPublisherProvider(
-				"backtest_md_publisher", THREADS_PUBLISHING_MARKET_DATA_FILE, Thread.MIN_PRIORITY);
+				"backtest_md_publisher", threadsPublishingMarketDataFile, Thread.MIN_PRIORITY);
+		ordinaryConnectorPublisherProvider.setMessageCodec(backtestConfiguration.getMessageCodec());
+		enableDisruptor(ordinaryConnectorPublisherProvider, threadsPublishingMarketDataFile);
 		OrdinaryConnectorConfiguration ordinaryConnectorConfiguration = new OrdinaryConnectorConfiguration();
 		OrdinaryMarketDataProvider ordinaryMD = new OrdinaryMarketDataProvider(ordinaryConnectorPublisherProvider,
 				ordinaryConnectorConfiguration);
@@ -103,13 +183,15 @@ public class OrdinaryBacktest extends AbstractBacktest {
 
 	@Override protected TradingEngineConnector getPaperTradingEngine() {
 		return new OrdinaryTradingEngine((OrdinaryConnectorPublisherProvider) backtestOrderRequestProvider,
-				paperExecutionReportConnectorPublisher, THREADS_PUBLISHING_ORDER_REQUEST,
-				THREADS_LISTENING_EXECUTION_REPORTS);
+				paperExecutionReportConnectorPublisher, threadsPublishingOrderRequest,
+				threadsListeningExecutionReports);
 	}
 
 	@Override protected ConnectorProvider getBacktestOrderRequestProvider() {
 		OrdinaryConnectorPublisherProvider ordinaryConnectorPublisherProvider = new OrdinaryConnectorPublisherProvider(
-				"ordinaryOrderRequestProvider", THREADS_LISTENING_ORDER_REQUEST, Thread.NORM_PRIORITY);
+				"ordinaryOrderRequestProvider", threadsListeningOrderRequest, Thread.NORM_PRIORITY);
+		ordinaryConnectorPublisherProvider.setMessageCodec(backtestConfiguration.getMessageCodec());
+		enableDisruptor(ordinaryConnectorPublisherProvider, threadsListeningOrderRequest);
 		return ordinaryConnectorPublisherProvider;
 	}
 
@@ -124,11 +206,18 @@ public class OrdinaryBacktest extends AbstractBacktest {
 			//			ordinaryTradingEngine.();
 		}
 
+		if (ordinaryMarketDataConnectorPublisher instanceof AbstractMarketDataConnectorPublisher) {
+			for (MarketDataConnectorPublisherListener endOfFileListener : endOfFileListeners) {
+				((AbstractMarketDataConnectorPublisher) ordinaryMarketDataConnectorPublisher).register(endOfFileListener);
+			}
+		}
+
 		if (ordinaryMarketDataConnectorPublisher instanceof CSVMarketDataConnectorPublisher) {
 			CSVMarketDataConnectorPublisher csvMarketDataConnectorPublisher = (CSVMarketDataConnectorPublisher) this.ordinaryMarketDataConnectorPublisher;
 			csvMarketDataConnectorPublisher.init();
 		} else if (ordinaryMarketDataConnectorPublisher instanceof ParquetMarketDataConnectorPublisher) {
 			ParquetMarketDataConnectorPublisher parquetMarketDataConnectorPublisher = (ParquetMarketDataConnectorPublisher) this.ordinaryMarketDataConnectorPublisher;
+			parquetMarketDataConnectorPublisher.setExitOnLoadError(exitOnLoadError);
 			parquetMarketDataConnectorPublisher.init();
 		} else {
 			logger.error(
@@ -147,14 +236,19 @@ public class OrdinaryBacktest extends AbstractBacktest {
 
 	@Override protected ConnectorPublisher getBacktestMarketDataAndExecutionReportConnectorPublisher() {
 		OrdinaryConnectorPublisherProvider ordinaryConnectorPublisherProvider = new OrdinaryConnectorPublisherProvider(
-				"OrdinaryBacktest", THREADS_PUBLISHING_MARKETDATA, Thread.MIN_PRIORITY);
+				"OrdinaryBacktest", threadsPublishingMarketData, Thread.MIN_PRIORITY);
+		ordinaryConnectorPublisherProvider.setMessageCodec(backtestConfiguration.getMessageCodec());
+		if (enableDisruptor(ordinaryConnectorPublisherProvider, threadsPublishingMarketData)) {
+			//market data and ER of the same instrument stay in order on the same consumer
+			return ordinaryConnectorPublisherProvider;
+		}
 
-		if (THREADS_PUBLISHING_EXECUTION_REPORTS != 0) {
+		if (threadsPublishingExecutionReports != 0) {
 			Map<TypeMessage, ThreadPoolExecutor> routingMap = new HashMap<>();
 
 			//ER has max priority on threadpools
 			ThreadPoolExecutor erThreadPoolExecutor = (ThreadPoolExecutor) Executors
-					.newFixedThreadPool(THREADS_PUBLISHING_EXECUTION_REPORTS);
+					.newFixedThreadPool(threadsPublishingExecutionReports);
 			ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
 			threadFactoryBuilder.setNameFormat("ExecutionReportPublisher -%d").build();
 			threadFactoryBuilder.setPriority(Thread.MAX_PRIORITY);
@@ -0,0 +1,74 @@
+package com.lambda.investing.backtest_engine.ordinary;
+
+import com.lambda.investing.algorithmic_trading.PnlJournal;
+import com.lambda.investing.backtest_engine.BacktestConfiguration;
+import com.lambda.investing.model.asset.Instrument;
+import org.junit.Assert;
+import org.junit.Test;
+import tech.tablesaw.api.Table;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class DayShardedBacktestTest {
+
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd HH:mm:ss");
+
+	private DayShardedBacktest createDayShardedBacktest(String startTime, String endTime) throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		BacktestConfiguration backtestConfiguration = new BacktestConfiguration();
+		backtestConfiguration.setInstrument(instrument);
+		backtestConfiguration.setBacktestSource("parquet");
+		backtestConfiguration.setStartTime(startTime);
+		backtestConfiguration.setEndTime(endTime);
+		return new DayShardedBacktest(backtestConfiguration, 2, 1000);
+	}
+
+	@Test public void testShardBoundaries() throws Exception {
+		DayShardedBacktest dayShardedBacktest = createDayShardedBacktest("20230101 10:00:00", "20230103 12:00:00");
+		List<Date> days = DayShardedBacktest.getDays(dateFormat.parse("20230101 10:00:00"),
+				dateFormat.parse("20230103 12:00:00"));
+		Assert.assertEquals(3, days.size());
+
+		//first day starts at the start of the backtest
+		BacktestConfiguration firstDay = dayShardedBacktest.getShardConfiguration(days.get(0), null);
+		Assert.assertEquals(dateFormat.parse("20230101 10:00:00"), firstDay.getStartTime());
+		Assert.assertEquals(dateFormat.parse("20230102 00:00:00").getTime() - 1, firstDay.getEndTime().getTime());
+
+		//full day without the start of the next one
+		BacktestConfiguration secondDay = dayShardedBacktest.getShardConfiguration(days.get(1), null);
+		Assert.assertEquals(dateFormat.parse("20230102 00:00:00"), secondDay.getStartTime());
+		Assert.assertEquals(dateFormat.parse("20230103 00:00:00").getTime() - 1, secondDay.getEndTime().getTime());
+
+		//last day ends before the end of the backtest
+		BacktestConfiguration lastDay = dayShardedBacktest.getShardConfiguration(days.get(2), null);
+		Assert.assertEquals(dateFormat.parse("20230103 00:00:00"), lastDay.getStartTime());
+		Assert.assertEquals(dateFormat.parse("20230103 12:00:00").getTime() - 1, lastDay.getEndTime().getTime());
+		Assert.assertEquals(0, lastDay.getInitialSleepSeconds());
+	}
+
+	@Test public void testMergeJournals() throws Exception {
+		PnlJournal firstDay = new PnlJournal(16);
+		firstDay.append(1000, 1, "Buy", 100, 1, 1, 100, 100, 0, 0, 0);
+		firstDay.append(1001, 2, "Sell", 102, 1, 0, 0, 0, 2, 0, 2);
+		PnlJournal emptyDay = new PnlJournal(16);
+		PnlJournal lastDay = new PnlJournal(16);
+		lastDay.append(3000, 1, "Sell", 200, 1, -1, 200, -200, 0, 0, 0);
+		lastDay.append(3001, 2, "Buy", 199, 1, 0, 0, 0, 1, 0, 1);
+
+		PnlJournal merged = DayShardedBacktest.mergeJournals(Arrays.asList(firstDay, emptyDay, lastDay));
+		Assert.assertEquals(4, merged.size());
+		Assert.assertEquals(3, merged.getLast(PnlJournal.REALIZED_PNL), 0.0);
+		Assert.assertEquals(3, merged.getLast(PnlJournal.TOTAL_PNL), 0.0);
+
+		Table table = merged.toTable("merged");
+		Assert.assertEquals(1001, table.longColumn("timestamp").get(1), 0);
+		Assert.assertEquals(3000, table.longColumn("timestamp").get(2), 0);
+		Assert.assertEquals(4, table.intColumn("numberTrades").get(3), 0);
+	}
+
+}
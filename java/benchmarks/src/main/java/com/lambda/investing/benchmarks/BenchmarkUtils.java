@@ -0,0 +1,130 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.algorithmic_trading.PnlSnapshot;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.ScoreEnum;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.state.MarketState;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.candle.Candle;
+import com.lambda.investing.model.candle.CandleType;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.trading.ExecutionReport;
+import com.lambda.investing.model.trading.ExecutionReportStatus;
+import com.lambda.investing.model.trading.Verb;
+
+import java.util.Random;
+
+/***
+ * Deterministic market data for the benchmarks , same seed => same replay on every run
+ */
+public class BenchmarkUtils {
+
+	public static final double TICK = 0.01;
+	public static final double MID_PRICE = 100.0;
+	public static final long SEED = 42;
+	public static final long START_TIMESTAMP = 1577836800000L;//2020-01-01
+
+	public static Instrument createInstrument() {
+		Instrument instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		instrument.setPriceTick(TICK);
+		instrument.addMap();
+		return instrument;
+	}
+
+	public static double roundTick(double price) {
+		return Math.round(price / TICK) * TICK;
+	}
+
+	public static Depth createDepth(Instrument instrument, long timestamp, double mid, int levels, Random random) {
+		Depth depth = new Depth();
+		depth.setInstrument(instrument.getPrimaryKey());
+		depth.setTimestamp(timestamp);
+		Double[] bids = new Double[levels];
+		Double[] asks = new Double[levels];
+		Double[] bidsQuantities = new Double[levels];
+		Double[] asksQuantities = new Double[levels];
+		for (int level = 0; level < levels; level++) {
+			bids[level] = roundTick(mid - TICK * (level + 1));
+			asks[level] = roundTick(mid + TICK * (level + 1));
+			bidsQuantities[level] = 1.0 + random.nextInt(5);
+			asksQuantities[level] = 1.0 + random.nextInt(5);
+		}
+		depth.setBids(bids);
+		depth.setAsks(asks);
+		depth.setBidsQuantities(bidsQuantities);
+		depth.setAsksQuantities(asksQuantities);
+		depth.setLevelsFromData();
+		return depth;
+	}
+
+	/**
+	 * @return replaySize depths with the mid price in a random walk of one tick
+	 */
+	public static Depth[] createDepthReplay(Instrument instrument, int levels, int replaySize) {
+		Random random = new Random(SEED);
+		Depth[] output = new Depth[replaySize];
+		double mid = MID_PRICE;
+		for (int index = 0; index < replaySize; index++) {
+			mid = roundTick(mid + (random.nextInt(3) - 1) * TICK);
+			output[index] = createDepth(instrument, START_TIMESTAMP + index * 100, mid, levels, random);
+		}
+		return output;
+	}
+
+	/**
+	 * @return replaySize fills alternating buy and sell around the mid price
+	 */
+	public static ExecutionReport[] createFillReplay(Instrument instrument, int replaySize) {
+		Random random = new Random(SEED);
+		ExecutionReport[] output = new ExecutionReport[replaySize];
+		for (int index = 0; index < replaySize; index++) {
+			ExecutionReport executionReport = new ExecutionReport();
+			executionReport.setInstrument(instrument.getPrimaryKey());
+			executionReport.setClientOrderId("benchmark_" + index);
+			executionReport.setVerb(random.nextBoolean() ? Verb.Buy : Verb.Sell);
+			executionReport.setPrice(roundTick(MID_PRICE + (random.nextInt(21) - 10) * TICK));
+			executionReport.setQuantity(1.0);
+			executionReport.setLastQuantity(1.0);
+			executionReport.setQuantityFill(1.0);
+			executionReport.setExecutionReportStatus(ExecutionReportStatus.CompletellyFilled);
+			executionReport.setTimestampCreation(START_TIMESTAMP + index * 100);
+			output[index] = executionReport;
+		}
+		return output;
+	}
+
+	/**
+	 * MarketState as AvellanedaStoikovDQNMarket , ready after the first horizonTicks depths of feedMarketState
+	 */
+	public static MarketState createMarketState(int horizonTicks) {
+		return new MarketState(ScoreEnum.total_pnl, horizonTicks, horizonTicks, horizonTicks, 0, 0, 2, 2, 2, -1, 1,
+				-1, 1, -1, 1, 1.0, CandleType.time_1_min);
+	}
+
+	/**
+	 * Updates market , trades , candles and private state with every depth
+	 */
+	public static void feedMarketState(MarketState marketState, Depth[] depths) {
+		PnlSnapshot pnlSnapshot = new PnlSnapshot();
+		for (Depth depth : depths) {
+			marketState.updateDepthState(depth);
+
+			Trade trade = new Trade();
+			trade.setInstrument(depth.getInstrument());
+			trade.setTimestamp(depth.getTimestamp());
+			trade.setPrice(depth.getBestAsk());
+			trade.setQuantity(depth.getBestAskQty());
+			marketState.updateTrade(trade);
+
+			double mid = depth.getMidPrice();
+			marketState.updateCandle(
+					new Candle(CandleType.time_1_min, mid, depth.getBestAsk(), depth.getBestBid(), mid));
+
+			pnlSnapshot.setLastTimestampUpdate(depth.getTimestamp());
+			marketState.updatePrivateState(pnlSnapshot);
+		}
+	}
+
+}
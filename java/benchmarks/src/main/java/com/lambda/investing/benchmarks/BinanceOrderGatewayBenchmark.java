@@ -0,0 +1,178 @@
+package com.lambda.investing.benchmarks;
+
+import com.binance.api.client.BinanceApiClientFactory;
+import com.binance.api.client.BinanceApiRestClient;
+import com.binance.api.client.config.BinanceApiConfig;
+import com.binance.api.client.domain.account.request.CancelOrderRequest;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.trading.OrderRequest;
+import com.lambda.investing.model.trading.OrderRequestAction;
+import com.lambda.investing.model.trading.OrderType;
+import com.lambda.investing.model.trading.Verb;
+import com.lambda.investing.trading_engine_connector.binance.BinanceOrderGateway;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+
+/***
+ * Order entry against a local mock of the Binance REST api answering after serverLatencyMs
+ * Blocking rest client sending one request after the other vs BinanceOrderGateway with batchSize requests in flight
+ * One invocation sends batchSize new orders or batchSize modifications (cancel + new order)
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class BinanceOrderGatewayBenchmark {
+
+	@Param({ "0", "1" }) public int serverLatencyMs;
+
+	@Param({ "10", "100" }) public int batchSize;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private BinanceApiRestClient restClient;
+	private BinanceOrderGateway orderGateway;
+	private Instrument instrument;
+	private volatile CountDownLatch responsesLatch;
+	private long clientOrderIdCounter = 0;
+
+	private static String getQueryParameter(String query, String name) {
+		if (query == null) {
+			return "";
+		}
+		for (String parameter : query.split("&")) {
+			if (parameter.startsWith(name + "=")) {
+				return parameter.substring(name.length() + 1);
+			}
+		}
+		return "";
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (InputStream inputStream = exchange.getRequestBody()) {
+			while (inputStream.read() != -1) {
+				//drain
+			}
+		}
+		if (serverLatencyMs > 0) {
+			try {
+				Thread.sleep(serverLatencyMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		String query = exchange.getRequestURI().getRawQuery();
+		String response;
+		if ("DELETE".equals(exchange.getRequestMethod())) {
+			response = "{\"symbol\":\"BTCUSDT\",\"origClientOrderId\":\"" + getQueryParameter(query, "origClientOrderId")
+					+ "\",\"clientOrderId\":\"" + getQueryParameter(query, "newClientOrderId")
+					+ "\",\"status\":\"CANCELED\"}";
+		} else {
+			response = "{\"symbol\":\"BTCUSDT\",\"orderId\":1,\"clientOrderId\":\"" + getQueryParameter(query,
+					"newClientOrderId") + "\",\"transactTime\":" + System.currentTimeMillis() + "}";
+		}
+		byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(bytes);
+		}
+	}
+
+	@Setup(Level.Trial) public void setupTrial() throws IOException {
+		instrument = createInstrument();
+		System.setProperty("sun.net.httpserver.nodelay", "true");//else nagle adds ~40ms to every response
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		serverExecutor = Executors.newFixedThreadPool(Math.max(4, batchSize * 2));
+		server.setExecutor(serverExecutor);
+		server.createContext("/", this::handle);
+		server.start();
+
+		BinanceApiConfig.setApiBaseUrl("http://localhost:" + server.getAddress().getPort());
+		BinanceApiClientFactory factory = BinanceApiClientFactory.newInstance("apiKey", "secretKey");
+		restClient = factory.newRestClient();
+		orderGateway = new BinanceOrderGateway(factory.newAsyncRestClient(),
+				new BinanceOrderGateway.BinanceOrderGatewayListener() {
+
+					@Override public void onAccepted(OrderRequest orderRequest) {
+						responsesLatch.countDown();
+					}
+
+					@Override public void onRejected(OrderRequest orderRequest, String reason) {
+						throw new IllegalStateException("rejected " + orderRequest.getClientOrderId() + " " + reason);
+					}
+				});
+	}
+
+	@TearDown(Level.Trial) public void tearDownTrial() {
+		server.stop(0);
+		serverExecutor.shutdownNow();
+		BinanceApiConfig.setApiBaseUrl(null);
+	}
+
+	private OrderRequest createOrderRequest(OrderRequestAction orderRequestAction) {
+		OrderRequest orderRequest = new OrderRequest();
+		orderRequest.setInstrument(instrument.getPrimaryKey());
+		orderRequest.setOrderRequestAction(orderRequestAction);
+		orderRequest.setOrderType(OrderType.Limit);
+		orderRequest.setVerb(Verb.Buy);
+		orderRequest.setPrice(MID_PRICE);
+		orderRequest.setQuantity(1);
+		orderRequest.setClientOrderId(String.valueOf(++clientOrderIdCounter));
+		orderRequest.setOrigClientOrderId(String.valueOf(clientOrderIdCounter - 1));
+		return orderRequest;
+	}
+
+	@Benchmark public void blockingNewOrders() {
+		for (int request = 0; request < batchSize; request++) {
+			restClient.newOrder(BinanceOrderGateway.createNewOrder(createOrderRequest(OrderRequestAction.Send)));
+		}
+	}
+
+	@Benchmark public void gatewayNewOrders() throws InterruptedException {
+		responsesLatch = new CountDownLatch(batchSize);
+		for (int request = 0; request < batchSize; request++) {
+			orderGateway.sendOrder(createOrderRequest(OrderRequestAction.Send));
+		}
+		responsesLatch.await();
+	}
+
+	@Benchmark public void blockingModify() {
+		for (int request = 0; request < batchSize; request++) {
+			OrderRequest orderRequest = createOrderRequest(OrderRequestAction.Modify);
+			CancelOrderRequest cancelOrderRequest = new CancelOrderRequest(instrument.getSymbol(),
+					orderRequest.getOrigClientOrderId());
+			cancelOrderRequest.newClientOrderId("c" + orderRequest.getClientOrderId());
+			restClient.cancelOrder(cancelOrderRequest);
+			restClient.newOrder(BinanceOrderGateway.createNewOrder(orderRequest));
+		}
+	}
+
+	private void gatewayModify(boolean pipeline) throws InterruptedException {
+		BinanceOrderGateway.PIPELINE_CANCEL_REPLACE = pipeline;
+		responsesLatch = new CountDownLatch(batchSize);
+		for (int request = 0; request < batchSize; request++) {
+			OrderRequest orderRequest = createOrderRequest(OrderRequestAction.Modify);
+			orderGateway.modifyOrder(orderRequest, "c" + orderRequest.getClientOrderId());
+		}
+		responsesLatch.await();
+	}
+
+	@Benchmark public void gatewayModify() throws InterruptedException {
+		gatewayModify(false);
+	}
+
+	@Benchmark public void gatewayModifyPipelined() throws InterruptedException {
+		gatewayModify(true);
+	}
+
+}
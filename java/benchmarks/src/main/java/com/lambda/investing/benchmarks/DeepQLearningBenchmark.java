@@ -0,0 +1,112 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.algorithmic_trading.avellaneda_stoikov_dqn.MemoryReplayModel;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.action.AvellanedaAction;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn.DeepQLearning;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.q_learn.exploration_policy.EpsilonGreedyExploration;
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.state.MarketState;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+
+/***
+ * Replay memory update of the DQN without the network cost , models return constant scores
+ * One invocation is a replay of replaySize transitions on a memory of replaySize rows
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class DeepQLearningBenchmark {
+
+	@Param({ "5", "10" }) public int depthLevels;
+
+	@Param({ "1000", "10000" }) public int replaySize;
+
+	@Param({ "10" }) public int horizonTicks;
+
+	private MarketState marketState;
+	private DeepQLearning deepQLearning;
+	private double[][] previousStates;
+	private int[] actions;
+	private double[] rewards;
+
+	private static class ConstantModel implements MemoryReplayModel {
+
+		private final double[] output;
+
+		public ConstantModel(int numberActions) {
+			output = new double[numberActions];
+			Arrays.fill(output, 1.0);
+		}
+
+		@Override public void train(double[][] input, double[][] target) {
+		}
+
+		@Override public double[] predict(double[] input) {
+			return output;
+		}
+
+		@Override public void setModelPath(String modelPath) {
+		}
+
+		@Override public MemoryReplayModel cloneIt() {
+			return this;
+		}
+
+		@Override public void loadModel() {
+		}
+
+		@Override public void saveModel() {
+		}
+
+		@Override public boolean isTrained() {
+			return true;
+		}
+
+		@Override public int getBatchSize() {
+			return 0;
+		}
+	}
+
+	private static AvellanedaAction createAction() {
+		return new AvellanedaAction(new int[] { 5, 10, 15 }, new double[] { 0.1, 0.5, 0.9 },
+				new double[] { 0., 0., 0. });
+	}
+
+	@Setup(Level.Trial) public void setupTrial() {
+		Instrument instrument = createInstrument();
+		Depth[] depths = createDepthReplay(instrument, depthLevels, replaySize + horizonTicks);
+		marketState = createMarketState(horizonTicks);
+		feedMarketState(marketState, Arrays.copyOfRange(depths, 0, horizonTicks));
+
+		//previous states of the replay
+		previousStates = new double[replaySize][];
+		actions = new int[replaySize];
+		rewards = new double[replaySize];
+		Random random = new Random(SEED);
+		AvellanedaAction action = createAction();
+		for (int index = 0; index < replaySize; index++) {
+			feedMarketState(marketState, new Depth[] { depths[horizonTicks + index] });
+			previousStates[index] = marketState.getCurrentStateRounded();
+			actions[index] = random.nextInt(action.getNumberActions());
+			rewards[index] = random.nextGaussian();
+		}
+	}
+
+	@Setup(Level.Iteration) public void setupIteration() throws Exception {
+		AvellanedaAction action = createAction();
+		ConstantModel model = new ConstantModel(action.getNumberActions());
+		deepQLearning = new DeepQLearning(marketState, action, new EpsilonGreedyExploration(0.2), replaySize, model,
+				model);
+	}
+
+	@Benchmark public void updateState() {
+		for (int index = 0; index < replaySize; index++) {
+			deepQLearning.updateState(previousStates[index], actions[index], rewards[index], marketState);
+		}
+	}
+
+}
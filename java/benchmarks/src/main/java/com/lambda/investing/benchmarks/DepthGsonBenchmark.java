@@ -0,0 +1,46 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+import static com.lambda.investing.model.Util.GSON_STRING;
+
+/***
+ * Depth json as sent between connectors , one invocation encodes/decodes replaySize depths
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class DepthGsonBenchmark {
+
+	@Param({ "5", "10" }) public int depthLevels;
+
+	@Param({ "1000", "10000" }) public int replaySize;
+
+	private Depth[] depths;
+	private String[] depthsJson;
+
+	@Setup(Level.Trial) public void setupTrial() {
+		Instrument instrument = createInstrument();
+		depths = createDepthReplay(instrument, depthLevels, replaySize);
+		depthsJson = new String[replaySize];
+		for (int index = 0; index < replaySize; index++) {
+			depthsJson[index] = GSON_STRING.toJson(depths[index]);
+		}
+	}
+
+	@Benchmark public void encode(Blackhole blackhole) {
+		for (Depth depth : depths) {
+			blackhole.consume(GSON_STRING.toJson(depth));
+		}
+	}
+
+	@Benchmark public void decode(Blackhole blackhole) {
+		for (String depthJson : depthsJson) {
+			blackhole.consume(GSON_STRING.fromJson(depthJson, Depth.class));
+		}
+	}
+
+}
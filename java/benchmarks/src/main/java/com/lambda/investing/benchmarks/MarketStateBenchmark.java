@@ -0,0 +1,50 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.algorithmic_trading.reinforcement_learning.state.MarketState;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+
+/***
+ * RL state vector of AvellanedaStoikovDQNMarket , one invocation is a replay of replaySize depths
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class MarketStateBenchmark {
+
+	@Param({ "5", "10" }) public int depthLevels;
+
+	@Param({ "1000", "10000" }) public int replaySize;
+
+	@Param({ "10" }) public int horizonTicks;
+
+	private Depth[] depths;
+	private MarketState marketState;
+
+	@Setup(Level.Trial) public void setupTrial() {
+		Instrument instrument = createInstrument();
+		depths = createDepthReplay(instrument, depthLevels, replaySize);
+		marketState = createMarketState(horizonTicks);
+		feedMarketState(marketState, depths);
+		if (!marketState.isReady()) {
+			throw new IllegalStateException("market state not ready after " + replaySize + " depths");
+		}
+	}
+
+	@Benchmark public void getCurrentStateRounded(Blackhole blackhole) {
+		for (int index = 0; index < replaySize; index++) {
+			blackhole.consume(marketState.getCurrentStateRounded());
+		}
+	}
+
+	@Benchmark public void updateDepthStateAndGetCurrentStateRounded(Blackhole blackhole) {
+		for (Depth depth : depths) {
+			marketState.updateDepthState(depth);
+			blackhole.consume(marketState.getCurrentStateRounded());
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.exception.LambdaTradingException;
+import com.lambda.investing.trading_engine_connector.paper.market.OrderOrderbook;
+import com.lambda.investing.trading_engine_connector.paper.market.OrderReport;
+import com.lambda.investing.trading_engine_connector.paper.market.Orderbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+
+/***
+ * Matching engine of the paper trading , one invocation is a replay of replaySize orders
+ * against a book with depthLevels resting levels per side
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class OrderbookBenchmark {
+
+	private static final String MARKET_MAKER_ALGORITHM_INFO = "benchmark_mm";
+	//one per side , the orderbook rejects trades with the same algorithm
+	private static final String BUYER_ALGORITHM_INFO = "benchmark_buyer";
+	private static final String SELLER_ALGORITHM_INFO = "benchmark_seller";
+
+	@Param({ "5", "10" }) public int depthLevels;
+
+	@Param({ "1000", "10000" }) public int replaySize;
+
+	private Instrument instrument;
+	private Orderbook orderbook;
+	private OrderOrderbook[] limitOrders;
+	private OrderOrderbook[] marketOrders;
+	private int orderId;
+
+	@Setup(Level.Trial) public void setupTrial() {
+		instrument = createInstrument();
+	}
+
+	/**
+	 * Orders are mutated by the orderbook , created again before every replay out of the measurement
+	 */
+	@Setup(Level.Invocation) public void setupInvocation() throws LambdaTradingException {
+		orderbook = new Orderbook(TICK, true);
+		orderId = 0;
+		//enough quantity to walk all the levels with the market orders
+		double levelQuantity = Math.ceil((double) replaySize / depthLevels);
+		for (int level = 0; level < depthLevels; level++) {
+			orderbook.processOrder(createOrder(true, "bid", levelQuantity, roundTick(MID_PRICE - TICK * (level + 1)),
+					MARKET_MAKER_ALGORITHM_INFO), false);
+			orderbook.processOrder(createOrder(true, "ask", levelQuantity, roundTick(MID_PRICE + TICK * (level + 1)),
+					MARKET_MAKER_ALGORITHM_INFO), false);
+		}
+
+		Random random = new Random(SEED);
+		limitOrders = new OrderOrderbook[replaySize];
+		marketOrders = new OrderOrderbook[replaySize];
+		for (int index = 0; index < replaySize; index++) {
+			String side = random.nextBoolean() ? "bid" : "ask";
+			//passive and aggressive prices
+			double price = roundTick(MID_PRICE + (random.nextInt(2 * depthLevels + 1) - depthLevels) * TICK);
+			limitOrders[index] = createOrder(true, side, 1.0, price, getAlgorithmInfo(side));
+			String marketSide = index % 2 == 0 ? "bid" : "ask";
+			marketOrders[index] = createOrder(false, marketSide, 1.0, null, getAlgorithmInfo(marketSide));
+		}
+	}
+
+	private String getAlgorithmInfo(String side) {
+		return "bid".equals(side) ? BUYER_ALGORITHM_INFO : SELLER_ALGORITHM_INFO;
+	}
+
+	private OrderOrderbook createOrder(boolean limit, String side, double quantity, Double price,
+			String algorithmInfo) {
+		int id = orderId++;
+		return new OrderOrderbook(START_TIMESTAMP + id, limit, quantity, id, side, price, algorithmInfo,
+				algorithmInfo + "_" + id);
+	}
+
+	@Benchmark public void processLimitOrder(Blackhole blackhole) throws LambdaTradingException {
+		for (OrderOrderbook order : limitOrders) {
+			OrderReport orderReport = orderbook.processOrder(order, false);
+			blackhole.consume(orderReport);
+		}
+	}
+
+	@Benchmark public void processMarketOrder(Blackhole blackhole) throws LambdaTradingException {
+		for (OrderOrderbook order : marketOrders) {
+			OrderReport orderReport = orderbook.processOrder(order, false);
+			blackhole.consume(orderReport);
+		}
+	}
+
+	@Benchmark public void getOrderbookDepth(Blackhole blackhole) {
+		for (int index = 0; index < replaySize; index++) {
+			blackhole.consume(orderbook.getOrderbookDepth(instrument));
+		}
+	}
+
+}
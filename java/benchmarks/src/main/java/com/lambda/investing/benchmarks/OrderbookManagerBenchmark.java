@@ -0,0 +1,66 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.trading.ExecutionReport;
+import com.lambda.investing.trading_engine_connector.paper.PaperExecutionReportConnectorPublisher;
+import com.lambda.investing.trading_engine_connector.paper.market.Orderbook;
+import com.lambda.investing.trading_engine_connector.paper.market.OrderbookManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+
+/***
+ * Market maker depth replay of the backtest , one invocation refreshes replaySize depths
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class OrderbookManagerBenchmark {
+
+	@Param({ "5", "10" }) public int depthLevels;
+
+	@Param({ "1000", "10000" }) public int replaySize;
+
+	@Param({ "true", "false" }) public boolean marketReplayDepth;
+
+	private Depth[] depths;
+	private OrderbookManager orderbookManager;
+	private long timestampShift;
+
+	/**
+	 * Publisher without connectors , notifications are discarded
+	 */
+	private static class DiscardPublisher extends PaperExecutionReportConnectorPublisher {
+
+		public DiscardPublisher() {
+			super(null, null, null, null);
+		}
+
+		@Override public void notifyDepth(Depth depth) {
+		}
+
+		@Override public void notifyTrade(Trade trade) {
+		}
+
+		@Override public void notifyExecutionReport(ExecutionReport executionReport) {
+		}
+	}
+
+	@Setup(Level.Trial) public void setupTrial() {
+		Instrument instrument = createInstrument();
+		depths = createDepthReplay(instrument, depthLevels, replaySize);
+		timestampShift = depths[depths.length - 1].getTimestamp() - depths[0].getTimestamp() + 1;
+		orderbookManager = new OrderbookManager(new Orderbook(TICK, true), new DiscardPublisher());
+		orderbookManager.setMarketReplayDepth(marketReplayDepth);
+	}
+
+	@Benchmark public void refreshMarketMakerDepth() {
+		for (Depth depth : depths) {
+			orderbookManager.refreshMarketMakerDepth(depth);
+			//older depths are skipped by the replay , next invocation has to be after this one
+			depth.setTimestamp(depth.getTimestamp() + timestampShift);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.lambda.investing.benchmarks;
+
+import com.lambda.investing.algorithmic_trading.PnlSnapshot;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.trading.ExecutionReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.lambda.investing.benchmarks.BenchmarkUtils.*;
+
+/***
+ * Portfolio updates of the algorithm , one invocation is a replay of replaySize fills , each one followed by a depth
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1) public class PnlSnapshotBenchmark {
+
+	@Param({ "5", "10" }) public int depthLevels;
+
+	@Param({ "1000", "10000" }) public int replaySize;
+
+	private Depth[] depths;
+	private ExecutionReport[] executionReports;
+	private PnlSnapshot pnlSnapshot;
+
+	@Setup(Level.Trial) public void setupTrial() {
+		Instrument instrument = createInstrument();
+		depths = createDepthReplay(instrument, depthLevels, replaySize);
+		executionReports = createFillReplay(instrument, replaySize);
+	}
+
+	/**
+	 * Fills are processed once per client order id , new snapshot for every replay
+	 */
+	@Setup(Level.Invocation) public void setupInvocation() {
+		pnlSnapshot = new PnlSnapshot();
+		pnlSnapshot.setBacktest(true);
+	}
+
+	@Benchmark public PnlSnapshot updateExecutionReport() {
+		for (ExecutionReport executionReport : executionReports) {
+			pnlSnapshot.updateExecutionReport(executionReport);
+		}
+		return pnlSnapshot;
+	}
+
+	@Benchmark public PnlSnapshot updateExecutionReportAndDepth() {
+		for (int index = 0; index < replaySize; index++) {
+			pnlSnapshot.updateExecutionReport(executionReports[index]);
+			pnlSnapshot.updateDepth(depths[index]);
+		}
+		return pnlSnapshot;
+	}
+
+}
@@ -28,10 +28,27 @@ public class BinanceApiConfig {
 		return BASE_DOMAIN;
 	}
 
+	/**
+	 * REST API base URL overriding the one of the base domain , null to use the base domain.
+	 */
+	private static String API_BASE_URL = null;
+
+	/**
+	 * Set the REST API base URL (e.g., http://localhost:8080 for a mock server) , must be set before creating the clients.
+	 *
+	 * @param apiBaseUrl REST API base URL or null to use the base domain
+	 */
+	public static void setApiBaseUrl(final String apiBaseUrl) {
+		API_BASE_URL = apiBaseUrl;
+	}
+
 	/**
 	 * REST API base URL.
 	 */
 	public static String getApiBaseUrl() {
+		if (API_BASE_URL != null) {
+			return API_BASE_URL;
+		}
 		return String.format("https://api.%s", getBaseDomain());
 	}
 
@@ -4,12 +4,30 @@ import org.apache.commons.codec.binary.Hex;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Utility class to sign messages using HMAC-SHA256.
+ * Every thread keeps one initialized Mac per secret , a Mac is reset after doFinal and can't be shared between threads.
  */
 public class HmacSHA256Signer {
 
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private static final ThreadLocal<Map<String, Mac>> THREAD_MACS = ThreadLocal.withInitial(HashMap::new);
+
+	private static Mac getMac(String secret) throws Exception {
+		Map<String, Mac> macs = THREAD_MACS.get();
+		Mac mac = macs.get(secret);
+		if (mac == null) {
+			mac = Mac.getInstance(ALGORITHM);
+			mac.init(new SecretKeySpec(secret.getBytes(), ALGORITHM));
+			macs.put(secret, mac);
+		}
+		return mac;
+	}
+
 	/**
 	 * Sign the given message using the given secret.
 	 *
@@ -19,10 +37,7 @@ public class HmacSHA256Signer {
 	 */
 	public static String sign(String message, String secret) {
 		try {
-			Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
-			SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(), "HmacSHA256");
-			sha256_HMAC.init(secretKeySpec);
-			return new String(Hex.encodeHex(sha256_HMAC.doFinal(message.getBytes())));
+			return new String(Hex.encodeHex(getMac(secret).doFinal(message.getBytes())));
 		} catch (Exception e) {
 			throw new RuntimeException("Unable to sign message.", e);
 		}
@@ -0,0 +1,150 @@
+package com.lambda.investing.connector;
+
+import com.lambda.investing.connector.metrics.Counter;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
+import com.lambda.investing.model.messaging.TypeMessage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Delivery of the received messages on an executor with latest-value conflation for the conflated types
+ * Messages of a conflated type wait in one slot per connector configuration and topic (instrumentPk.typeMessage) ,
+ * a new one replaces the not delivered yet
+ * => a slow listener receives the last depth of each instrument instead of queueing all of them
+ * Other types are submitted one by one in order as before
+ * Lag from the reception until the delivery starts is recorded in CONNECTOR_LAG , replaced messages in CONNECTOR_CONFLATED
+ */
+public class ConflatingDispatcher {
+
+	public static final String CONNECTOR_LAG = "connector.lag";
+	public static final String CONNECTOR_CONFLATED = "connector.conflated";
+
+	private static final LatencyRecorder LAG = Metrics.getLatencyRecorder(CONNECTOR_LAG);
+	private static final Counter CONFLATED = Metrics.getCounter(CONNECTOR_CONFLATED);
+	private static final Logger logger = LogManager.getLogger(ConflatingDispatcher.class);
+
+	private final Set<TypeMessage> conflatedTypes;
+	private final Map<ConnectorConfiguration, Map<String, Slot>> slots = new ConcurrentHashMap<>();
+
+	private static class PendingDelivery {
+
+		private final Runnable delivery;
+		private final long receivedNanos;
+
+		private PendingDelivery(Runnable delivery) {
+			this.delivery = delivery;
+			this.receivedNanos = Metrics.nanoTime();
+		}
+
+		private void deliver() {
+			LAG.recordSince(receivedNanos);
+			try {
+				delivery.run();
+			} catch (Exception e) {
+				logger.error("error delivering message ", e);
+			}
+		}
+	}
+
+	/***
+	 * Latest message of a topic , at most one drain of the slot is running or scheduled => delivered in order
+	 */
+	private static class Slot implements Runnable {
+
+		private final Executor executor;
+		private final AtomicReference<PendingDelivery> latest = new AtomicReference<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+		private Slot(Executor executor) {
+			this.executor = executor;
+		}
+
+		private void offer(PendingDelivery pendingDelivery) {
+			if (latest.getAndSet(pendingDelivery) != null) {
+				CONFLATED.increment();
+			}
+			schedule();
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					//latest stays in the slot => retried on the next message of the topic
+					scheduled.set(false);
+					logger.error("executor rejected the delivery of the conflated slot ", e);
+				}
+			}
+		}
+
+		@Override public void run() {
+			try {
+				PendingDelivery pendingDelivery = latest.getAndSet(null);
+				if (pendingDelivery != null) {
+					pendingDelivery.deliver();
+				}
+			} finally {
+				scheduled.set(false);
+				//arrived while delivering , scheduled again to not keep the thread from other topics
+				if (latest.get() != null) {
+					schedule();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param conflatedTypes types delivered with latest-value conflation , usually only TypeMessage.depth
+	 */
+	public ConflatingDispatcher(Set<TypeMessage> conflatedTypes) {
+		this.conflatedTypes = conflatedTypes.isEmpty() ?
+				Collections.emptySet() :
+				Collections.unmodifiableSet(EnumSet.copyOf(conflatedTypes));
+	}
+
+	public Set<TypeMessage> getConflatedTypes() {
+		return conflatedTypes;
+	}
+
+	public boolean isConflated(TypeMessage typeMessage) {
+		return typeMessage != null && conflatedTypes.contains(typeMessage);
+	}
+
+	/**
+	 * @param executor               where delivery runs , the slot of the topic keeps the executor of its first message
+	 * @param connectorConfiguration source of the message , topics of different sources are not conflated together ,
+	 *                               null is never conflated
+	 * @param topic                  conflation key , null is never conflated
+	 * @param delivery               notification of the listeners
+	 */
+	public void dispatch(Executor executor, ConnectorConfiguration connectorConfiguration, String topic,
+			TypeMessage typeMessage, Runnable delivery) {
+		PendingDelivery pendingDelivery = new PendingDelivery(delivery);
+		if (connectorConfiguration == null || topic == null || !isConflated(typeMessage)) {
+			executor.execute(pendingDelivery::deliver);
+			return;
+		}
+		Map<String, Slot> configurationSlots = slots.get(connectorConfiguration);
+		if (configurationSlots == null) {
+			configurationSlots = slots.computeIfAbsent(connectorConfiguration, key -> new ConcurrentHashMap<>());
+		}
+		Slot slot = configurationSlots.get(topic);
+		if (slot == null) {
+			slot = configurationSlots.computeIfAbsent(topic, key -> new Slot(executor));
+		}
+		slot.offer(pendingDelivery);
+	}
+
+}
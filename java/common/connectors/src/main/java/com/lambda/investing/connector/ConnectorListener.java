@@ -1,5 +1,6 @@
 package com.lambda.investing.connector;
 
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.model.messaging.TypeMessage;
 
 public interface ConnectorListener {
@@ -7,4 +8,13 @@ public interface ConnectorListener {
 	void onUpdate(ConnectorConfiguration configuration, long timestampReceived, TypeMessage typeMessage,
 			String content);
 
+	/**
+	 * Receives the content encoded by the publisher MessageCodec: json String, binary byte[] or the object itself
+	 * Listeners reading model objects should override it and use MessageCodecs.decode , by default converted to json
+	 */
+	default void onMessage(ConnectorConfiguration configuration, long timestampReceived, TypeMessage typeMessage,
+			Object content) {
+		onUpdate(configuration, timestampReceived, typeMessage, MessageCodecs.toJson(typeMessage, content));
+	}
+
 }
@@ -1,5 +1,7 @@
 package com.lambda.investing.connector;
 
+import com.lambda.investing.connector.codec.MessageCodec;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.model.messaging.TypeMessage;
 
 public interface ConnectorPublisher {
@@ -7,6 +9,19 @@ public interface ConnectorPublisher {
 	boolean publish(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage, String topic,
 			String message);
 
+	/**
+	 * Publish a model object (Depth,Trade,OrderRequest,ExecutionReport,Command) encoded with getMessageCodec
+	 */
+	default boolean publishMessage(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
+			String topic, Object message) {
+		return publish(connectorConfiguration, typeMessage, topic,
+				(String) MessageCodecs.JSON.encode(typeMessage, message));
+	}
+
+	default MessageCodec getMessageCodec() {
+		return MessageCodecs.JSON;
+	}
+
 	int getMessagesSent(ConnectorConfiguration configuration);
 	int getMessagesFailed(ConnectorConfiguration configuration);
 
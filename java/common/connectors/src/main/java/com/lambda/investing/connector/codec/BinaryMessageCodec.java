@@ -0,0 +1,356 @@
+package com.lambda.investing.connector.codec;
+
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.messaging.Command;
+import com.lambda.investing.model.messaging.TypeMessage;
+import com.lambda.investing.model.trading.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/***
+ * Compact fixed layout binary encoding of the bus messages
+ * header [MAGIC,typeMessage,SCHEMA_VERSION] + fixed block of primitives + variable block (strings and arrays with length prefix)
+ * Encoding writes in a thread local buffer and returns a copy with the exact length , the receivers keep the byte[]
+ * Decoding reads directly from the received byte[] wrapped in a ByteBuffer
+ * null values are written with sentinels: length -1 , ordinal -1 , NULL_DOUBLE_BITS and NULL_LONG
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+	//0xB1 is never the first byte of an utf-8 text => binary frames can be distinguished from json
+	public static final byte MAGIC = (byte) 0xB1;
+	public static final byte SCHEMA_VERSION = 1;
+	public static final int HEADER_LENGTH = 3;
+
+	private static final long NULL_DOUBLE_BITS = 0x7ff8dead00000000L;//not canonical NaN
+	private static final long NULL_LONG = Long.MIN_VALUE;
+	private static final int NULL_LENGTH = -1;
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	private static final TypeMessage[] TYPE_MESSAGES = TypeMessage.values();
+	private static final Verb[] VERBS = Verb.values();
+	private static final OrderRequestAction[] ORDER_REQUEST_ACTIONS = OrderRequestAction.values();
+	private static final OrderType[] ORDER_TYPES = OrderType.values();
+	private static final MarketOrderType[] MARKET_ORDER_TYPES = MarketOrderType.values();
+	private static final ExecutionReportStatus[] EXECUTION_REPORT_STATUSES = ExecutionReportStatus.values();
+
+	private static final ThreadLocal<ByteBuffer> ENCODE_BUFFER = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+
+	public static boolean isBinary(byte[] content) {
+		return content != null && content.length >= HEADER_LENGTH && content[0] == MAGIC;
+	}
+
+	@Override public Object encode(TypeMessage typeMessage, Object message) {
+		ByteBuffer buffer = ENCODE_BUFFER.get();
+		while (true) {
+			buffer.clear();
+			try {
+				buffer.put(MAGIC);
+				buffer.put((byte) typeMessage.ordinal());
+				buffer.put(SCHEMA_VERSION);
+				encodeBody(buffer, typeMessage, message);
+				return Arrays.copyOf(buffer.array(), buffer.position());
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+				ENCODE_BUFFER.set(buffer);
+			}
+		}
+	}
+
+	@Override public Object decode(TypeMessage typeMessage, Object content) {
+		byte[] bytes = (byte[]) content;
+		if (!isBinary(bytes)) {
+			throw new IllegalArgumentException("not a binary message " + typeMessage);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.get();//magic
+		TypeMessage typeMessageReceived = TYPE_MESSAGES[buffer.get()];
+		byte version = buffer.get();
+		if (version != SCHEMA_VERSION) {
+			throw new IllegalArgumentException("binary schema version " + version + " not supported");
+		}
+		if (typeMessage != null && typeMessage != typeMessageReceived) {
+			throw new IllegalArgumentException(
+					"binary message is " + typeMessageReceived + " and was expected " + typeMessage);
+		}
+		return decodeBody(buffer, typeMessageReceived);
+	}
+
+	private void encodeBody(ByteBuffer buffer, TypeMessage typeMessage, Object message) {
+		switch (typeMessage) {
+			case depth:
+				encodeDepth(buffer, (Depth) message);
+				break;
+			case trade:
+				encodeTrade(buffer, (Trade) message);
+				break;
+			case order_request:
+				encodeOrderRequest(buffer, (OrderRequest) message);
+				break;
+			case execution_report:
+				encodeExecutionReport(buffer, (ExecutionReport) message);
+				break;
+			case command:
+				encodeCommand(buffer, (Command) message);
+				break;
+			default:
+				throw new IllegalArgumentException("can't encode binary " + typeMessage);
+		}
+	}
+
+	private Object decodeBody(ByteBuffer buffer, TypeMessage typeMessage) {
+		switch (typeMessage) {
+			case depth:
+				return decodeDepth(buffer);
+			case trade:
+				return decodeTrade(buffer);
+			case order_request:
+				return decodeOrderRequest(buffer);
+			case execution_report:
+				return decodeExecutionReport(buffer);
+			case command:
+				return decodeCommand(buffer);
+			default:
+				throw new IllegalArgumentException("can't decode binary " + typeMessage);
+		}
+	}
+
+	//////////////// Depth
+	private void encodeDepth(ByteBuffer buffer, Depth depth) {
+		buffer.putLong(depth.getTimestamp());
+		buffer.putInt(depth.getLevels());
+		buffer.putInt(depth.getBidLevels());
+		buffer.putInt(depth.getAskLevels());
+		putString(buffer, depth.getInstrument());
+		putDoubles(buffer, depth.getBids());
+		putDoubles(buffer, depth.getAsks());
+		putDoubles(buffer, depth.getBidsQuantities());
+		putDoubles(buffer, depth.getAsksQuantities());
+		putStrings(buffer, depth.getBidsAlgorithmInfo());
+		putStrings(buffer, depth.getAsksAlgorithmInfo());
+	}
+
+	private Depth decodeDepth(ByteBuffer buffer) {
+		Depth depth = new Depth();
+		depth.setTimestamp(buffer.getLong());
+		depth.setLevels(buffer.getInt());
+		depth.setBidLevels(buffer.getInt());
+		depth.setAskLevels(buffer.getInt());
+		depth.setInstrument(getString(buffer));
+		depth.setBids(getDoubles(buffer));
+		depth.setAsks(getDoubles(buffer));
+		depth.setBidsQuantities(getDoubles(buffer));
+		depth.setAsksQuantities(getDoubles(buffer));
+		depth.setBidsAlgorithmInfo(getStrings(buffer));
+		depth.setAsksAlgorithmInfo(getStrings(buffer));
+		return depth;
+	}
+
+	//////////////// Trade
+	private void encodeTrade(ByteBuffer buffer, Trade trade) {
+		putNullableLong(buffer, trade.getTimestamp());
+		putNullableDouble(buffer, trade.getPrice());
+		putNullableDouble(buffer, trade.getQuantity());
+		putOrdinal(buffer, trade.getVerb());
+		putString(buffer, trade.getId());
+		putString(buffer, trade.getInstrument());
+		putString(buffer, trade.getAlgorithmInfo());
+	}
+
+	private Trade decodeTrade(ByteBuffer buffer) {
+		Trade trade = new Trade();
+		trade.setTimestamp(getNullableLong(buffer));
+		trade.setPrice(getNullableDouble(buffer));
+		trade.setQuantity(getNullableDouble(buffer));
+		trade.setVerb(getEnum(buffer, VERBS));
+		trade.setId(getString(buffer));
+		trade.setInstrument(getString(buffer));
+		trade.setAlgorithmInfo(getString(buffer));
+		return trade;
+	}
+
+	//////////////// OrderRequest
+	private void encodeOrderRequest(ByteBuffer buffer, OrderRequest orderRequest) {
+		buffer.putLong(orderRequest.getTimestampCreation());
+		buffer.putDouble(orderRequest.getPrice());
+		buffer.putDouble(orderRequest.getQuantity());
+		putOrdinal(buffer, orderRequest.getOrderRequestAction());
+		putOrdinal(buffer, orderRequest.getVerb());
+		putOrdinal(buffer, orderRequest.getOrderType());
+		putOrdinal(buffer, orderRequest.getMarketOrderType());
+		putString(buffer, orderRequest.getInstrument());
+		putString(buffer, orderRequest.getClientOrderId());
+		putString(buffer, orderRequest.getOrigClientOrderId());
+		putString(buffer, orderRequest.getAlgorithmInfo());
+		putString(buffer, orderRequest.getFreeText());
+	}
+
+	private OrderRequest decodeOrderRequest(ByteBuffer buffer) {
+		OrderRequest orderRequest = new OrderRequest();
+		orderRequest.setTimestampCreation(buffer.getLong());
+		orderRequest.setPrice(buffer.getDouble());
+		orderRequest.setQuantity(buffer.getDouble());
+		orderRequest.setOrderRequestAction(getEnum(buffer, ORDER_REQUEST_ACTIONS));
+		orderRequest.setVerb(getEnum(buffer, VERBS));
+		orderRequest.setOrderType(getEnum(buffer, ORDER_TYPES));
+		orderRequest.setMarketOrderType(getEnum(buffer, MARKET_ORDER_TYPES));
+		orderRequest.setInstrument(getString(buffer));
+		orderRequest.setClientOrderId(getString(buffer));
+		orderRequest.setOrigClientOrderId(getString(buffer));
+		orderRequest.setAlgorithmInfo(getString(buffer));
+		orderRequest.setFreeText(getString(buffer));
+		return orderRequest;
+	}
+
+	//////////////// ExecutionReport
+	private void encodeExecutionReport(ByteBuffer buffer, ExecutionReport executionReport) {
+		buffer.putLong(executionReport.getTimestampCreation());
+		buffer.putDouble(executionReport.getPrice());
+		buffer.putDouble(executionReport.getQuantity());
+		buffer.putDouble(executionReport.getLastQuantity());
+		buffer.putDouble(executionReport.getQuantityFill());
+		putOrdinal(buffer, executionReport.getExecutionReportStatus());
+		putOrdinal(buffer, executionReport.getVerb());
+		putString(buffer, executionReport.getInstrument());
+		putString(buffer, executionReport.getAlgorithmInfo());
+		putString(buffer, executionReport.getClientOrderId());
+		putString(buffer, executionReport.getOrigClientOrderId());
+		putString(buffer, executionReport.getRejectReason());
+		putString(buffer, executionReport.getFreeText());
+	}
+
+	private ExecutionReport decodeExecutionReport(ByteBuffer buffer) {
+		ExecutionReport executionReport = new ExecutionReport();
+		executionReport.setTimestampCreation(buffer.getLong());
+		executionReport.setPrice(buffer.getDouble());
+		executionReport.setQuantity(buffer.getDouble());
+		executionReport.setLastQuantity(buffer.getDouble());
+		executionReport.setQuantityFill(buffer.getDouble());
+		executionReport.setExecutionReportStatus(getEnum(buffer, EXECUTION_REPORT_STATUSES));
+		executionReport.setVerb(getEnum(buffer, VERBS));
+		executionReport.setInstrument(getString(buffer));
+		executionReport.setAlgorithmInfo(getString(buffer));
+		executionReport.setClientOrderId(getString(buffer));
+		executionReport.setOrigClientOrderId(getString(buffer));
+		executionReport.setRejectReason(getString(buffer));
+		executionReport.setFreeText(getString(buffer));
+		return executionReport;
+	}
+
+	//////////////// Command
+	private void encodeCommand(ByteBuffer buffer, Command command) {
+		putNullableLong(buffer, command.getTimestamp());
+		putString(buffer, command.getMessage());
+	}
+
+	private Command decodeCommand(ByteBuffer buffer) {
+		Long timestamp = getNullableLong(buffer);
+		Command command = new Command(getString(buffer));
+		command.setTimestamp(timestamp);
+		return command;
+	}
+
+	//////////////// fields
+	private static void putNullableLong(ByteBuffer buffer, Long value) {
+		buffer.putLong(value == null ? NULL_LONG : value);
+	}
+
+	private static Long getNullableLong(ByteBuffer buffer) {
+		long value = buffer.getLong();
+		return value == NULL_LONG ? null : value;
+	}
+
+	private static void putNullableDouble(ByteBuffer buffer, Double value) {
+		if (value == null) {
+			buffer.putLong(NULL_DOUBLE_BITS);
+		} else {
+			buffer.putDouble(value);
+		}
+	}
+
+	private static Double getNullableDouble(ByteBuffer buffer) {
+		long bits = buffer.getLong();
+		return bits == NULL_DOUBLE_BITS ? null : Double.longBitsToDouble(bits);
+	}
+
+	private static void putOrdinal(ByteBuffer buffer, Enum value) {
+		buffer.put(value == null ? (byte) -1 : (byte) value.ordinal());
+	}
+
+	private static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+		byte ordinal = buffer.get();
+		return ordinal < 0 ? null : values[ordinal];
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer.putInt(NULL_LENGTH);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		String output = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return output;
+	}
+
+	private static void putDoubles(ByteBuffer buffer, Double[] values) {
+		if (values == null) {
+			buffer.putInt(NULL_LENGTH);
+			return;
+		}
+		buffer.putInt(values.length);
+		for (Double value : values) {
+			putNullableDouble(buffer, value);
+		}
+	}
+
+	private static Double[] getDoubles(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		Double[] output = new Double[length];
+		for (int index = 0; index < length; index++) {
+			output[index] = getNullableDouble(buffer);
+		}
+		return output;
+	}
+
+	private static void putStrings(ByteBuffer buffer, String[] values) {
+		if (values == null) {
+			buffer.putInt(NULL_LENGTH);
+			return;
+		}
+		buffer.putInt(values.length);
+		for (String value : values) {
+			putString(buffer, value);
+		}
+	}
+
+	private static String[] getStrings(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		String[] output = new String[length];
+		for (int index = 0; index < length; index++) {
+			output[index] = getString(buffer);
+		}
+		return output;
+	}
+
+}
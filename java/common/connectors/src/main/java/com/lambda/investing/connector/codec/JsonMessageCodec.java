@@ -0,0 +1,29 @@
+package com.lambda.investing.connector.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.lambda.investing.model.messaging.TypeMessage;
+
+import java.lang.reflect.Modifier;
+
+/***
+ * Legacy text encoding of the bus , readable by any listener
+ * GSON is the json configuration shared by the market data and trading engine connectors
+ */
+public class JsonMessageCodec implements MessageCodec {
+
+	public static Gson GSON = new GsonBuilder()
+			.excludeFieldsWithModifiers(Modifier.STATIC, Modifier.TRANSIENT, Modifier.VOLATILE, Modifier.FINAL)
+			.serializeSpecialFloatingPointValues().disableHtmlEscaping().create();
+
+	@Override public Object encode(TypeMessage typeMessage, Object message) {
+		if (message instanceof String) {
+			return message;
+		}
+		return GSON.toJson(message);
+	}
+
+	@Override public Object decode(TypeMessage typeMessage, Object content) {
+		return GSON.fromJson((String) content, MessageCodecs.getMessageClass(typeMessage));
+	}
+}
@@ -0,0 +1,24 @@
+package com.lambda.investing.connector.codec;
+
+import com.lambda.investing.model.messaging.TypeMessage;
+
+/***
+ * Encodes the model messages (Depth, Trade, OrderRequest, ExecutionReport and Command) sent on the connectors bus
+ */
+public interface MessageCodec {
+
+	/**
+	 * @param typeMessage type of the message
+	 * @param message     model object to send
+	 * @return content to publish: json String, binary byte[] or the same object
+	 */
+	Object encode(TypeMessage typeMessage, Object message);
+
+	/**
+	 * @param typeMessage type of the message
+	 * @param content     content received from the bus
+	 * @return model object of the typeMessage class
+	 */
+	Object decode(TypeMessage typeMessage, Object content);
+
+}
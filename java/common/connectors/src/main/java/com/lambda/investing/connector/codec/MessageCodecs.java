@@ -0,0 +1,65 @@
+package com.lambda.investing.connector.codec;
+
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.messaging.Command;
+import com.lambda.investing.model.messaging.TypeMessage;
+import com.lambda.investing.model.trading.ExecutionReport;
+import com.lambda.investing.model.trading.OrderRequest;
+
+public class MessageCodecs {
+
+	public static final JsonMessageCodec JSON = new JsonMessageCodec();
+	public static final BinaryMessageCodec BINARY = new BinaryMessageCodec();
+	public static final ObjectMessageCodec OBJECT = new ObjectMessageCodec();
+
+	public static Class<?> getMessageClass(TypeMessage typeMessage) {
+		switch (typeMessage) {
+			case depth:
+				return Depth.class;
+			case trade:
+				return Trade.class;
+			case execution_report:
+				return ExecutionReport.class;
+			case order_request:
+				return OrderRequest.class;
+			case command:
+				return Command.class;
+			default:
+				throw new IllegalArgumentException("no message class for " + typeMessage);
+		}
+	}
+
+	/**
+	 * Content received is self described: json String , binary byte[] or the object itself
+	 *
+	 * @return the codec that can decode content
+	 */
+	public static MessageCodec getCodec(Object content) {
+		if (content instanceof String) {
+			return JSON;
+		}
+		if (content instanceof byte[]) {
+			return BINARY;
+		}
+		return OBJECT;
+	}
+
+	/**
+	 * @return decoded model object , Depth Trade ExecutionReport OrderRequest or Command depending on typeMessage
+	 */
+	public static Object decode(TypeMessage typeMessage, Object content) {
+		return getCodec(content).decode(typeMessage, content);
+	}
+
+	/**
+	 * @return json representation of the content , for listeners that only read text
+	 */
+	public static String toJson(TypeMessage typeMessage, Object content) {
+		if (content instanceof String) {
+			return (String) content;
+		}
+		return (String) JSON.encode(typeMessage, decode(typeMessage, content));
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.lambda.investing.connector.codec;
+
+import com.lambda.investing.model.messaging.TypeMessage;
+
+/***
+ * No encoding at all , the same instance is passed to the listeners
+ * Only valid in the same JVM (OrdinaryConnectorPublisherProvider) and the publisher must not modify the object after publishing it
+ */
+public class ObjectMessageCodec implements MessageCodec {
+
+	@Override public Object encode(TypeMessage typeMessage, Object message) {
+		return message;
+	}
+
+	@Override public Object decode(TypeMessage typeMessage, Object content) {
+		return content;
+	}
+}
@@ -0,0 +1,41 @@
+package com.lambda.investing.connector.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Lock free counter , safe to be updated from any thread
+ */
+public class Counter {
+
+	private final String name;
+	private final LongAdder adder = new LongAdder();
+
+	public Counter(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void increment() {
+		adder.increment();
+	}
+
+	public void add(long value) {
+		adder.add(value);
+	}
+
+	/**
+	 * Gauge usage , value is replaced
+	 */
+	public void set(long value) {
+		adder.reset();
+		adder.add(value);
+	}
+
+	public long get() {
+		return adder.sum();
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.lambda.investing.connector.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/***
+ * Latency histogram of one stage in nanoseconds , recording is wait free
+ * getIntervalHistogram returns the values recorded since the previous call
+ */
+public class LatencyRecorder {
+
+	private static final int NUMBER_SIGNIFICANT_DIGITS = 3;
+
+	private final String name;
+	private final Recorder recorder;
+	private Histogram intervalHistogram;
+
+	public LatencyRecorder(String name) {
+		this.name = name;
+		//auto resize histogram
+		this.recorder = new Recorder(NUMBER_SIGNIFICANT_DIGITS);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void record(long latencyNanos) {
+		if (latencyNanos < 0) {
+			return;
+		}
+		recorder.recordValue(latencyNanos);
+	}
+
+	/**
+	 * @param startNanos value of Metrics.nanoTime() at the start of the stage , 0 if metrics were disabled
+	 */
+	public void recordSince(long startNanos) {
+		if (startNanos == 0) {
+			return;
+		}
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * The histogram returned is reused on next call , only one reporter per process should call it
+	 */
+	public synchronized Histogram getIntervalHistogram() {
+		intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+		return intervalHistogram;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.lambda.investing.connector.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Registry of the counters and stage latencies of the process
+ * Stage of a tick: reader decode -> connector publish -> algorithm onDepthUpdate -> quoteRequest -> orderRequest -> execution report delivery
+ */
+public class Metrics {
+
+	public static boolean ENABLED = false;//System.nanoTime() per stage only when exported
+
+	public static final String READER_DECODE = "reader.decode";
+	public static final String CONNECTOR_PUBLISH = "connector.publish";
+	public static final String ON_DEPTH_UPDATE = "onDepthUpdate";
+	public static final String ON_TRADE_UPDATE = "onTradeUpdate";
+	public static final String QUOTE_REQUEST = "quoteManager.quoteRequest";
+	public static final String ORDER_REQUEST = "orderbookManager.orderRequest";
+	public static final String EXECUTION_REPORT_DELIVERY = "executionReport.delivery";
+	public static final String ORDER_ENTRY_RESPONSE = "orderEntry.response";//request sent to the broker until its response
+
+	private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+	private static final Map<String, LatencyRecorder> LATENCY_RECORDERS = new ConcurrentHashMap<>();
+
+	public static Counter getCounter(String name) {
+		Counter counter = COUNTERS.get(name);
+		return counter != null ? counter : COUNTERS.computeIfAbsent(name, Counter::new);
+	}
+
+	public static LatencyRecorder getLatencyRecorder(String name) {
+		LatencyRecorder latencyRecorder = LATENCY_RECORDERS.get(name);
+		return latencyRecorder != null ?
+				latencyRecorder :
+				LATENCY_RECORDERS.computeIfAbsent(name, LatencyRecorder::new);
+	}
+
+	public static Map<String, Counter> getCounters() {
+		return COUNTERS;
+	}
+
+	public static Map<String, LatencyRecorder> getLatencyRecorders() {
+		return LATENCY_RECORDERS;
+	}
+
+	/**
+	 * @return System.nanoTime() or 0 when disabled , to be used with LatencyRecorder.recordSince
+	 */
+	public static long nanoTime() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.lambda.investing.connector.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Exports every periodMs the events/sec and p50/p99/p999/max latencies in microseconds of Metrics
+ * to the log , a csv file (filePath) and/or a local http endpoint http://localhost:httpPort/metrics
+ */
+public class MetricsReporter implements Runnable {
+
+	public static final String HTTP_PATH = "/metrics";
+	private static final String CSV_HEADER = "timestamp,type,name,events_sec,count,p50_us,p99_us,p999_us,max_us";
+	private static final double NANOS_TO_MICROS = 1E-3;
+
+	protected Logger logger = LogManager.getLogger(MetricsReporter.class);
+
+	private String name;
+	private long periodMs;
+	private String filePath;
+	private int httpPort = -1;
+	private boolean logEnabled = true;
+
+	private ScheduledExecutorService scheduledExecutorService;
+	private HttpServer httpServer;
+	private volatile String lastReport = "";
+	private long lastReportNanos;
+	private Map<String, Long> lastCounterValues = new HashMap<>();
+
+	public MetricsReporter(String name, long periodMs) {
+		this.name = name;
+		this.periodMs = periodMs;
+	}
+
+	public void setFilePath(String filePath) {
+		this.filePath = filePath;
+	}
+
+	public void setHttpPort(int httpPort) {
+		this.httpPort = httpPort;
+	}
+
+	public void setLogEnabled(boolean logEnabled) {
+		this.logEnabled = logEnabled;
+	}
+
+	public String getLastReport() {
+		return lastReport;
+	}
+
+	public void start() {
+		if (periodMs <= 0) {
+			logger.warn("{} MetricsReporter not started periodMs={}", name, periodMs);
+			return;
+		}
+		if (filePath != null) {
+			File file = new File(filePath);
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			if (!file.exists()) {
+				appendToFile(CSV_HEADER + System.lineSeparator());
+			}
+		}
+		if (httpPort >= 0) {
+			startHttpServer();
+		}
+		lastReportNanos = System.nanoTime();
+		ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("MetricsReporter-%d")
+				.setDaemon(true).setPriority(Thread.MIN_PRIORITY).build();
+		scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+		scheduledExecutorService.scheduleAtFixedRate(this, periodMs, periodMs, TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		if (scheduledExecutorService != null) {
+			scheduledExecutorService.shutdownNow();
+			scheduledExecutorService = null;
+			//last interval
+			run();
+		}
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+	}
+
+	private void startHttpServer() {
+		try {
+			httpServer = HttpServer.create(new InetSocketAddress("localhost", httpPort), 0);
+			httpServer.createContext(HTTP_PATH, exchange -> {
+				byte[] response = lastReport.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "text/csv; charset=utf-8");
+				exchange.sendResponseHeaders(200, response.length);
+				try (OutputStream outputStream = exchange.getResponseBody()) {
+					outputStream.write(response);
+				}
+			});
+			httpServer.start();
+			logger.info("{} metrics served in http://localhost:{}{}", name, httpServer.getAddress().getPort(),
+					HTTP_PATH);
+		} catch (IOException e) {
+			logger.error("{} can't start metrics http server on port {}", name, httpPort, e);
+			httpServer = null;
+		}
+	}
+
+	/**
+	 * @return port of the http endpoint , useful when started on port 0
+	 */
+	public int getHttpPort() {
+		return httpServer != null ? httpServer.getAddress().getPort() : httpPort;
+	}
+
+	private void appendToFile(String text) {
+		try (PrintWriter printWriter = new PrintWriter(new FileWriter(filePath, true))) {
+			printWriter.print(text);
+		} catch (IOException e) {
+			logger.error("{} can't write metrics to {}", name, filePath, e);
+		}
+	}
+
+	@Override public synchronized void run() {
+		long nowNanos = System.nanoTime();
+		double elapsedSeconds = Math.max(nowNanos - lastReportNanos, 1) / 1E9;
+		lastReportNanos = nowNanos;
+		long timestamp = System.currentTimeMillis();
+
+		StringBuilder report = new StringBuilder(CSV_HEADER).append(System.lineSeparator());
+		StringBuilder lines = new StringBuilder();
+		if (logEnabled && Metrics.getLatencyRecorders().size() > 0) {
+			logger.info("******** {} metrics ********", name);
+		}
+		for (LatencyRecorder latencyRecorder : new TreeMap<>(Metrics.getLatencyRecorders()).values()) {
+			Histogram histogram = latencyRecorder.getIntervalHistogram();
+			long count = histogram.getTotalCount();
+			String line = String
+					.format(Locale.ROOT, "%d,latency,%s,%.1f,%d,%.3f,%.3f,%.3f,%.3f", timestamp, latencyRecorder.getName(),
+							count / elapsedSeconds, count, histogram.getValueAtPercentile(50) * NANOS_TO_MICROS,
+							histogram.getValueAtPercentile(99) * NANOS_TO_MICROS,
+							histogram.getValueAtPercentile(99.9) * NANOS_TO_MICROS,
+							histogram.getMaxValue() * NANOS_TO_MICROS);
+			lines.append(line).append(System.lineSeparator());
+			if (logEnabled && count > 0) {
+				logger.info("\t{}:\t{} events/s\tp50={}us p99={}us p999={}us max={}us", latencyRecorder.getName(),
+						String.format("%.1f", count / elapsedSeconds),
+						String.format("%.1f", histogram.getValueAtPercentile(50) * NANOS_TO_MICROS),
+						String.format("%.1f", histogram.getValueAtPercentile(99) * NANOS_TO_MICROS),
+						String.format("%.1f", histogram.getValueAtPercentile(99.9) * NANOS_TO_MICROS),
+						String.format("%.1f", histogram.getMaxValue() * NANOS_TO_MICROS));
+			}
+		}
+		for (Counter counter : new TreeMap<>(Metrics.getCounters()).values()) {
+			long value = counter.get();
+			long previousValue = lastCounterValues.getOrDefault(counter.getName(), 0L);
+			lastCounterValues.put(counter.getName(), value);
+			double eventsPerSecond = Math.max(value - previousValue, 0) / elapsedSeconds;
+			String line = String
+					.format(Locale.ROOT, "%d,counter,%s,%.1f,%d,,,,", timestamp, counter.getName(), eventsPerSecond, value);
+			lines.append(line).append(System.lineSeparator());
+		}
+
+		report.append(lines);
+		lastReport = report.toString();
+		if (filePath != null && lines.length() > 0) {
+			appendToFile(lines.toString());
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.lambda.investing.connector.ordinary;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/***
+ * How the ring buffer consumers wait for new messages
+ * busy_spin and yielding burn one core per consumer , blocking and sleeping are for paper trading or shared machines
+ */
+public enum DisruptorWaitStrategy {
+	busy_spin, yielding, sleeping, blocking;
+
+	public WaitStrategy create() {
+		switch (this) {
+			case busy_spin:
+				return new BusySpinWaitStrategy();
+			case yielding:
+				return new YieldingWaitStrategy();
+			case sleeping:
+				return new SleepingWaitStrategy();
+			default:
+				return new BlockingWaitStrategy();
+		}
+	}
+}
@@ -2,18 +2,30 @@ package com.lambda.investing.connector.ordinary;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lambda.investing.connector.*;
+import com.lambda.investing.connector.codec.MessageCodec;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.model.messaging.TypeMessage;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, ConnectorProvider {
 
+	private static final int RING_OVERFLOW_SIZE = 65536;//messages published from consumer threads waiting a free slot
+
 	private Map<ConnectorConfiguration, Map<ConnectorListener, String>> listenerManager;
 	private Map<ConnectorConfiguration, AtomicInteger> counterMessagesSent;
 	private Map<ConnectorConfiguration, AtomicInteger> counterMessagesNotSent;
@@ -30,6 +42,18 @@ public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, C
 	private String name;
 
 	private Map<TypeMessage, ThreadPoolExecutor> typeOfMessageToThreads = new HashMap<>();
+	private MessageCodec messageCodec = MessageCodecs.JSON;
+	private ConflatingDispatcher conflatingDispatcher;
+
+	//disruptor mode
+	private Disruptor<MessageEvent> disruptor;
+	private volatile RingBuffer<MessageEvent> ringBuffer;
+	private int ringConsumers;
+	private final Set<Thread> ringConsumerThreads = ConcurrentHashMap.newKeySet();
+	private volatile ThreadPoolExecutor ringOverflowPool;
+	//messages of a consumer thread waiting in ringOverflowPool , next ones wait too to keep the order
+	private final ThreadLocal<AtomicInteger> ringOverflowPending = ThreadLocal.withInitial(AtomicInteger::new);
+	private final AtomicLong ringOverflows = new AtomicLong(0);
 
 	/**
 	 * @param name    name of the threadpool
@@ -69,6 +93,7 @@ public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, C
 		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
 		threadFactoryBuilder.setNameFormat(this.name + " -%d").build();
 		threadFactoryBuilder.setPriority(priority);
+		this.priority = priority;
 		namedThreadFactory = threadFactoryBuilder.build();
 		if (this.threads < 0) {
 			//infinite
@@ -80,10 +105,94 @@ public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, C
 
 	}
 
+	/**
+	 * @param messageCodec used on publishMessage , MessageCodecs.OBJECT passes the same instance to the listeners
+	 */
+	public void setMessageCodec(MessageCodec messageCodec) {
+		this.messageCodec = messageCodec;
+	}
+
+	@Override public MessageCodec getMessageCodec() {
+		return messageCodec;
+	}
+
+	/**
+	 * Only the latest message per topic of these types waits for the sender threads , the rest are queued
+	 * Not applied with threads 0 or the disruptor , messages are notified in the publisher thread or by the ring
+	 */
+	public void setConflatedTypes(Set<TypeMessage> conflatedTypes) {
+		this.conflatingDispatcher = conflatedTypes.isEmpty() ? null : new ConflatingDispatcher(conflatedTypes);
+	}
+
 	public void setRoutingPool(Map<TypeMessage, ThreadPoolExecutor> typeOfMessageToThreads) {
 		this.typeOfMessageToThreads = typeOfMessageToThreads;
 	}
 
+	/**
+	 * Publish through a preallocated ring buffer instead of the thread pools , routing pools are not used
+	 * Messages of the same instrument are always notified by the same consumer thread => in the same order they were published
+	 * A listener publishing on its own ring can't wait for free slots , when it's full its messages wait in order
+	 * in a bounded overflow queue published to the ring by another thread
+	 *
+	 * @param ringBufferSize slots of the ring , power of 2
+	 * @param consumers      threads notifying the listeners , instruments are partitioned between them
+	 * @param waitStrategy   how consumers wait for new messages
+	 */
+	public synchronized void enableDisruptor(int ringBufferSize, int consumers, DisruptorWaitStrategy waitStrategy) {
+		if (disruptor != null) {
+			throw new IllegalStateException(name + " disruptor already started");
+		}
+		ringConsumers = Math.max(1, consumers);
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat(this.name + "_ring -%d");
+		threadFactoryBuilder.setPriority(priority != null ? priority : Thread.NORM_PRIORITY);
+		threadFactoryBuilder.setDaemon(true);
+		ThreadFactory ringThreadFactory = threadFactoryBuilder.build();
+
+		disruptor = new Disruptor<>(MessageEvent::new, ringBufferSize, runnable -> {
+			Thread thread = ringThreadFactory.newThread(runnable);
+			ringConsumerThreads.add(thread);
+			return thread;
+		}, ProducerType.MULTI, waitStrategy.create());
+
+		EventHandler<MessageEvent>[] consumerHandlers = new EventHandler[ringConsumers];
+		for (int consumer = 0; consumer < ringConsumers; consumer++) {
+			final int partition = consumer;
+			consumerHandlers[consumer] = (event, sequence, endOfBatch) -> {
+				if (event.partition != partition) {
+					return;
+				}
+				_notify(event.connectorConfiguration, event.typeMessage, event.topic, event.message, event.listeners);
+				event.clear();
+			};
+		}
+		disruptor.handleEventsWith(consumerHandlers);
+		ringBuffer = disruptor.start();
+
+		ThreadFactoryBuilder overflowThreadFactoryBuilder = new ThreadFactoryBuilder();
+		overflowThreadFactoryBuilder.setNameFormat(this.name + "_ring_overflow -%d");
+		overflowThreadFactoryBuilder.setDaemon(true);
+		ringOverflowPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(RING_OVERFLOW_SIZE), overflowThreadFactoryBuilder.build());
+		logger.info("{} publishing on disruptor of {} slots with {} consumers {}", name, ringBufferSize,
+				ringConsumers, waitStrategy);
+	}
+
+	public synchronized void shutdownDisruptor() {
+		if (disruptor != null) {
+			disruptor.halt();
+			disruptor = null;
+			ringBuffer = null;
+			ringOverflowPool.shutdownNow();
+			ringOverflowPool = null;
+			ringConsumerThreads.clear();
+		}
+	}
+
+	public boolean isDisruptorEnabled() {
+		return ringBuffer != null;
+	}
+
 	@Override public void register(ConnectorConfiguration configuration, ConnectorListener listener) {
 		Map<ConnectorListener, String> listeners = listenerManager
 				.getOrDefault(configuration, new ConcurrentHashMap<>());
@@ -100,40 +209,47 @@ public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, C
 	}
 
 	private void _notify(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage, String topic,
-			String message, Set<ConnectorListener> listenerList) {
+			Object message, Set<ConnectorListener> listenerList) {
 		boolean output = true;
 		try {
 			for (ConnectorListener listener : listenerList) {
-				listener.onUpdate(connectorConfiguration, System.currentTimeMillis(), typeMessage, message);
+				listener.onMessage(connectorConfiguration, System.currentTimeMillis(), typeMessage, message);
 			}
 		} catch (Exception ex) {
 			logger.error("error notifying {} :{} ", topic, message, ex);
 			output = false;
 		}
 
-		if (!counterMessagesSent.containsKey(connectorConfiguration)) {
-			counterMessagesSent.put(connectorConfiguration, new AtomicInteger(0));
-		}
-		if (!counterMessagesNotSent.containsKey(connectorConfiguration)) {
-			counterMessagesNotSent.put(connectorConfiguration, new AtomicInteger(0));
-		}
-
-		if (output) {
-			AtomicInteger prevCount = counterMessagesSent.get(connectorConfiguration);
-			prevCount.incrementAndGet();
-			counterMessagesSent.put(connectorConfiguration, prevCount);
-		} else {
-			AtomicInteger prevCount = counterMessagesNotSent.get(connectorConfiguration);
-			prevCount.incrementAndGet();
-			counterMessagesNotSent.put(connectorConfiguration, prevCount);
+		Map<ConnectorConfiguration, AtomicInteger> counters = output ? counterMessagesSent : counterMessagesNotSent;
+		AtomicInteger counter = counters.get(connectorConfiguration);
+		if (counter == null) {
+			counter = counters.computeIfAbsent(connectorConfiguration, key -> new AtomicInteger(0));
 		}
+		counter.incrementAndGet();
 
 	}
 
 	@Override public boolean publish(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
 			String topic, String message) {
-		Map<ConnectorListener, String> listeners = listenerManager
-				.getOrDefault(connectorConfiguration, new ConcurrentHashMap<>());
+		return publishContent(connectorConfiguration, typeMessage, topic, message);
+	}
+
+	@Override public boolean publishMessage(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
+			String topic, Object message) {
+		return publishContent(connectorConfiguration, typeMessage, topic, messageCodec.encode(typeMessage, message));
+	}
+
+	private boolean publishContent(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
+			String topic, Object message) {
+		Map<ConnectorListener, String> listeners = listenerManager.get(connectorConfiguration);
+		if (listeners == null) {
+			listeners = Collections.emptyMap();
+		}
+
+		RingBuffer<MessageEvent> ringBuffer = this.ringBuffer;
+		if (ringBuffer != null) {
+			return publishRing(ringBuffer, connectorConfiguration, typeMessage, topic, message, listeners.keySet());
+		}
 
 		ThreadPoolExecutor threadPoolExecutor = typeOfMessageToThreads.get(typeMessage);
 
@@ -143,14 +259,126 @@ public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, C
 			if (threadPoolExecutor == null) {
 				threadPoolExecutor = this.senderPool;
 			}
-			threadPoolExecutor.submit(() -> {
-				_notify(connectorConfiguration, typeMessage, topic, message, listeners.keySet());
-			});
+			Set<ConnectorListener> listenerSet = listeners.keySet();
+			if (conflatingDispatcher != null) {
+				conflatingDispatcher.dispatch(threadPoolExecutor, connectorConfiguration, topic, typeMessage,
+						() -> _notify(connectorConfiguration, typeMessage, topic, message, listenerSet));
+			} else {
+				threadPoolExecutor.submit(() -> {
+					_notify(connectorConfiguration, typeMessage, topic, message, listenerSet);
+				});
+			}
 
 		}
 		return true;
 	}
 
+	/**
+	 * Partition by the instrument of the topic "instrumentPk.typeMessage" , all the messages of one instrument are
+	 * notified in order by the same consumer
+	 */
+	private int getPartition(String topic) {
+		if (topic == null || ringConsumers == 1) {
+			return 0;
+		}
+		int hash = 0;
+		for (int index = 0; index < topic.length(); index++) {
+			char character = topic.charAt(index);
+			if (character == '.') {
+				break;
+			}
+			hash = 31 * hash + character;
+		}
+		return (hash & Integer.MAX_VALUE) % ringConsumers;
+	}
+
+	private boolean publishRing(RingBuffer<MessageEvent> ringBuffer, ConnectorConfiguration connectorConfiguration,
+			TypeMessage typeMessage, String topic, Object message, Set<ConnectorListener> listeners) {
+		if (!ringConsumerThreads.contains(Thread.currentThread())) {
+			publishEvent(ringBuffer, ringBuffer.next(), connectorConfiguration, typeMessage, topic, message, listeners);
+			return true;
+		}
+		//a listener publishing on its own ring can't wait for free slots
+		AtomicInteger overflowPending = ringOverflowPending.get();
+		if (overflowPending.get() == 0) {
+			try {
+				long sequence = ringBuffer.tryNext();
+				publishEvent(ringBuffer, sequence, connectorConfiguration, typeMessage, topic, message, listeners);
+				return true;
+			} catch (InsufficientCapacityException e) {
+				if (ringOverflows.getAndIncrement() == 0) {
+					logger.warn("{} ring buffer full publishing from consumer thread -> overflow queue", name);
+				}
+			}
+		}
+		return publishOverflow(ringBuffer, overflowPending, connectorConfiguration, typeMessage, topic, message,
+				listeners);
+	}
+
+	/**
+	 * Published to the ring by the overflow thread in the same order , the consumer thread is not blocked
+	 */
+	private boolean publishOverflow(RingBuffer<MessageEvent> ringBuffer, AtomicInteger overflowPending,
+			ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage, String topic, Object message,
+			Set<ConnectorListener> listeners) {
+		ThreadPoolExecutor ringOverflowPool = this.ringOverflowPool;
+		overflowPending.incrementAndGet();
+		try {
+			if (ringOverflowPool == null) {
+				//shutdown
+				throw new RejectedExecutionException();
+			}
+			ringOverflowPool.execute(() -> {
+				try {
+					while (this.ringBuffer == ringBuffer) {
+						try {
+							long sequence = ringBuffer.tryNext();
+							publishEvent(ringBuffer, sequence, connectorConfiguration, typeMessage, topic, message,
+									listeners);
+							return;
+						} catch (InsufficientCapacityException e) {
+							//not next() to finish when the disruptor is shutdown
+							LockSupport.parkNanos(1000);
+						}
+					}
+				} finally {
+					overflowPending.decrementAndGet();
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			overflowPending.decrementAndGet();
+			logger.error("{} ring overflow queue of {} messages full -> discard {}", name, RING_OVERFLOW_SIZE, topic);
+			AtomicInteger counter = counterMessagesNotSent
+					.computeIfAbsent(connectorConfiguration, key -> new AtomicInteger(0));
+			counter.incrementAndGet();
+			return false;
+		}
+	}
+
+	private void publishEvent(RingBuffer<MessageEvent> ringBuffer, long sequence,
+			ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage, String topic, Object message,
+			Set<ConnectorListener> listeners) {
+		try {
+			MessageEvent event = ringBuffer.get(sequence);
+			event.connectorConfiguration = connectorConfiguration;
+			event.typeMessage = typeMessage;
+			event.topic = topic;
+			event.message = message;
+			event.listeners = listeners;
+			event.partition = getPartition(topic);
+		} finally {
+			ringBuffer.publish(sequence);
+		}
+	}
+
+	/**
+	 * @return messages published from consumer threads that found the ring full
+	 */
+	public long getRingOverflows() {
+		return ringOverflows.get();
+	}
+
 	@Override public int getMessagesSent(ConnectorConfiguration configuration) {
 		if (counterMessagesSent.containsKey(configuration)) {
 			return counterMessagesSent.get(configuration).get();
@@ -167,4 +395,24 @@ public class OrdinaryConnectorPublisherProvider implements ConnectorPublisher, C
 		}
 	}
 
+	/**
+	 * Preallocated slot of the ring buffer
+	 */
+	private static class MessageEvent {
+
+		private ConnectorConfiguration connectorConfiguration;
+		private TypeMessage typeMessage;
+		private String topic;
+		private Object message;
+		private Set<ConnectorListener> listeners;
+		private int partition;
+
+		private void clear() {
+			connectorConfiguration = null;
+			topic = null;
+			message = null;
+			listeners = null;
+		}
+	}
+
 }
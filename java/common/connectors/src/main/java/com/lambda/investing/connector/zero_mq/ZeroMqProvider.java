@@ -4,6 +4,8 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
 import com.lambda.investing.connector.ConnectorProvider;
+import com.lambda.investing.connector.ConflatingDispatcher;
+import com.lambda.investing.connector.codec.BinaryMessageCodec;
 import com.lambda.investing.model.messaging.TopicUtils;
 import com.lambda.investing.model.messaging.TypeMessage;
 import org.apache.logging.log4j.LogManager;
@@ -14,8 +16,10 @@ import org.zeromq.ZMsg;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -25,6 +29,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ZeroMqProvider implements ConnectorProvider {
 
 	private static Integer THREADS_ON_UPDATE = 3;
+	public static Set<TypeMessage> DEFAULT_CONFLATED_TYPES = EnumSet.noneOf(TypeMessage.class);//read on new instances
 
 	private ZeroMqConfiguration zeroMqConfiguration;
 	Logger logger = LogManager.getLogger(ZeroMqProvider.class);
@@ -34,6 +39,7 @@ public class ZeroMqProvider implements ConnectorProvider {
 	private Thread thread;
 	private static final Map<Integer, ZMQ.Socket> PORTS_TAKEN_SUB = new ConcurrentHashMap<>();
 	private ThreadPoolExecutor onUpdateExecutorService;
+	private ConflatingDispatcher conflatingDispatcher;
 
 	private long sleepMsBetweenMessages = 0;
 	protected List<String> topicListSubscribed;
@@ -87,8 +93,16 @@ public class ZeroMqProvider implements ConnectorProvider {
 		if (this.threadsListening < 0) {
 			onUpdateExecutorService = (ThreadPoolExecutor) Executors.newCachedThreadPool(namedThreadFactory);
 		}
+		setConflatedTypes(DEFAULT_CONFLATED_TYPES);
 
+	}
 
+	/**
+	 * Only the latest message per topic of these types waits for the onUpdate threads , the rest are queued
+	 * Not applied when threadsListening is 0 , messages are notified in the receiver thread
+	 */
+	public void setConflatedTypes(Set<TypeMessage> conflatedTypes) {
+		this.conflatingDispatcher = conflatedTypes.isEmpty() ? null : new ConflatingDispatcher(conflatedTypes);
 	}
 
 	public void subscribeTopic(String topic) {
@@ -148,7 +162,7 @@ public class ZeroMqProvider implements ConnectorProvider {
 		//		String replyStr=new String(reply);
 
 	}
-	protected void onUpdate(TypeMessage typeMessage, String message, String topic, long timestamp) throws IOException {
+	protected void onUpdate(TypeMessage typeMessage, Object message, String topic, long timestamp) throws IOException {
 		if (typeMessage.equals(TypeMessage.command)) {
 			answerRep("OK");
 		}
@@ -161,7 +175,7 @@ public class ZeroMqProvider implements ConnectorProvider {
 				zeroMqConfiguration.setTopic(topic);
 				configuration = zeroMqConfiguration;
 			}
-			listener.onUpdate(configuration, timestamp, typeMessage, message);
+			listener.onMessage(configuration, timestamp, typeMessage, message);
 
 		}
 	}
@@ -190,7 +204,7 @@ public class ZeroMqProvider implements ConnectorProvider {
 			running.set(true);
 		}
 
-		private synchronized void treatMessage(String topic, String message) {
+		private synchronized void treatMessage(String topic, Object message) {
 			boolean isInTopicListSubscribed = topicListSubscribed.contains(topic);
 			boolean subscribedToAll =
 					topicListSubscribed.size() == 1 && (topicListSubscribed.get(0).equalsIgnoreCase(""));
@@ -220,9 +234,14 @@ public class ZeroMqProvider implements ConnectorProvider {
 					ZMsg zMsg = ZMsg.recvMsg(socketSub);
 					//Read message contents
 					String topic = zMsg.popString();
-					String message = zMsg.popString();
+					//binary frames are passed as byte[] , the rest as json text
+					byte[] data = zMsg.pop().getData();
+					Object message = BinaryMessageCodec.isBinary(data) ? data : new String(data, ZMQ.CHARSET);
 					try {
-						if (threadsListening != 0) {
+						if (threadsListening != 0 && conflatingDispatcher != null) {
+							conflatingDispatcher.dispatch(onUpdateExecutorService, zeroMqConfiguration, topic,
+									TopicUtils.getTypeMessage(topic), () -> treatMessage(topic, message));
+						} else if (threadsListening != 0) {
 							onUpdateExecutorService.submit(new Runnable() {
 
 								public void run() {
@@ -3,6 +3,9 @@ package com.lambda.investing.connector.zero_mq;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorPublisher;
+import com.lambda.investing.connector.codec.MessageCodec;
+import com.lambda.investing.connector.codec.MessageCodecs;
+import com.lambda.investing.connector.codec.ObjectMessageCodec;
 import com.lambda.investing.model.messaging.TypeMessage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,6 +37,7 @@ public class ZeroMqPublisher implements ConnectorPublisher {
 	private int threads;
 
 	private final Object lock = new Object();
+	private MessageCodec messageCodec = MessageCodecs.JSON;
 
 	public ZeroMqPublisher(String name, int threads) {
 
@@ -50,6 +54,22 @@ public class ZeroMqPublisher implements ConnectorPublisher {
 
 	}
 
+	/**
+	 * @param messageCodec used on publishMessage , MessageCodecs.BINARY sends the message frame as bytes
+	 */
+	public void setMessageCodec(MessageCodec messageCodec) {
+		if (messageCodec instanceof ObjectMessageCodec) {
+			logger.error("ObjectMessageCodec can't be used out of the JVM -> keep {}",
+					this.messageCodec.getClass().getSimpleName());
+			return;
+		}
+		this.messageCodec = messageCodec;
+	}
+
+	@Override public MessageCodec getMessageCodec() {
+		return messageCodec;
+	}
+
 	public int getOKReceived() {
 		return OKReceived;
 	}
@@ -103,6 +123,16 @@ public class ZeroMqPublisher implements ConnectorPublisher {
 
 	@Override public boolean publish(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
 			String topic, String message) {
+		return publishContent(connectorConfiguration, typeMessage, topic, message);
+	}
+
+	@Override public boolean publishMessage(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
+			String topic, Object message) {
+		return publishContent(connectorConfiguration, typeMessage, topic, messageCodec.encode(typeMessage, message));
+	}
+
+	private boolean publishContent(ConnectorConfiguration connectorConfiguration, TypeMessage typeMessage,
+			String topic, Object message) {
 		if (!(connectorConfiguration instanceof ZeroMqConfiguration)) {
 			logger.error("configuration is not ZeroMqConfiguration");
 			return false;
@@ -135,7 +165,7 @@ public class ZeroMqPublisher implements ConnectorPublisher {
 
 	}
 
-	private synchronized void send(String message, ZeroMqConfiguration configuration, String topic, long timestamp,
+	private synchronized void send(Object message, ZeroMqConfiguration configuration, String topic, long timestamp,
 			ZMQ.Socket socket) {
 			if (!counterMessagesSent.containsKey(configuration)) {
 				counterMessagesSent.put(configuration, new AtomicInteger(0));
@@ -143,7 +173,7 @@ public class ZeroMqPublisher implements ConnectorPublisher {
 			if (!counterMessagesNotSent.containsKey(configuration)) {
 				counterMessagesNotSent.put(configuration, new AtomicInteger(0));
 			}
-		if ((topic.trim().length() == 0) || (message.trim().length() == 0))
+		if ((topic.trim().length() == 0) || (message instanceof String && ((String) message).trim().length() == 0))
 			return;
 
 		logger.debug("Sending to zeroMq {} :\n {}", topic, message);
@@ -151,7 +181,15 @@ public class ZeroMqPublisher implements ConnectorPublisher {
 		long elapsed = System.currentTimeMillis() - timestamp;
 		logger.debug("[ZEROMQ]Took {} ms to process message", elapsed);
 
-		boolean output = ZMsg.newStringMsg(topic, message).send(socket);
+		boolean output;
+		if (message instanceof byte[]) {
+			ZMsg zMsg = new ZMsg();
+			zMsg.add(topic);
+			zMsg.add((byte[]) message);
+			output = zMsg.send(socket);
+		} else {
+			output = ZMsg.newStringMsg(topic, (String) message).send(socket);
+		}
 		//		boolean output=socket.sendMore(topic);
 		//		output &= socket.send(message);
 
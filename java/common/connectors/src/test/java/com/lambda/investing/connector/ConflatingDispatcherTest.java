@@ -0,0 +1,72 @@
+package com.lambda.investing.connector;
+
+import com.lambda.investing.connector.zero_mq.ZeroMqConfiguration;
+import com.lambda.investing.model.messaging.TypeMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConflatingDispatcherTest {
+
+	@Test public void testSameTopicOfDifferentConfigurations() {
+		ConflatingDispatcher conflatingDispatcher = new ConflatingDispatcher(EnumSet.of(TypeMessage.depth));
+		//deliveries wait until the test runs them
+		Queue<Runnable> executor = new ArrayDeque<>();
+		List<String> delivered = new ArrayList<>();
+		ZeroMqConfiguration firstExchange = new ZeroMqConfiguration("localhost", 6600, null);
+		ZeroMqConfiguration secondExchange = new ZeroMqConfiguration("localhost", 6601, null);
+		String topic = "btcusdt_binance.depth";
+
+		conflatingDispatcher.dispatch(executor::add, firstExchange, topic, TypeMessage.depth,
+				() -> delivered.add("first:0"));
+		conflatingDispatcher.dispatch(executor::add, firstExchange, topic, TypeMessage.depth,
+				() -> delivered.add("first:1"));
+		conflatingDispatcher.dispatch(executor::add, secondExchange, topic, TypeMessage.depth,
+				() -> delivered.add("second:0"));
+		while (!executor.isEmpty()) {
+			executor.poll().run();
+		}
+
+		//only the same source is conflated
+		Assert.assertEquals(2, delivered.size());
+		Assert.assertTrue(delivered.contains("first:1"));
+		Assert.assertTrue(delivered.contains("second:0"));
+	}
+
+	@Test public void testRejectedIsScheduledAgain() {
+		ConflatingDispatcher conflatingDispatcher = new ConflatingDispatcher(EnumSet.of(TypeMessage.depth));
+		Queue<Runnable> executor = new ArrayDeque<>();
+		List<String> delivered = new ArrayList<>();
+		ZeroMqConfiguration exchange = new ZeroMqConfiguration("localhost", 6600, null);
+		String topic = "btcusdt_binance.depth";
+		AtomicBoolean reject = new AtomicBoolean(true);
+		Executor rejectingExecutor = runnable -> {
+			if (reject.get()) {
+				throw new RejectedExecutionException("queue full");
+			}
+			executor.add(runnable);
+		};
+
+		conflatingDispatcher.dispatch(rejectingExecutor, exchange, topic, TypeMessage.depth,
+				() -> delivered.add("0"));
+		Assert.assertTrue(executor.isEmpty());
+
+		reject.set(false);
+		conflatingDispatcher.dispatch(rejectingExecutor, exchange, topic, TypeMessage.depth,
+				() -> delivered.add("1"));
+		while (!executor.isEmpty()) {
+			executor.poll().run();
+		}
+		Assert.assertEquals(1, delivered.size());
+		Assert.assertEquals("1", delivered.get(0));
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.lambda.investing.connector.codec;
+
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.messaging.Command;
+import com.lambda.investing.model.messaging.TypeMessage;
+import com.lambda.investing.model.trading.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryMessageCodecTest {
+
+	private BinaryMessageCodec codec = MessageCodecs.BINARY;
+
+	private void assertRoundTrip(TypeMessage typeMessage, Object message) {
+		Object content = codec.encode(typeMessage, message);
+		Assert.assertTrue(content instanceof byte[]);
+		Assert.assertTrue(BinaryMessageCodec.isBinary((byte[]) content));
+		Object decoded = MessageCodecs.decode(typeMessage, content);
+		Assert.assertEquals(MessageCodecs.JSON.encode(typeMessage, message),
+				MessageCodecs.JSON.encode(typeMessage, decoded));
+	}
+
+	@Test public void testDepth() {
+		Depth depth = new Depth();
+		depth.setInstrument("btcusdt_binance");
+		depth.setTimestamp(1609459200123L);
+		depth.setBids(new Double[] { 100.5, 100.4, null });
+		depth.setAsks(new Double[] { 100.6, Double.NaN });
+		depth.setBidsQuantities(new Double[] { 1.0, 2.5, 3.0 });
+		depth.setAsksQuantities(new Double[] { 0.1, 0.2 });
+		depth.setBidsAlgorithmInfo(new String[] { Depth.ALGORITHM_INFO_MM, "algo_ñ", null });
+		depth.setAsksAlgorithmInfo(new String[] { Depth.ALGORITHM_INFO_MM, Depth.ALGORITHM_INFO_MM });
+		depth.setLevelsFromData();
+		assertRoundTrip(TypeMessage.depth, depth);
+
+		Depth decoded = (Depth) codec.decode(TypeMessage.depth, codec.encode(TypeMessage.depth, depth));
+		Assert.assertNull(decoded.getBids()[2]);
+		Assert.assertTrue(Double.isNaN(decoded.getAsks()[1]));
+
+		assertRoundTrip(TypeMessage.depth, new Depth());
+	}
+
+	@Test public void testTrade() {
+		Trade trade = new Trade();
+		trade.setInstrument("eurusd_darwinex");
+		trade.setTimestamp(1609459200123L);
+		trade.setPrice(1.2134);
+		trade.setQuantity(1000.0);
+		trade.setVerb(Verb.Sell);
+		trade.setAlgorithmInfo("test");
+		assertRoundTrip(TypeMessage.trade, trade);
+		assertRoundTrip(TypeMessage.trade, new Trade());
+	}
+
+	@Test public void testOrderRequestAndExecutionReport() {
+		OrderRequest orderRequest = new OrderRequest();
+		orderRequest.setInstrument("btcusdt_binance");
+		orderRequest.setOrderRequestAction(OrderRequestAction.Send);
+		orderRequest.setPrice(29000.5);
+		orderRequest.setQuantity(0.01);
+		orderRequest.setVerb(Verb.Buy);
+		orderRequest.setOrderType(OrderType.Limit);
+		orderRequest.setClientOrderId("client1");
+		orderRequest.setTimestampCreation(1609459200123L);
+		orderRequest.setAlgorithmInfo("test");
+		assertRoundTrip(TypeMessage.order_request, orderRequest);
+
+		ExecutionReport executionReport = new ExecutionReport(orderRequest);
+		executionReport.setExecutionReportStatus(ExecutionReportStatus.PartialFilled);
+		executionReport.setLastQuantity(0.005);
+		executionReport.setQuantityFill(0.005);
+		assertRoundTrip(TypeMessage.execution_report, executionReport);
+	}
+
+	@Test public void testCommand() {
+		Command command = new Command(Command.ClassMessage.start.name());
+		command.setTimestamp(1609459200123L);
+		assertRoundTrip(TypeMessage.command, command);
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void testWrongType() {
+		Command command = new Command(Command.ClassMessage.stop.name());
+		codec.decode(TypeMessage.depth, codec.encode(TypeMessage.command, command));
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.lambda.investing.connector.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class MetricsTest {
+
+	private static final int THREADS = 8;
+	private static final int UPDATES_PER_THREAD = 100000;
+
+	@Test public void testCounterConcurrentUpdates() throws InterruptedException {
+		Counter counter = Metrics.getCounter("MetricsTest.concurrent");
+		Assert.assertSame(counter, Metrics.getCounter("MetricsTest.concurrent"));
+		ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+		for (int thread = 0; thread < THREADS; thread++) {
+			executorService.submit(() -> {
+				for (int update = 0; update < UPDATES_PER_THREAD; update++) {
+					counter.increment();
+				}
+			});
+		}
+		executorService.shutdown();
+		Assert.assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+		Assert.assertEquals(THREADS * UPDATES_PER_THREAD, counter.get());
+
+		counter.set(5);
+		Assert.assertEquals(5, counter.get());
+	}
+
+	@Test public void testLatencyRecorderPercentiles() {
+		LatencyRecorder latencyRecorder = Metrics.getLatencyRecorder("MetricsTest.percentiles");
+		//1..1000 us
+		for (int value = 1; value <= 1000; value++) {
+			latencyRecorder.record(value * 1000L);
+		}
+		latencyRecorder.recordSince(0);//disabled metrics are not recorded
+
+		Histogram histogram = latencyRecorder.getIntervalHistogram();
+		Assert.assertEquals(1000, histogram.getTotalCount());
+		Assert.assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.001);
+		Assert.assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.001);
+		Assert.assertEquals(999000, histogram.getValueAtPercentile(99.9), 999000 * 0.001);
+
+		//interval is reset
+		Assert.assertEquals(0, latencyRecorder.getIntervalHistogram().getTotalCount());
+	}
+
+	@Test public void testReporterFileAndHttp() throws Exception {
+		File file = File.createTempFile("metrics", ".csv");
+		file.delete();
+		file.deleteOnExit();
+
+		LatencyRecorder latencyRecorder = Metrics.getLatencyRecorder("MetricsTest.reporter");
+		latencyRecorder.record(2000);
+		Metrics.getCounter("MetricsTest.reporterCounter").add(10);
+
+		MetricsReporter metricsReporter = new MetricsReporter("MetricsTest", 60000);
+		metricsReporter.setFilePath(file.getPath());
+		metricsReporter.setHttpPort(0);
+		metricsReporter.setLogEnabled(false);
+		metricsReporter.start();
+		try {
+			metricsReporter.run();
+			List<String> lines = Files.readAllLines(file.toPath());
+			Assert.assertTrue(lines.get(0).startsWith("timestamp,type,name"));
+			Assert.assertTrue(lines.stream().anyMatch(line -> line.contains(",latency,MetricsTest.reporter,")));
+			Assert.assertTrue(lines.stream().anyMatch(line -> line.contains(",counter,MetricsTest.reporterCounter,")));
+
+			URL url = new URL("http://localhost:" + metricsReporter.getHttpPort() + MetricsReporter.HTTP_PATH);
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			Assert.assertEquals(200, connection.getResponseCode());
+			String body;
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+				body = reader.lines().collect(Collectors.joining("\n"));
+			}
+			Assert.assertTrue(body.contains(",latency,MetricsTest.reporter,"));
+		} finally {
+			metricsReporter.stop();
+		}
+	}
+
+}
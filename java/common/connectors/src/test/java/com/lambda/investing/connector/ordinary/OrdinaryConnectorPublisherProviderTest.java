@@ -0,0 +1,181 @@
+package com.lambda.investing.connector.ordinary;
+
+import com.lambda.investing.connector.ConnectorConfiguration;
+import com.lambda.investing.connector.ConnectorListener;
+import com.lambda.investing.model.messaging.TypeMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OrdinaryConnectorPublisherProviderTest {
+
+	private static final int TOPICS = 8;
+	private static final int MESSAGES_PER_TOPIC = 20000;
+
+	private static class SequenceListener implements ConnectorListener {
+
+		private final Map<String, Integer> lastSequence = new ConcurrentHashMap<>();
+		private final Map<String, Thread> topicThread = new ConcurrentHashMap<>();
+		private final AtomicBoolean inOrder = new AtomicBoolean(true);
+		private final CountDownLatch received = new CountDownLatch(TOPICS * MESSAGES_PER_TOPIC);
+
+		@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
+				TypeMessage typeMessage, String content) {
+			String[] topicSequence = content.split(":");
+			String topic = topicSequence[0];
+			int sequence = Integer.parseInt(topicSequence[1]);
+			Integer previous = lastSequence.put(topic, sequence);
+			if ((previous == null && sequence != 0) || (previous != null && previous + 1 != sequence)) {
+				inOrder.set(false);
+			}
+			Thread previousThread = topicThread.putIfAbsent(topic, Thread.currentThread());
+			if (previousThread != null && previousThread != Thread.currentThread()) {
+				inOrder.set(false);
+			}
+			received.countDown();
+		}
+	}
+
+	@Test public void testDisruptorTopicOrder() throws InterruptedException {
+		OrdinaryConnectorPublisherProvider provider = new OrdinaryConnectorPublisherProvider("test", 4);
+		provider.enableDisruptor(1024, 4, DisruptorWaitStrategy.yielding);
+		Assert.assertTrue(provider.isDisruptorEnabled());
+		OrdinaryConnectorConfiguration configuration = new OrdinaryConnectorConfiguration();
+		SequenceListener listener = new SequenceListener();
+		provider.register(configuration, listener);
+
+		//one producer per two topics
+		Thread[] producers = new Thread[TOPICS / 2];
+		for (int producer = 0; producer < producers.length; producer++) {
+			final int firstTopic = producer * 2;
+			producers[producer] = new Thread(() -> {
+				for (int sequence = 0; sequence < MESSAGES_PER_TOPIC; sequence++) {
+					for (int topic = firstTopic; topic < firstTopic + 2; topic++) {
+						String topicName = "instrument" + topic;
+						provider.publish(configuration, TypeMessage.depth, topicName, topicName + ":" + sequence);
+					}
+				}
+			});
+			producers[producer].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		Assert.assertTrue(listener.received.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(listener.inOrder.get());
+		Assert.assertEquals(TOPICS, listener.lastSequence.size());
+		//counted after notifying the listeners
+		long timeout = System.currentTimeMillis() + 5000;
+		while (provider.getMessagesSent(configuration) < TOPICS * MESSAGES_PER_TOPIC
+				&& System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(TOPICS * MESSAGES_PER_TOPIC, provider.getMessagesSent(configuration));
+		provider.shutdownDisruptor();
+	}
+
+	@Test public void testDisruptorConsumerPublishOnFullRing() throws InterruptedException {
+		OrdinaryConnectorPublisherProvider provider = new OrdinaryConnectorPublisherProvider("test", 1);
+		provider.enableDisruptor(8, 1, DisruptorWaitStrategy.yielding);
+		OrdinaryConnectorConfiguration configuration = new OrdinaryConnectorConfiguration();
+		int echoes = 1000;
+		AtomicInteger nextEcho = new AtomicInteger(0);
+		AtomicBoolean inOrder = new AtomicBoolean(true);
+		CountDownLatch received = new CountDownLatch(echoes);
+		provider.register(configuration, new ConnectorListener() {
+
+			@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
+					TypeMessage typeMessage, String content) {
+				if (content.equals("start")) {
+					//consumer thread publishing more than the ring size
+					for (int sequence = 0; sequence < echoes; sequence++) {
+						provider.publish(configuration, TypeMessage.depth, "instrument0", String.valueOf(sequence));
+					}
+					return;
+				}
+				if (Integer.parseInt(content) != nextEcho.getAndIncrement()) {
+					inOrder.set(false);
+				}
+				received.countDown();
+			}
+		});
+		provider.publish(configuration, TypeMessage.depth, "instrument0", "start");
+		Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(inOrder.get());
+		Assert.assertTrue(provider.getRingOverflows() > 0);
+		provider.shutdownDisruptor();
+	}
+
+	@Test public void testDepthConflation() throws InterruptedException {
+		OrdinaryConnectorPublisherProvider provider = new OrdinaryConnectorPublisherProvider("test", 2);
+		provider.setConflatedTypes(EnumSet.of(TypeMessage.depth));
+		OrdinaryConnectorConfiguration configuration = new OrdinaryConnectorConfiguration();
+		int depthsPerTopic = 500;
+		int trades = 200;
+		Map<String, Integer> lastDepthSequence = new ConcurrentHashMap<>();
+		AtomicBoolean depthInOrder = new AtomicBoolean(true);
+		AtomicInteger depthsReceived = new AtomicInteger();
+		CountDownLatch tradesReceived = new CountDownLatch(trades);
+		provider.register(configuration, new ConnectorListener() {
+
+			@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
+					TypeMessage typeMessage, String content) {
+				if (typeMessage.equals(TypeMessage.trade)) {
+					tradesReceived.countDown();
+					return;
+				}
+				String[] topicSequence = content.split(":");
+				int sequence = Integer.parseInt(topicSequence[1]);
+				Integer previous = lastDepthSequence.put(topicSequence[0], sequence);
+				if (previous != null && previous >= sequence) {
+					depthInOrder.set(false);
+				}
+				depthsReceived.incrementAndGet();
+				try {
+					Thread.sleep(1);//slow algorithm
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		for (int sequence = 0; sequence < depthsPerTopic; sequence++) {
+			for (int topic = 0; topic < TOPICS; topic++) {
+				String topicName = "instrument" + topic + ".depth";
+				provider.publish(configuration, TypeMessage.depth, topicName, topicName + ":" + sequence);
+			}
+			if (sequence < trades) {
+				provider.publish(configuration, TypeMessage.trade, "instrument0.trade", "trade:" + sequence);
+			}
+		}
+		//trades are never conflated
+		Assert.assertTrue(tradesReceived.await(10, TimeUnit.SECONDS));
+		long timeout = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < timeout && !isLastDepthReceived(lastDepthSequence, depthsPerTopic - 1)) {
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(isLastDepthReceived(lastDepthSequence, depthsPerTopic - 1));
+		Assert.assertTrue(depthInOrder.get());
+		Assert.assertTrue(depthsReceived.get() < TOPICS * depthsPerTopic);
+	}
+
+	private static boolean isLastDepthReceived(Map<String, Integer> lastDepthSequence, int lastSequence) {
+		if (lastDepthSequence.size() < TOPICS) {
+			return false;
+		}
+		for (Integer sequence : lastDepthSequence.values()) {
+			if (sequence != lastSequence) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
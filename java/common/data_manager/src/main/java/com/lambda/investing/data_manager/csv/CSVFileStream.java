@@ -0,0 +1,138 @@
+package com.lambda.investing.data_manager.csv;
+
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.lambda.investing.data_manager.csv.CSVUtils.TIMESTAMP_COL;
+
+/***
+ * Reads line by line depth or trade csv files with the header written by Depth.toCSV / Trade.toCSV
+ */
+public class CSVFileStream extends MarketDataFileStream {
+
+	private static DateTimeFormatter CSV_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+	private static DateTimeFormatter CSV_DATE_FORMAT_SHORT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+	private final BufferedReader reader;
+	private final boolean isDepth;
+	private int timestampIndex = -1;
+	private int priceIndex, quantityIndex;
+	private int[] askIndex, askQuantityIndex, bidIndex, bidQuantityIndex;
+
+	public <T extends CSVable> CSVFileStream(String filepath, Class<T> objectType, Instrument instrument,
+			String algorithmInfo, long startTime, long endTime) throws IOException {
+		super(filepath, instrument, algorithmInfo, startTime, endTime);
+		if (!objectType.equals(Depth.class) && !objectType.equals(Trade.class)) {
+			throw new IllegalArgumentException("CSVFileStream can't read " + objectType.getSimpleName());
+		}
+		this.isDepth = objectType.equals(Depth.class);
+		this.reader = new BufferedReader(new FileReader(filepath));
+		String header = reader.readLine();
+		if (header == null) {
+			logger.warn("{} is empty", filepath);
+			return;
+		}
+		readHeader(header.split(",", -1));
+	}
+
+	private void readHeader(String[] columns) {
+		Map<String, Integer> columnsIndex = new HashMap<>();
+		for (int index = 0; index < columns.length; index++) {
+			columnsIndex.put(columns[index].trim(), index);
+		}
+		timestampIndex = columnsIndex.getOrDefault(TIMESTAMP_COL, -1);//old format has only the date column
+		if (isDepth) {
+			int levels = 0;
+			while (columnsIndex.containsKey("ask" + levels)) {
+				levels++;
+			}
+			askIndex = new int[levels];
+			askQuantityIndex = new int[levels];
+			bidIndex = new int[levels];
+			bidQuantityIndex = new int[levels];
+			for (int level = 0; level < levels; level++) {
+				askIndex[level] = columnsIndex.get("ask" + level);
+				askQuantityIndex[level] = columnsIndex.get("ask_quantity" + level);
+				bidIndex[level] = columnsIndex.get("bid" + level);
+				bidQuantityIndex[level] = columnsIndex.get("bid_quantity" + level);
+			}
+		} else {
+			priceIndex = columnsIndex.get("price");
+			quantityIndex = columnsIndex.get("quantity");
+		}
+	}
+
+	private static double getDouble(String[] values, int index) {
+		if (index >= values.length) {
+			return Double.NaN;
+		}
+		String value = values[index].trim();
+		if (value.isEmpty()) {
+			return Double.NaN;
+		}
+		return Double.parseDouble(value);
+	}
+
+	private static Double[] getDoubles(String[] values, int[] indexes) {
+		Double[] output = new Double[indexes.length];
+		for (int level = 0; level < indexes.length; level++) {
+			output[level] = getDouble(values, indexes[level]);
+		}
+		return output;
+	}
+
+	private long getTimestamp(String[] values) {
+		if (timestampIndex >= 0) {
+			return adjustTimestamp((long) Double.parseDouble(values[timestampIndex].trim()));
+		}
+		String dateString = values[0].trim();
+		LocalDateTime dateTime;
+		try {
+			dateTime = LocalDateTime.parse(dateString, CSV_DATE_FORMAT);
+		} catch (DateTimeParseException exception) {
+			dateTime = LocalDateTime.parse(dateString, CSV_DATE_FORMAT_SHORT);
+		}
+		return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	@Override protected CSVable readNext() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			String[] values = line.split(",", -1);
+			try {
+				long timestamp = getTimestamp(values);
+				if (isDepth) {
+					return CSVUtils.createDepth(instrument, algorithmInfo, timestamp, getDoubles(values, askIndex),
+							getDoubles(values, askQuantityIndex), getDoubles(values, bidIndex),
+							getDoubles(values, bidQuantityIndex));
+				} else {
+					return CSVUtils.createTrade(instrument, algorithmInfo, timestamp, getDouble(values, priceIndex),
+							getDouble(values, quantityIndex));
+				}
+			} catch (Exception e) {
+				logger.error("Error reading row {} : {}", name, line, e);
+			}
+		}
+		return null;
+	}
+
+	@Override protected void closeFile() throws IOException {
+		reader.close();
+	}
+}
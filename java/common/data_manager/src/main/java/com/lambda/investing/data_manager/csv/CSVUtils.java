@@ -190,16 +190,24 @@ public class CSVUtils {
 		if (speedMultiplier < 0) {
 			return;
 		}
+		Map.Entry<Long, NameRowPair> nextEntry = readingTable.higherEntry(currentTimestamp);
+		if (nextEntry != null) {
+			sleepDifference(currentTimestamp, nextEntry.getKey(), speedMultiplier);
+		}
+	}
+
+	public static void sleepDifference(long currentTimestamp, long nextTimeStamp, int speedMultiplier) {
+		if (speedMultiplier < 0) {
+			return;
+		}
 		try {
-			Map.Entry<Long, NameRowPair> nextEntry = readingTable.higherEntry(currentTimestamp);
-			if (nextEntry != null) {
-				long nextTimeStamp = readingTable.higherEntry(currentTimestamp).getKey();
-				//TODO take a look on speedMultiplier>0
-				long waitMillis = ((nextTimeStamp - currentTimestamp) / speedMultiplier);
-				if (waitMillis > MAX_TIME_WAIT_MILLIS) {
-					//					logger.warn("Waiting {} miliseconds  more than {} miliseconds -> reduce",waitMillis, MAX_TIME_WAIT_MILLIS);
-					waitMillis = MAX_TIME_WAIT_MILLIS;
-				}
+			//TODO take a look on speedMultiplier>0
+			long waitMillis = ((nextTimeStamp - currentTimestamp) / speedMultiplier);
+			if (waitMillis > MAX_TIME_WAIT_MILLIS) {
+				//					logger.warn("Waiting {} miliseconds  more than {} miliseconds -> reduce",waitMillis, MAX_TIME_WAIT_MILLIS);
+				waitMillis = MAX_TIME_WAIT_MILLIS;
+			}
+			if (waitMillis > 0) {
 				Thread.sleep(waitMillis);
 			}
 		} catch (InterruptedException e) {
@@ -217,18 +225,15 @@ public class CSVUtils {
 
 	}
 	public static Depth createDepth(Row row, Instrument instrument, String algorithmInfoDepth) {
-		Depth depth = new Depth();
 		Map<String, Object> mapToUpdate = getMap(row);
 
 		//		Instrument instrument = CSVFileConfiguration.getInstrument();
 		int levels = row.columnCount() / 4;
-		depth.setInstrument(instrument.getPrimaryKey());
 
 		Double[] asks = new Double[levels];
 		Double[] bids = new Double[levels];
 		Double[] asksQty = new Double[levels];
 		Double[] bidsQty = new Double[levels];
-		String[] algorithmInfo = new String[levels];
 
 		for (int level = 0; level < levels; level++) {
 			double ask = (double) mapToUpdate.get("ask" + String.valueOf(level));
@@ -239,10 +244,20 @@ public class CSVUtils {
 			bids[level] = bid;
 			asksQty[level] = askQty;
 			bidsQty[level] = bidQty;
-			algorithmInfo[level] = algorithmInfoDepth;
 
 		}
-		depth.setTimestamp(getTimestamp(mapToUpdate));
+		return createDepth(instrument, algorithmInfoDepth, getTimestamp(mapToUpdate), asks, asksQty, bids, bidsQty);
+	}
+
+	public static Depth createDepth(Instrument instrument, String algorithmInfoDepth, long timestamp, Double[] asks,
+			Double[] asksQty, Double[] bids, Double[] bidsQty) {
+		Depth depth = new Depth();
+		int levels = asks.length;
+		depth.setInstrument(instrument.getPrimaryKey());
+		String[] algorithmInfo = new String[levels];
+		Arrays.fill(algorithmInfo, algorithmInfoDepth);
+
+		depth.setTimestamp(timestamp);
 		depth.setLevels(levels);
 		depth.setAsks(asks);
 		depth.setBids(bids);
@@ -254,12 +269,18 @@ public class CSVUtils {
 	}
 
 	public static Trade createTrade(Row row, Instrument instrument, String algorithmInfoDepth) {
-		Trade trade = new Trade();
 		Map<String, Object> mapToUpdate = getMap(row);
-		trade.setPrice((double) mapToUpdate.get("price"));
-		trade.setQuantity((double) mapToUpdate.get("quantity"));
+		return createTrade(instrument, algorithmInfoDepth, getTimestamp(mapToUpdate),
+				(double) mapToUpdate.get("price"), (double) mapToUpdate.get("quantity"));
+	}
+
+	public static Trade createTrade(Instrument instrument, String algorithmInfoDepth, long timestamp, double price,
+			double quantity) {
+		Trade trade = new Trade();
+		trade.setPrice(price);
+		trade.setQuantity(quantity);
 		trade.setInstrument(instrument.getPrimaryKey());
-		trade.setTimestamp(getTimestamp(mapToUpdate));
+		trade.setTimestamp(timestamp);
 		trade.setAlgorithmInfo(algorithmInfoDepth);
 		return trade;
 	}
@@ -0,0 +1,309 @@
+package com.lambda.investing.data_manager.journal;
+
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Append only binary file of Depth or Trade of one instrument , memory mapped and pre-sized to INITIAL_RECORDS
+ * Every record has its sequence number , the header records counter is updated after the record is written
+ * so a crash in the middle of an append only loses that record
+ * header | sequence,timestamp,values... | sequence,timestamp,values... | ...
+ */
+public class TickJournal implements Closeable {
+
+	public static final String EXTENSION = ".journal";
+	public static int INITIAL_RECORDS = 1 << 16;
+
+	private static final int MAGIC = 0x4C544A31;//LTJ1
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 128;//magic,version,isDepth,recordLength,records,instrument
+	private static final int RECORDS_POSITION = 16;
+	private static final int INSTRUMENT_POSITION = 24;
+	private static final int MAX_INSTRUMENT_LENGTH = HEADER_LENGTH - INSTRUMENT_POSITION - 4;
+	private static final int MAX_LEVELS = 5;
+	private static final int DEPTH_VALUES = MAX_LEVELS * 4;//same order as Depth.headerCSV
+	private static final int TRADE_VALUES = 2;
+	private static final int READ_BUFFER_BYTES = 1 << 20;
+
+	private final File file;
+	private final String instrumentPk;
+	private final boolean isDepth;
+	private final int recordLength;
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long records;
+
+	/**
+	 * Creates the file or continues appending after the last record of an existing one
+	 */
+	public TickJournal(File file, String instrumentPk, boolean isDepth) throws IOException {
+		this.file = file;
+		this.instrumentPk = instrumentPk;
+		this.isDepth = isDepth;
+		this.recordLength = getRecordLength(isDepth);
+		byte[] instrumentBytes = instrumentPk.getBytes(StandardCharsets.UTF_8);
+		if (instrumentBytes.length > MAX_INSTRUMENT_LENGTH) {
+			throw new IllegalArgumentException("instrument too long for journal header " + instrumentPk);
+		}
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		boolean exists = file.isFile() && file.length() >= HEADER_LENGTH;
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		channel = randomAccessFile.getChannel();
+		if (exists) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			Header header = readHeader(buffer, file);
+			if (header.isDepth != isDepth || !header.instrumentPk.equals(instrumentPk)) {
+				close();
+				throw new IOException(file + " is a journal of " + header.instrumentPk + " depth=" + header.isDepth);
+			}
+			records = header.records;
+		} else {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_LENGTH + (long) INITIAL_RECORDS * recordLength);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(isDepth ? 1 : 0);
+			buffer.putInt(recordLength);
+			buffer.putLong(0);
+			buffer.putInt(instrumentBytes.length);
+			buffer.put(instrumentBytes);
+			records = 0;
+		}
+	}
+
+	private static int getRecordLength(boolean isDepth) {
+		return 8 * (2 + (isDepth ? DEPTH_VALUES : TRADE_VALUES));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public String getInstrumentPk() {
+		return instrumentPk;
+	}
+
+	public boolean isDepth() {
+		return isDepth;
+	}
+
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	/**
+	 * @return sequence of the record
+	 */
+	public synchronized long append(Depth depth) throws IOException {
+		if (!isDepth) {
+			throw new IllegalArgumentException(file + " is not a depth journal");
+		}
+		startRecord(depth.getTimestamp());
+		putLevels(depth.getAsks());
+		putLevels(depth.getAsksQuantities());
+		putLevels(depth.getBids());
+		putLevels(depth.getBidsQuantities());
+		return commitRecord();
+	}
+
+	public synchronized long append(Trade trade) throws IOException {
+		if (isDepth) {
+			throw new IllegalArgumentException(file + " is not a trade journal");
+		}
+		startRecord(trade.getTimestamp());
+		buffer.putDouble(toDouble(trade.getPrice()));
+		buffer.putDouble(toDouble(trade.getQuantity()));
+		return commitRecord();
+	}
+
+	private void startRecord(long timestamp) throws IOException {
+		if (buffer == null) {
+			throw new IOException(file + " journal is closed");
+		}
+		long position = HEADER_LENGTH + records * recordLength;
+		if (position + recordLength > buffer.capacity()) {
+			//remap doubling the size , file is extended by the map
+			long newSize = HEADER_LENGTH + Math.max(1, records) * 2 * recordLength;
+			if (newSize > Integer.MAX_VALUE) {
+				throw new IOException(file + " journal is full with " + records + " records");
+			}
+			buffer.force();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+		}
+		buffer.position((int) position);
+		buffer.putLong(records);
+		buffer.putLong(timestamp);
+	}
+
+	private long commitRecord() {
+		long sequence = records;
+		records++;
+		buffer.putLong(RECORDS_POSITION, records);
+		return sequence;
+	}
+
+	private void putLevels(Double[] levels) {
+		for (int level = 0; level < MAX_LEVELS; level++) {
+			if (levels == null || level >= levels.length) {
+				buffer.putDouble(Double.NaN);
+			} else {
+				buffer.putDouble(toDouble(levels[level]));
+			}
+		}
+	}
+
+	private static double toDouble(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
+	/**
+	 * Flush to disk the records written
+	 */
+	public synchronized void force() {
+		if (buffer != null) {
+			buffer.force();
+		}
+	}
+
+	@Override public synchronized void close() throws IOException {
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+		}
+		if (channel != null) {
+			channel.close();
+			randomAccessFile.close();
+			channel = null;
+		}
+	}
+
+	private static class Header {
+
+		private boolean isDepth;
+		private int recordLength;
+		private long records;
+		private String instrumentPk;
+	}
+
+	private static Header readHeader(ByteBuffer buffer, File file) throws IOException {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("not a valid journal file " + file);
+		}
+		Header header = new Header();
+		header.isDepth = buffer.getInt(8) == 1;
+		header.recordLength = buffer.getInt(12);
+		header.records = buffer.getLong(RECORDS_POSITION);
+		int instrumentLength = buffer.getInt(INSTRUMENT_POSITION);
+		if (header.recordLength != getRecordLength(header.isDepth) || instrumentLength < 0
+				|| instrumentLength > MAX_INSTRUMENT_LENGTH) {
+			throw new IOException("corrupted journal header " + file);
+		}
+		byte[] instrumentBytes = new byte[instrumentLength];
+		for (int index = 0; index < instrumentLength; index++) {
+			instrumentBytes[index] = buffer.get(INSTRUMENT_POSITION + 4 + index);
+		}
+		header.instrumentPk = new String(instrumentBytes, StandardCharsets.UTF_8);
+		return header;
+	}
+
+	/**
+	 * Reads all the records of a finished journal without mapping it , so the file can be deleted after
+	 *
+	 * @return Depth or Trade in the order they were appended
+	 * @throws IOException if a sequence number is not the expected one
+	 */
+	public static List<CSVable> read(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_LENGTH);
+			readFully(channel, headerBuffer, 0);
+			Header header = readHeader(headerBuffer, file);
+			long maxRecords = (channel.size() - HEADER_LENGTH) / header.recordLength;
+			if (header.records > maxRecords) {
+				throw new IOException(file + " has " + header.records + " records in header but only " + maxRecords);
+			}
+			List<CSVable> output = new ArrayList<>((int) header.records);
+			int bufferRecords = Math.max(1, READ_BUFFER_BYTES / header.recordLength);
+			ByteBuffer buffer = ByteBuffer.allocate(bufferRecords * header.recordLength);
+			long sequence = 0;
+			while (sequence < header.records) {
+				int recordsToRead = (int) Math.min(bufferRecords, header.records - sequence);
+				buffer.clear();
+				buffer.limit(recordsToRead * header.recordLength);
+				readFully(channel, buffer, HEADER_LENGTH + sequence * header.recordLength);
+				for (int record = 0; record < recordsToRead; record++) {
+					long recordSequence = buffer.getLong();
+					if (recordSequence != sequence) {
+						throw new IOException(
+								file + " sequence gap: expected " + sequence + " and found " + recordSequence);
+					}
+					long timestamp = buffer.getLong();
+					output.add(header.isDepth ?
+							readDepth(buffer, header.instrumentPk, timestamp) :
+							readTrade(buffer, header.instrumentPk, timestamp));
+					sequence++;
+				}
+			}
+			return output;
+		}
+	}
+
+	/**
+	 * Fills the buffer from position and flips it
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("unexpected end of journal");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	private static Double[] readLevels(ByteBuffer buffer) {
+		Double[] levels = new Double[MAX_LEVELS];
+		for (int level = 0; level < MAX_LEVELS; level++) {
+			levels[level] = buffer.getDouble();
+		}
+		return levels;
+	}
+
+	private static Depth readDepth(ByteBuffer buffer, String instrumentPk, long timestamp) {
+		Depth depth = new Depth();
+		depth.setInstrument(instrumentPk);
+		depth.setTimestamp(timestamp);
+		depth.setLevels(MAX_LEVELS);
+		depth.setAsks(readLevels(buffer));
+		depth.setAsksQuantities(readLevels(buffer));
+		depth.setBids(readLevels(buffer));
+		depth.setBidsQuantities(readLevels(buffer));
+		return depth;
+	}
+
+	private static Trade readTrade(ByteBuffer buffer, String instrumentPk, long timestamp) {
+		Trade trade = new Trade();
+		trade.setInstrument(instrumentPk);
+		trade.setTimestamp(timestamp);
+		trade.setPrice(buffer.getDouble());
+		trade.setQuantity(buffer.getDouble());
+		return trade;
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.lambda.investing.data_manager.parquet;
+
+import com.lambda.investing.model.market_data.CSVable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.schema.MessageType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/***
+ * Reads DepthParquet / TradeParquet files row group by row group straight from the parquet columns
+ * without building avro records or model objects
+ */
+public class ParquetColumnReader implements Closeable {
+
+	protected static Logger logger = LogManager.getLogger(ParquetColumnReader.class);
+
+	private final String filepath;
+	private final boolean isDepth;
+	private final ParquetFileReader fileReader;
+	private final MessageType schema;
+	private final String createdBy;
+	private final ColumnDescriptor timestampColumn;
+	private final ColumnDescriptor[] valueColumns;//null when not in the file
+
+	public ParquetColumnReader(String filepath, Class<? extends CSVable> objectType) throws IOException {
+		this.filepath = filepath;
+		this.isDepth = ParquetColumns.isDepth(objectType);
+		this.fileReader = ParquetFileReader.open(new Configuration(), new Path(filepath));
+		this.schema = fileReader.getFooter().getFileMetaData().getSchema();
+		this.createdBy = fileReader.getFooter().getFileMetaData().getCreatedBy();
+
+		this.timestampColumn = getColumn(ParquetColumns.TIMESTAMP_PARQUET_COLUMN);
+		if (timestampColumn == null) {
+			fileReader.close();
+			throw new IOException(filepath + " has no " + ParquetColumns.TIMESTAMP_PARQUET_COLUMN + " column");
+		}
+		String[] parquetColumns = isDepth ? ParquetColumns.DEPTH_PARQUET_COLUMNS : ParquetColumns.TRADE_PARQUET_COLUMNS;
+		this.valueColumns = new ColumnDescriptor[parquetColumns.length];
+		for (int column = 0; column < parquetColumns.length; column++) {
+			valueColumns[column] = getColumn(parquetColumns[column]);
+			if (valueColumns[column] == null) {
+				logger.warn("{} has no {} column -> NaN", filepath, parquetColumns[column]);
+			}
+		}
+	}
+
+	private ColumnDescriptor getColumn(String name) {
+		String[] path = new String[] { name };
+		if (!schema.containsPath(path)) {
+			return null;
+		}
+		return schema.getColumnDescription(path);
+	}
+
+	public long getRowCount() {
+		return fileReader.getRecordCount();
+	}
+
+	/**
+	 * @return next row group decoded , rows without timestamp are discarded. null at the end of the file
+	 */
+	public ParquetColumns readNextRowGroup() throws IOException {
+		PageReadStore pages = fileReader.readNextRowGroup();
+		if (pages == null) {
+			return null;
+		}
+		int rows = (int) pages.getRowCount();
+		ColumnReadStoreImpl columnReadStore = new ColumnReadStoreImpl(pages,
+				new GroupRecordConverter(schema).getRootConverter(), schema, createdBy);
+
+		long[] timestamps = new long[rows];
+		boolean[] missingTimestamp = new boolean[rows];
+		int missingRows = readLongs(columnReadStore.getColumnReader(timestampColumn), timestamps, missingTimestamp);
+
+		double[][] values = new double[valueColumns.length][rows];
+		for (int column = 0; column < valueColumns.length; column++) {
+			if (valueColumns[column] == null) {
+				Arrays.fill(values[column], Double.NaN);
+			} else {
+				readDoubles(columnReadStore.getColumnReader(valueColumns[column]), values[column]);
+			}
+		}
+
+		if (missingRows > 0) {
+			logger.warn("{} rows without timestamp in {} -> discard", missingRows, filepath);
+			int validRows = 0;
+			for (int row = 0; row < rows; row++) {
+				if (missingTimestamp[row]) {
+					continue;
+				}
+				timestamps[validRows] = timestamps[row];
+				for (double[] column : values) {
+					column[validRows] = column[row];
+				}
+				validRows++;
+			}
+			timestamps = Arrays.copyOf(timestamps, validRows);
+			for (int column = 0; column < values.length; column++) {
+				values[column] = Arrays.copyOf(values[column], validRows);
+			}
+			rows = validRows;
+		}
+		return new ParquetColumns(isDepth, timestamps, values, rows);
+	}
+
+	private static boolean isNull(ColumnReader reader) {
+		return reader.getCurrentDefinitionLevel() < reader.getDescriptor().getMaxDefinitionLevel();
+	}
+
+	private static int readLongs(ColumnReader reader, long[] output, boolean[] missing) {
+		int missingRows = 0;
+		for (int row = 0; row < output.length; row++) {
+			if (isNull(reader)) {
+				missing[row] = true;
+				missingRows++;
+			} else {
+				switch (reader.getDescriptor().getType()) {
+					case INT32:
+						output[row] = reader.getInteger();
+						break;
+					default:
+						output[row] = reader.getLong();
+				}
+			}
+			reader.consume();
+		}
+		return missingRows;
+	}
+
+	private static void readDoubles(ColumnReader reader, double[] output) {
+		for (int row = 0; row < output.length; row++) {
+			if (isNull(reader)) {
+				output[row] = Double.NaN;
+			} else {
+				switch (reader.getDescriptor().getType()) {
+					case FLOAT:
+						output[row] = reader.getFloat();
+						break;
+					case INT32:
+						output[row] = reader.getInteger();
+						break;
+					case INT64:
+						output[row] = reader.getLong();
+						break;
+					default:
+						output[row] = reader.getDouble();
+				}
+			}
+			reader.consume();
+		}
+	}
+
+	@Override public void close() throws IOException {
+		fileReader.close();
+	}
+}
@@ -0,0 +1,271 @@
+package com.lambda.investing.data_manager.parquet;
+
+import com.lambda.investing.data_manager.csv.CSVUtils;
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.DepthParquet;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.market_data.TradeParquet;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.LongColumn;
+import tech.tablesaw.api.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.lambda.investing.data_manager.csv.CSVUtils.TIMESTAMP_COL;
+
+/***
+ * DepthParquet / TradeParquet rows decoded column by column into primitive arrays
+ * Missing values are NaN , column names are the same as the csv files (ask0,ask_quantity0,bid0...)
+ * Can be saved/loaded as a binary memory mapped cache file
+ */
+public class ParquetColumns {
+
+	public static final String CACHE_EXTENSION = ".columns";
+	private static final int CACHE_MAGIC = 0x4C504331;//LPC1
+	private static final int CACHE_VERSION = 1;
+	private static final int CACHE_HEADER_LENGTH = 4 * 4 + 1;//magic,version,isDepth,rows,columns
+	private static final int MAX_LEVELS = 5;
+
+	static final String[] DEPTH_COLUMNS = new String[MAX_LEVELS * 4];
+	static final String[] DEPTH_PARQUET_COLUMNS = new String[MAX_LEVELS * 4];
+	static final String[] TRADE_COLUMNS = new String[] { "price", "quantity" };
+	static final String[] TRADE_PARQUET_COLUMNS = TRADE_COLUMNS;
+	static final String TIMESTAMP_PARQUET_COLUMN = "timestamp";
+
+	static {
+		//same order as Depth.headerCSV
+		for (int level = 0; level < MAX_LEVELS; level++) {
+			DEPTH_COLUMNS[level] = "ask" + level;
+			DEPTH_COLUMNS[MAX_LEVELS + level] = "ask_quantity" + level;
+			DEPTH_COLUMNS[2 * MAX_LEVELS + level] = "bid" + level;
+			DEPTH_COLUMNS[3 * MAX_LEVELS + level] = "bid_quantity" + level;
+
+			DEPTH_PARQUET_COLUMNS[level] = "askPrice" + level;
+			DEPTH_PARQUET_COLUMNS[MAX_LEVELS + level] = "askQuantity" + level;
+			DEPTH_PARQUET_COLUMNS[2 * MAX_LEVELS + level] = "bidPrice" + level;
+			DEPTH_PARQUET_COLUMNS[3 * MAX_LEVELS + level] = "bidQuantity" + level;
+		}
+	}
+
+	private final boolean isDepth;
+	private final String[] names;
+	private final long[] timestamps;
+	private final double[][] values;//[column][row]
+	private final int rows;
+
+	ParquetColumns(boolean isDepth, long[] timestamps, double[][] values, int rows) {
+		this.isDepth = isDepth;
+		this.names = isDepth ? DEPTH_COLUMNS : TRADE_COLUMNS;
+		this.timestamps = timestamps;
+		this.values = values;
+		this.rows = rows;
+	}
+
+	static boolean isDepth(Class<? extends CSVable> objectType) {
+		//Depth / Trade are saved as DepthParquet / TradeParquet
+		if (objectType.equals(DepthParquet.class) || objectType.equals(Depth.class)) {
+			return true;
+		}
+		if (objectType.equals(TradeParquet.class) || objectType.equals(Trade.class)) {
+			return false;
+		}
+		throw new IllegalArgumentException("ParquetColumns can't read " + objectType.getSimpleName());
+	}
+
+	/**
+	 * Decodes all the row groups of the file
+	 */
+	public static ParquetColumns read(String filepath, Class<? extends CSVable> objectType) throws IOException {
+		List<ParquetColumns> rowGroups = new ArrayList<>();
+		try (ParquetColumnReader reader = new ParquetColumnReader(filepath, objectType)) {
+			ParquetColumns rowGroup;
+			while ((rowGroup = reader.readNextRowGroup()) != null) {
+				rowGroups.add(rowGroup);
+			}
+		}
+		if (rowGroups.size() == 1) {
+			return rowGroups.get(0);
+		}
+		return concat(isDepth(objectType), rowGroups);
+	}
+
+	private static ParquetColumns concat(boolean isDepth, List<ParquetColumns> rowGroups) {
+		int rows = 0;
+		for (ParquetColumns rowGroup : rowGroups) {
+			rows += rowGroup.rows;
+		}
+		long[] timestamps = new long[rows];
+		double[][] values = new double[isDepth ? DEPTH_COLUMNS.length : TRADE_COLUMNS.length][rows];
+		int offset = 0;
+		for (ParquetColumns rowGroup : rowGroups) {
+			System.arraycopy(rowGroup.timestamps, 0, timestamps, offset, rowGroup.rows);
+			for (int column = 0; column < values.length; column++) {
+				System.arraycopy(rowGroup.values[column], 0, values[column], offset, rowGroup.rows);
+			}
+			offset += rowGroup.rows;
+		}
+		return new ParquetColumns(isDepth, timestamps, values, rows);
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public boolean isDepth() {
+		return isDepth;
+	}
+
+	public String[] getNames() {
+		return names;
+	}
+
+	public long getTimestamp(int row) {
+		return timestamps[row];
+	}
+
+	public double[] getColumn(String name) {
+		for (int column = 0; column < names.length; column++) {
+			if (names[column].equals(name)) {
+				return values[column];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stable sort by timestamp , nothing is copied if it's already sorted
+	 */
+	public ParquetColumns sortByTimestamp() {
+		boolean sorted = true;
+		for (int row = 1; row < rows && sorted; row++) {
+			sorted = timestamps[row - 1] <= timestamps[row];
+		}
+		if (sorted) {
+			return this;
+		}
+		int[] permutation = new int[rows];
+		for (int row = 0; row < rows; row++) {
+			permutation[row] = row;
+		}
+		IntArrays.mergeSort(permutation, (first, second) -> Long.compare(timestamps[first], timestamps[second]));
+
+		long[] sortedTimestamps = new long[rows];
+		double[][] sortedValues = new double[values.length][rows];
+		for (int row = 0; row < rows; row++) {
+			int index = permutation[row];
+			sortedTimestamps[row] = timestamps[index];
+			for (int column = 0; column < values.length; column++) {
+				sortedValues[column][row] = values[column][index];
+			}
+		}
+		return new ParquetColumns(isDepth, sortedTimestamps, sortedValues, rows);
+	}
+
+	/**
+	 * @return Depth or Trade of that row , timestamp in seconds are moved to ms
+	 */
+	public CSVable getRow(int row, Instrument instrument, String algorithmInfo) {
+		long timestamp = MarketDataFileStream.adjustTimestamp(timestamps[row]);
+		if (isDepth) {
+			Double[] asks = new Double[MAX_LEVELS];
+			Double[] asksQty = new Double[MAX_LEVELS];
+			Double[] bids = new Double[MAX_LEVELS];
+			Double[] bidsQty = new Double[MAX_LEVELS];
+			for (int level = 0; level < MAX_LEVELS; level++) {
+				asks[level] = values[level][row];
+				asksQty[level] = values[MAX_LEVELS + level][row];
+				bids[level] = values[2 * MAX_LEVELS + level][row];
+				bidsQty[level] = values[3 * MAX_LEVELS + level][row];
+			}
+			return CSVUtils.createDepth(instrument, algorithmInfo, timestamp, asks, asksQty, bids, bidsQty);
+		}
+		return CSVUtils.createTrade(instrument, algorithmInfo, timestamp, values[0][row], values[1][row]);
+	}
+
+	/**
+	 * @return table with the columns copied , timestamp in seconds are moved to ms as in getRow
+	 */
+	public Table toTable(String name) {
+		Table output = Table.create(name);
+		long[] timestampsMs = new long[rows];
+		for (int row = 0; row < rows; row++) {
+			timestampsMs[row] = MarketDataFileStream.adjustTimestamp(timestamps[row]);
+		}
+		output.addColumns(LongColumn.create(TIMESTAMP_COL, timestampsMs));
+		for (int column = 0; column < names.length; column++) {
+			output.addColumns(DoubleColumn.create(names[column], Arrays.copyOf(values[column], rows)));
+		}
+		return output;
+	}
+
+	/**
+	 * Cache file is header | timestamps | column0 | column1 ... with all the values as 8 bytes
+	 */
+	public void writeCache(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		//write to a temp file and move it, other backtests can be reading the same cache
+		File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		long size = CACHE_HEADER_LENGTH + (long) rows * 8 * (names.length + 1);
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(CACHE_MAGIC);
+			buffer.putInt(CACHE_VERSION);
+			buffer.put((byte) (isDepth ? 1 : 0));
+			buffer.putInt(rows);
+			buffer.putInt(names.length);
+			buffer.asLongBuffer().put(timestamps, 0, rows);
+			buffer.position(buffer.position() + rows * 8);
+			for (double[] column : values) {
+				buffer.asDoubleBuffer().put(column, 0, rows);
+				buffer.position(buffer.position() + rows * 8);
+			}
+			buffer.force();
+		}
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public static ParquetColumns readCache(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != CACHE_MAGIC || buffer.getInt() != CACHE_VERSION) {
+				throw new IOException("not a valid cache file " + file);
+			}
+			boolean isDepth = buffer.get() == 1;
+			int rows = buffer.getInt();
+			int columns = buffer.getInt();
+			int expectedColumns = isDepth ? DEPTH_COLUMNS.length : TRADE_COLUMNS.length;
+			if (columns != expectedColumns || buffer.remaining() != (long) rows * 8 * (columns + 1)) {
+				throw new IOException("corrupted cache file " + file);
+			}
+			long[] timestamps = new long[rows];
+			buffer.asLongBuffer().get(timestamps);
+			buffer.position(buffer.position() + rows * 8);
+			double[][] values = new double[columns][rows];
+			for (double[] column : values) {
+				buffer.asDoubleBuffer().get(column);
+				buffer.position(buffer.position() + rows * 8);
+			}
+			return new ParquetColumns(isDepth, timestamps, values, rows);
+		}
+	}
+
+}
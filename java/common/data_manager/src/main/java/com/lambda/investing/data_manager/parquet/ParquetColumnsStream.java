@@ -0,0 +1,56 @@
+package com.lambda.investing.data_manager.parquet;
+
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+
+/***
+ * Iterates over ParquetColumns already loaded in memory , columns are only read so the same instance can be shared by
+ * streams of different threads
+ */
+public class ParquetColumnsStream extends MarketDataFileStream {
+
+	private final ParquetColumns columns;
+	private int row;
+
+	public ParquetColumnsStream(String name, ParquetColumns columns, Instrument instrument, String algorithmInfo,
+			long startTime, long endTime) {
+		super(name, instrument, algorithmInfo, startTime, endTime);
+		this.columns = columns;
+		if (startTime != endTime) {
+			this.row = firstRowFrom(columns, startTime);
+		}
+	}
+
+	/**
+	 * @return first row with timestamp >= startTime , columns are sorted by timestamp
+	 */
+	private static int firstRowFrom(ParquetColumns columns, long startTime) {
+		int low = 0;
+		int high = columns.getRows();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (MarketDataFileStream.adjustTimestamp(columns.getTimestamp(middle)) < startTime) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	@Override public long getRowsHint() {
+		return columns.getRows() - row;
+	}
+
+	@Override protected CSVable readNext() {
+		if (row >= columns.getRows()) {
+			return null;
+		}
+		return columns.getRow(row++, instrument, algorithmInfo);
+	}
+
+	@Override protected void closeFile() {
+		row = columns.getRows();
+	}
+}
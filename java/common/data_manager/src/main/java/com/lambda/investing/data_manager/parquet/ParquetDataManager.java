@@ -1,22 +1,17 @@
 package com.lambda.investing.data_manager.parquet;
 
 import com.lambda.investing.data_manager.DataManager;
-import com.lambda.investing.model.asset.Instrument;
 import com.lambda.investing.model.market_data.*;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
 import org.apache.avro.reflect.ReflectData;
 
 import org.apache.commons.lang.SystemUtils;
 import org.apache.hadoop.fs.Path;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.avro.AvroParquetWriter;
-import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.hadoop.ParquetWriter;
 
-import static com.lambda.investing.data_manager.csv.CSVUtils.TIMESTAMP_COL;
 import static org.apache.parquet.hadoop.ParquetFileWriter.Mode.OVERWRITE;
 
 import java.io.File;
@@ -29,7 +24,6 @@ import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
-import tech.tablesaw.api.Table;
 
 public class ParquetDataManager implements DataManager {
 
@@ -104,20 +98,6 @@ public class ParquetDataManager implements DataManager {
 
 	static Logger logger = LogManager.getLogger(ParquetDataManager.class);
 
-	private <T extends CSVable> GenericData getGenericData(Class<T> objectType) {
-		GenericData genericData = new ReflectData(objectType.getClassLoader());
-		return genericData;
-	}
-
-	private String getInstrumentPK(Path dataFile) {
-
-		String completePath = dataFile.toString();
-		String searchPattern = "instrument=";
-		int indexInstrument = dataFile.toString().lastIndexOf("instrument=") + searchPattern.length();
-		int indexEndInstrument = dataFile.toString().indexOf(Path.SEPARATOR, indexInstrument);
-		return completePath.substring(indexInstrument, indexEndInstrument);
-	}
-
 	private String createTempName(Path path) {
 		String original = path.toString();
 		String[] splitted = null;
@@ -133,126 +113,65 @@ public class ParquetDataManager implements DataManager {
 			}
 
 		}
-		return outputName + ".csv";
+		return outputName + ParquetColumns.CACHE_EXTENSION;
 	}
 
 	@Override public <T extends CSVable> tech.tablesaw.api.Table getData(String filepath, Class<T> objectType)
 			throws Exception {
+		ParquetColumns columns = getColumns(filepath, objectType);
+		return columns.toTable(new Path(filepath).getName());
+	}
 
-		//Read Parquet
-		//		https://github.com/rdblue/parquet-examples/blob/master/src/main/java/netflix/example/ReadParquetPojo.java
+	/**
+	 * Reads the parquet columns straight into primitive arrays sorted by timestamp, using the binary cache if enabled
+	 *
+	 * @param filepath   DepthParquet or TradeParquet file
+	 * @param objectType DepthParquet.class or TradeParquet.class
+	 * @return columns of the file
+	 */
+	public <T extends CSVable> ParquetColumns getColumns(String filepath, Class<T> objectType) throws Exception {
 		Path dataFile = new Path(filepath);
-		String name = dataFile.getName();
-		String temp_filename = createTempName(dataFile);
+		File cachePath = null;
 		//cache logic load
 		if (cacheBasePath != null) {
-			File cachePath = new File(cacheBasePath, temp_filename);
+			cachePath = new File(cacheBasePath, createTempName(dataFile));
 			if (cachePath.exists()) {
 				logger.info("reading from cachePath: {}", cachePath.toString());
-				tech.tablesaw.api.Table cachePathObj = Table.read().file(cachePath);
-				return cachePathObj;
-			}
-		}
-
-
-
-		Configuration conf = new Configuration();
-		Table output = null;
-		GenericData genericData = getGenericData(objectType);
-
-		String instrumentPK = getInstrumentPK(dataFile);
-		Instrument instrument = Instrument.getInstrument(instrumentPK);
-		Schema schema = ReflectData.AllowNull.get().getSchema(objectType);
-		try (ParquetReader<Object> reader = AvroParquetReader.<Object>builder(dataFile).withDataModel(genericData)
-				.disableCompatibility() // always use this (since this is a new project)
-				.withConf(conf).build()) {
-			Object parquetObject;
-			StringBuilder allParquetAsString = new StringBuilder();
-			while ((parquetObject = reader.read()) != null) {
-				//write Table rows
 				try {
-					//TODO fix to read depths faster
-					if (parquetObject instanceof GenericData.Record) {
-						parquetObject = castToModel((GenericData.Record) parquetObject, objectType);
+					ParquetColumns output = ParquetColumns.readCache(cachePath);
+					if (output.isDepth() == ParquetColumns.isDepth(objectType)) {
+						return output;
 					}
-					CSVable objectCSVable = CSVable.getCSVAble(parquetObject, instrument);
-					boolean withHeader = allParquetAsString.length() == 0;
-
-					allParquetAsString.append(objectCSVable.toCSV(withHeader));
-					allParquetAsString.append(System.lineSeparator());
-				} catch (Exception e) {
-					continue;
+					logger.warn("cachePath {} is not a {} -> read parquet", cachePath, objectType.getSimpleName());
+				} catch (IOException e) {
+					logger.warn("can't read cachePath {} -> read parquet", cachePath, e);
 				}
-
-			}
-			if (allParquetAsString.length() > 0) {
-				allParquetAsString = allParquetAsString.delete(allParquetAsString.lastIndexOf(System.lineSeparator()),
-						allParquetAsString.length());//remove last line separator
-
-				output = Table.read().csv(allParquetAsString.toString(), name);
-				output = output.sortAscendingOn(TIMESTAMP_COL);
-			} else {
-				logger.warn("{} is empty or can't be read", dataFile);
-				throw new Exception("Parquet cant be read " + dataFile);
 			}
+		}
 
+		ParquetColumns output = null;
+		try {
+			output = ParquetColumns.read(filepath, objectType).sortByTimestamp();
 		} catch (Exception e) {
 			logger.error("Error reading parquet {} ", dataFile, e);
 			throw e;
 		}
+		if (output.getRows() == 0) {
+			logger.warn("{} is empty or can't be read", dataFile);
+			throw new Exception("Parquet cant be read " + dataFile);
+		}
 
-		if (cacheBasePath != null) {
-			File cachePath = new File(cacheBasePath, temp_filename);
-			cachePath.getParentFile().mkdirs();
+		if (cachePath != null) {
 			logger.info("writing to cachePath: {}", cachePath.toString());
-			output.write().csv(cachePath);
+			try {
+				output.writeCache(cachePath);
+			} catch (IOException e) {
+				logger.warn("can't write cachePath {}", cachePath, e);
+			}
 		}
-
 		return output;
 	}
 
-	private <T extends CSVable> T castToModel(GenericData.Record parquetObject, Class<T> objectType) {
-		if (objectType.equals(DepthParquet.class)) {
-			DepthParquet depthParquet = new DepthParquet();
-			depthParquet.setTimestamp((Long) parquetObject.get("timestamp"));
-			depthParquet.setAskPrice0((Double) parquetObject.get("askPrice0"));
-			depthParquet.setAskPrice1((Double) parquetObject.get("askPrice1"));
-			depthParquet.setAskPrice2((Double) parquetObject.get("askPrice2"));
-			depthParquet.setAskPrice3((Double) parquetObject.get("askPrice3"));
-			depthParquet.setAskPrice4((Double) parquetObject.get("askPrice4"));
-
-			depthParquet.setBidPrice0((Double) parquetObject.get("bidPrice0"));
-			depthParquet.setBidPrice1((Double) parquetObject.get("bidPrice1"));
-			depthParquet.setBidPrice2((Double) parquetObject.get("bidPrice2"));
-			depthParquet.setBidPrice3((Double) parquetObject.get("bidPrice3"));
-			depthParquet.setBidPrice4((Double) parquetObject.get("bidPrice4"));
-
-			depthParquet.setAskQuantity0((Double) parquetObject.get("askQuantity0"));
-			depthParquet.setAskQuantity1((Double) parquetObject.get("askQuantity1"));
-			depthParquet.setAskQuantity2((Double) parquetObject.get("askQuantity2"));
-			depthParquet.setAskQuantity3((Double) parquetObject.get("askQuantity3"));
-			depthParquet.setAskQuantity4((Double) parquetObject.get("askQuantity4"));
-
-			depthParquet.setBidQuantity0((Double) parquetObject.get("bidQuantity0"));
-			depthParquet.setBidQuantity1((Double) parquetObject.get("bidQuantity1"));
-			depthParquet.setBidQuantity2((Double) parquetObject.get("bidQuantity2"));
-			depthParquet.setBidQuantity3((Double) parquetObject.get("bidQuantity3"));
-			depthParquet.setBidQuantity4((Double) parquetObject.get("bidQuantity4"));
-			return (T) depthParquet;
-		}
-
-		if (objectType.equals(TradeParquet.class)) {
-			TradeParquet tradeParquet = new TradeParquet();
-			tradeParquet.setTimestamp((Long) parquetObject.get("timestamp"));
-			tradeParquet.setPrice((Double) parquetObject.get("price"));
-			tradeParquet.setQuantity((Double) parquetObject.get("quantity"));
-			return (T) tradeParquet;
-		}
-		logger.error("{} not found to cast ", objectType);
-		return null;
-
-	}
-
 	@Override public <T extends CSVable> boolean saveData(List<T> objectList, Class<T> objectType, String filepath) {
 		//	https://stackoverflow.com/questions/35200988/writing-custom-java-objects-to-parquet
 		File dataFile = new File(filepath);
@@ -0,0 +1,43 @@
+package com.lambda.investing.data_manager.parquet;
+
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+
+import java.io.IOException;
+
+/***
+ * Reads DepthParquet or TradeParquet files one row group at a time without loading them in a Table
+ */
+public class ParquetFileStream extends MarketDataFileStream {
+
+	private final ParquetColumnReader reader;
+	private ParquetColumns rowGroup;
+	private int rowGroupIndex;
+
+	public <T extends CSVable> ParquetFileStream(String filepath, Class<T> objectType, Instrument instrument,
+			String algorithmInfo, long startTime, long endTime) throws IOException {
+		super(filepath, instrument, algorithmInfo, startTime, endTime);
+		this.reader = new ParquetColumnReader(filepath, objectType);
+	}
+
+	@Override public long getRowsHint() {
+		return reader.getRowCount();
+	}
+
+	@Override protected CSVable readNext() throws IOException {
+		while (rowGroup == null || rowGroupIndex >= rowGroup.getRows()) {
+			rowGroup = reader.readNextRowGroup();
+			rowGroupIndex = 0;
+			if (rowGroup == null) {
+				return null;
+			}
+		}
+		return rowGroup.getRow(rowGroupIndex++, instrument, algorithmInfo);
+	}
+
+	@Override protected void closeFile() throws IOException {
+		rowGroup = null;
+		reader.close();
+	}
+}
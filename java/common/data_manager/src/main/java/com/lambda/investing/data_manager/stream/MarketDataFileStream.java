@@ -0,0 +1,176 @@
+package com.lambda.investing.data_manager.stream;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/***
+ * Forward iterator over the rows of one market data file (Depth or Trade) ordered by timestamp
+ * Only READ_AHEAD_WINDOW rows are kept in memory , enough to sort small disorders of the file
+ */
+public abstract class MarketDataFileStream implements Iterator<CSVable>, Closeable {
+
+	public static int READ_AHEAD_WINDOW = 256;
+
+	protected Logger logger = LogManager.getLogger(MarketDataFileStream.class);
+
+	protected final String name;
+	protected final Instrument instrument;
+	protected final String algorithmInfo;
+	private final long startTime, endTime;
+
+	private final PriorityQueue<BufferedRow> window;
+	private long sequence = 0;
+	private boolean endOfFile = false;
+	private long lastTimestamp = Long.MIN_VALUE;
+	private long rowsOutOfOrder = 0;
+
+	/**
+	 * @param name          file name
+	 * @param instrument    instrument of the rows
+	 * @param algorithmInfo algorithmInfo set on the depth levels and trades
+	 * @param startTime     rows before are discarded , if equal to endTime no filter is applied
+	 * @param endTime       rows after are discarded
+	 */
+	public MarketDataFileStream(String name, Instrument instrument, String algorithmInfo, long startTime,
+			long endTime) {
+		this.name = name;
+		this.instrument = instrument;
+		this.algorithmInfo = algorithmInfo;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.window = new PriorityQueue<>(READ_AHEAD_WINDOW + 1,
+				Comparator.<BufferedRow>comparingLong(row -> row.timestamp).thenComparingLong(row -> row.sequence));
+	}
+
+	/**
+	 * @return next row of the file or null at the end
+	 */
+	protected abstract CSVable readNext() throws IOException;
+
+	protected abstract void closeFile() throws IOException;
+
+	/**
+	 * @return number of rows of the file if known or -1
+	 */
+	public long getRowsHint() {
+		return -1;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getRowsOutOfOrder() {
+		return rowsOutOfOrder;
+	}
+
+	public static long getTimestamp(CSVable row) {
+		if (row instanceof Depth) {
+			return ((Depth) row).getTimestamp();
+		}
+		if (row instanceof Trade) {
+			return ((Trade) row).getTimestamp();
+		}
+		throw new IllegalArgumentException("row without timestamp " + row.getClass().getSimpleName());
+	}
+
+	/**
+	 * Old files are saved in seconds
+	 */
+	public static long adjustTimestamp(long timestamp) {
+		if (String.valueOf(timestamp).length() == 10) {
+			return timestamp * 1000;
+		}
+		return timestamp;
+	}
+
+	private boolean isInTime(long timestamp) {
+		return startTime == endTime || (timestamp >= startTime && timestamp <= endTime);
+	}
+
+	private void fillWindow() {
+		while (!endOfFile && window.size() < READ_AHEAD_WINDOW) {
+			CSVable row;
+			try {
+				row = readNext();
+			} catch (Exception e) {
+				logger.error("error reading {} -> stop reading it", name, e);
+				row = null;
+			}
+			if (row == null) {
+				endOfFile = true;
+				break;
+			}
+			long timestamp = getTimestamp(row);
+			if (!isInTime(timestamp)) {
+				continue;
+			}
+			window.add(new BufferedRow(timestamp, sequence++, row));
+		}
+	}
+
+	@Override public boolean hasNext() {
+		fillWindow();
+		return !window.isEmpty();
+	}
+
+	/**
+	 * @return timestamp of the next row , hasNext must be true
+	 */
+	public long peekTimestamp() {
+		fillWindow();
+		BufferedRow next = window.peek();
+		if (next == null) {
+			throw new NoSuchElementException(name + " finished");
+		}
+		return next.timestamp;
+	}
+
+	@Override public CSVable next() {
+		fillWindow();
+		BufferedRow next = window.poll();
+		if (next == null) {
+			throw new NoSuchElementException(name + " finished");
+		}
+		if (next.timestamp < lastTimestamp) {
+			rowsOutOfOrder++;
+		} else {
+			lastTimestamp = next.timestamp;
+		}
+		return next.row;
+	}
+
+	@Override public void close() throws IOException {
+		if (rowsOutOfOrder > 0) {
+			logger.warn("{} has {} rows out of order more than {} rows", name, rowsOutOfOrder, READ_AHEAD_WINDOW);
+		}
+		window.clear();
+		endOfFile = true;
+		closeFile();
+	}
+
+	private static class BufferedRow {
+
+		private final long timestamp;
+		private final long sequence;
+		private final CSVable row;
+
+		BufferedRow(long timestamp, long sequence, CSVable row) {
+			this.timestamp = timestamp;
+			this.sequence = sequence;
+			this.row = row;
+		}
+	}
+
+}
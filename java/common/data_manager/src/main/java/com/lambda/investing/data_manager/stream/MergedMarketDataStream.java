@@ -0,0 +1,101 @@
+package com.lambda.investing.data_manager.stream;
+
+import com.lambda.investing.model.market_data.CSVable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/***
+ * k-way merge by timestamp of MarketDataFileStream
+ * Rows with the same timestamp are returned in the order of the streams list and then in file order , none is lost
+ */
+public class MergedMarketDataStream implements Iterator<CSVable>, Closeable {
+
+	protected Logger logger = LogManager.getLogger(MergedMarketDataStream.class);
+	private final List<MarketDataFileStream> streams;
+	private final PriorityQueue<Head> heads;
+
+	public MergedMarketDataStream(List<MarketDataFileStream> streams) {
+		this.streams = streams;
+		this.heads = new PriorityQueue<>(Math.max(1, streams.size()),
+				Comparator.<Head>comparingLong(head -> head.timestamp).thenComparingInt(head -> head.streamIndex));
+		for (int streamIndex = 0; streamIndex < streams.size(); streamIndex++) {
+			advance(streamIndex);
+		}
+	}
+
+	private void advance(int streamIndex) {
+		MarketDataFileStream stream = streams.get(streamIndex);
+		if (stream.hasNext()) {
+			CSVable row = stream.next();
+			heads.add(new Head(MarketDataFileStream.getTimestamp(row), streamIndex, row));
+		}
+	}
+
+	/**
+	 * @return sum of rows of the files if all of them are known or -1
+	 */
+	public long getRowsHint() {
+		long output = 0;
+		for (MarketDataFileStream stream : streams) {
+			long rows = stream.getRowsHint();
+			if (rows < 0) {
+				return -1;
+			}
+			output += rows;
+		}
+		return output;
+	}
+
+	@Override public boolean hasNext() {
+		return !heads.isEmpty();
+	}
+
+	/**
+	 * @return timestamp of the next row , hasNext must be true
+	 */
+	public long peekTimestamp() {
+		Head head = heads.peek();
+		if (head == null) {
+			throw new NoSuchElementException("MergedMarketDataStream finished");
+		}
+		return head.timestamp;
+	}
+
+	@Override public CSVable next() {
+		Head head = heads.poll();
+		if (head == null) {
+			throw new NoSuchElementException("MergedMarketDataStream finished");
+		}
+		advance(head.streamIndex);
+		return head.row;
+	}
+
+	@Override public void close() {
+		heads.clear();
+		for (MarketDataFileStream stream : streams) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				logger.error("error closing {}", stream.getName(), e);
+			}
+		}
+	}
+
+	private static class Head {
+
+		private final long timestamp;
+		private final int streamIndex;
+		private final CSVable row;
+
+		Head(long timestamp, int streamIndex, CSVable row) {
+			this.timestamp = timestamp;
+			this.streamIndex = streamIndex;
+			this.row = row;
+		}
+	}
+
+}
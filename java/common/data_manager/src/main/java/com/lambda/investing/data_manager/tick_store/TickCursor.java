@@ -0,0 +1,160 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import com.lambda.investing.data_manager.csv.CSVUtils;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Trade;
+
+import static com.lambda.investing.data_manager.tick_store.TickStore.MAX_LEVELS;
+
+/***
+ * Forward iterator over the records of a TickStoreReader reading the values from the mapped segments
+ * Nothing is allocated until toRow/toTrade are called , a cursor must be used by one thread
+ */
+public class TickCursor {
+
+	private static final int ASKS_OFFSET = 8;
+	private static final int ASKS_QUANTITIES_OFFSET = ASKS_OFFSET + 8 * MAX_LEVELS;
+	private static final int BIDS_OFFSET = ASKS_QUANTITIES_OFFSET + 8 * MAX_LEVELS;
+	private static final int BIDS_QUANTITIES_OFFSET = BIDS_OFFSET + 8 * MAX_LEVELS;
+
+	private final TickStoreReader reader;
+	private final TickStoreReader.Segment[] segments;
+	private final long toTimestamp;
+	private int segmentIndex;
+	private int nextRecord;//in the segment
+	private TickStoreReader.Segment segment;
+	private int position = -1;//of the current record
+
+	TickCursor(TickStoreReader reader, long firstRecord, long toTimestamp) {
+		this.reader = reader;
+		this.segments = reader.getSegmentsArray();
+		this.toTimestamp = toTimestamp;
+		segmentIndex = 0;
+		while (segmentIndex < segments.length
+				&& segments[segmentIndex].firstRecord + segments[segmentIndex].records <= firstRecord) {
+			segmentIndex++;
+		}
+		if (segmentIndex < segments.length) {
+			segment = segments[segmentIndex];
+			nextRecord = (int) (firstRecord - segment.firstRecord);
+		}
+	}
+
+	/**
+	 * Moves to the next record
+	 *
+	 * @return false at the end or after toTimestamp
+	 */
+	public boolean next() {
+		if (segment == null) {
+			return false;
+		}
+		if (nextRecord >= segment.records) {
+			segmentIndex++;
+			if (segmentIndex >= segments.length) {
+				segment = null;
+				position = -1;
+				return false;
+			}
+			segment = segments[segmentIndex];
+			nextRecord = 0;
+		}
+		int recordPosition = segment.getPosition(nextRecord);
+		if (segment.buffer.getLong(recordPosition) > toTimestamp) {
+			segment = null;
+			position = -1;
+			return false;
+		}
+		position = recordPosition;
+		nextRecord++;
+		return true;
+	}
+
+	/**
+	 * @return timestamp of the next record without moving or Long.MAX_VALUE at the end
+	 */
+	public long peekTimestamp() {
+		if (segment == null) {
+			return Long.MAX_VALUE;
+		}
+		int peekSegmentIndex = segmentIndex;
+		int peekRecord = nextRecord;
+		if (peekRecord >= segment.records) {
+			peekSegmentIndex++;
+			peekRecord = 0;
+			if (peekSegmentIndex >= segments.length) {
+				return Long.MAX_VALUE;
+			}
+		}
+		TickStoreReader.Segment peekSegment = segments[peekSegmentIndex];
+		long timestamp = peekSegment.buffer.getLong(peekSegment.getPosition(peekRecord));
+		return timestamp > toTimestamp ? Long.MAX_VALUE : timestamp;
+	}
+
+	private void checkRecord() {
+		if (position < 0) {
+			throw new IllegalStateException("cursor of " + reader.getDirectory() + " without record");
+		}
+	}
+
+	public boolean isDepth() {
+		return reader.isDepth();
+	}
+
+	public long getTimestamp() {
+		checkRecord();
+		return segment.buffer.getLong(position);
+	}
+
+	private double getValue(int offset) {
+		checkRecord();
+		return segment.buffer.getDouble(position + offset);
+	}
+
+	public double getAskPrice(int level) {
+		return getValue(ASKS_OFFSET + 8 * level);
+	}
+
+	public double getAskQuantity(int level) {
+		return getValue(ASKS_QUANTITIES_OFFSET + 8 * level);
+	}
+
+	public double getBidPrice(int level) {
+		return getValue(BIDS_OFFSET + 8 * level);
+	}
+
+	public double getBidQuantity(int level) {
+		return getValue(BIDS_QUANTITIES_OFFSET + 8 * level);
+	}
+
+	public double getPrice() {
+		return getValue(8);
+	}
+
+	public double getQuantity() {
+		return getValue(16);
+	}
+
+	private Double[] getLevels(int offset) {
+		Double[] levels = new Double[MAX_LEVELS];
+		for (int level = 0; level < MAX_LEVELS; level++) {
+			levels[level] = getValue(offset + 8 * level);
+		}
+		return levels;
+	}
+
+	public CSVable toRow(Instrument instrument, String algorithmInfo) {
+		if (isDepth()) {
+			return CSVUtils
+					.createDepth(instrument, algorithmInfo, getTimestamp(), getLevels(ASKS_OFFSET),
+							getLevels(ASKS_QUANTITIES_OFFSET), getLevels(BIDS_OFFSET), getLevels(BIDS_QUANTITIES_OFFSET));
+		}
+		return toTrade(instrument, algorithmInfo);
+	}
+
+	public Trade toTrade(Instrument instrument, String algorithmInfo) {
+		return CSVUtils.createTrade(instrument, algorithmInfo, getTimestamp(), getPrice(), getQuantity());
+	}
+
+}
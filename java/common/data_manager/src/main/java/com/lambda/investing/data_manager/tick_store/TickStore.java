@@ -0,0 +1,146 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Directory of segment files with fixed size Depth or Trade records of one instrument sorted by timestamp
+ * Every segment is memory mapped and has a sparse index with the timestamp of one every indexInterval records
+ * segment = header | index timestamps | timestamp,values... | timestamp,values... | ...
+ * The header records counter is updated after the record and its index entry are written
+ */
+public final class TickStore {
+
+	public static final String DIRECTORY_NAME = "ticks";
+	public static final String EXTENSION = ".ticks";
+
+	static final int MAGIC = 0x4C545331;//LTS1
+	static final int VERSION = 1;
+	static final int HEADER_LENGTH = 128;
+	static final int IS_DEPTH_POSITION = 8;
+	static final int RECORD_LENGTH_POSITION = 12;
+	static final int CAPACITY_POSITION = 16;
+	static final int INDEX_INTERVAL_POSITION = 20;
+	static final int RECORDS_POSITION = 24;
+	static final int FIRST_TIMESTAMP_POSITION = 32;
+	static final int LAST_TIMESTAMP_POSITION = 40;
+	static final int INSTRUMENT_POSITION = 48;
+	static final int MAX_INSTRUMENT_LENGTH = HEADER_LENGTH - INSTRUMENT_POSITION - 4;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int MAX_LEVELS = 5;
+	static final int DEPTH_VALUES = MAX_LEVELS * 4;//same order as Depth.headerCSV
+	static final int TRADE_VALUES = 2;
+
+	private static final String SEGMENT_PREFIX = "segment_";
+
+	private TickStore() {
+	}
+
+	/**
+	 * @return directory of the tick store next to a parquet/csv market data file
+	 */
+	public static File getDirectory(String dataFilePath) {
+		return new File(new File(dataFilePath).getParentFile(), DIRECTORY_NAME);
+	}
+
+	public static boolean exists(File directory) {
+		return getSegments(directory).size() > 0;
+	}
+
+	static int getRecordLength(boolean isDepth) {
+		return 8 * (1 + (isDepth ? DEPTH_VALUES : TRADE_VALUES));
+	}
+
+	static int getIndexEntries(int capacity, int indexInterval) {
+		return (capacity + indexInterval - 1) / indexInterval;
+	}
+
+	static long getRecordsOffset(int capacity, int indexInterval) {
+		return HEADER_LENGTH + 8L * getIndexEntries(capacity, indexInterval);
+	}
+
+	static File getSegmentFile(File directory, int segment) {
+		return new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, segment, EXTENSION));
+	}
+
+	/**
+	 * @return segment files sorted by number
+	 */
+	static List<File> getSegments(File directory) {
+		File[] files = directory.listFiles(
+				(dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(EXTENSION));
+		if (files == null) {
+			return new ArrayList<>();
+		}
+		Arrays.sort(files);
+		return new ArrayList<>(Arrays.asList(files));
+	}
+
+	static void writeHeader(ByteBuffer buffer, boolean isDepth, int capacity, int indexInterval,
+			String instrumentPk) {
+		byte[] instrumentBytes = instrumentPk.getBytes(StandardCharsets.UTF_8);
+		if (instrumentBytes.length > MAX_INSTRUMENT_LENGTH) {
+			throw new IllegalArgumentException("instrument too long for tick store header " + instrumentPk);
+		}
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(IS_DEPTH_POSITION, isDepth ? 1 : 0);
+		buffer.putInt(RECORD_LENGTH_POSITION, getRecordLength(isDepth));
+		buffer.putInt(CAPACITY_POSITION, capacity);
+		buffer.putInt(INDEX_INTERVAL_POSITION, indexInterval);
+		buffer.putLong(RECORDS_POSITION, 0);
+		buffer.putLong(FIRST_TIMESTAMP_POSITION, Long.MIN_VALUE);
+		buffer.putLong(LAST_TIMESTAMP_POSITION, Long.MIN_VALUE);
+		buffer.putInt(INSTRUMENT_POSITION, instrumentBytes.length);
+		for (int index = 0; index < instrumentBytes.length; index++) {
+			buffer.put(INSTRUMENT_POSITION + 4 + index, instrumentBytes[index]);
+		}
+	}
+
+	static class Header {
+
+		boolean isDepth;
+		int capacity;
+		int indexInterval;
+		long records;
+		long firstTimestamp;
+		long lastTimestamp;
+		String instrumentPk;
+	}
+
+	static Header readHeader(ByteBuffer buffer, File file) throws IOException {
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("not a valid tick store segment " + file);
+		}
+		Header header = new Header();
+		header.isDepth = buffer.getInt(IS_DEPTH_POSITION) == 1;
+		header.capacity = buffer.getInt(CAPACITY_POSITION);
+		header.indexInterval = buffer.getInt(INDEX_INTERVAL_POSITION);
+		header.records = buffer.getLong(RECORDS_POSITION);
+		header.firstTimestamp = buffer.getLong(FIRST_TIMESTAMP_POSITION);
+		header.lastTimestamp = buffer.getLong(LAST_TIMESTAMP_POSITION);
+		int instrumentLength = buffer.getInt(INSTRUMENT_POSITION);
+		long expectedSize = getRecordsOffset(header.capacity, header.indexInterval)
+				+ (long) header.capacity * getRecordLength(header.isDepth);
+		if (buffer.getInt(RECORD_LENGTH_POSITION) != getRecordLength(header.isDepth) || header.capacity <= 0
+				|| header.indexInterval <= 0 || header.records < 0 || header.records > header.capacity
+				|| instrumentLength < 0 || instrumentLength > MAX_INSTRUMENT_LENGTH
+				|| buffer.capacity() < expectedSize) {
+			throw new IOException("corrupted tick store segment header " + file);
+		}
+		byte[] instrumentBytes = new byte[instrumentLength];
+		for (int index = 0; index < instrumentLength; index++) {
+			instrumentBytes[index] = buffer.get(INSTRUMENT_POSITION + 4 + index);
+		}
+		header.instrumentPk = new String(instrumentBytes, StandardCharsets.UTF_8);
+		return header;
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/***
+ * Converts parquet/csv market data streams into a TickStore
+ * Written in a temporary directory moved at the end , other backtests can be converting the same file
+ */
+public class TickStoreConverter {
+
+	protected static Logger logger = LogManager.getLogger(TickStoreConverter.class);
+
+	/**
+	 * @param stream    Depth or Trade rows sorted by timestamp , closed at the end
+	 * @param directory of the TickStore , nothing is done if it already exists
+	 * @return rows written
+	 */
+	public static long convert(MarketDataFileStream stream, File directory, String instrumentPk, boolean isDepth)
+			throws IOException {
+		try {
+			if (TickStore.exists(directory)) {
+				return 0;
+			}
+			File parent = directory.getAbsoluteFile().getParentFile();
+			parent.mkdirs();
+			File temporaryDirectory = Files.createTempDirectory(parent.toPath(), directory.getName() + ".tmp").toFile();
+			long rows = 0;
+			long rowsSkipped = 0;
+			try {
+				try (TickStoreWriter writer = new TickStoreWriter(temporaryDirectory, instrumentPk, isDepth)) {
+					while (stream.hasNext()) {
+						CSVable row = stream.next();
+						if (MarketDataFileStream.getTimestamp(row) < writer.getLastTimestamp()) {
+							//disorder bigger than the stream window
+							rowsSkipped++;
+							continue;
+						}
+						if (isDepth) {
+							writer.append((Depth) row);
+						} else {
+							writer.append((Trade) row);
+						}
+						rows++;
+					}
+				}
+				if (rows == 0) {
+					//empty segment , nothing to move
+					deleteDirectory(temporaryDirectory);
+					return 0;
+				}
+				try {
+					Files.move(temporaryDirectory.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					if (!TickStore.exists(directory)) {
+						throw e;
+					}
+					//converted at the same time by other process
+					deleteDirectory(temporaryDirectory);
+				}
+			} catch (IOException | RuntimeException e) {
+				deleteDirectory(temporaryDirectory);
+				throw e;
+			}
+			if (rowsSkipped > 0) {
+				logger.warn("{} rows out of order not converted from {}", rowsSkipped, stream.getName());
+			}
+			logger.info("converted {} rows of {} into {}", rows, stream.getName(), directory);
+			return rows;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.lambda.investing.data_manager.tick_store.TickStore.*;
+
+/***
+ * Read only view of a TickStore with the records written when it was opened
+ * Segments are mapped once and read with absolute gets => many TickCursor can iterate it from different threads
+ * seek is a binary search on the segments , then on the sparse index and then on indexInterval records
+ */
+public class TickStoreReader implements Closeable {
+
+	private final File directory;
+	private final boolean isDepth;
+	private final String instrumentPk;
+	private Segment[] segments;
+	private final long records;
+
+	static class Segment {
+
+		final ByteBuffer buffer;
+		final int records;
+		final int recordLength;
+		final int indexInterval;
+		final long recordsOffset;
+		final long firstTimestamp;
+		final long lastTimestamp;
+		final long firstRecord;//global number of its first record
+
+		Segment(ByteBuffer buffer, Header header, long firstRecord) {
+			this.buffer = buffer;
+			this.records = (int) header.records;
+			this.recordLength = getRecordLength(header.isDepth);
+			this.indexInterval = header.indexInterval;
+			this.recordsOffset = getRecordsOffset(header.capacity, header.indexInterval);
+			this.firstRecord = firstRecord;
+			//from the records , the header can be ahead of the records counter read with a writer appending
+			this.firstTimestamp = buffer.getLong(getPosition(0));
+			this.lastTimestamp = buffer.getLong(getPosition(records - 1));
+		}
+
+		int getPosition(int record) {
+			return (int) (recordsOffset + (long) record * recordLength);
+		}
+	}
+
+	public TickStoreReader(File directory) throws IOException {
+		this.directory = directory;
+		List<File> files = getSegments(directory);
+		if (files.isEmpty()) {
+			throw new IOException("tick store not found in " + directory);
+		}
+		List<Segment> segmentList = new ArrayList<>();
+		Boolean isDepth = null;
+		String instrumentPk = null;
+		long records = 0;
+		for (File file : files) {
+			MappedByteBuffer buffer;
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+					FileChannel channel = randomAccessFile.getChannel()) {
+				//mapping is still valid after closing the channel
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			buffer.order(BYTE_ORDER);
+			Header header = readHeader(buffer, file);
+			if (isDepth == null) {
+				isDepth = header.isDepth;
+				instrumentPk = header.instrumentPk;
+			} else if (isDepth != header.isDepth || !instrumentPk.equals(header.instrumentPk)) {
+				throw new IOException(file + " is a segment of " + header.instrumentPk + " depth=" + header.isDepth);
+			}
+			if (header.records == 0) {
+				continue;
+			}
+			segmentList.add(new Segment(buffer, header, records));
+			records += header.records;
+		}
+		this.isDepth = isDepth;
+		this.instrumentPk = instrumentPk;
+		this.segments = segmentList.toArray(new Segment[0]);
+		this.records = records;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public boolean isDepth() {
+		return isDepth;
+	}
+
+	public String getInstrumentPk() {
+		return instrumentPk;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public long getFirstTimestamp() {
+		return records == 0 ? Long.MIN_VALUE : segments[0].firstTimestamp;
+	}
+
+	public long getLastTimestamp() {
+		return records == 0 ? Long.MIN_VALUE : segments[segments.length - 1].lastTimestamp;
+	}
+
+	Segment[] getSegmentsArray() {
+		if (segments == null) {
+			throw new IllegalStateException(directory + " tick store reader is closed");
+		}
+		return segments;
+	}
+
+	static long getTimestamp(Segment segment, int record) {
+		return segment.buffer.getLong(segment.getPosition(record));
+	}
+
+	/**
+	 * @return global number of the first record with timestamp >= timestamp , getRecords() if there is none
+	 */
+	public long getRecordNumber(long timestamp) {
+		Segment[] segments = getSegmentsArray();
+		//first segment with lastTimestamp >= timestamp
+		int low = 0;
+		int high = segments.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (segments[middle].lastTimestamp < timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low == segments.length) {
+			return records;
+		}
+		Segment segment = segments[low];
+		return segment.firstRecord + getSegmentRecord(segment, timestamp);
+	}
+
+	/**
+	 * @return first record of the segment with timestamp >= timestamp , the segment lastTimestamp must be >= timestamp
+	 */
+	private int getSegmentRecord(Segment segment, long timestamp) {
+		//first index entry >= timestamp
+		int entries = getIndexEntries(segment.records, segment.indexInterval);
+		int low = 0;
+		int high = entries;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (segment.buffer.getLong(HEADER_LENGTH + 8 * middle) < timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		//record is after the previous entry and not after this one
+		int firstRecord = Math.max(0, low - 1) * segment.indexInterval;
+		int lastRecord = Math.min(low * segment.indexInterval, segment.records);
+		while (firstRecord < lastRecord) {
+			int middle = (firstRecord + lastRecord) >>> 1;
+			if (getTimestamp(segment, middle) < timestamp) {
+				firstRecord = middle + 1;
+			} else {
+				lastRecord = middle;
+			}
+		}
+		return firstRecord;
+	}
+
+	/**
+	 * @param fromTimestamp first timestamp included
+	 * @param toTimestamp   last timestamp included
+	 * @return cursor before the first record with timestamp >= fromTimestamp
+	 */
+	public TickCursor seek(long fromTimestamp, long toTimestamp) {
+		return new TickCursor(this, getRecordNumber(fromTimestamp), toTimestamp);
+	}
+
+	/**
+	 * @return records between both timestamps included
+	 */
+	public long count(long fromTimestamp, long toTimestamp) {
+		if (toTimestamp < fromTimestamp) {
+			return 0;
+		}
+		long lastRecord = toTimestamp == Long.MAX_VALUE ? records : getRecordNumber(toTimestamp + 1);
+		return lastRecord - getRecordNumber(fromTimestamp);
+	}
+
+	/**
+	 * Mappings are released by the garbage collector when the cursors are not used anymore
+	 */
+	@Override public void close() {
+		segments = null;
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+
+import java.io.File;
+import java.io.IOException;
+
+/***
+ * Reads a TickStore starting directly on startTime , the rows before are never read
+ */
+public class TickStoreStream extends MarketDataFileStream {
+
+	private final TickStoreReader reader;
+	private final TickCursor cursor;
+	private final long rowsHint;
+
+	/**
+	 * @param startTime first timestamp , if equal to endTime all the store is read
+	 */
+	public TickStoreStream(File directory, Instrument instrument, String algorithmInfo, long startTime, long endTime)
+			throws IOException {
+		super(directory.getPath(), instrument, algorithmInfo, startTime, endTime);
+		this.reader = new TickStoreReader(directory);
+		long fromTimestamp = startTime == endTime ? Long.MIN_VALUE : startTime;
+		long toTimestamp = startTime == endTime ? Long.MAX_VALUE : endTime;
+		this.cursor = reader.seek(fromTimestamp, toTimestamp);
+		this.rowsHint = reader.count(fromTimestamp, toTimestamp);
+	}
+
+	@Override public long getRowsHint() {
+		return rowsHint;
+	}
+
+	@Override protected CSVable readNext() {
+		if (!cursor.next()) {
+			return null;
+		}
+		return cursor.toRow(instrument, algorithmInfo);
+	}
+
+	@Override protected void closeFile() {
+		reader.close();
+	}
+}
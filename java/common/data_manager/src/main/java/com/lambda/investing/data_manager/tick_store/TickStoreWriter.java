@@ -0,0 +1,201 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import static com.lambda.investing.data_manager.tick_store.TickStore.*;
+
+/***
+ * Appends Depth or Trade records of one instrument to a TickStore , timestamps must not decrease
+ * A new segment of SEGMENT_RECORDS is created when the last one is full
+ */
+public class TickStoreWriter implements Closeable {
+
+	public static int SEGMENT_RECORDS = 1 << 20;
+	public static int INDEX_INTERVAL = 256;
+
+	private final File directory;
+	private final String instrumentPk;
+	private final boolean isDepth;
+	private final int recordLength;
+
+	private int segment;
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int capacity;
+	private int indexInterval;
+	private long recordsOffset;
+	private int records;//of the current segment
+	private long lastTimestamp = Long.MIN_VALUE;
+
+	/**
+	 * Creates the store or continues appending after the last record of an existing one
+	 */
+	public TickStoreWriter(File directory, String instrumentPk, boolean isDepth) throws IOException {
+		this.directory = directory;
+		this.instrumentPk = instrumentPk;
+		this.isDepth = isDepth;
+		this.recordLength = getRecordLength(isDepth);
+		directory.mkdirs();
+
+		List<File> segments = getSegments(directory);
+		if (segments.isEmpty()) {
+			openSegment(0, true);
+		} else {
+			File lastSegment = segments.get(segments.size() - 1);
+			String name = lastSegment.getName();
+			segment = Integer.parseInt(name.replaceAll("\\D", ""));
+			openSegment(segment, false);
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public boolean isDepth() {
+		return isDepth;
+	}
+
+	public synchronized long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	private void openSegment(int segment, boolean create) throws IOException {
+		this.segment = segment;
+		File file = getSegmentFile(directory, segment);
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		channel = randomAccessFile.getChannel();
+		if (create) {
+			capacity = SEGMENT_RECORDS;
+			indexInterval = INDEX_INTERVAL;
+			long size = getRecordsOffset(capacity, indexInterval) + (long) capacity * recordLength;
+			if (size > Integer.MAX_VALUE) {
+				closeSegment();
+				throw new IllegalArgumentException(
+						"tick store segment of " + capacity + " records is too big , reduce SEGMENT_RECORDS");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(BYTE_ORDER);
+			writeHeader(buffer, isDepth, capacity, indexInterval, instrumentPk);
+			records = 0;
+		} else {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			buffer.order(BYTE_ORDER);
+			Header header = readHeader(buffer, file);
+			if (header.isDepth != isDepth || !header.instrumentPk.equals(instrumentPk)) {
+				closeSegment();
+				throw new IOException(
+						directory + " is a tick store of " + header.instrumentPk + " depth=" + header.isDepth);
+			}
+			capacity = header.capacity;
+			indexInterval = header.indexInterval;
+			records = (int) header.records;
+			lastTimestamp = header.lastTimestamp;
+		}
+		recordsOffset = getRecordsOffset(capacity, indexInterval);
+	}
+
+	private void closeSegment() throws IOException {
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+		}
+		if (channel != null) {
+			channel.close();
+			randomAccessFile.close();
+			channel = null;
+		}
+	}
+
+	public synchronized void append(Depth depth) throws IOException {
+		if (!isDepth) {
+			throw new IllegalArgumentException(directory + " is not a depth tick store");
+		}
+		int position = startRecord(depth.getTimestamp());
+		position = putLevels(position, depth.getAsks());
+		position = putLevels(position, depth.getAsksQuantities());
+		position = putLevels(position, depth.getBids());
+		putLevels(position, depth.getBidsQuantities());
+		commitRecord(depth.getTimestamp());
+	}
+
+	public synchronized void append(Trade trade) throws IOException {
+		if (isDepth) {
+			throw new IllegalArgumentException(directory + " is not a trade tick store");
+		}
+		int position = startRecord(trade.getTimestamp());
+		buffer.putDouble(position, toDouble(trade.getPrice()));
+		buffer.putDouble(position + 8, toDouble(trade.getQuantity()));
+		commitRecord(trade.getTimestamp());
+	}
+
+	/**
+	 * @return position of the first value of the record
+	 */
+	private int startRecord(long timestamp) throws IOException {
+		if (buffer == null) {
+			throw new IOException(directory + " tick store is closed");
+		}
+		if (timestamp < lastTimestamp) {
+			throw new IllegalArgumentException(
+					"tick store " + directory + " timestamp " + timestamp + " before last " + lastTimestamp);
+		}
+		if (records == capacity) {
+			closeSegment();
+			openSegment(segment + 1, true);
+		}
+		int position = (int) (recordsOffset + (long) records * recordLength);
+		buffer.putLong(position, timestamp);
+		return position + 8;
+	}
+
+	private void commitRecord(long timestamp) {
+		if (records % indexInterval == 0) {
+			buffer.putLong(HEADER_LENGTH + 8 * (records / indexInterval), timestamp);
+		}
+		if (records == 0) {
+			buffer.putLong(FIRST_TIMESTAMP_POSITION, timestamp);
+		}
+		buffer.putLong(LAST_TIMESTAMP_POSITION, timestamp);
+		records++;
+		buffer.putLong(RECORDS_POSITION, records);
+		lastTimestamp = timestamp;
+	}
+
+	private int putLevels(int position, Double[] levels) {
+		for (int level = 0; level < MAX_LEVELS; level++) {
+			double value = levels == null || level >= levels.length ? Double.NaN : toDouble(levels[level]);
+			buffer.putDouble(position, value);
+			position += 8;
+		}
+		return position;
+	}
+
+	private static double toDouble(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
+	/**
+	 * Flush to disk the records written
+	 */
+	public synchronized void force() {
+		if (buffer != null) {
+			buffer.force();
+		}
+	}
+
+	@Override public synchronized void close() throws IOException {
+		closeSegment();
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.lambda.investing.data_manager.journal;
+
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+
+public class TickJournalTest {
+
+	private static final String INSTRUMENT_PK = "btcusdt_binance";
+	private File basePath;
+
+	public TickJournalTest() throws IOException {
+		basePath = Files.createTempDirectory("tick_journal").toFile();
+		basePath.deleteOnExit();
+	}
+
+	private Depth createDepth(long timestamp, double bid) {
+		Depth depth = new Depth();
+		depth.setInstrument(INSTRUMENT_PK);
+		depth.setTimestamp(timestamp);
+		depth.setLevels(2);
+		depth.setBids(new Double[] { bid, bid - 1 });
+		depth.setAsks(new Double[] { bid + 1, null });
+		depth.setBidsQuantities(new Double[] { 1.0, 2.0 });
+		depth.setAsksQuantities(new Double[] { 3.0, null });
+		return depth;
+	}
+
+	private Trade createTrade(long timestamp, double price) {
+		Trade trade = new Trade();
+		trade.setInstrument(INSTRUMENT_PK);
+		trade.setTimestamp(timestamp);
+		trade.setPrice(price);
+		trade.setQuantity(0.5);
+		return trade;
+	}
+
+	@Test public void testDepthGrowAndResume() throws Exception {
+		int initialRecords = TickJournal.INITIAL_RECORDS;
+		TickJournal.INITIAL_RECORDS = 4;
+		File file = new File(basePath, "depth" + TickJournal.EXTENSION);
+		try {
+			try (TickJournal journal = new TickJournal(file, INSTRUMENT_PK, true)) {
+				for (int index = 0; index < 10; index++) {
+					//same timestamp is not lost
+					Assert.assertEquals(index, journal.append(createDepth(1000 + index / 2, 10 + index)));
+				}
+			}
+			try (TickJournal journal = new TickJournal(file, INSTRUMENT_PK, true)) {
+				Assert.assertEquals(10, journal.getRecords());
+				Assert.assertEquals(10, journal.append(createDepth(2000, 30)));
+			}
+		} finally {
+			TickJournal.INITIAL_RECORDS = initialRecords;
+		}
+
+		List<CSVable> depths = TickJournal.read(file);
+		Assert.assertEquals(11, depths.size());
+		Depth depth = (Depth) depths.get(3);
+		Assert.assertEquals(INSTRUMENT_PK, depth.getInstrument());
+		Assert.assertEquals(1001, depth.getTimestamp());
+		Assert.assertEquals(13.0, depth.getBestBid(), 0.0);
+		Assert.assertEquals(14.0, depth.getBestAsk(), 0.0);
+		Assert.assertEquals(2.0, depth.getBidsQuantities()[1], 0.0);
+		Assert.assertTrue(Double.isNaN(depth.getAsks()[1]));
+		Assert.assertTrue(Double.isNaN(depth.getBids()[4]));
+		Assert.assertEquals(2000, ((Depth) depths.get(10)).getTimestamp());
+		file.delete();
+	}
+
+	@Test public void testTradeSequenceGap() throws Exception {
+		File file = new File(basePath, "trade" + TickJournal.EXTENSION);
+		try (TickJournal journal = new TickJournal(file, INSTRUMENT_PK, false)) {
+			journal.append(createTrade(1000, 10.5));
+			journal.append(createTrade(1000, 11.5));
+			journal.append(createTrade(1001, 12.5));
+		}
+		List<CSVable> trades = TickJournal.read(file);
+		Assert.assertEquals(3, trades.size());
+		Assert.assertEquals(11.5, ((Trade) trades.get(1)).getPrice(), 0.0);
+		Assert.assertEquals(0.5, ((Trade) trades.get(2)).getQuantity(), 0.0);
+
+		//corrupt sequence of second record
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			randomAccessFile.seek(128 + 32);
+			randomAccessFile.writeLong(7);
+		}
+		try {
+			TickJournal.read(file);
+			Assert.fail("sequence gap not detected");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().contains("sequence gap"));
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.lambda.investing.data_manager.parquet;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.DepthParquet;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.market_data.TradeParquet;
+import org.junit.Assert;
+import org.junit.Test;
+import tech.tablesaw.api.Row;
+import tech.tablesaw.api.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.lambda.investing.data_manager.csv.CSVUtils.TIMESTAMP_COL;
+
+public class ParquetColumnsTest {
+
+	private Instrument instrument;
+	private File basePath;
+	private ParquetDataManager parquetDataManager = new ParquetDataManager();
+
+	public ParquetColumnsTest() throws IOException {
+		instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		basePath = Files.createTempDirectory("parquet_columns").toFile();
+		basePath.deleteOnExit();
+	}
+
+	private Depth createDepth(long timestamp, double bid) {
+		Depth depth = new Depth();
+		depth.setInstrument(instrument.getPrimaryKey());
+		depth.setTimestamp(timestamp);
+		depth.setLevels(5);
+		depth.setBids(new Double[] { bid, bid - 1, null, null, null });
+		depth.setAsks(new Double[] { bid + 1, bid + 2, null, null, null });
+		depth.setBidsQuantities(new Double[] { 1.0, 2.0, null, null, null });
+		depth.setAsksQuantities(new Double[] { 3.0, 4.0, null, null, null });
+		return depth;
+	}
+
+	private Trade createTrade(long timestamp, double price) {
+		Trade trade = new Trade();
+		trade.setInstrument(instrument.getPrimaryKey());
+		trade.setTimestamp(timestamp);
+		trade.setPrice(price);
+		trade.setQuantity(0.5);
+		return trade;
+	}
+
+	private String saveDepth() {
+		List<Depth> depths = new ArrayList<>();
+		depths.add(createDepth(1000, 10));
+		depths.add(createDepth(3000, 13));
+		depths.add(createDepth(2000, 12));//disorder
+		String filepath = new File(basePath, "type=depth/instrument=btcusdt_binance/date=20200819/depth.parquet")
+				.getAbsolutePath();
+		Assert.assertTrue(parquetDataManager.saveData(depths, Depth.class, filepath));
+		return filepath;
+	}
+
+	private String saveTrade() {
+		List<Trade> trades = new ArrayList<>();
+		trades.add(createTrade(1000, 10.5));
+		trades.add(createTrade(2000, 11.5));
+		String filepath = new File(basePath, "type=trade/instrument=btcusdt_binance/date=20200819/trade.parquet")
+				.getAbsolutePath();
+		Assert.assertTrue(parquetDataManager.saveData(trades, Trade.class, filepath));
+		return filepath;
+	}
+
+	private void assertDepthColumns(ParquetColumns columns) {
+		Assert.assertTrue(columns.isDepth());
+		Assert.assertEquals(3, columns.getRows());
+		Assert.assertEquals(1000, columns.getTimestamp(0));
+		Assert.assertEquals(2000, columns.getTimestamp(1));
+		Assert.assertEquals(3000, columns.getTimestamp(2));
+		Assert.assertArrayEquals(new double[] { 10, 12, 13 }, columns.getColumn("bid0"), 0.0);
+		Assert.assertArrayEquals(new double[] { 12, 14, 15 }, columns.getColumn("ask1"), 0.0);
+		Assert.assertTrue(Double.isNaN(columns.getColumn("bid_quantity2")[0]));
+	}
+
+	@Test public void testReadDepth() throws Exception {
+		String filepath = saveDepth();
+		assertDepthColumns(parquetDataManager.getColumns(filepath, DepthParquet.class));
+
+		Depth depth = (Depth) parquetDataManager.getColumns(filepath, DepthParquet.class)
+				.getRow(1, instrument, "test");
+		Assert.assertEquals(2000, depth.getTimestamp());
+		Assert.assertEquals(12.0, depth.getBestBid(), 0.0);
+		Assert.assertEquals(13.0, depth.getBestAsk(), 0.0);
+		Assert.assertEquals(4.0, depth.getAsksQuantities()[1], 0.0);
+		Assert.assertTrue(Double.isNaN(depth.getBids()[4]));
+		Assert.assertEquals("test", depth.getBidsAlgorithmInfo()[0]);
+	}
+
+	@Test public void testCache() throws Exception {
+		String depthFile = saveDepth();
+		String tradeFile = saveTrade();
+		File cachePath = new File(basePath, "cache");
+		ParquetDataManager cacheDataManager = new ParquetDataManager();
+		cacheDataManager.setCacheBasePath(cachePath.getAbsolutePath());
+
+		cacheDataManager.getColumns(depthFile, DepthParquet.class);
+		cacheDataManager.getColumns(tradeFile, TradeParquet.class);
+		File[] cacheFiles = cachePath.listFiles();
+		Assert.assertEquals(2, cacheFiles.length);
+		for (File cacheFile : cacheFiles) {
+			Assert.assertTrue(cacheFile.getName().endsWith(ParquetColumns.CACHE_EXTENSION));
+			cacheFile.deleteOnExit();
+		}
+
+		//second time from cache
+		new File(depthFile).delete();
+		assertDepthColumns(cacheDataManager.getColumns(depthFile, DepthParquet.class));
+		ParquetColumns trades = cacheDataManager.getColumns(tradeFile, TradeParquet.class);
+		Assert.assertFalse(trades.isDepth());
+		Assert.assertArrayEquals(new double[] { 10.5, 11.5 }, trades.getColumn("price"), 0.0);
+	}
+
+	@Test public void testTableAndStream() throws Exception {
+		String filepath = saveTrade();
+		Table table = parquetDataManager.getData(filepath, TradeParquet.class);
+		Assert.assertEquals(2, table.rowCount());
+		Row row = new Row(table, 1);
+		Assert.assertEquals(2000, row.getLong(TIMESTAMP_COL));
+		Assert.assertEquals(11.5, row.getDouble("price"), 0.0);
+
+		List<Double> prices = new ArrayList<>();
+		try (ParquetFileStream stream = new ParquetFileStream(filepath, TradeParquet.class, instrument, "test", 0,
+				0)) {
+			Assert.assertEquals(2, stream.getRowsHint());
+			while (stream.hasNext()) {
+				CSVable next = stream.next();
+				prices.add(((Trade) next).getPrice());
+			}
+		}
+		Assert.assertEquals(2, prices.size());
+		Assert.assertEquals(10.5, prices.get(0), 0.0);
+	}
+
+	@Test public void testTableTimestampInSeconds() throws Exception {
+		List<Trade> trades = new ArrayList<>();
+		trades.add(createTrade(1597795200L, 10.5));
+		trades.add(createTrade(1597795201L, 11.5));
+		String filepath = new File(basePath,
+				"type=trade/instrument=btcusdt_binance/date=20200819/trade_seconds.parquet").getAbsolutePath();
+		Assert.assertTrue(parquetDataManager.saveData(trades, Trade.class, filepath));
+
+		Table table = parquetDataManager.getData(filepath, TradeParquet.class);
+		Assert.assertEquals(1597795200000L, new Row(table, 0).getLong(TIMESTAMP_COL));
+		Assert.assertEquals(1597795201000L, new Row(table, 1).getLong(TIMESTAMP_COL));
+		Trade trade = (Trade) parquetDataManager.getColumns(filepath, TradeParquet.class).getRow(1, instrument, "test");
+		Assert.assertEquals(1597795201000L, trade.getTimestamp().longValue());
+	}
+
+	@Test public void testColumnsStream() throws Exception {
+		ParquetColumns columns = parquetDataManager.getColumns(saveDepth(), DepthParquet.class);
+		//same columns shared by two streams
+		try (ParquetColumnsStream all = new ParquetColumnsStream("all", columns, instrument, "test", 0, 0);
+				ParquetColumnsStream fromSecond = new ParquetColumnsStream("fromSecond", columns, instrument, "test",
+						2000, 3000)) {
+			Assert.assertEquals(3, all.getRowsHint());
+			Assert.assertEquals(2, fromSecond.getRowsHint());
+			Assert.assertEquals(2000, fromSecond.peekTimestamp());
+			Assert.assertEquals(1000, all.peekTimestamp());
+			Assert.assertEquals(12.0, ((Depth) fromSecond.next()).getBestBid(), 0.0);
+			Assert.assertEquals(13.0, ((Depth) fromSecond.next()).getBestBid(), 0.0);
+			Assert.assertFalse(fromSecond.hasNext());
+			int rows = 0;
+			while (all.hasNext()) {
+				all.next();
+				rows++;
+			}
+			Assert.assertEquals(3, rows);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.lambda.investing.data_manager.stream;
+
+import com.lambda.investing.data_manager.csv.CSVFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MergedMarketDataStreamTest {
+
+	private Instrument instrument;
+
+	public MergedMarketDataStreamTest() {
+		instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+	}
+
+	private String createFile(String header, String... lines) throws IOException {
+		File file = File.createTempFile("merged_stream", ".csv");
+		file.deleteOnExit();
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write(header);
+			for (String line : lines) {
+				writer.write(System.lineSeparator());
+				writer.write(line);
+			}
+		}
+		return file.getAbsolutePath();
+	}
+
+	private String depthLine(long timestamp, double bid) {
+		return String.format("2020-08-19 00:00:00.000,%d,%s,,,,,1.0,,,,,%s,,,,,2.0,,,,", timestamp, bid + 1, bid);
+	}
+
+	private MergedMarketDataStream createStream(long startTime, long endTime) throws IOException {
+		String depthFile = createFile(Depth.headerCSV().toString(), depthLine(1000, 10), depthLine(2000, 11),
+				depthLine(1500, 12),//disorder inside the window
+				depthLine(3000, 13));
+		String tradeFile = createFile(",timestamp,price,quantity", "2020-08-19 00:00:00.000,1000,10.5,1.0",
+				"2020-08-19 00:00:00.000,3000,11.5,2.0", "2020-08-19 00:00:00.000,3000,11.6,3.0");
+
+		List<MarketDataFileStream> streams = new ArrayList<>();
+		streams.add(new CSVFileStream(depthFile, Depth.class, instrument, "test", startTime, endTime));
+		streams.add(new CSVFileStream(tradeFile, Trade.class, instrument, "test", startTime, endTime));
+		return new MergedMarketDataStream(streams);
+	}
+
+	@Test public void testMergeWithSameTimestamps() throws IOException {
+		List<String> output = new ArrayList<>();
+		List<Long> timestamps = new ArrayList<>();
+		try (MergedMarketDataStream stream = createStream(0, 0)) {
+			while (stream.hasNext()) {
+				long nextTimestamp = stream.peekTimestamp();
+				CSVable row = stream.next();
+				Assert.assertEquals(nextTimestamp, MarketDataFileStream.getTimestamp(row));
+				timestamps.add(nextTimestamp);
+				if (row instanceof Depth) {
+					output.add("depth_" + ((Depth) row).getBestBid());
+				} else {
+					output.add("trade_" + ((Trade) row).getPrice());
+				}
+			}
+		}
+		//nothing lost , depth before trade on the same timestamp and trades in file order
+		Assert.assertEquals(
+				Arrays.asList("depth_10.0", "trade_10.5", "depth_12.0", "depth_11.0", "depth_13.0", "trade_11.5",
+						"trade_11.6"), output);
+		Assert.assertEquals(Arrays.asList(1000L, 1000L, 1500L, 2000L, 3000L, 3000L, 3000L), timestamps);
+	}
+
+	@Test public void testTimeFilter() throws IOException {
+		int rows = 0;
+		try (MergedMarketDataStream stream = createStream(1500, 2000)) {
+			while (stream.hasNext()) {
+				long timestamp = MarketDataFileStream.getTimestamp(stream.next());
+				Assert.assertTrue(timestamp >= 1500 && timestamp <= 2000);
+				rows++;
+			}
+		}
+		Assert.assertEquals(2, rows);
+	}
+
+	@Test public void testDepthLevels() throws IOException {
+		try (MergedMarketDataStream stream = createStream(0, 0)) {
+			Depth depth = (Depth) stream.next();
+			Assert.assertEquals(5, depth.getLevels());
+			Assert.assertEquals(11.0, depth.getBestAsk(), 0.0);
+			Assert.assertEquals(2.0, depth.getBestBidQty(), 0.0);
+			Assert.assertTrue(Double.isNaN(depth.getBids()[1]));
+			Assert.assertEquals("test", depth.getBidsAlgorithmInfo()[0]);
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.lambda.investing.data_manager.tick_store;
+
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.model.market_data.Trade;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TickStoreTest {
+
+	private static final String INSTRUMENT_PK = "btcusdt_binance";
+	private static final int RECORDS = 1000;
+
+	private File basePath;
+	private Instrument instrument;
+	private int segmentRecords;
+	private int indexInterval;
+
+	@Before public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("tick_store").toFile();
+		instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		segmentRecords = TickStoreWriter.SEGMENT_RECORDS;
+		indexInterval = TickStoreWriter.INDEX_INTERVAL;
+		//several segments and index entries
+		TickStoreWriter.SEGMENT_RECORDS = 300;
+		TickStoreWriter.INDEX_INTERVAL = 16;
+	}
+
+	@After public void tearDown() {
+		TickStoreWriter.SEGMENT_RECORDS = segmentRecords;
+		TickStoreWriter.INDEX_INTERVAL = indexInterval;
+		delete(basePath);
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	//repeated timestamps every 2 records
+	private static long getTimestamp(int index) {
+		return 1000 + (index / 2) * 10;
+	}
+
+	private Depth createDepth(int index) {
+		Depth depth = new Depth();
+		depth.setInstrument(INSTRUMENT_PK);
+		depth.setTimestamp(getTimestamp(index));
+		depth.setLevels(2);
+		depth.setBids(new Double[] { 100.0 + index, 99.0 + index });
+		depth.setAsks(new Double[] { 101.0 + index, null });
+		depth.setBidsQuantities(new Double[] { 1.0, 2.0 });
+		depth.setAsksQuantities(new Double[] { 3.0, null });
+		return depth;
+	}
+
+	private Trade createTrade(int index) {
+		Trade trade = new Trade();
+		trade.setInstrument(INSTRUMENT_PK);
+		trade.setTimestamp(getTimestamp(index));
+		trade.setPrice(100.0 + index);
+		trade.setQuantity(0.5);
+		return trade;
+	}
+
+	private File writeDepths(int records) throws IOException {
+		File directory = new File(basePath, "depth");
+		try (TickStoreWriter writer = new TickStoreWriter(directory, INSTRUMENT_PK, true)) {
+			for (int index = 0; index < records; index++) {
+				writer.append(createDepth(index));
+			}
+		}
+		return directory;
+	}
+
+	@Test public void testSeekAndIterate() throws Exception {
+		File directory = writeDepths(RECORDS);
+		try (TickStoreReader reader = new TickStoreReader(directory)) {
+			Assert.assertTrue(reader.isDepth());
+			Assert.assertEquals(INSTRUMENT_PK, reader.getInstrumentPk());
+			Assert.assertEquals(RECORDS, reader.getRecords());
+			Assert.assertEquals(getTimestamp(0), reader.getFirstTimestamp());
+			Assert.assertEquals(getTimestamp(RECORDS - 1), reader.getLastTimestamp());
+
+			//every timestamp , between timestamps and out of the store
+			for (long timestamp = getTimestamp(0) - 15; timestamp <= getTimestamp(RECORDS - 1) + 15; timestamp += 5) {
+				long expected = 0;
+				while (expected < RECORDS && getTimestamp((int) expected) < timestamp) {
+					expected++;
+				}
+				Assert.assertEquals("seek " + timestamp, expected, reader.getRecordNumber(timestamp));
+			}
+
+			//from the middle of a segment to the next ones
+			int firstIndex = 290;
+			TickCursor cursor = reader.seek(getTimestamp(firstIndex), getTimestamp(700));
+			Assert.assertEquals(getTimestamp(firstIndex), cursor.peekTimestamp());
+			int index = firstIndex;
+			while (cursor.next()) {
+				Assert.assertEquals(getTimestamp(index), cursor.getTimestamp());
+				Assert.assertEquals(100.0 + index, cursor.getBidPrice(0), 0.0);
+				Assert.assertEquals(101.0 + index, cursor.getAskPrice(0), 0.0);
+				Assert.assertTrue(Double.isNaN(cursor.getAskPrice(1)));
+				index++;
+			}
+			Assert.assertEquals(702, index);
+			Assert.assertEquals(index - firstIndex, reader.count(getTimestamp(firstIndex), getTimestamp(700)));
+			Assert.assertEquals(Long.MAX_VALUE, cursor.peekTimestamp());
+		}
+	}
+
+	@Test public void testResumeAndConcurrentReaders() throws Exception {
+		File directory = writeDepths(RECORDS / 2);
+		try (TickStoreWriter writer = new TickStoreWriter(directory, INSTRUMENT_PK, true)) {
+			try {
+				writer.append(createDepth(0));
+				Assert.fail("timestamp before the last one must be rejected");
+			} catch (IllegalArgumentException e) {
+				//expected
+			}
+			for (int index = RECORDS / 2; index < RECORDS; index++) {
+				writer.append(createDepth(index));
+			}
+		}
+
+		try (TickStoreReader reader = new TickStoreReader(directory)) {
+			Assert.assertEquals(RECORDS, reader.getRecords());
+			ExecutorService executorService = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<Double>> futures = new ArrayList<>();
+				for (int thread = 0; thread < 4; thread++) {
+					futures.add(executorService.submit(() -> {
+						double sum = 0;
+						TickCursor cursor = reader.seek(Long.MIN_VALUE, Long.MAX_VALUE);
+						while (cursor.next()) {
+							sum += cursor.getBidPrice(0);
+						}
+						return sum;
+					}));
+				}
+				double expected = 0;
+				for (int index = 0; index < RECORDS; index++) {
+					expected += 100.0 + index;
+				}
+				for (Future<Double> future : futures) {
+					Assert.assertEquals(expected, future.get(), 0.0);
+				}
+			} finally {
+				executorService.shutdownNow();
+			}
+		}
+	}
+
+	private static class ListStream extends MarketDataFileStream {
+
+		private final Iterator<CSVable> iterator;
+
+		ListStream(List<CSVable> rows, Instrument instrument) {
+			super("list", instrument, "test", 0, 0);
+			this.iterator = rows.iterator();
+		}
+
+		@Override protected CSVable readNext() {
+			return iterator.hasNext() ? iterator.next() : null;
+		}
+
+		@Override protected void closeFile() {
+		}
+	}
+
+	@Test public void testConvertAndStream() throws Exception {
+		List<CSVable> trades = new ArrayList<>();
+		for (int index = 0; index < RECORDS; index++) {
+			trades.add(createTrade(index));
+		}
+		File directory = new File(basePath, TickStore.DIRECTORY_NAME);
+		Assert.assertEquals(RECORDS,
+				TickStoreConverter.convert(new ListStream(trades, instrument), directory, INSTRUMENT_PK, false));
+		//already converted
+		Assert.assertEquals(0,
+				TickStoreConverter.convert(new ListStream(trades, instrument), directory, INSTRUMENT_PK, false));
+
+		long startTime = getTimestamp(500);
+		long endTime = getTimestamp(599);
+		TickStoreStream stream = new TickStoreStream(directory, instrument, "test", startTime, endTime);
+		Assert.assertEquals(100, stream.getRowsHint());
+		int index = 500;
+		while (stream.hasNext()) {
+			Trade trade = (Trade) stream.next();
+			Assert.assertEquals(getTimestamp(index), (long) trade.getTimestamp());
+			Assert.assertEquals(100.0 + index, trade.getPrice(), 0.0);
+			Assert.assertEquals(INSTRUMENT_PK, trade.getInstrument());
+			index++;
+		}
+		stream.close();
+		Assert.assertEquals(600, index);
+	}
+
+}
@@ -3,6 +3,8 @@ package com.lambda.investing.market_data_connector;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorPublisher;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.connector.zero_mq.ZeroMqPublisher;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
@@ -14,10 +16,12 @@ import org.apache.logging.log4j.Logger;
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.lambda.investing.market_data_connector.AbstractMarketDataProvider.GSON;
-
 public  abstract class AbstractMarketDataConnectorPublisher implements MarketDataConnectorPublisher {
 
+	//reader decode of a row into Depth/Trade and publish to the connector (includes synchronous listeners)
+	protected static final LatencyRecorder DECODE_LATENCY = Metrics.getLatencyRecorder(Metrics.READER_DECODE);
+	private static final LatencyRecorder PUBLISH_LATENCY = Metrics.getLatencyRecorder(Metrics.CONNECTOR_PUBLISH);
+
 	protected boolean enable=true;
 	protected ConnectorConfiguration connectorConfiguration;
 	protected ConnectorPublisher connectorPublisher;
@@ -83,31 +87,31 @@ public  abstract class AbstractMarketDataConnectorPublisher implements MarketDat
 
 
 	@Override public void notifyDepth(String topic,Depth depth) {
-		String depthJson =GSON.toJson(depth);
 		topic=topic+"."+TypeMessage.depth.name();
 		//		logger.debug("notify DEPTH {}",depth.toString());
-		connectorPublisher.publish(connectorConfiguration, TypeMessage.depth, topic, depthJson);
+		long startNanos = Metrics.nanoTime();
+		connectorPublisher.publishMessage(connectorConfiguration, TypeMessage.depth, topic, depth);
+		PUBLISH_LATENCY.recordSince(startNanos);
 		if (statistics != null)
 			statistics.addStatistics(topic);
 	}
 
 	@Override public void notifyTrade(String topic,Trade trade) {
-		String tradeJson =GSON.toJson(trade);
 		topic=topic+"."+TypeMessage.trade.name();
 		//		logger.debug("notify TRADE {}",trade.toString());
-		connectorPublisher.publish(connectorConfiguration, TypeMessage.trade, topic, tradeJson);
+		long startNanos = Metrics.nanoTime();
+		connectorPublisher.publishMessage(connectorConfiguration, TypeMessage.trade, topic, trade);
+		PUBLISH_LATENCY.recordSince(startNanos);
 		if (statistics != null)
 			statistics.addStatistics(topic);
 	}
 
 	public synchronized void notifyCommand(String topic, Command command) {
-		String commandJson = GSON.toJson(command);
-
 		if (isZeroMq) {
 			ZeroMqPublisher zeroMqPublisher = (ZeroMqPublisher) connectorPublisher;
 			int beforeCounter = zeroMqPublisher.getOKReceived();
 			while (zeroMqPublisher.getOKReceived() == beforeCounter) {
-				connectorPublisher.publish(connectorConfiguration, TypeMessage.command, topic, commandJson);
+				connectorPublisher.publishMessage(connectorConfiguration, TypeMessage.command, topic, command);
 				if (statistics != null)
 					statistics.addStatistics(topic);
 				try {
@@ -119,7 +123,7 @@ public  abstract class AbstractMarketDataConnectorPublisher implements MarketDat
 			}
 
 		} else {
-			connectorPublisher.publish(connectorConfiguration, TypeMessage.command, topic, commandJson);
+			connectorPublisher.publishMessage(connectorConfiguration, TypeMessage.command, topic, command);
 			if (statistics != null)
 				statistics.addStatistics(topic);
 		}
@@ -1,7 +1,9 @@
 package com.lambda.investing.market_data_connector;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.lambda.investing.connector.codec.JsonMessageCodec;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.connector.zero_mq.ZeroMqPublisher;
 import com.lambda.investing.model.asset.Instrument;
 import com.lambda.investing.model.market_data.Depth;
@@ -11,7 +13,6 @@ import com.lambda.investing.model.trading.ExecutionReport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.lang.reflect.Modifier;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,17 +27,20 @@ public abstract class AbstractMarketDataProvider implements MarketDataProvider {
 
 	protected Statistics statisticsReceived;//= new Statistics("Data received", 15 * 1000);
 
-	public static Gson GSON = new GsonBuilder()
-			.excludeFieldsWithModifiers(Modifier.STATIC, Modifier.TRANSIENT, Modifier.VOLATILE, Modifier.FINAL)
-			.serializeSpecialFloatingPointValues().disableHtmlEscaping().create();
+	public static Gson GSON = JsonMessageCodec.GSON;
 
 	protected Logger logger = LogManager.getLogger(AbstractMarketDataProvider.class);
 	protected Map<MarketDataListener, String> listenersManager;
+	//reaction time of every listener , onDepthUpdate.ListenerClass
+	private Map<MarketDataListener, LatencyRecorder> depthLatencies;
+	private Map<MarketDataListener, LatencyRecorder> tradeLatencies;
 
 	public AbstractMarketDataProvider() {
 		listenersManager = new ConcurrentHashMap<>();
 		lastDepthReceived = new ConcurrentHashMap<>();
 		lastTradeSentReceived = new ConcurrentHashMap<>();
+		depthLatencies = new ConcurrentHashMap<>();
+		tradeLatencies = new ConcurrentHashMap<>();
 	}
 
 	public void setStatisticsReceived(Statistics statisticsReceived) {
@@ -49,6 +53,18 @@ public abstract class AbstractMarketDataProvider implements MarketDataProvider {
 
 	@Override public void deregister(MarketDataListener listener) {
 		listenersManager.remove(listener);
+		depthLatencies.remove(listener);
+		tradeLatencies.remove(listener);
+	}
+
+	private LatencyRecorder getLatencyRecorder(Map<MarketDataListener, LatencyRecorder> latencies, String stage,
+			MarketDataListener listener) {
+		LatencyRecorder latencyRecorder = latencies.get(listener);//get first , computeIfAbsent locks in java 8
+		if (latencyRecorder == null) {
+			latencyRecorder = latencies.computeIfAbsent(listener,
+					key -> Metrics.getLatencyRecorder(stage + "." + key.getClass().getSimpleName()));
+		}
+		return latencyRecorder;
 	}
 
 	public void notifyDepth(Depth depth) {
@@ -60,7 +76,9 @@ public abstract class AbstractMarketDataProvider implements MarketDataProvider {
 
 		Set<MarketDataListener> listeners = listenersManager.keySet();
 		for (MarketDataListener marketDataListener : listeners) {
+			long startNanos = Metrics.nanoTime();
 			marketDataListener.onDepthUpdate(depth);
+			getLatencyRecorder(depthLatencies, Metrics.ON_DEPTH_UPDATE, marketDataListener).recordSince(startNanos);
 		}
 
 		lastDepthReceived.put(depth.getInstrument(), depth.getTimestamp());
@@ -75,7 +93,9 @@ public abstract class AbstractMarketDataProvider implements MarketDataProvider {
 		}
 		Set<MarketDataListener> listeners = listenersManager.keySet();
 		for (MarketDataListener marketDataListener : listeners) {
+			long startNanos = Metrics.nanoTime();
 			marketDataListener.onTradeUpdate(trade);
+			getLatencyRecorder(tradeLatencies, Metrics.ON_TRADE_UPDATE, marketDataListener).recordSince(startNanos);
 		}
 
 		lastTradeSentReceived.put(trade.getInstrument(), trade.getTimestamp());
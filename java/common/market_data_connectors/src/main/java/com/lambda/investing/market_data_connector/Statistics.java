@@ -1,16 +1,21 @@
 package com.lambda.investing.market_data_connector;
 
+import com.lambda.investing.connector.metrics.Counter;
+import com.lambda.investing.connector.metrics.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/***
+ * Counters by topic printed every sleepMs , counters are lock free and registered in Metrics as header.topic
+ */
 public class Statistics implements Runnable{
 
 	private long sleepMs;
 	private boolean enable;
-	private Map<String,Long> topicToCounter;
+	private Map<String, Counter> topicToCounter;
 	private String header;
 	protected Logger logger = LogManager.getLogger(Statistics.class);
 	public Statistics(String header,long sleepMs) {
@@ -21,25 +26,37 @@ public class Statistics implements Runnable{
 		if (sleepMs > 0) {
 			Thread thread = new Thread(this, "Statistics");
 			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.setDaemon(true);
 			thread.start();
 		}
 	}
 
+	private Counter getCounter(String topic) {
+		Counter counter = topicToCounter.get(topic);
+		if (counter == null) {
+			counter = topicToCounter.computeIfAbsent(topic, key -> Metrics.getCounter(header + "." + key));
+		}
+		return counter;
+	}
+
 	public void addStatistics(String topic){
-		long counter = topicToCounter.getOrDefault(topic,0L);
-		long newCounter=counter+1;
-		topicToCounter.put(topic,newCounter);
+		getCounter(topic).increment();
 	}
 
 	public void setStatistics(String topic, long counter) {
-		topicToCounter.put(topic, counter);
+		getCounter(topic).set(counter);
+	}
+
+	public long getStatistics(String topic) {
+		Counter counter = topicToCounter.get(topic);
+		return counter != null ? counter.get() : 0L;
 	}
 
 	private void printCurrentStatistics() {
 		if (topicToCounter.size()>0) {
 			logger.info("******** {} ********", header);
-			for (Map.Entry<String, Long> entry : topicToCounter.entrySet()) {
-				logger.info("\t{}:\t{}", entry.getKey(), entry.getValue());
+			for (Map.Entry<String, Counter> entry : topicToCounter.entrySet()) {
+				logger.info("\t{}:\t{}", entry.getKey(), entry.getValue().get());
 			}
 			logger.info("****************");
 		}
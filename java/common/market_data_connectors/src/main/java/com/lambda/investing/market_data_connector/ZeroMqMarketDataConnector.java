@@ -2,6 +2,7 @@ package com.lambda.investing.market_data_connector;
 
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.connector.zero_mq.ZeroMqConfiguration;
 import com.lambda.investing.connector.zero_mq.ZeroMqProvider;
 import com.lambda.investing.market_data_connector.mock.MockMarketDataConfiguration;
@@ -88,6 +89,11 @@ public class ZeroMqMarketDataConnector extends AbstractMarketDataProvider implem
 
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
 		//
 		ZeroMqConfiguration zeroMqConfigurationReceived = (ZeroMqConfiguration) configuration;
 		String topicReceived = zeroMqConfigurationReceived.getTopic();
@@ -96,20 +102,20 @@ public class ZeroMqMarketDataConnector extends AbstractMarketDataProvider implem
 
 		if (typeMessage == TypeMessage.depth) {
 			//DEPTH received
-			Depth depth = GSON.fromJson(content, Depth.class);
+			Depth depth = (Depth) MessageCodecs.decode(typeMessage, content);
 			notifyDepth(depth);
 
 		}
 
 		if (typeMessage == TypeMessage.trade) {
 			//TRADE received
-			Trade trade = GSON.fromJson(content, Trade.class);
+			Trade trade = (Trade) MessageCodecs.decode(typeMessage, content);
 			notifyTrade(trade);
 		}
 
 		if (typeMessage == TypeMessage.command) {
 			//Command received
-			Command command = GSON.fromJson(content, Command.class);
+			Command command = (Command) MessageCodecs.decode(typeMessage, content);
 			notifyCommand(command);
 		}
 
@@ -0,0 +1,97 @@
+package com.lambda.investing.market_data_connector.binance;
+
+import com.binance.api.client.domain.event.DepthEvent;
+import com.binance.api.client.domain.market.OrderBook;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/***
+ * Json lines file with the depth events and snapshots of a BinanceMarketDataPublisher to replay them offline
+ * Snapshot lines are the rest OrderBook with the symbol in "s" , event lines are the DepthEvent of the websocket
+ */
+public class BinanceDepthEventsFile implements Closeable {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final String SYMBOL_FIELD = "s";
+	private static final String SNAPSHOT_FIELD = "lastUpdateId";
+
+	private final BufferedWriter writer;
+
+	/**
+	 * Opens the file to record , appending if exists
+	 */
+	public BinanceDepthEventsFile(File file) throws IOException {
+		this.writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+	}
+
+	private void writeLine(String line) throws IOException {
+		synchronized (writer) {
+			writer.write(line);
+			writer.newLine();
+		}
+	}
+
+	public void write(DepthEvent depthEvent) throws IOException {
+		writeLine(OBJECT_MAPPER.writeValueAsString(depthEvent));
+	}
+
+	public void write(String symbol, OrderBook orderBook) throws IOException {
+		ObjectNode node = OBJECT_MAPPER.valueToTree(orderBook);
+		node.put(SYMBOL_FIELD, symbol);
+		writeLine(OBJECT_MAPPER.writeValueAsString(node));
+	}
+
+	public void flush() throws IOException {
+		synchronized (writer) {
+			writer.flush();
+		}
+	}
+
+	@Override public void close() throws IOException {
+		synchronized (writer) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Replays a recorded file in the books , lines of other symbols are skipped
+	 *
+	 * @param symbolToOrderBook books by symbol in lower case , created without SnapshotRequester
+	 * @return lines replayed
+	 */
+	public static long replay(File file, Map<String, BinanceOrderBook> symbolToOrderBook) throws IOException {
+		long output = 0;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				JsonNode node = OBJECT_MAPPER.readTree(line);
+				JsonNode symbolNode = node.get(SYMBOL_FIELD);
+				if (symbolNode == null) {
+					continue;
+				}
+				BinanceOrderBook orderBook = symbolToOrderBook.get(symbolNode.asText().toLowerCase());
+				if (orderBook == null) {
+					continue;
+				}
+				if (node.has(SNAPSHOT_FIELD)) {
+					orderBook.onSnapshot(OBJECT_MAPPER.treeToValue(node, OrderBook.class));
+				} else {
+					orderBook.onDepthEvent(OBJECT_MAPPER.treeToValue(node, DepthEvent.class));
+				}
+				output++;
+			}
+		}
+		return output;
+	}
+
+}
@@ -4,7 +4,7 @@ import com.binance.api.client.BinanceApiCallback;
 import com.binance.api.client.BinanceApiWebSocketClient;
 import com.binance.api.client.domain.event.AggTradeEvent;
 import com.binance.api.client.domain.event.DepthEvent;
-import com.binance.api.client.domain.market.OrderBookEntry;
+import com.binance.api.client.domain.market.OrderBook;
 import com.lambda.investing.binance.BinanceBrokerConnector;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorPublisher;
@@ -16,8 +16,8 @@ import com.lambda.investing.model.market_data.Trade;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.text.NumberFormat;
-import java.text.ParseException;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -27,17 +27,21 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * https://github.com/binance-exchange/binance-java-api
  */
-public class BinanceMarketDataPublisher extends AbstractMarketDataConnectorPublisher implements Runnable {
+public class BinanceMarketDataPublisher extends AbstractMarketDataConnectorPublisher
+		implements Runnable, BinanceOrderBook.SnapshotRequester, BinanceOrderBook.BinanceOrderBookListener {
 
 	private static boolean CHECK_SEND_TIMESTAMP = false;//send all to persist it!
 	private static int MIN_VALID_DEPTH = 2;
 	private static int MAX_DEPTH = 10;
+	public static int SNAPSHOT_LEVELS = 1000;
 	protected Logger logger = LogManager.getLogger(BinanceMarketDataPublisher.class);
 	private BinanceBrokerConnector binanceConnector;
 	private List<Instrument> instrumentList;
 	private MarketDataConfiguration marketDataConfiguration;
 	private Map<String, Instrument> symbolToInstrument;
-	private Map<Instrument, Long> lastDepthSent;
+	private Map<String, Long> lastDepthSent;
+	private Map<Instrument, BinanceOrderBook> instrumentToOrderBook = new ConcurrentHashMap<>();
+	private BinanceDepthEventsFile depthEventsFile;
 	private Map<Instrument, Long> lastTradeSent;
 
 	private AtomicLong counterReceives = new AtomicLong();
@@ -90,6 +94,9 @@ public class BinanceMarketDataPublisher extends AbstractMarketDataConnectorPubli
 		for (Instrument instrument : instrumentList) {
 			symbolsList.append(instrument.getSymbol().toLowerCase());
 			symbolToInstrument.put(instrument.getSymbol().toLowerCase(), instrument);
+			//kept on reconnection , a gap in the update ids resyncs it
+			instrumentToOrderBook.computeIfAbsent(instrument,
+					key -> new BinanceOrderBook(key.getPrimaryKey(), MAX_DEPTH, this, this));
 			symbolsList.append(',');
 		}
 
@@ -127,6 +134,13 @@ public class BinanceMarketDataPublisher extends AbstractMarketDataConnectorPubli
 		});
 	}
 
+	/**
+	 * Records the depth events and snapshots received to replay them with BinanceDepthEventsFile.replay
+	 */
+	public void setRecordDepthEventsPath(String path) throws IOException {
+		this.depthEventsFile = new BinanceDepthEventsFile(new File(path));
+	}
+
 	@Override public void init() {
 
 	}
@@ -170,81 +184,57 @@ public class BinanceMarketDataPublisher extends AbstractMarketDataConnectorPubli
 
 	}
 
-	private synchronized void onBinanceDepthUpdate(Instrument instrument, DepthEvent depthEvent) {
-		//change from depthEvent to Depth and notify
+	/**
+	 * Depth events are diffs applied in the local book of the instrument , no lock between instruments
+	 */
+	private void onBinanceDepthUpdate(Instrument instrument, DepthEvent depthEvent) {
 		try {
-			Long lastDepthSentTimestamp = lastDepthSent.getOrDefault(instrument, 0L);
-			if (CHECK_SEND_TIMESTAMP && depthEvent.getEventTime() < lastDepthSentTimestamp) {
-				return;
-			}
-			Depth depth = new Depth();
-			depth.setInstrument(instrument.getPrimaryKey());
-			depth.setTimestamp(depthEvent.getEventTime());
-			//			depth.setTimestamp(System.currentTimeMillis());
-			boolean anyError = false;
-			int askDepth = Math.min(depthEvent.getAsks().size(), MAX_DEPTH);
-			Double asks[] = new Double[askDepth];
-			Double askQtys[] = new Double[askDepth];
-			int indexAsk = 0;
-			try {
-				for (OrderBookEntry askEntry : depthEvent.getAsks()) {
-					if (indexAsk >= MAX_DEPTH) {
-						break;
-					}
-					double qty = BinanceBrokerConnector.NUMBER_FORMAT.parse(askEntry.getQty().toUpperCase())
-							.doubleValue();
-					if (qty == 0) {
-						continue;
-					}
-					asks[indexAsk] = BinanceBrokerConnector.NUMBER_FORMAT.parse(askEntry.getPrice().toUpperCase())
-							.doubleValue();
-					askQtys[indexAsk] = qty;
-					indexAsk++;
-				}
-			} catch (Exception e) {
-				logger.error("Error parsing ask depth event -> no more levels than {}", indexAsk, e);
-				anyError = true;
+			if (depthEventsFile != null) {
+				depthEventsFile.write(depthEvent);
 			}
-			int bidDepth = Math.min(depthEvent.getBids().size(), MAX_DEPTH);
-			Double bids[] = new Double[bidDepth];
-			Double bidQtys[] = new Double[bidDepth];
-			int indexBid = 0;
-			try {
-				for (OrderBookEntry bidEntry : depthEvent.getBids()) {
-					if (indexBid >= MAX_DEPTH) {
-						break;
-					}
-					double qty = BinanceBrokerConnector.NUMBER_FORMAT.parse(bidEntry.getQty().toUpperCase())
-							.doubleValue();
-					if (qty == 0) {
-						continue;
-					}
+			BinanceOrderBook orderBook = instrumentToOrderBook.get(instrument);
+			orderBook.onDepthEvent(depthEvent);
+		} catch (Exception ex) {
+			logger.error("Error onDepthUpdate {} ", instrument, ex);
+		}
+	}
 
-					bids[indexBid] = BinanceBrokerConnector.NUMBER_FORMAT.parse(bidEntry.getPrice().toUpperCase())
-							.doubleValue();
-					bidQtys[indexBid] = qty;
-					indexBid++;
+	@Override public void requestSnapshot(BinanceOrderBook orderBook) {
+		Instrument instrument = Instrument.getInstrument(orderBook.getInstrumentPk());
+		String symbol = instrument.getSymbol().toUpperCase();
+		binanceConnector.getAsyncRestClient().getOrderBook(symbol, SNAPSHOT_LEVELS, new BinanceApiCallback<OrderBook>() {
+
+			@Override public void onResponse(OrderBook response) {
+				try {
+					if (depthEventsFile != null) {
+						depthEventsFile.write(symbol, response);
+					}
+				} catch (IOException e) {
+					logger.error("can't record snapshot of {}", symbol, e);
 				}
-			} catch (Exception e) {
-				logger.error("Error parsing bid depth event  -> no more levels than {}", indexBid, e);
-				anyError = true;
+				orderBook.onSnapshot(response);
 			}
 
-			if (anyError && (indexAsk < MIN_VALID_DEPTH || indexBid < MIN_VALID_DEPTH)) {
-				logger.error("Depth is very small with errors bid_depth:{}  ask_depth:{} ", indexBid, indexAsk);
-				return;
+			@Override public void onFailure(Throwable cause) {
+				orderBook.onSnapshotFailure(cause);
 			}
+		});
+	}
 
-			depth.setAsks(asks);
-			depth.setAsksQuantities(askQtys);
-			depth.setBids(bids);
-			depth.setBidsQuantities(bidQtys);
+	@Override public void onLevelUpdate(BinanceOrderBook orderBook, boolean isBid, double price, double quantity) {
+		//only the top levels are published
+	}
 
-			notifyDepth(instrument.getPrimaryKey(), depth);
-			lastDepthSent.put(instrument, depthEvent.getEventTime());
-		} catch (Exception ex) {
-			logger.error("Error onDepthUpdate {} ", instrument, ex);
+	@Override public void onTopUpdate(BinanceOrderBook orderBook, long timestamp) {
+		Depth depth = orderBook.getDepth();
+		if (depth.getBidLevels() < MIN_VALID_DEPTH || depth.getAskLevels() < MIN_VALID_DEPTH) {
+			return;
 		}
+		if (CHECK_SEND_TIMESTAMP && timestamp < lastDepthSent.getOrDefault(orderBook.getInstrumentPk(), 0L)) {
+			return;
+		}
+		notifyDepth(orderBook.getInstrumentPk(), depth);
+		lastDepthSent.put(orderBook.getInstrumentPk(), timestamp);
 	}
 
 	@Override public void run() {
@@ -260,6 +250,13 @@ public class BinanceMarketDataPublisher extends AbstractMarketDataConnectorPubli
 			}
 
 			lastSeeReceiverCounter = counterReceives.get();
+			if (depthEventsFile != null) {
+				try {
+					depthEventsFile.flush();
+				} catch (IOException e) {
+					logger.error("can't flush depth events file", e);
+				}
+			}
 
 			try {
 				Thread.sleep(500);
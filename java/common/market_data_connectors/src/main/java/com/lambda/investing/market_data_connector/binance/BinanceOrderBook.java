@@ -0,0 +1,317 @@
+package com.lambda.investing.market_data_connector.binance;
+
+import com.binance.api.client.domain.event.DepthEvent;
+import com.binance.api.client.domain.market.OrderBook;
+import com.binance.api.client.domain.market.OrderBookEntry;
+import com.lambda.investing.model.market_data.Depth;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Local L2 book of one symbol maintained from the Binance diff-depth stream
+ * https://binance-docs.github.io/apidocs/spot/en/#how-to-manage-a-local-order-book-correctly
+ * Events are buffered until a snapshot arrives , a gap in the update ids drops the book and requests a new snapshot
+ * Levels are kept in sorted primitive arrays updated in place , the listener receives every level change
+ * and a top update only when one of the first topLevels levels changed or with the first event after a snapshot
+ */
+public class BinanceOrderBook {
+
+	public static int MAX_BUFFERED_EVENTS = 1000;//while waiting the snapshot
+	protected static Logger logger = LogManager.getLogger(BinanceOrderBook.class);
+
+	public interface BinanceOrderBookListener {
+
+		/**
+		 * @param quantity 0 when the level is removed
+		 */
+		void onLevelUpdate(BinanceOrderBook orderBook, boolean isBid, double price, double quantity);
+
+		void onTopUpdate(BinanceOrderBook orderBook, long timestamp);
+	}
+
+	public interface SnapshotRequester {
+
+		/**
+		 * Must call onSnapshot or onSnapshotFailure of the orderBook , can be done in other thread
+		 */
+		void requestSnapshot(BinanceOrderBook orderBook);
+	}
+
+	/***
+	 * One side of the book , best price in index 0
+	 */
+	private static class BookSide {
+
+		private final boolean isBid;
+		private double[] prices = new double[64];
+		private double[] quantities = new double[64];
+		private int size = 0;
+
+		private BookSide(boolean isBid) {
+			this.isBid = isBid;
+		}
+
+		/**
+		 * @return index of price or -(insertion point) - 1 if not found
+		 */
+		private int search(double price) {
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				double middlePrice = prices[middle];
+				if (middlePrice == price) {
+					return middle;
+				}
+				boolean middleIsBetter = isBid ? middlePrice > price : middlePrice < price;
+				if (middleIsBetter) {
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return -(low + 1);
+		}
+
+		/**
+		 * @return index of the level changed , -1 if nothing changed
+		 */
+		private int update(double price, double quantity) {
+			int index = search(price);
+			if (index >= 0) {
+				if (quantity == 0) {
+					System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+					System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+					size--;
+				} else {
+					quantities[index] = quantity;
+				}
+				return index;
+			}
+			if (quantity == 0) {
+				//remove of a level we don't have
+				return -1;
+			}
+			index = -(index + 1);
+			if (size == prices.length) {
+				prices = Arrays.copyOf(prices, size * 2);
+				quantities = Arrays.copyOf(quantities, size * 2);
+			}
+			System.arraycopy(prices, index, prices, index + 1, size - index);
+			System.arraycopy(quantities, index, quantities, index + 1, size - index);
+			prices[index] = price;
+			quantities[index] = quantity;
+			size++;
+			return index;
+		}
+
+		private void clear() {
+			size = 0;
+		}
+
+		private Double[] getPrices(int levels) {
+			Double[] output = new Double[Math.min(levels, size)];
+			for (int index = 0; index < output.length; index++) {
+				output[index] = prices[index];
+			}
+			return output;
+		}
+
+		private Double[] getQuantities(int levels) {
+			Double[] output = new Double[Math.min(levels, size)];
+			for (int index = 0; index < output.length; index++) {
+				output[index] = quantities[index];
+			}
+			return output;
+		}
+	}
+
+	private final String instrumentPk;
+	private final int topLevels;
+	private final SnapshotRequester snapshotRequester;
+	private final BinanceOrderBookListener listener;
+
+	private final BookSide bids = new BookSide(true);
+	private final BookSide asks = new BookSide(false);
+	private final ArrayDeque<DepthEvent> bufferedEvents = new ArrayDeque<>();
+
+	private long lastUpdateId = -1;
+	private long lastTimestamp = 0;
+	private boolean synced = false;
+	private boolean snapshotRequested = false;
+	private boolean topPending = false;//snapshot not published yet , waiting the time of the next event
+	private long gaps = 0;
+	private long snapshots = 0;
+
+	public BinanceOrderBook(String instrumentPk, int topLevels, SnapshotRequester snapshotRequester,
+			BinanceOrderBookListener listener) {
+		this.instrumentPk = instrumentPk;
+		this.topLevels = topLevels;
+		this.snapshotRequester = snapshotRequester;
+		this.listener = listener;
+	}
+
+	private static double parse(String number) {
+		return Double.parseDouble(number);
+	}
+
+	private void requestSnapshot() {
+		if (snapshotRequested || snapshotRequester == null) {
+			return;
+		}
+		snapshotRequested = true;
+		snapshotRequester.requestSnapshot(this);
+	}
+
+	private void buffer(DepthEvent depthEvent) {
+		if (bufferedEvents.size() >= MAX_BUFFERED_EVENTS) {
+			bufferedEvents.pollFirst();
+		}
+		bufferedEvents.addLast(depthEvent);
+	}
+
+	public synchronized void onDepthEvent(DepthEvent depthEvent) {
+		if (!synced) {
+			buffer(depthEvent);
+			requestSnapshot();
+			return;
+		}
+		apply(depthEvent);
+	}
+
+	/**
+	 * Replaces the book with the snapshot and applies the events buffered after it
+	 */
+	public synchronized void onSnapshot(OrderBook orderBook) {
+		snapshotRequested = false;
+		snapshots++;
+		bids.clear();
+		asks.clear();
+		for (OrderBookEntry entry : orderBook.getBids()) {
+			bids.update(parse(entry.getPrice()), parse(entry.getQty()));
+		}
+		for (OrderBookEntry entry : orderBook.getAsks()) {
+			asks.update(parse(entry.getPrice()), parse(entry.getQty()));
+		}
+		lastUpdateId = orderBook.getLastUpdateId();
+		synced = true;
+		logger.info("{} snapshot received lastUpdateId={} with {} events buffered", instrumentPk, lastUpdateId,
+				bufferedEvents.size());
+		//snapshot has no event time => published with the first event applied
+		topPending = true;
+
+		while (synced && !bufferedEvents.isEmpty()) {
+			apply(bufferedEvents.pollFirst());
+		}
+	}
+
+	public synchronized void onSnapshotFailure(Throwable cause) {
+		logger.error("{} snapshot request failed {}", instrumentPk, cause.getMessage());
+		snapshotRequested = false;//requested again on next event
+	}
+
+	private void resync(DepthEvent depthEvent) {
+		gaps++;
+		logger.warn("{} gap in depth updates lastUpdateId={} next firstUpdateId={} -> resync", instrumentPk,
+				lastUpdateId, depthEvent.getFirstUpdateId());
+		synced = false;
+		bufferedEvents.clear();
+		buffer(depthEvent);
+		requestSnapshot();
+	}
+
+	private void apply(DepthEvent depthEvent) {
+		if (depthEvent.getFinalUpdateId() <= lastUpdateId) {
+			//already in the snapshot
+			return;
+		}
+		if (depthEvent.getFirstUpdateId() > lastUpdateId + 1) {
+			resync(depthEvent);
+			return;
+		}
+		boolean topChanged = applyLevels(true, depthEvent.getBids());
+		topChanged |= applyLevels(false, depthEvent.getAsks());
+		lastUpdateId = depthEvent.getFinalUpdateId();
+		lastTimestamp = depthEvent.getEventTime();
+		if ((topChanged || topPending) && listener != null) {
+			listener.onTopUpdate(this, lastTimestamp);
+		}
+		topPending = false;
+	}
+
+	private boolean applyLevels(boolean isBid, List<OrderBookEntry> entries) {
+		if (entries == null) {
+			return false;
+		}
+		BookSide side = isBid ? bids : asks;
+		boolean topChanged = false;
+		for (OrderBookEntry entry : entries) {
+			double price = parse(entry.getPrice());
+			double quantity = parse(entry.getQty());
+			int index = side.update(price, quantity);
+			if (index < 0) {
+				continue;
+			}
+			topChanged |= index < topLevels;
+			if (listener != null) {
+				listener.onLevelUpdate(this, isBid, price, quantity);
+			}
+		}
+		return topChanged;
+	}
+
+	/**
+	 * @return new Depth with the first topLevels levels
+	 */
+	public synchronized Depth getDepth() {
+		Depth depth = new Depth();
+		depth.setInstrument(instrumentPk);
+		depth.setTimestamp(lastTimestamp);
+		depth.setBids(bids.getPrices(topLevels));
+		depth.setBidsQuantities(bids.getQuantities(topLevels));
+		depth.setAsks(asks.getPrices(topLevels));
+		depth.setAsksQuantities(asks.getQuantities(topLevels));
+		depth.setLevelsFromData();
+		return depth;
+	}
+
+	public String getInstrumentPk() {
+		return instrumentPk;
+	}
+
+	public synchronized boolean isSynced() {
+		return synced;
+	}
+
+	public synchronized long getLastUpdateId() {
+		return lastUpdateId;
+	}
+
+	public synchronized int getLevels(boolean isBid) {
+		return isBid ? bids.size : asks.size;
+	}
+
+	public synchronized double getPrice(boolean isBid, int level) {
+		return isBid ? bids.prices[level] : asks.prices[level];
+	}
+
+	public synchronized double getQuantity(boolean isBid, int level) {
+		return isBid ? bids.quantities[level] : asks.quantities[level];
+	}
+
+	/**
+	 * @return gaps detected in the update ids
+	 */
+	public synchronized long getGaps() {
+		return gaps;
+	}
+
+	public synchronized long getSnapshots() {
+		return snapshots;
+	}
+
+}
@@ -2,11 +2,16 @@ package com.lambda.investing.market_data_connector.csv_file_reader;
 
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorPublisher;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.data_manager.DataManager;
 import com.lambda.investing.data_manager.csv.CSVDataManager;
+import com.lambda.investing.data_manager.csv.CSVFileStream;
 import com.lambda.investing.data_manager.csv.CSVUtils;
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.data_manager.stream.MergedMarketDataStream;
 import com.lambda.investing.market_data_connector.AbstractMarketDataConnectorPublisher;
 import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.Trade;
 import com.lambda.investing.model.messaging.Command;
@@ -27,6 +32,7 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 
 	public static String ALGORITHM_INFO_MM = Depth.ALGORITHM_INFO_MM;
 	public static String TOPIC_COMMAND = "command";
+	public static boolean STREAMING_READER = true;//merge the files while reading instead of loading them in memory
 	public static Command STOP_COMMAND = new Command(Command.ClassMessage.stop.name());
 	public static Command START_COMMAND = new Command(Command.ClassMessage.start.name());
 
@@ -36,6 +42,7 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 
 	private DataManager csvDataManager;
 	NavigableMap<Long, CSVUtils.NameRowPair> readingTable;
+	private MergedMarketDataStream readingStream;
 
 	public CSVMarketDataConnectorPublisher(ConnectorConfiguration connectorConfiguration,
 			ConnectorPublisher connectorPublisher, CSVFileConfiguration CSVFileConfiguration) {
@@ -50,7 +57,11 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 
 	@PostConstruct public void init() {
 		try {
-			loadFilesMemory();
+			if (STREAMING_READER) {
+				openStream();
+			} else {
+				loadFilesMemory();
+			}
 			enable = false;
 			readingThread.start();
 		} catch (Exception e) {
@@ -78,16 +89,42 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 				.mergeTables(CSVFileConfiguration.getStartTime(), CSVFileConfiguration.getEndTime(), tablesList);
 	}
 
+	private void openStream() throws Exception {
+		List<MarketDataFileStream> streams = new ArrayList<>();
+		long startTime = CSVFileConfiguration.getStartTime().getTime();
+		long endTime = CSVFileConfiguration.getEndTime().getTime();
+		Instrument instrument = CSVFileConfiguration.getInstrument();
+		//depth before trade on the same timestamp
+		for (String depthFile : CSVFileConfiguration.getDepthFilesPath()) {
+			logger.info("streaming {}...", depthFile);
+			streams.add(new CSVFileStream(depthFile, Depth.class, instrument, ALGORITHM_INFO_MM, startTime, endTime));
+		}
+		for (String tradeFile : CSVFileConfiguration.getTradeFilesPath()) {
+			logger.info("streaming {}...", tradeFile);
+			streams.add(new CSVFileStream(tradeFile, Trade.class, instrument, ALGORITHM_INFO_MM, startTime, endTime));
+		}
+		readingStream = new MergedMarketDataStream(streams);
+	}
+
 	@Override public void run() {
 		try {
 			Thread.sleep(1000);
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
-		Map.Entry<Long, CSVUtils.NameRowPair> entry = readingTable.entrySet().iterator().next();
-		long timeStamp = entry.getKey();
-		START_COMMAND.setTimestamp(timeStamp);
-		notifyCommand(TOPIC_COMMAND, START_COMMAND);
+		long timeStamp;
+		if (STREAMING_READER) {
+			timeStamp = readingStream.hasNext() ?
+					readingStream.peekTimestamp() :
+					CSVFileConfiguration.getStartTime().getTime();
+		} else {
+			Map.Entry<Long, CSVUtils.NameRowPair> entry = readingTable.entrySet().iterator().next();
+			timeStamp = entry.getKey();
+		}
+		//new instances , the static ones are shared by all the backtests of the JVM
+		Command startCommand = new Command(START_COMMAND.getMessage());
+		startCommand.setTimestamp(timeStamp);
+		notifyCommand(TOPIC_COMMAND, startCommand);
 
 		long startTime = System.currentTimeMillis();
 		boolean firstStart = true;
@@ -112,6 +149,56 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 
 		}
 
+		if (STREAMING_READER) {
+			timeStamp = readStream(timeStamp);
+		} else {
+			timeStamp = readTable(timeStamp);
+		}
+		System.out.println("Finished reading backtest CSV ");
+		logger.info("************************* END OF CSV ***************");
+		logger.info("End of {} reading table", this.getClass().getSimpleName());
+		Command stopCommand = new Command(STOP_COMMAND.getMessage());
+		stopCommand.setTimestamp(timeStamp);
+		notifyCommand(TOPIC_COMMAND, stopCommand);
+		//		notifyEndOfFile(this.getClass().getSimpleName());
+
+	}
+
+	private long readStream(long timeStamp) {
+		try (ProgressBar pb = new ProgressBar("csv_reader", readingStream.getRowsHint())) {
+			while (readingStream.hasNext()) {
+				try {
+					long startNanos = Metrics.nanoTime();
+					CSVable row = readingStream.next();
+					DECODE_LATENCY.recordSince(startNanos);
+					timeStamp = MarketDataFileStream.getTimestamp(row);
+					pb.step();
+					pb.setExtraMessage(new Date(timeStamp).toString());
+					try {
+						String topic = getTopic();
+						if (row instanceof Depth) {
+							notifyDepth(topic, (Depth) row);
+						}
+						if (row instanceof Trade) {
+							notifyTrade(topic, (Trade) row);
+						}
+					} catch (Exception ex) {
+						logger.error("Error reading row : {} ", row, ex);
+					}
+					if (readingStream.hasNext()) {
+						sleepDifference(timeStamp, readingStream.peekTimestamp(), CSVFileConfiguration.getSpeed());
+					}
+				} catch (Exception ex) {
+					logger.error("unknown error ", ex);
+				}
+			}
+		} finally {
+			readingStream.close();
+		}
+		return timeStamp;
+	}
+
+	private long readTable(long timeStamp) {
 		//System.setErr(App.ERR_STREAM_CONSOLE);
 		try (ProgressBar pb = new ProgressBar("csv_reader", readingTable.size())) {
 
@@ -148,13 +235,7 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 				}
 			}
 		}
-		System.out.println("Finished reading backtest CSV ");
-		logger.info("************************* END OF CSV ***************");
-		logger.info("End of {} reading table", this.getClass().getSimpleName());
-		STOP_COMMAND.setTimestamp(timeStamp);
-		notifyCommand(TOPIC_COMMAND, STOP_COMMAND);
-		//		notifyEndOfFile(this.getClass().getSimpleName());
-
+		return timeStamp;
 	}
 
 	private String getTopic() {
@@ -162,12 +243,18 @@ public class CSVMarketDataConnectorPublisher extends AbstractMarketDataConnector
 	}
 
 	private Depth createDepth(Row row) {
+		long startNanos = Metrics.nanoTime();
 		Instrument instrument = CSVFileConfiguration.getInstrument();
-		return CSVUtils.createDepth(row, instrument, ALGORITHM_INFO_MM);
+		Depth output = CSVUtils.createDepth(row, instrument, ALGORITHM_INFO_MM);
+		DECODE_LATENCY.recordSince(startNanos);
+		return output;
 	}
 
 	private Trade createTrade(Row row) {
+		long startNanos = Metrics.nanoTime();
 		Instrument instrument = CSVFileConfiguration.getInstrument();
-		return CSVUtils.createTrade(row, instrument, ALGORITHM_INFO_MM);
+		Trade output = CSVUtils.createTrade(row, instrument, ALGORITHM_INFO_MM);
+		DECODE_LATENCY.recordSince(startNanos);
+		return output;
 	}
 }
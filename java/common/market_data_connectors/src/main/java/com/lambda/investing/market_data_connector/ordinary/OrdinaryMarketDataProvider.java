@@ -2,6 +2,7 @@ package com.lambda.investing.market_data_connector.ordinary;
 
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorConfiguration;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorPublisherProvider;
 import com.lambda.investing.market_data_connector.AbstractMarketDataProvider;
@@ -35,15 +36,20 @@ import javax.annotation.PostConstruct;
 
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
 
 		if (typeMessage.equals(TypeMessage.depth)) {
-			Depth depth = GSON.fromJson(content, Depth.class);
+			Depth depth = (Depth) MessageCodecs.decode(typeMessage, content);
 			notifyDepth(depth);
 		} else if (typeMessage.equals(TypeMessage.trade)) {
-			Trade trade = GSON.fromJson(content, Trade.class);
+			Trade trade = (Trade) MessageCodecs.decode(typeMessage, content);
 			notifyTrade(trade);
 		} else if (typeMessage.equals(TypeMessage.command)) {
-			Command command = GSON.fromJson(content, Command.class);
+			Command command = (Command) MessageCodecs.decode(typeMessage, content);
 			notifyCommand(command);
 			//All is set => start backtest
 		}
@@ -2,14 +2,23 @@ package com.lambda.investing.market_data_connector.parquet_file_reader;
 
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorPublisher;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorPublisherProvider;
 import com.lambda.investing.connector.zero_mq.ZeroMqPublisher;
 import com.lambda.investing.data_manager.DataManager;
 import com.lambda.investing.data_manager.csv.CSVDataManager;
 import com.lambda.investing.data_manager.csv.CSVUtils;
+import com.lambda.investing.data_manager.parquet.ParquetColumnsStream;
 import com.lambda.investing.data_manager.parquet.ParquetDataManager;
+import com.lambda.investing.data_manager.parquet.ParquetFileStream;
+import com.lambda.investing.data_manager.stream.MarketDataFileStream;
+import com.lambda.investing.data_manager.stream.MergedMarketDataStream;
+import com.lambda.investing.data_manager.tick_store.TickStore;
+import com.lambda.investing.data_manager.tick_store.TickStoreConverter;
+import com.lambda.investing.data_manager.tick_store.TickStoreStream;
 import com.lambda.investing.market_data_connector.AbstractMarketDataConnectorPublisher;
 import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
 import com.lambda.investing.model.market_data.Depth;
 import com.lambda.investing.model.market_data.DepthParquet;
 import com.lambda.investing.model.market_data.Trade;
@@ -22,6 +31,7 @@ import tech.tablesaw.api.Row;
 import tech.tablesaw.api.Table;
 
 import javax.annotation.PostConstruct;
+import java.io.File;
 import java.util.*;
 
 import static com.lambda.investing.Configuration.TEMP_PATH;
@@ -31,6 +41,8 @@ import static com.lambda.investing.data_manager.csv.CSVUtils.sleepDifference;
 public class ParquetMarketDataConnectorPublisher extends AbstractMarketDataConnectorPublisher implements Runnable {
 
 	private static boolean PICKLE_CACHE = false;
+	public static boolean STREAMING_READER = true;//merge the files while reading instead of loading them in memory
+	public static boolean TICK_STORE_READER = false;//files converted once to a TickStore , read from startTime
 
 	public static String ALGORITHM_INFO_MM = "MarketMaker_Parquet";
 	public static String TOPIC_COMMAND = "command";
@@ -44,6 +56,10 @@ public class ParquetMarketDataConnectorPublisher extends AbstractMarketDataConne
 	private DataManager dataManager;
 	private Map<Date, NavigableMap<Long, NameRowPair>> readingTable = new HashMap<>();
 	private List<Date> dates;
+	private MergedMarketDataStream firstDateStream;
+	private ParquetMarketDataStore marketDataStore;//shared in memory files , null to read them from disk
+	private boolean exitOnLoadError = true;//false when other backtests run in the same JVM
+
 	public ParquetMarketDataConnectorPublisher(ConnectorConfiguration connectorConfiguration,
 			ConnectorPublisher connectorPublisher, ParquetFileConfiguration parquetFileConfiguration) {
 		super("ParquetMarketDataConnectorPublisher", connectorConfiguration, connectorPublisher);
@@ -62,19 +78,37 @@ public class ParquetMarketDataConnectorPublisher extends AbstractMarketDataConne
 		//		enable=true;
 	}
 
+	public void setMarketDataStore(ParquetMarketDataStore marketDataStore) {
+		this.marketDataStore = marketDataStore;
+	}
+
+	/**
+	 * @param exitOnLoadError false to throw an IllegalStateException on init instead of exiting the JVM
+	 */
+	public void setExitOnLoadError(boolean exitOnLoadError) {
+		this.exitOnLoadError = exitOnLoadError;
+	}
+
 	@PostConstruct public void init() {
 		startBacktest();
 	}
 
 	public void startBacktest() {
 		try {
-			for (Date date : this.parquetFileConfiguration.getDatesToLoad()) {
-				loadPathMemory(date);
+			if (STREAMING_READER) {
+				firstDateStream = openStream(dates.get(0));
+			} else {
+				for (Date date : this.parquetFileConfiguration.getDatesToLoad()) {
+					loadPathMemory(date);
+				}
 			}
 			enable = false;
 			readingThread.start();
 		} catch (Exception e) {
 			logger.error("Error loading files !!", e);
+			if (!exitOnLoadError) {
+				throw new IllegalStateException("Error loading parquet files of " + getTopic(), e);
+			}
 			e.printStackTrace();
 			System.exit(-1);
 		}
@@ -113,7 +147,62 @@ public class ParquetMarketDataConnectorPublisher extends AbstractMarketDataConne
 
 	}
 
+	private MergedMarketDataStream openStream(Date date) throws Exception {
+		List<MarketDataFileStream> streams = new ArrayList<>();
+		long startTime = parquetFileConfiguration.getStartTime().getTime();
+		long endTime = parquetFileConfiguration.getEndTime().getTime();
+		Instrument instrument = parquetFileConfiguration.getInstrument();
+
+		//depth before trade on the same timestamp
+		String depthFile = parquetFileConfiguration.getDepthFilesPath().get(date);
+		if (depthFile != null) {
+			logger.info("streaming {}...", depthFile);
+			streams.add(openFileStream(depthFile, DepthParquet.class, instrument, startTime, endTime));
+		}
+		String tradeFile = parquetFileConfiguration.getTradeFilesPath().get(date);
+		if (tradeFile != null) {
+			logger.info("streaming {}...", tradeFile);
+			streams.add(openFileStream(tradeFile, TradeParquet.class, instrument, startTime, endTime));
+		}
+		return new MergedMarketDataStream(streams);
+	}
+
+	private MarketDataFileStream openFileStream(String filepath, Class<? extends CSVable> objectType,
+			Instrument instrument, long startTime, long endTime) throws Exception {
+		if (marketDataStore != null) {
+			return new ParquetColumnsStream(filepath, marketDataStore.getColumns(filepath, objectType), instrument,
+					ALGORITHM_INFO_MM, startTime, endTime);
+		}
+		if (TICK_STORE_READER) {
+			File tickStoreDirectory = TickStore.getDirectory(filepath);
+			if (!TickStore.exists(tickStoreDirectory)) {
+				logger.info("converting {} to tick store {}...", filepath, tickStoreDirectory);
+				//all the rows , the time filter is applied reading it
+				TickStoreConverter
+						.convert(new ParquetFileStream(filepath, objectType, instrument, ALGORITHM_INFO_MM, 0, 0),
+								tickStoreDirectory, instrument.getPrimaryKey(), objectType.equals(DepthParquet.class));
+			}
+			if (TickStore.exists(tickStoreDirectory)) {
+				return new TickStoreStream(tickStoreDirectory, instrument, ALGORITHM_INFO_MM, startTime, endTime);
+			}
+		}
+		return new ParquetFileStream(filepath, objectType, instrument, ALGORITHM_INFO_MM, startTime, endTime);
+	}
+
+	/**
+	 * End of file is always notified , listeners waiting for it are released when the reading thread fails
+	 */
 	@Override public void run() {
+		try {
+			readFiles();
+		} catch (Exception e) {
+			logger.error("Error reading files , notifying end of file", e);
+		} finally {
+			notifyEndOfFile();
+		}
+	}
+
+	private void readFiles() {
 		try {
 			if (connectorPublisher instanceof ZeroMqPublisher) {
 				Thread.sleep(10000);
@@ -124,12 +213,21 @@ public class ParquetMarketDataConnectorPublisher extends AbstractMarketDataConne
 			e.printStackTrace();
 		}
 
-		Date firstDate = this.dates.get(0);
-		NavigableMap<Long, NameRowPair> readingTableDate = readingTable.get(firstDate);
-		Map.Entry<Long, NameRowPair> entry = readingTableDate.entrySet().iterator().next();
-		long timeStamp = entry.getKey();
-		START_COMMAND.setTimestamp(timeStamp);
-		notifyCommand(TOPIC_COMMAND, START_COMMAND);
+		long timeStamp;
+		if (STREAMING_READER) {
+			timeStamp = firstDateStream.hasNext() ?
+					firstDateStream.peekTimestamp() :
+					parquetFileConfiguration.getStartTime().getTime();
+		} else {
+			Date firstDate = this.dates.get(0);
+			NavigableMap<Long, NameRowPair> readingTableDate = readingTable.get(firstDate);
+			Map.Entry<Long, NameRowPair> entry = readingTableDate.entrySet().iterator().next();
+			timeStamp = entry.getKey();
+		}
+		//new instances , the static ones are shared by all the backtests of the JVM
+		Command startCommand = new Command(START_COMMAND.getMessage());
+		startCommand.setTimestamp(timeStamp);
+		notifyCommand(TOPIC_COMMAND, startCommand);
 
 		long startTime = System.currentTimeMillis();
 		boolean firstStart = true;
@@ -156,80 +254,153 @@ public class ParquetMarketDataConnectorPublisher extends AbstractMarketDataConne
 			}
 
 		}
+		for (Date date : dates) {
+			if (STREAMING_READER) {
+				timeStamp = readStream(date, timeStamp);
+			} else {
+				timeStamp = readTable(date, timeStamp);
+			}
+		}
+
+		System.out.println("Finished reading backtest CSV ");
+		logger.info("************************* END OF CSV ***************");
+		logger.info("End of {} reading table", this.getClass().getSimpleName());
+		Command stopCommand = new Command(STOP_COMMAND.getMessage());
+		stopCommand.setTimestamp(timeStamp);
+		notifyCommand(TOPIC_COMMAND, stopCommand);
+
+	}
+
+
+
+	private long readStream(Date date, long timeStamp) {
+		//first date is opened on startBacktest
+		MergedMarketDataStream stream = firstDateStream;
+		firstDateStream = null;
+		if (stream == null) {
+			try {
+				stream = openStream(date);
+			} catch (Exception e) {
+				logger.error("Error opening parquet files of {} -> skip the day", date, e);
+				return timeStamp;
+			}
+		}
+
 		long startTimeParquet = parquetFileConfiguration.getStartTime().getTime();
 		long endTimeParquet = parquetFileConfiguration.getEndTime().getTime();
-		for (Date date : dates) {
-			readingTableDate = readingTable.get(date);
-			//System.setErr(App.ERR_STREAM_CONSOLE);
-			try (ProgressBar pb = new ProgressBar("parquet_reader", readingTableDate.size())) {
+		try (ProgressBar pb = new ProgressBar("parquet_reader", stream.getRowsHint())) {
+			while (stream.hasNext()) {
+				try {
+					long startNanos = Metrics.nanoTime();
+					CSVable row = stream.next();
+					DECODE_LATENCY.recordSince(startNanos);
+					timeStamp = MarketDataFileStream.getTimestamp(row);
+					pb.step();
+					pb.setExtraMessage(new Date(timeStamp).toString());
+					if (startTimeParquet != endTimeParquet) {
+						if (timeStamp < startTimeParquet || timeStamp > endTimeParquet) {
+							//check time start in same day
+							continue;
+						}
+					}
+					try {
+						notifyRow(row);
+					} catch (Exception ex) {
+						logger.error("Error reading row : {} ", row, ex);
+					}
+					if (stream.hasNext()) {
+						sleepDifference(timeStamp, stream.peekTimestamp(), parquetFileConfiguration.getSpeed());
+					}
+				} catch (Exception ex) {
+					logger.error("unknown error ", ex);
+				}
+			}
+		} finally {
+			stream.close();
+		}
+		return timeStamp;
+	}
 
-				for (Map.Entry<Long, NameRowPair> entrySet : readingTableDate.entrySet()) {
+	private void notifyRow(CSVable row) {
+		String topic = getTopic();
+		if (row instanceof Depth) {
+			notifyDepth(topic, (Depth) row);
+		}
+		if (row instanceof Trade) {
+			notifyTrade(topic, (Trade) row);
+		}
+	}
+
+	private long readTable(Date date, long timeStamp) {
+		long startTimeParquet = parquetFileConfiguration.getStartTime().getTime();
+		long endTimeParquet = parquetFileConfiguration.getEndTime().getTime();
+		NavigableMap<Long, NameRowPair> readingTableDate = readingTable.get(date);
+		//System.setErr(App.ERR_STREAM_CONSOLE);
+		try (ProgressBar pb = new ProgressBar("parquet_reader", readingTableDate.size())) {
+
+			for (Map.Entry<Long, NameRowPair> entrySet : readingTableDate.entrySet()) {
+				try {
+					timeStamp = entrySet.getKey();
+					pb.step();
+					pb.setExtraMessage(new Date(timeStamp).toString());
+					if (startTimeParquet != endTimeParquet) {
+						if (timeStamp < startTimeParquet) {
+							//check time start in same day
+							continue;
+						}
+						if (timeStamp > endTimeParquet) {
+							//check time start in same day
+							continue;
+						}
+					}
+
+					NameRowPair nameRowPair = entrySet.getValue();
+
+					String name = nameRowPair.getName();
+					Row row = nameRowPair.getRow();
 					try {
-						timeStamp = entrySet.getKey();
-						pb.step();
-						pb.setExtraMessage(new Date(timeStamp).toString());
-						if (startTimeParquet != endTimeParquet) {
-							if (timeStamp < startTimeParquet) {
-								//check time start in same day
-								continue;
-							}
-							if (timeStamp > endTimeParquet) {
-								//check time start in same day
-								continue;
-							}
+						if (parquetFileConfiguration.isInDepthFiles(name)) {
+							Depth depth = createDepth(row);
+							String topic = getTopic();
+							notifyDepth(topic, depth);
 						}
 
-						NameRowPair nameRowPair = entrySet.getValue();
-
-						String name = nameRowPair.getName();
-						Row row = nameRowPair.getRow();
-						try {
-							if (parquetFileConfiguration.isInDepthFiles(name)) {
-								Depth depth = createDepth(row);
-								String topic = getTopic();
-								notifyDepth(topic, depth);
-							}
-
-							if (parquetFileConfiguration.isInTradeFiles(name)) {
-								Trade trade = createTrade(row);
-								String topic = getTopic();
-								notifyTrade(topic, trade);
-							}
-
-						} catch (Exception ex) {
-							logger.error("Error reading row : {} ", row, ex);
+						if (parquetFileConfiguration.isInTradeFiles(name)) {
+							Trade trade = createTrade(row);
+							String topic = getTopic();
+							notifyTrade(topic, trade);
 						}
 
-						sleepDifference(readingTableDate, timeStamp, parquetFileConfiguration.getSpeed());
 					} catch (Exception ex) {
-						logger.error("unknown error ", ex);
+						logger.error("Error reading row : {} ", row, ex);
 					}
+
+					sleepDifference(readingTableDate, timeStamp, parquetFileConfiguration.getSpeed());
+				} catch (Exception ex) {
+					logger.error("unknown error ", ex);
 				}
 			}
 		}
-
-		System.out.println("Finished reading backtest CSV ");
-		logger.info("************************* END OF CSV ***************");
-		logger.info("End of {} reading table", this.getClass().getSimpleName());
-		STOP_COMMAND.setTimestamp(timeStamp);
-		notifyCommand(TOPIC_COMMAND, STOP_COMMAND);
-		notifyEndOfFile();
-
+		return timeStamp;
 	}
 
-
-
 	private String getTopic() {
 		return parquetFileConfiguration.getInstrument().getPrimaryKey();
 	}
 
 	private Depth createDepth(Row row) {
+		long startNanos = Metrics.nanoTime();
 		Instrument instrument = parquetFileConfiguration.getInstrument();
-		return CSVUtils.createDepth(row, instrument, ALGORITHM_INFO_MM);
+		Depth output = CSVUtils.createDepth(row, instrument, ALGORITHM_INFO_MM);
+		DECODE_LATENCY.recordSince(startNanos);
+		return output;
 	}
 
 	private Trade createTrade(Row row) {
+		long startNanos = Metrics.nanoTime();
 		Instrument instrument = parquetFileConfiguration.getInstrument();
-		return CSVUtils.createTrade(row, instrument, ALGORITHM_INFO_MM);
+		Trade output = CSVUtils.createTrade(row, instrument, ALGORITHM_INFO_MM);
+		DECODE_LATENCY.recordSince(startNanos);
+		return output;
 	}
 }
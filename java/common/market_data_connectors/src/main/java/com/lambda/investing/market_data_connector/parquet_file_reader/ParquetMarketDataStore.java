@@ -0,0 +1,71 @@
+package com.lambda.investing.market_data_connector.parquet_file_reader;
+
+import com.lambda.investing.data_manager.parquet.ParquetColumns;
+import com.lambda.investing.data_manager.parquet.ParquetDataManager;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.DepthParquet;
+import com.lambda.investing.model.market_data.TradeParquet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.lambda.investing.Configuration.TEMP_PATH;
+
+/***
+ * Parquet files decoded once in memory and shared read only by the publishers of backtests running in the same JVM
+ */
+public class ParquetMarketDataStore {
+
+	protected Logger logger = LogManager.getLogger(ParquetMarketDataStore.class);
+
+	private final ParquetDataManager dataManager;
+	private final Map<String, ParquetColumns> filesColumns = new ConcurrentHashMap<>();
+
+	public ParquetMarketDataStore() {
+		dataManager = new ParquetDataManager();
+		dataManager.setCacheBasePath(TEMP_PATH);
+	}
+
+	/**
+	 * Loads all the depth and trade files of the configuration
+	 */
+	public void preload(ParquetFileConfiguration parquetFileConfiguration) throws Exception {
+		for (Date date : parquetFileConfiguration.getDatesToLoad()) {
+			String depthFile = parquetFileConfiguration.getDepthFilesPath().get(date);
+			if (depthFile != null) {
+				getColumns(depthFile, DepthParquet.class);
+			}
+			String tradeFile = parquetFileConfiguration.getTradeFilesPath().get(date);
+			if (tradeFile != null) {
+				getColumns(tradeFile, TradeParquet.class);
+			}
+		}
+	}
+
+	public ParquetColumns getColumns(String filepath, Class<? extends CSVable> objectType) throws Exception {
+		ParquetColumns columns = filesColumns.get(filepath);
+		if (columns != null) {
+			return columns;
+		}
+		synchronized (filesColumns) {
+			columns = filesColumns.get(filepath);
+			if (columns == null) {
+				logger.info("loading {} in store...", filepath);
+				columns = dataManager.getColumns(filepath, objectType);
+				filesColumns.put(filepath, columns);
+			}
+		}
+		return columns;
+	}
+
+	public int size() {
+		return filesColumns.size();
+	}
+
+	public void clear() {
+		filesColumns.clear();
+	}
+}
@@ -3,9 +3,11 @@ package com.lambda.investing.market_data_connector.persist;
 import com.lambda.investing.Configuration;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.connector.ConnectorProvider;
 import com.lambda.investing.data_manager.csv.CSVDataManager;
 import com.lambda.investing.data_manager.csv.CSVUtils;
+import com.lambda.investing.data_manager.journal.TickJournal;
 import com.lambda.investing.data_manager.parquet.ParquetDataManager;
 import com.lambda.investing.market_data_connector.MarketDataProvider;
 import com.lambda.investing.market_data_connector.Statistics;
@@ -68,6 +70,11 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 	private String name;
 	private Map<String, Long> fileToErrorCounter;
 	private boolean persistParquet = true;
+	private boolean persistJournal = false;
+	private final Map<String, TickJournal> journals = new HashMap<>();//instrument_type -> journal of current period
+	//guarded by journals , the period only moves forward => a closed journal is never opened again
+	private SimpleDateFormat journalDateFormat;
+	private String journalPeriod;
 
 	public PersistorMarketDataConnector(String dataPath, String parquetDataPath, ConnectorProvider connectorProvider,
 			ConnectorConfiguration connectorConfiguration) {
@@ -82,6 +89,16 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 		this.persistParquet = persistParquet;
 	}
 
+	/**
+	 * Appends every depth/trade to a memory mapped TickJournal instead of rewriting csv files ,
+	 * finished journals are converted to parquet in background
+	 *
+	 * @param persistJournal
+	 */
+	public void setPersistJournal(boolean persistJournal) {
+		this.persistJournal = persistJournal;
+	}
+
 	public PersistorMarketDataConnector(String dataPath, String parquetDataPath, ConnectorProvider connectorProvider,
 			ConnectorConfiguration connectorConfiguration, Period period, long periodCheckMs) {
 		this.dataPath = dataPath;
@@ -133,14 +150,153 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 		}
 
 		parquetDateFormat = this.dateFormat;//20201230
+		journalDateFormat = (SimpleDateFormat) this.dateFormat.clone();
 	}
 
 	private String getFilename(TypeMessage typeMessage, Instrument instrument) {
+		return getFilename(typeMessage, instrument, ".csv");
+	}
+
+	private String getFilename(TypeMessage typeMessage, Instrument instrument, String extension) {
+		return getFilename(typeMessage, instrument, dateFormat.format(calendar.getTime()), extension);
+	}
+
+	private String getFilename(TypeMessage typeMessage, Instrument instrument, String period, String extension) {
 		return dataPath + File.separator + instrument.getPrimaryKey() + "_" + typeMessage.name().toLowerCase() + "_"
-				+ dateFormat.format(calendar.getTime()) + ".csv";
+				+ period + extension;
+	}
+
+	/**
+	 * Must be called holding journals
+	 *
+	 * @return period of the journal where the tick is appended , ticks of a closed period go to the current one
+	 */
+	private String getJournalPeriod(long timestamp, String instrumentPk) {
+		String period = journalDateFormat.format(new Date(timestamp));
+		if (journalPeriod == null || period.compareTo(journalPeriod) > 0) {
+			journalPeriod = period;
+		} else if (period.compareTo(journalPeriod) < 0) {
+			logger.warn("{} tick of {} arrived in period {} => appended to the current journal", instrumentPk, period,
+					journalPeriod);
+		}
+		return journalPeriod;
+	}
+
+	/**
+	 * Must be called holding journals
+	 *
+	 * @return journal of the period , previous one of the instrument is closed on period change
+	 */
+	private TickJournal getJournal(TypeMessage typeMessage, Instrument instrument, String period) throws IOException {
+		String key = instrument.getPrimaryKey() + "_" + typeMessage.name();
+		File file = new File(getFilename(typeMessage, instrument, period, TickJournal.EXTENSION));
+		TickJournal journal = journals.get(key);
+		if (journal != null && !journal.getFile().equals(file)) {
+			logger.info("closing journal {} with {} records", journal.getFile(), journal.getRecords());
+			journal.close();
+			journal = null;
+		}
+		if (journal == null) {
+			journal = new TickJournal(file, instrument.getPrimaryKey(), typeMessage.equals(TypeMessage.depth));
+			logger.info("journal {} opened with {} records", file, journal.getRecords());
+			journals.put(key, journal);
+		}
+		return journal;
+	}
+
+	private void appendJournal(Depth depth, Trade trade) {
+		TypeMessage typeMessage = depth != null ? TypeMessage.depth : TypeMessage.trade;
+		String instrumentPk = depth != null ? depth.getInstrument() : trade.getInstrument();
+		Instrument instrument = Instrument.getInstrument(instrumentPk);
+		if (instrument == null) {
+			logger.warn("cant find instrument for pk {} => not persisted", instrumentPk);
+			return;
+		}
+		long timestamp = depth != null ? depth.getTimestamp() : trade.getTimestamp();
+		synchronized (journals) {
+			try {
+				TickJournal journal = getJournal(typeMessage, instrument, getJournalPeriod(timestamp, instrumentPk));
+				if (depth != null) {
+					journal.append(depth);
+				} else {
+					journal.append(trade);
+				}
+			} catch (IOException e) {
+				logger.error("cant append {} {} to journal", instrumentPk, typeMessage, e);
+			}
+		}
+	}
+
+	/**
+	 * Flush the journals to disk and close the ones of a previous period to be converted
+	 */
+	private void flushJournals() {
+		synchronized (journals) {
+			String currentPeriod = getCurrentJournalPeriod() + TickJournal.EXTENSION;
+			Iterator<Map.Entry<String, TickJournal>> iterator = journals.entrySet().iterator();
+			while (iterator.hasNext()) {
+				TickJournal journal = iterator.next().getValue();
+				statistics.setStatistics(journal.getInstrumentPk() + (journal.isDepth() ? ".depth" : ".trade"),
+						journal.getRecords());
+				try {
+					if (!journal.getFile().getName().endsWith(currentPeriod)) {
+						logger.info("closing journal {} with {} records", journal.getFile(), journal.getRecords());
+						journal.close();
+						iterator.remove();
+					} else {
+						journal.force();
+					}
+				} catch (IOException e) {
+					logger.error("cant close journal {}", journal.getFile(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the open journals , the ones of the current period are converted to parquet when it finishes
+	 */
+	public void closeJournals() {
+		synchronized (journals) {
+			for (TickJournal journal : journals.values()) {
+				try {
+					journal.close();
+				} catch (IOException e) {
+					logger.error("cant close journal {}", journal.getFile(), e);
+				}
+			}
+			journals.clear();
+		}
+	}
+
+	/**
+	 * @return latest period received , now before the first tick
+	 */
+	private String getCurrentJournalPeriod() {
+		synchronized (journals) {
+			if (journalPeriod == null) {
+				return journalDateFormat.format(new Date());
+			}
+			return journalPeriod;
+		}
+	}
+
+	private boolean isJournalOpen(File file) {
+		synchronized (journals) {
+			for (TickJournal journal : journals.values()) {
+				if (journal.getFile().getAbsoluteFile().equals(file.getAbsoluteFile())) {
+					return true;
+				}
+			}
+			return false;
+		}
 	}
 
 	public void saveDepth(Depth depth) {
+		if (persistJournal) {
+			appendJournal(depth, null);
+			return;
+		}
 		//add to persistor
 		calendar.setTimeInMillis(depth.getTimestamp());
 		Instrument instrument = Instrument.getInstrument(depth.getInstrument());
@@ -150,6 +306,10 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 	}
 
 	public void saveTrade(Trade trade) {
+		if (persistJournal) {
+			appendJournal(null, trade);
+			return;
+		}
 		//add to persistor map
 		calendar.setTimeInMillis(trade.getTimestamp());
 		Instrument instrument = Instrument.getInstrument(trade.getInstrument());
@@ -264,6 +424,10 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 						entryInstrumentCache.getValue().cleanTrade(timestampToCleanTrade);
 					}
 
+					if (persistJournal) {
+						flushJournals();
+					}
+
 				} catch (Exception e) {
 					logger.error("Exception running persistor ", e);
 				}
@@ -280,13 +444,18 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
 
 		if (typeMessage.equals(TypeMessage.depth)) {
-			Depth depth = GSON.fromJson(content, Depth.class);
+			Depth depth = (Depth) MessageCodecs.decode(typeMessage, content);
 			saveDepth(depth);
 
 		} else if (typeMessage.equals(TypeMessage.trade)) {
-			Trade trade = GSON.fromJson(content, Trade.class);
+			Trade trade = (Trade) MessageCodecs.decode(typeMessage, content);
 			saveTrade(trade);
 		}
 
@@ -322,6 +491,12 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 					} else {
 						filesToProcess = moveFilesParquetFolder(csvFilesFound);
 					}
+					List<String> journalFilesFound = getJournalFilesFinished();
+					if (persistParquet) {
+						filesToProcess.addAll(createParquetsFromJournals(journalFilesFound));
+					} else {
+						filesToProcess.addAll(moveFilesParquetFolder(journalFilesFound));
+					}
 
 					markAsProcessed(filesToProcess);
 
@@ -399,7 +574,8 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 		File[] matchingFiles = f.listFiles(new FilenameFilter() {
 
 			public boolean accept(File dir, String name) {
-				return !name.endsWith(todayFormat + ".csv") && new File(dir + File.separator + name).isFile();
+				return !name.endsWith(todayFormat + ".csv") && !name.endsWith(TickJournal.EXTENSION) && new File(
+						dir + File.separator + name).isFile();
 			}
 		});
 		if (matchingFiles != null) {
@@ -411,6 +587,26 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 
 	}
 
+	private List<String> getJournalFilesFinished() {
+		List<String> output = new ArrayList<>();
+		File f = new File(dataPath);
+		String todayFormat = getCurrentJournalPeriod();
+		File[] matchingFiles = f.listFiles(new FilenameFilter() {
+
+			public boolean accept(File dir, String name) {
+				return name.endsWith(TickJournal.EXTENSION) && !name.endsWith(todayFormat + TickJournal.EXTENSION);
+			}
+		});
+		if (matchingFiles != null) {
+			for (File file : matchingFiles) {
+				if (file.isFile() && !isJournalOpen(file)) {
+					output.add(file.getAbsolutePath());
+				}
+			}
+		}
+		return output;
+	}
+
 	private void markAsProcessed(List<String> filesProcessed) {
 		if (filesProcessed.size() == 0) {
 			return;
@@ -626,6 +822,58 @@ public class PersistorMarketDataConnector implements Runnable, ConnectorListener
 		return filesProcessed;
 	}
 
+	private void addError(String file, List<String> filesProcessed) {
+		long currentCounter = fileToErrorCounter.getOrDefault(file, 0L);
+		if (currentCounter > MAX_RETRIES_PARQUET) {
+			logger.error("reach the limit of {} {} => mas as processed to delete it", MAX_RETRIES_PARQUET, file);
+			filesProcessed.add(file);
+			fileToErrorCounter.remove(file);
+			return;
+		}
+		fileToErrorCounter.put(file, currentCounter + 1);
+	}
+
+	private List<String> createParquetsFromJournals(List<String> journalFilesFound) {
+		List<String> filesProcessed = new ArrayList<>();
+		for (String journalFile : journalFilesFound) {
+			try {
+				List<CSVable> listToPersist = TickJournal.read(new File(journalFile));
+				if (listToPersist.size() == 0) {
+					logger.info("empty journal {}", journalFile);
+					filesProcessed.add(journalFile);
+					continue;
+				}
+				CSVable first = listToPersist.get(0);
+				boolean isDepth = first instanceof Depth;
+				String instrumentPK = isDepth ? ((Depth) first).getInstrument() : ((Trade) first).getInstrument();
+				Instrument instrument = Instrument.getInstrument(instrumentPK);
+				if (instrument == null) {
+					logger.warn("cant find instrument for pk {}", instrumentPK);
+					continue;
+				}
+				Date date = dateFormat.parse(getDateFromCSVFilename(journalFile));
+				TypeMessage typeMessage = isDepth ? TypeMessage.depth : TypeMessage.trade;
+				Class classToPersist = isDepth ? Depth.class : Trade.class;
+				String pathOutput = getParquetPath(instrument, date, typeMessage.name());
+				logger.info("generating parquet file in {} from {} journal records", pathOutput, listToPersist.size());
+				File f = new File(pathOutput);
+				if (!f.getParentFile().exists()) {
+					f.getParentFile().mkdirs();//create directory if i doesnt exist
+				}
+				if (!parquetDataManager.saveData(listToPersist, classToPersist, pathOutput)) {
+					logger.error("cant save parquet {} from {}", pathOutput, journalFile);
+					addError(journalFile, filesProcessed);
+					continue;
+				}
+				filesProcessed.add(journalFile);
+			} catch (Exception e) {
+				logger.error("cant read journal {} to transform to parquet", journalFile, e);
+				addError(journalFile, filesProcessed);
+			}
+		}
+		return filesProcessed;
+	}
+
 	@Getter @Setter private class InstrumentCache {
 
 		private NavigableMap<Long, Depth> depthCache;//last timestamp to depth
@@ -0,0 +1,141 @@
+package com.lambda.investing.market_data_connector.binance;
+
+import com.binance.api.client.domain.event.DepthEvent;
+import com.binance.api.client.domain.market.OrderBook;
+import com.binance.api.client.domain.market.OrderBookEntry;
+import com.lambda.investing.model.market_data.Depth;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BinanceOrderBookTest {
+
+	private static final String SYMBOL = "BTCUSDT";
+
+	private static List<OrderBookEntry> entries(String... priceQuantities) {
+		List<OrderBookEntry> output = new ArrayList<>();
+		for (int index = 0; index < priceQuantities.length; index += 2) {
+			OrderBookEntry entry = new OrderBookEntry();
+			entry.setPrice(priceQuantities[index]);
+			entry.setQty(priceQuantities[index + 1]);
+			output.add(entry);
+		}
+		return output;
+	}
+
+	private static OrderBook snapshot(long lastUpdateId, List<OrderBookEntry> bids, List<OrderBookEntry> asks) {
+		OrderBook orderBook = new OrderBook();
+		orderBook.setLastUpdateId(lastUpdateId);
+		orderBook.setBids(bids);
+		orderBook.setAsks(asks);
+		return orderBook;
+	}
+
+	private static DepthEvent event(long firstUpdateId, long finalUpdateId, List<OrderBookEntry> bids,
+			List<OrderBookEntry> asks) {
+		DepthEvent depthEvent = new DepthEvent();
+		depthEvent.setEventType("depthUpdate");
+		depthEvent.setSymbol(SYMBOL);
+		depthEvent.setEventTime(1000 + finalUpdateId);
+		depthEvent.setFirstUpdateId(firstUpdateId);
+		depthEvent.setFinalUpdateId(finalUpdateId);
+		depthEvent.setBids(bids);
+		depthEvent.setAsks(asks);
+		return depthEvent;
+	}
+
+	private static class CountingListener implements BinanceOrderBook.BinanceOrderBookListener {
+
+		private int levelUpdates = 0;
+		private int topUpdates = 0;
+		private long firstTopTimestamp = 0;
+
+		@Override public void onLevelUpdate(BinanceOrderBook orderBook, boolean isBid, double price,
+				double quantity) {
+			levelUpdates++;
+		}
+
+		@Override public void onTopUpdate(BinanceOrderBook orderBook, long timestamp) {
+			if (topUpdates == 0) {
+				firstTopTimestamp = timestamp;
+			}
+			topUpdates++;
+		}
+	}
+
+	@Test public void testReplayWithGap() throws Exception {
+		File file = new File(Files.createTempDirectory("binance_depth").toFile(), "depth_events.json");
+		try (BinanceDepthEventsFile depthEventsFile = new BinanceDepthEventsFile(file)) {
+			//event before the snapshot is buffered and dropped as already in it
+			depthEventsFile.write(event(8, 10, entries("99.0", "5"), entries()));
+			depthEventsFile.write(SYMBOL,
+					snapshot(10, entries("100.0", "1", "99.0", "2"), entries("101.0", "1", "102.0", "2")));
+			depthEventsFile.write(event(11, 12, entries("100.5", "3"), entries("101.0", "0")));
+			depthEventsFile.write(event(13, 13, entries("98.0", "1"), entries()));
+			//gap 14 -> 15 drops the book until next snapshot
+			depthEventsFile.write(event(15, 16, entries("100.5", "0"), entries()));
+			depthEventsFile.write(SYMBOL, snapshot(16, entries("100.0", "4"), entries("101.5", "1", "103.0", "1")));
+			depthEventsFile.write(event(17, 17, entries(), entries("101.2", "2")));
+		}
+
+		CountingListener listener = new CountingListener();
+		BinanceOrderBook orderBook = new BinanceOrderBook("btcusdt_binance", 2, null, listener);
+		Map<String, BinanceOrderBook> symbolToOrderBook = new HashMap<>();
+		symbolToOrderBook.put(SYMBOL.toLowerCase(), orderBook);
+		Assert.assertEquals(7, BinanceDepthEventsFile.replay(file, symbolToOrderBook));
+
+		Assert.assertTrue(orderBook.isSynced());
+		Assert.assertEquals(17, orderBook.getLastUpdateId());
+		Assert.assertEquals(1, orderBook.getGaps());
+		Assert.assertEquals(2, orderBook.getSnapshots());
+
+		Depth depth = orderBook.getDepth();
+		Assert.assertEquals(1, depth.getBids().length);
+		Assert.assertEquals(100.0, depth.getBestBid(), 0.0);
+		Assert.assertEquals(4.0, depth.getBestBidQty(), 0.0);
+		Assert.assertEquals(2, depth.getAsks().length);
+		Assert.assertArrayEquals(new Double[] { 101.2, 101.5 }, depth.getAsks());
+		Assert.assertArrayEquals(new Double[] { 2.0, 1.0 }, depth.getAsksQuantities());
+		Assert.assertEquals(1017, depth.getTimestamp());
+
+		//98.0 is out of the top 2 levels => level update without top update
+		Assert.assertEquals(4, listener.levelUpdates);
+		//snapshots are published with the time of the first event applied after them
+		Assert.assertEquals(2, listener.topUpdates);
+		Assert.assertEquals(1012, listener.firstTopTimestamp);
+	}
+
+	@Test public void testSortedLevels() {
+		int[] snapshotRequests = new int[1];
+		BinanceOrderBook orderBook = new BinanceOrderBook("btcusdt_binance", 5, book -> snapshotRequests[0]++, null);
+		orderBook.onDepthEvent(event(1, 1, entries("10", "1"), entries()));
+		Assert.assertFalse(orderBook.isSynced());
+		Assert.assertEquals(1, snapshotRequests[0]);
+
+		orderBook.onSnapshot(snapshot(0, entries(), entries()));
+		for (long updateId = 2; updateId < 200; updateId++) {
+			String bidPrice = String.valueOf(updateId % 97);
+			String askPrice = String.valueOf(1000 - updateId % 89);
+			orderBook.onDepthEvent(event(updateId, updateId, entries(bidPrice, "1"), entries(askPrice, "1")));
+		}
+		Assert.assertEquals(1, snapshotRequests[0]);
+		double[] bids = new double[orderBook.getLevels(true)];
+		for (int level = 0; level < bids.length; level++) {
+			bids[level] = orderBook.getPrice(true, level);
+			Assert.assertTrue(level == 0 || bids[level] < bids[level - 1]);
+		}
+		Assert.assertEquals(97, bids.length);
+		for (int level = 1; level < orderBook.getLevels(false); level++) {
+			Assert.assertTrue(orderBook.getPrice(false, level) > orderBook.getPrice(false, level - 1));
+		}
+		Assert.assertTrue(Arrays.stream(bids).allMatch(price -> price >= 0 && price < 97));
+	}
+
+}
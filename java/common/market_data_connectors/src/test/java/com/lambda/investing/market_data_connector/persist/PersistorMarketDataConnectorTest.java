@@ -0,0 +1,64 @@
+package com.lambda.investing.market_data_connector.persist;
+
+import com.lambda.investing.data_manager.journal.TickJournal;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.CSVable;
+import com.lambda.investing.model.market_data.Trade;
+import com.lambda.investing.model.time.Period;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import static com.lambda.investing.Configuration.FILE_CSV_DATE_FORMAT;
+
+public class PersistorMarketDataConnectorTest {
+
+	private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+	private static Trade createTrade(String instrumentPk, long timestamp, double price) {
+		Trade trade = new Trade();
+		trade.setInstrument(instrumentPk);
+		trade.setTimestamp(timestamp);
+		trade.setPrice(price);
+		trade.setQuantity(1.0);
+		return trade;
+	}
+
+	@Test public void testJournalLateTickAfterPeriodChange() throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		String instrumentPk = instrument.getPrimaryKey();
+
+		File dataPath = Files.createTempDirectory("persistor").toFile();
+		PersistorMarketDataConnector persistor = new PersistorMarketDataConnector(dataPath.getAbsolutePath(),
+				dataPath.getAbsolutePath() + File.separator + "parquet", null, null, Period.day, 5000);
+		persistor.setPersistJournal(true);
+
+		SimpleDateFormat dateFormat = (SimpleDateFormat) FILE_CSV_DATE_FORMAT.clone();
+		long firstDay = dateFormat.parse("20240110").getTime();
+		long secondDay = firstDay + DAY_MS;
+		persistor.saveTrade(createTrade(instrumentPk, secondDay - 2000, 1.0));
+		persistor.saveTrade(createTrade(instrumentPk, secondDay + 1000, 2.0));
+		//out of order tick of the closed day
+		persistor.saveTrade(createTrade(instrumentPk, secondDay - 1000, 3.0));
+		persistor.saveTrade(createTrade(instrumentPk, secondDay + 2000, 4.0));
+		persistor.closeJournals();
+
+		String prefix = dataPath + File.separator + instrumentPk + "_trade_";
+		List<CSVable> firstDayTrades = TickJournal
+				.read(new File(prefix + dateFormat.format(firstDay) + TickJournal.EXTENSION));
+		Assert.assertEquals(1, firstDayTrades.size());
+		Assert.assertEquals(1.0, ((Trade) firstDayTrades.get(0)).getPrice(), 0.0);
+
+		List<CSVable> secondDayTrades = TickJournal
+				.read(new File(prefix + dateFormat.format(secondDay) + TickJournal.EXTENSION));
+		Assert.assertEquals(3, secondDayTrades.size());
+		Assert.assertEquals(3.0, ((Trade) secondDayTrades.get(1)).getPrice(), 0.0);
+	}
+
+}
@@ -19,6 +19,9 @@ public class ExecutionReport {
 
 	private long timestampCreation;
 
+	public ExecutionReport() {
+	}
+
 	/**
 	 * Generates new Execution report from orderRequestPattern
 	 *
@@ -2,6 +2,7 @@ package com.lambda.investing.trading_engine_connector;
 
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.connector.ConnectorProvider;
 import com.lambda.investing.connector.ConnectorPublisher;
 import com.lambda.investing.model.messaging.TypeMessage;
@@ -14,7 +15,6 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.lambda.investing.trading_engine_connector.ZeroMqTradingEngineConnector.ALL_ALGORITHMS_SUBSCRIPTION;
-import static com.lambda.investing.trading_engine_connector.ZeroMqTradingEngineConnector.GSON;
 
 public abstract class AbstractBrokerTradingEngine implements TradingEngineConnector, ConnectorListener {
 
@@ -72,16 +72,21 @@ public abstract class AbstractBrokerTradingEngine implements TradingEngineConnec
 	protected void notifyExecutionReportById(ExecutionReport executionReport) {
 		String id = executionReport.getAlgorithmInfo();
 		this.executionReportConnectorPublisher
-				.publish(executionReportConnectorConfiguration, TypeMessage.execution_report, id,
-						GSON.toJson(executionReport));
+				.publishMessage(executionReportConnectorConfiguration, TypeMessage.execution_report, id,
+						executionReport);
 
 	}
 
 	//receiving OrderRequest
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
 		if (typeMessage.equals(TypeMessage.order_request)) {
-			OrderRequest orderRequest = GSON.fromJson(content, OrderRequest.class);
+			OrderRequest orderRequest = (OrderRequest) MessageCodecs.decode(typeMessage, content);
 			orderRequest(orderRequest);
 		}
 
@@ -1,9 +1,12 @@
 package com.lambda.investing.trading_engine_connector;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
+import com.lambda.investing.connector.codec.JsonMessageCodec;
+import com.lambda.investing.connector.codec.MessageCodecs;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.connector.zero_mq.ZeroMqConfiguration;
 import com.lambda.investing.connector.zero_mq.ZeroMqProvider;
 import com.lambda.investing.connector.zero_mq.ZeroMqPublisher;
@@ -16,7 +19,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.PostConstruct;
-import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,11 +32,11 @@ public class ZeroMqTradingEngineConnector implements TradingEngineConnector, Con
 	private ZeroMqPublisher zeroMqPublisher;
 	private ExecutionReportListener allAlgorithmsExecutionReportListener;
 
-	public static Gson GSON = new GsonBuilder()
-			.excludeFieldsWithModifiers(Modifier.STATIC, Modifier.TRANSIENT, Modifier.VOLATILE, Modifier.FINAL)
-			.serializeSpecialFloatingPointValues().disableHtmlEscaping().create();
+	public static Gson GSON = JsonMessageCodec.GSON;
 
 	protected Map<String, Map<ExecutionReportListener, String>> listenersManager;
+	private static final LatencyRecorder EXECUTION_REPORT_DELIVERY_LATENCY = Metrics
+			.getLatencyRecorder(Metrics.EXECUTION_REPORT_DELIVERY);
 
 	/***
 	 * Trader engine for generic brokers
@@ -91,17 +93,23 @@ public class ZeroMqTradingEngineConnector implements TradingEngineConnector, Con
 
 	@Override public boolean orderRequest(OrderRequest orderRequest) {
 		String topic = TopicUtils.getTopic(orderRequest.getInstrument(), TypeMessage.order_request);
-		String message = GSON.toJson(orderRequest);
-		this.zeroMqPublisher.publish(this.zeroMqConfigurationOrderRequest, TypeMessage.order_request, topic, message);
+		this.zeroMqPublisher
+				.publishMessage(this.zeroMqConfigurationOrderRequest, TypeMessage.order_request, topic, orderRequest);
 		return true;
 	}
 
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
 		//ER read
 
 		if (typeMessage.equals(TypeMessage.execution_report)) {
-			ExecutionReport executionReport = GSON.fromJson(content, ExecutionReport.class);
+			long startNanos = Metrics.nanoTime();
+			ExecutionReport executionReport = (ExecutionReport) MessageCodecs.decode(typeMessage, content);
 			String algorithmInfo = executionReport.getAlgorithmInfo();
 			Map<ExecutionReportListener, String> insideMap = listenersManager
 					.getOrDefault(algorithmInfo, new ConcurrentHashMap<>());
@@ -113,6 +121,7 @@ public class ZeroMqTradingEngineConnector implements TradingEngineConnector, Con
 			if (allAlgorithmsExecutionReportListener != null) {
 				allAlgorithmsExecutionReportListener.onExecutionReportUpdate(executionReport);
 			}
+			EXECUTION_REPORT_DELIVERY_LATENCY.recordSince(startNanos);
 		}
 
 	}
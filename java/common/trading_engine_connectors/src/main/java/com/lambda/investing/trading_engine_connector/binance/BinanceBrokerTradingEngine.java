@@ -2,13 +2,6 @@ package com.lambda.investing.trading_engine_connector.binance;
 
 import com.binance.api.client.BinanceApiCallback;
 import com.binance.api.client.domain.ExecutionType;
-import com.binance.api.client.domain.OrderSide;
-import com.binance.api.client.domain.OrderType;
-import com.binance.api.client.domain.TimeInForce;
-import com.binance.api.client.domain.account.NewOrder;
-import com.binance.api.client.domain.account.NewOrderResponse;
-import com.binance.api.client.domain.account.request.CancelOrderRequest;
-import com.binance.api.client.domain.account.request.CancelOrderResponse;
 import com.binance.api.client.domain.event.OrderTradeUpdateEvent;
 import com.binance.api.client.domain.event.UserDataUpdateEvent;
 import com.lambda.investing.binance.BinanceBrokerConnector;
@@ -22,15 +15,16 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class BinanceBrokerTradingEngine extends AbstractBrokerTradingEngine
-		implements BinanceApiCallback<UserDataUpdateEvent> {
+		implements BinanceApiCallback<UserDataUpdateEvent>, BinanceOrderGateway.BinanceOrderGatewayListener {
 
-	private static String CANCELED_STATUS_RECEIVED = "CANCELED";//"status": "CANCELED",
 	protected Logger logger = LogManager.getLogger(BinanceBrokerTradingEngine.class);
 	private TradingEngineConfiguration tradingEngineConfiguration;
 	private BinanceBrokerConnector binanceBrokerConnector;
+	private BinanceOrderGateway orderGateway;
 	BinanceTradingEngineConfiguration binanceTradingEngineConfiguration;
 
 	private Map<String, OrderRequest> clientOrderIdToOrderRequest;
@@ -56,6 +50,7 @@ public class BinanceBrokerTradingEngine extends AbstractBrokerTradingEngine
 			this.binanceBrokerConnector = BinanceBrokerConnector
 					.getInstance(binanceTradingEngineConfiguration.getApiKey(),
 							binanceTradingEngineConfiguration.getSecretKey());
+			this.orderGateway = new BinanceOrderGateway(this.binanceBrokerConnector.getAsyncRestClient(), this);
 		} else {
 			logger.error("trying to BinanceBrokerTradingEngine with a not binanceTradingEngineConfiguration");
 		}
@@ -67,41 +62,15 @@ public class BinanceBrokerTradingEngine extends AbstractBrokerTradingEngine
 				.onUserDataUpdateEvent(binanceTradingEngineConfiguration.getApiKey(), this);
 	}
 
-	private OrderType getOrderType(OrderRequest orderRequest) {
-		OrderType orderType = OrderType.LIMIT;
-		if (orderRequest.getOrderType().equals(com.lambda.investing.model.trading.OrderType.Market)) {
-			orderType = OrderType.MARKET;
-		}
-		if (orderRequest.getOrderType().equals(com.lambda.investing.model.trading.OrderType.Stop)) {
-			orderType = OrderType.STOP_LOSS;
-		}
-		return orderType;
-	}
-
-	private TimeInForce getTimeInForce(OrderRequest orderRequest) {
-		TimeInForce timeInForce = TimeInForce.GTC;
-		return timeInForce;
-	}
-
+	/**
+	 * Requests are sent asynchronously by the BinanceOrderGateway , the caller thread never waits a round trip
+	 */
 	@Override public boolean orderRequest(OrderRequest orderRequest) {
 
 		//send new order
 		if (orderRequest.getOrderRequestAction().equals(OrderRequestAction.Send)) {
-
-			//			NewOrder(String symbol, OrderSide side, OrderType type, TimeInForce timeInForce, String quantity,String price)
-			Instrument instrument = Instrument.getInstrument(orderRequest.getInstrument());
-			String symbol = instrument.getSymbol().toLowerCase();
-			OrderSide orderSide = orderRequest.getVerb().equals(Verb.Buy) ? OrderSide.BUY : OrderSide.SELL;
-			OrderType orderType = getOrderType(orderRequest);
-			TimeInForce timeInForce = getTimeInForce(orderRequest);
-			String quantity = BinanceBrokerConnector.NUMBER_FORMAT.format(orderRequest.getQuantity());
-			String price = BinanceBrokerConnector.NUMBER_FORMAT.format(orderRequest.getPrice());
-			NewOrder newOrder = new NewOrder(symbol, orderSide, orderType, timeInForce, quantity, price);
-			newOrder.newClientOrderId(orderRequest.getClientOrderId());//set my clientOrderId
-
 			clientOrderIdToOrderRequest.put(orderRequest.getClientOrderId(), orderRequest);
-			NewOrderResponse response = this.binanceBrokerConnector.getRestClient().newOrder(newOrder);
-
+			orderGateway.sendOrder(orderRequest);
 			return true;
 		}
 
@@ -114,35 +83,11 @@ public class BinanceBrokerTradingEngine extends AbstractBrokerTradingEngine
 				return false;
 			}
 
-			//cancel the original order
-			Instrument instrument = Instrument.getInstrument(orderRequest.getInstrument());
-			CancelOrderRequest cancelOrderRequest = new CancelOrderRequest(instrument.getSymbol(),
-					orderRequest.getOrigClientOrderId());
-			String modifyCancelClientOrderId = cancelOrderRequest.getNewClientOrderId();
-			cancelOrderRequest.newClientOrderId(modifyCancelClientOrderId);
-
+			//cancel the original order and send the new one
+			String modifyCancelClientOrderId = UUID.randomUUID().toString();
 			modificationCancelIdGenerated.put(modifyCancelClientOrderId, "");
-			CancelOrderResponse cancelOrderResponse = this.binanceBrokerConnector.getRestClient()
-					.cancelOrder(cancelOrderRequest);
-			if (!cancelOrderResponse.getStatus().equalsIgnoreCase(CANCELED_STATUS_RECEIVED)) {
-				logger.warn("can't cancel {} in {} status received {} ", cancelOrderRequest.getOrigClientOrderId(),
-						orderRequest.getInstrument(), cancelOrderResponse.getStatus());
-				return false;
-			}
-
-			//send the new order
-			String symbol = instrument.getSymbol().toLowerCase();
-			OrderSide orderSide = orderRequest.getVerb().equals(Verb.Buy) ? OrderSide.BUY : OrderSide.SELL;
-			OrderType orderType = getOrderType(orderRequest);
-			TimeInForce timeInForce = getTimeInForce(orderRequest);
-			String quantity = BinanceBrokerConnector.NUMBER_FORMAT.format(orderRequest.getQuantity());
-			String price = BinanceBrokerConnector.NUMBER_FORMAT.format(orderRequest.getPrice());
-			NewOrder newOrder = new NewOrder(symbol, orderSide, orderType, timeInForce, quantity, price);
-			newOrder.newClientOrderId(orderRequest.getClientOrderId());//set my clientOrderId
-
 			clientOrderIdToOrderRequest.put(orderRequest.getClientOrderId(), orderRequest);
-			NewOrderResponse response = this.binanceBrokerConnector.getRestClient().newOrder(newOrder);
-
+			orderGateway.modifyOrder(orderRequest, modifyCancelClientOrderId);
 			return true;
 		}
 
@@ -155,14 +100,8 @@ public class BinanceBrokerTradingEngine extends AbstractBrokerTradingEngine
 				notifyExecutionReportById(createRejectionExecutionReport(orderRequest, reason));
 				return false;
 			}
-			Instrument instrument = Instrument.getInstrument(orderRequest.getInstrument());
-			CancelOrderRequest cancelOrderRequest = new CancelOrderRequest(instrument.getSymbol(),
-					orderRequest.getOrigClientOrderId());
-			cancelOrderRequest.newClientOrderId(orderRequest.getClientOrderId());
 			clientOrderIdToOrderRequest.put(orderRequest.getClientOrderId(), orderRequest);
-			CancelOrderResponse cancelOrderResponse = this.binanceBrokerConnector.getRestClient()
-					.cancelOrder(cancelOrderRequest);
-
+			orderGateway.cancelOrder(orderRequest);
 			return true;
 
 		}
@@ -170,6 +109,17 @@ public class BinanceBrokerTradingEngine extends AbstractBrokerTradingEngine
 		return false;
 	}
 
+	@Override public void onAccepted(OrderRequest orderRequest) {
+		//execution report arrives from the user data stream
+	}
+
+	@Override public void onRejected(OrderRequest orderRequest, String reason) {
+		if (!orderRequest.getOrderRequestAction().equals(OrderRequestAction.Cancel)) {
+			clientOrderIdToOrderRequest.remove(orderRequest.getClientOrderId());
+		}
+		notifyExecutionReportById(createRejectionExecutionReport(orderRequest, reason));
+	}
+
 	@Override public void onResponse(UserDataUpdateEvent response) {
 		if (response.getEventType().equals(UserDataUpdateEvent.UserDataUpdateEventType.ORDER_TRADE_UPDATE)) {
 			//execution reports arrived here
@@ -0,0 +1,268 @@
+package com.lambda.investing.trading_engine_connector.binance;
+
+import com.binance.api.client.BinanceApiAsyncRestClient;
+import com.binance.api.client.BinanceApiCallback;
+import com.binance.api.client.domain.OrderSide;
+import com.binance.api.client.domain.OrderType;
+import com.binance.api.client.domain.TimeInForce;
+import com.binance.api.client.domain.account.NewOrder;
+import com.binance.api.client.domain.account.NewOrderResponse;
+import com.binance.api.client.domain.account.request.CancelOrderRequest;
+import com.binance.api.client.domain.account.request.CancelOrderResponse;
+import com.lambda.investing.binance.BinanceBrokerConnector;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.trading.OrderRequest;
+import com.lambda.investing.model.trading.Verb;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Asynchronous order entry on the Binance REST api , a request is sent without waiting the responses of the previous ones
+ * Responses arrive on the http client threads and are correlated with the request by clientOrderId
+ * Execution reports still arrive from the user data stream , the gateway only notifies the rejected requests
+ * Modify is a cancel of the original order and a new order sent when the cancel response arrives ,
+ * if PIPELINE_CANCEL_REPLACE both are sent back to back and the new order is cancelled when the cancel fails
+ * (the original was filled) to not double the exposure
+ */
+public class BinanceOrderGateway {
+
+	public static boolean PIPELINE_CANCEL_REPLACE = false;
+	public static long PENDING_TIMEOUT_MS = 60000;//requests without response (http 504) are purged after it
+	private static final int PURGE_PENDING_SIZE = 1024;
+	private static final String CANCELED_STATUS_RECEIVED = "CANCELED";
+	private static final LatencyRecorder ORDER_ENTRY_LATENCY = Metrics
+			.getLatencyRecorder(Metrics.ORDER_ENTRY_RESPONSE);
+
+	protected Logger logger = LogManager.getLogger(BinanceOrderGateway.class);
+
+	public interface BinanceOrderGatewayListener {
+
+		void onAccepted(OrderRequest orderRequest);
+
+		void onRejected(OrderRequest orderRequest, String reason);
+	}
+
+	private static class PendingRequest {
+
+		private final OrderRequest orderRequest;
+		private final long sentTimestamp;
+		private final long sentNanos;
+
+		private PendingRequest(OrderRequest orderRequest) {
+			this.orderRequest = orderRequest;
+			this.sentTimestamp = System.currentTimeMillis();
+			this.sentNanos = Metrics.nanoTime();
+		}
+	}
+
+	private final BinanceApiAsyncRestClient asyncRestClient;
+	private final BinanceOrderGatewayListener listener;
+	private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();//by clientOrderId
+	private final Set<String> replacesToCancel = ConcurrentHashMap.newKeySet();//cancelled when its response arrives
+
+	public BinanceOrderGateway(BinanceApiAsyncRestClient asyncRestClient, BinanceOrderGatewayListener listener) {
+		this.asyncRestClient = asyncRestClient;
+		this.listener = listener;
+	}
+
+	/**
+	 * @return requests sent without response yet
+	 */
+	public int getPendingRequests() {
+		return pendingRequests.size();
+	}
+
+	private static OrderType getOrderType(OrderRequest orderRequest) {
+		OrderType orderType = OrderType.LIMIT;
+		if (orderRequest.getOrderType().equals(com.lambda.investing.model.trading.OrderType.Market)) {
+			orderType = OrderType.MARKET;
+		}
+		if (orderRequest.getOrderType().equals(com.lambda.investing.model.trading.OrderType.Stop)) {
+			orderType = OrderType.STOP_LOSS;
+		}
+		return orderType;
+	}
+
+	private static TimeInForce getTimeInForce(OrderRequest orderRequest) {
+		TimeInForce timeInForce = TimeInForce.GTC;
+		return timeInForce;
+	}
+
+	public static NewOrder createNewOrder(OrderRequest orderRequest) {
+		//			NewOrder(String symbol, OrderSide side, OrderType type, TimeInForce timeInForce, String quantity,String price)
+		Instrument instrument = Instrument.getInstrument(orderRequest.getInstrument());
+		String symbol = instrument.getSymbol().toLowerCase();
+		OrderSide orderSide = orderRequest.getVerb().equals(Verb.Buy) ? OrderSide.BUY : OrderSide.SELL;
+		OrderType orderType = getOrderType(orderRequest);
+		TimeInForce timeInForce = getTimeInForce(orderRequest);
+		String quantity = BinanceBrokerConnector.NUMBER_FORMAT.format(orderRequest.getQuantity());
+		String price = BinanceBrokerConnector.NUMBER_FORMAT.format(orderRequest.getPrice());
+		NewOrder newOrder = new NewOrder(symbol, orderSide, orderType, timeInForce, quantity, price);
+		newOrder.newClientOrderId(orderRequest.getClientOrderId());//set my clientOrderId
+		return newOrder;
+	}
+
+	private void addPending(String clientOrderId, OrderRequest orderRequest) {
+		if (pendingRequests.size() > PURGE_PENDING_SIZE) {
+			purgePending();
+		}
+		pendingRequests.put(clientOrderId, new PendingRequest(orderRequest));
+	}
+
+	private PendingRequest removePending(String clientOrderId) {
+		PendingRequest pendingRequest = pendingRequests.remove(clientOrderId);
+		if (pendingRequest != null) {
+			ORDER_ENTRY_LATENCY.recordSince(pendingRequest.sentNanos);
+		}
+		return pendingRequest;
+	}
+
+	private void purgePending() {
+		long limitTimestamp = System.currentTimeMillis() - PENDING_TIMEOUT_MS;
+		Iterator<Map.Entry<String, PendingRequest>> iterator = pendingRequests.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, PendingRequest> entry = iterator.next();
+			if (entry.getValue().sentTimestamp < limitTimestamp) {
+				logger.warn("no response received of {} in {} ms -> purged", entry.getKey(), PENDING_TIMEOUT_MS);
+				replacesToCancel.remove(entry.getKey());
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Sends the new order of a Send or Modify orderRequest
+	 */
+	public void sendOrder(OrderRequest orderRequest) {
+		String clientOrderId = orderRequest.getClientOrderId();
+		addPending(clientOrderId, orderRequest);
+		asyncRestClient.newOrder(createNewOrder(orderRequest), new BinanceApiCallback<NewOrderResponse>() {
+
+			@Override public void onResponse(NewOrderResponse response) {
+				if (removePending(clientOrderId) != null) {
+					listener.onAccepted(orderRequest);
+				}
+				if (replacesToCancel.remove(clientOrderId)) {
+					cancelReplace(orderRequest);
+				}
+			}
+
+			@Override public void onFailure(Throwable cause) {
+				replacesToCancel.remove(clientOrderId);
+				if (removePending(clientOrderId) != null) {
+					logger.warn("new order {} rejected {}", clientOrderId, cause.getMessage());
+					listener.onRejected(orderRequest, cause.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cancels orderRequest.origClientOrderId , the cancel is identified by orderRequest.clientOrderId
+	 */
+	public void cancelOrder(OrderRequest orderRequest) {
+		sendCancel(orderRequest, orderRequest.getClientOrderId(), null);
+	}
+
+	/**
+	 * Cancels orderRequest.origClientOrderId with cancelClientOrderId and sends the new order of orderRequest
+	 */
+	public void modifyOrder(OrderRequest orderRequest, String cancelClientOrderId) {
+		if (PIPELINE_CANCEL_REPLACE) {
+			sendCancel(orderRequest, cancelClientOrderId, null);
+			//original is filled or cancelled if the cancel fails , its execution report arrives from the user data stream
+			sendOrder(orderRequest);
+		} else {
+			sendCancel(orderRequest, cancelClientOrderId, orderRequest);
+		}
+	}
+
+	/**
+	 * Pipelined cancel of a modify failed => the new order of orderRequest is cancelled as soon as it's accepted
+	 */
+	private void onPipelinedCancelFailed(OrderRequest orderRequest) {
+		String clientOrderId = orderRequest.getClientOrderId();
+		replacesToCancel.add(clientOrderId);
+		//new order response already received
+		if (!pendingRequests.containsKey(clientOrderId) && replacesToCancel.remove(clientOrderId)) {
+			cancelReplace(orderRequest);
+		}
+	}
+
+	private void cancelReplace(OrderRequest orderRequest) {
+		Instrument instrument = Instrument.getInstrument(orderRequest.getInstrument());
+		logger.warn("cancel of {} failed => cancel its replace {}", orderRequest.getOrigClientOrderId(),
+				orderRequest.getClientOrderId());
+		//execution report of the cancel arrives from the user data stream
+		asyncRestClient.cancelOrder(new CancelOrderRequest(instrument.getSymbol(), orderRequest.getClientOrderId()),
+				new BinanceApiCallback<CancelOrderResponse>() {
+
+					@Override public void onResponse(CancelOrderResponse response) {
+					}
+
+					@Override public void onFailure(Throwable cause) {
+						logger.error("can't cancel replace {} of failed cancel {}", orderRequest.getClientOrderId(),
+								cause.getMessage());
+					}
+				});
+	}
+
+	/**
+	 * @param replaceOrderRequest new order sent when the cancel response arrives , null for none
+	 */
+	private void sendCancel(OrderRequest orderRequest, String cancelClientOrderId, OrderRequest replaceOrderRequest) {
+		Instrument instrument = Instrument.getInstrument(orderRequest.getInstrument());
+		CancelOrderRequest cancelOrderRequest = new CancelOrderRequest(instrument.getSymbol(),
+				orderRequest.getOrigClientOrderId());
+		cancelOrderRequest.newClientOrderId(cancelClientOrderId);
+		//a cancel of a modify is not notified to the algorithm , only its new order
+		boolean isCancelOfModify = !cancelClientOrderId.equals(orderRequest.getClientOrderId());
+		addPending(cancelClientOrderId, orderRequest);
+		asyncRestClient.cancelOrder(cancelOrderRequest, new BinanceApiCallback<CancelOrderResponse>() {
+
+			@Override public void onResponse(CancelOrderResponse response) {
+				if (removePending(cancelClientOrderId) == null) {
+					return;
+				}
+				if (!CANCELED_STATUS_RECEIVED.equalsIgnoreCase(response.getStatus())) {
+					logger.warn("can't cancel {} in {} status received {} ", orderRequest.getOrigClientOrderId(),
+							orderRequest.getInstrument(), response.getStatus());
+					if (replaceOrderRequest != null) {
+						listener.onRejected(replaceOrderRequest, "cancel status " + response.getStatus());
+					} else if (isCancelOfModify) {
+						onPipelinedCancelFailed(orderRequest);
+					}
+					return;
+				}
+				if (replaceOrderRequest != null) {
+					sendOrder(replaceOrderRequest);
+				} else if (!isCancelOfModify) {
+					listener.onAccepted(orderRequest);
+				}
+			}
+
+			@Override public void onFailure(Throwable cause) {
+				if (removePending(cancelClientOrderId) == null) {
+					return;
+				}
+				logger.warn("cancel {} of {} rejected {}", cancelClientOrderId, orderRequest.getOrigClientOrderId(),
+						cause.getMessage());
+				if (replaceOrderRequest != null) {
+					listener.onRejected(replaceOrderRequest, cause.getMessage());
+				} else if (isCancelOfModify) {
+					onPipelinedCancelFailed(orderRequest);
+				} else {
+					listener.onRejected(orderRequest, cause.getMessage());
+				}
+			}
+		});
+	}
+
+}
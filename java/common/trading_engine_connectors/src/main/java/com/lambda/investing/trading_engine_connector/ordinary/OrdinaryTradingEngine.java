@@ -5,6 +5,9 @@ import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
 import com.lambda.investing.connector.ConnectorProvider;
 import com.lambda.investing.connector.ThreadUtils;
+import com.lambda.investing.connector.codec.MessageCodecs;
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.connector.ordinary.OrdinaryConnectorConfiguration;
 import com.lambda.investing.model.messaging.TypeMessage;
 import com.lambda.investing.model.trading.ExecutionReport;
@@ -20,7 +23,6 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static com.lambda.investing.trading_engine_connector.ZeroMqTradingEngineConnector.ALL_ALGORITHMS_SUBSCRIPTION;
-import static com.lambda.investing.trading_engine_connector.ZeroMqTradingEngineConnector.GSON;
 
 public class OrdinaryTradingEngine implements TradingEngineConnector, ConnectorListener {
 
@@ -30,6 +32,8 @@ public class OrdinaryTradingEngine implements TradingEngineConnector, ConnectorL
 	private OrdinaryConnectorConfiguration ordinaryConnectorConfiguration = new OrdinaryConnectorConfiguration();
 	protected Map<String, Map<ExecutionReportListener, String>> listenersManager;
 	private ExecutionReportListener allAlgorithmsExecutionReportListener;
+	private static final LatencyRecorder EXECUTION_REPORT_DELIVERY_LATENCY = Metrics
+			.getLatencyRecorder(Metrics.EXECUTION_REPORT_DELIVERY);
 
 	private int threadsSendOrderRequest, threadsListeningExecutionReports;
 
@@ -106,20 +110,28 @@ public class OrdinaryTradingEngine implements TradingEngineConnector, ConnectorL
 
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
+		//delivery latency includes the wait in the receiverPool queue
+		long startNanos = Metrics.nanoTime();
 		if (this.threadsListeningExecutionReports == 0) {
-			_onUpdate(configuration, timestampReceived, typeMessage, content);
+			_onUpdate(configuration, timestampReceived, typeMessage, content, startNanos);
 		} else {
 			receiverPool.submit(() -> {
-				_onUpdate(configuration, timestampReceived, typeMessage, content);
+				_onUpdate(configuration, timestampReceived, typeMessage, content, startNanos);
 			});
 		}
 
 	}
 
-	private void _onUpdate(ConnectorConfiguration configuration, long timestampReceived, TypeMessage typeMessage, String content) {
+	private void _onUpdate(ConnectorConfiguration configuration, long timestampReceived, TypeMessage typeMessage,
+			Object content, long startNanos) {
 
 		if (typeMessage.equals(TypeMessage.execution_report)) {
-			ExecutionReport executionReport = GSON.fromJson(content, ExecutionReport.class);
+			ExecutionReport executionReport = (ExecutionReport) MessageCodecs.decode(typeMessage, content);
 			String algorithmInfo = executionReport.getAlgorithmInfo();
 			Map<ExecutionReportListener, String> insideMap = listenersManager.getOrDefault(algorithmInfo, new ConcurrentHashMap<>());
 			if (insideMap.size() > 0) {
@@ -127,6 +139,7 @@ public class OrdinaryTradingEngine implements TradingEngineConnector, ConnectorL
 					executionReportListener.onExecutionReportUpdate(executionReport);
 				}
 			}
+			EXECUTION_REPORT_DELIVERY_LATENCY.recordSince(startNanos);
 			//			if (allAlgorithmsExecutionReportListener != null) {
 			//				allAlgorithmsExecutionReportListener.onExecutionReportUpdate(executionReport);
 			//			}
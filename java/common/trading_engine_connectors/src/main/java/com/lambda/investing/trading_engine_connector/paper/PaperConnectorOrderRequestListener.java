@@ -5,6 +5,7 @@ import com.google.gson.GsonBuilder;
 import com.lambda.investing.connector.ConnectorConfiguration;
 import com.lambda.investing.connector.ConnectorListener;
 import com.lambda.investing.connector.ConnectorProvider;
+import com.lambda.investing.connector.codec.MessageCodecs;
 import com.lambda.investing.model.messaging.TypeMessage;
 import com.lambda.investing.model.trading.OrderRequest;
 import org.apache.logging.log4j.LogManager;
@@ -39,9 +40,14 @@ public class PaperConnectorOrderRequestListener implements ConnectorListener {
 
 	@Override public void onUpdate(ConnectorConfiguration configuration, long timestampReceived,
 			TypeMessage typeMessage, String content) {
+		onMessage(configuration, timestampReceived, typeMessage, content);
+	}
+
+	@Override public void onMessage(ConnectorConfiguration configuration, long timestampReceived,
+			TypeMessage typeMessage, Object content) {
 		if (typeMessage.equals(TypeMessage.order_request)) {
 			try {
-				OrderRequest orderRequestParsed = GSON.fromJson(content, OrderRequest.class);
+				OrderRequest orderRequestParsed = (OrderRequest) MessageCodecs.decode(typeMessage, content);
 				this.paperTradingEngineConnector.orderRequest(orderRequestParsed);
 			} catch (Exception ex) {
 				logger.error(
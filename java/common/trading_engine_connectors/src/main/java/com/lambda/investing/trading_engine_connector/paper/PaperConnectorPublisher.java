@@ -11,8 +11,6 @@ import com.lambda.investing.trading_engine_connector.ExecutionReportPublisher;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import static com.lambda.investing.market_data_connector.AbstractMarketDataProvider.GSON;
-
 /***
  * Will publish the market data after filling own orderbook and Execution reports
  */
@@ -33,10 +31,10 @@ public class PaperConnectorPublisher extends AbstractMarketDataConnectorPublishe
 	@Override public void notifyExecutionReport(ExecutionReport executionReport) {
 
 		String topic = TopicUtils.getTopic(executionReport.getInstrument(), TypeMessage.execution_report);
-		String executionReportJson = GSON.toJson(executionReport);
 		topic = topic + "." + TypeMessage.execution_report.name();
 		//		logger.debug("notify ER {}",executionReport);
-		connectorPublisher.publish(connectorConfiguration, TypeMessage.execution_report, topic, executionReportJson);
+		connectorPublisher
+				.publishMessage(connectorConfiguration, TypeMessage.execution_report, topic, executionReport);
 		if (statistics != null) {
 			statistics.addStatistics(topic);
 		}
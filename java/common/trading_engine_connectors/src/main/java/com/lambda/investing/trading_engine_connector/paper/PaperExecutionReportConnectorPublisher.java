@@ -41,6 +41,7 @@ public class PaperExecutionReportConnectorPublisher extends AbstractPaperExecuti
 
 	private List<Instrument> instrumentsList;
 	private Map<String, OrderbookManager> orderbookManagerMap;
+	private boolean tickLadderOrderbook = true;//price levels in TickOrderTree instead of TreeMap
 
 	public PaperExecutionReportConnectorPublisher(TradingEngineConnector tradingEngineConnector,
 			MarketDataProvider marketDataProvider, ConnectorProvider orderRequestConnectorProvider,
@@ -77,13 +78,20 @@ public class PaperExecutionReportConnectorPublisher extends AbstractPaperExecuti
 		}
 	}
 
+	/**
+	 * Must be set before the instruments , orderbooks are created on setInstrumentsList
+	 */
+	public void setTickLadderOrderbook(boolean tickLadderOrderbook) {
+		this.tickLadderOrderbook = tickLadderOrderbook;
+	}
+
 	public void setInstrumentsList(List<Instrument> instrumentsList) {
 		this.instrumentsList = instrumentsList;
 		//
 		logger.info("creating {} orderbooks", instrumentsList.size());
 		orderbookManagerMap = new ConcurrentHashMap<>();
 		for (Instrument instrument : instrumentsList) {
-			Orderbook orderbook = new Orderbook(instrument.getPriceTick());
+			Orderbook orderbook = new Orderbook(instrument.getPriceTick(), tickLadderOrderbook);
 			OrderbookManager orderbookManager = new OrderbookManager(orderbook, this);
 			orderbookManagerMap.put(instrument.getPrimaryKey(), orderbookManager);
 		}
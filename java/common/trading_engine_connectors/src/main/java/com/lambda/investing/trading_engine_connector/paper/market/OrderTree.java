@@ -46,6 +46,33 @@ public class OrderTree {
 		}
 	}
 
+	/**
+	 * Writes the best price levels into the output arrays walking the tree in place, without copying the keys
+	 *
+	 * @param descending     true for the bid side (best is the highest price)
+	 * @param maxLevels      max number of levels to write
+	 * @param prices         output prices
+	 * @param quantities     output volume per level
+	 * @param algorithmsInfo output algorithms per level
+	 * @return number of levels written
+	 */
+	public synchronized int fillLevels(boolean descending, int maxLevels, Double[] prices, Double[] quantities,
+			String[] algorithmsInfo) {
+		NavigableMap<Double, OrderList> tree = descending ? priceTree.descendingMap() : priceTree;
+		int level = 0;
+		for (Map.Entry<Double, OrderList> entry : tree.entrySet()) {
+			if (level >= maxLevels) {
+				break;
+			}
+			OrderList orderList = entry.getValue();
+			prices[level] = entry.getKey();
+			quantities[level] = orderList.getVolume();
+			algorithmsInfo[level] = orderList.getAlgorithms();
+			level++;
+		}
+		return level;
+	}
+
 	public Integer length() {
 		return orderMap.size();
 	}
@@ -106,8 +133,9 @@ public class OrderTree {
 		if (!priceExists(quotePrice)) {
 			createPrice(quotePrice);
 		}
-		quote.setoL(priceMap.get(quotePrice));
-		priceMap.get(quotePrice).appendOrder(quote);
+		OrderList priceList = getPriceList(quotePrice);
+		quote.setoL(priceList);
+		priceList.appendOrder(quote);
 		orderMap.put(quoteID, quote);
 		clientOrderIdOrderMap.put(quote.getClientOrderId(), quote);
 		clientOrderIdToOrderId.put(quote.getClientOrderId(), quote.getNextOrderOrderId());
@@ -130,7 +158,7 @@ public class OrderTree {
 		double originalVol = order.getQuantity();
 		if (price != order.getPrice()) {
 			// Price has been updated
-			OrderList tempOL = this.priceMap.get(order.getPrice());
+			OrderList tempOL = getPriceList(order.getPrice());
 			tempOL.removeOrder(order);
 			if (tempOL.getLength() == 0) {
 				removePrice(order.getPrice());
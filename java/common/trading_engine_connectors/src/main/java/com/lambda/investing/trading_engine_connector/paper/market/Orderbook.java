@@ -21,15 +21,30 @@ public class Orderbook {
 	private static String SAME_TRADER_ERROR = "Trying to trade with himself %s";//add algorithm info
 	Logger logger = LogManager.getLogger(Orderbook.class);
 	private List<Trade> tape = new ArrayList<Trade>();
-	private OrderTree bids = new OrderTree();
-	private OrderTree asks = new OrderTree();
+	private OrderTree bids;
+	private OrderTree asks;
 	private double tickSize;
 	private long time;
 	private int nextQuoteID;
 	private int lastOrderSign;
 
 	public Orderbook(double tickSize) {
+		this(tickSize, false);
+	}
+
+	/**
+	 * @param tickSize   price tick of the instrument
+	 * @param tickLadder if true price levels are stored in a TickOrderTree ladder instead of a TreeMap
+	 */
+	public Orderbook(double tickSize, boolean tickLadder) {
 		this.tickSize = tickSize;
+		if (tickLadder && tickSize > 0) {
+			bids = new TickOrderTree(tickSize);
+			asks = new TickOrderTree(tickSize);
+		} else {
+			bids = new OrderTree();
+			asks = new OrderTree();
+		}
 		this.reset();
 	}
 
@@ -90,36 +105,9 @@ public class Orderbook {
 		String[] bidAlgorithmInfo = new String[bidLevels];
 		String[] askAlgorithmInfo = new String[askLevels];
 		//BID side is descending order
-		int level = 0;
-		List<Double> bidsDescending = bids.getPriceTreeList(true);
-		for (Double price : bidsDescending) {
-			if (level >= bidLevels) {
-				break;
-			}
-			bidArray[level] = price;
-			OrderList bidList = bids.getPriceList(price);
-			if (bidList != null) {
-				bidQtyArray[level] = bidList.getVolume();
-				bidAlgorithmInfo[level] = bidList.getAlgorithms();
-			}
-			level++;
-		}
-
+		bids.fillLevels(true, bidLevels, bidArray, bidQtyArray, bidAlgorithmInfo);
 		//ASK side is ascending
-		level = 0;
-		List<Double> asksAscending = asks.getPriceTreeList(false);
-		for (Double price : asksAscending) {
-			if (level >= askLevels) {
-				break;
-			}
-			askArray[level] = price;
-			OrderList askList = asks.getPriceList(price);
-			if (askList != null) {
-				askQtyArray[level] = askList.getVolume();
-				askAlgorithmInfo[level] = askList.getAlgorithms();
-			}
-			level++;
-		}
+		asks.fillLevels(false, askLevels, askArray, askQtyArray, askAlgorithmInfo);
 
 		output.setBids(bidArray);
 		output.setAsks(askArray);
@@ -323,6 +311,62 @@ public class Orderbook {
 		return qtyRemaining;
 	}
 
+	/**
+	 * Market replay path: rests the limit order directly in its side when it can't cross the other side, skipping the
+	 * matching loop. If it can cross it's processed as a normal limit order
+	 *
+	 * @param quote   limit order to rest , can be reused after being removed from the book
+	 * @param verbose
+	 * @return null if the order was rested without matching, the OrderReport of the matching otherwise
+	 * @throws LambdaTradingException
+	 */
+	public synchronized OrderReport replayLimitOrder(OrderOrderbook quote, boolean verbose)
+			throws LambdaTradingException {
+		this.time = quote.getTimestamp();
+		if (quote.getQuantity() <= 0) {
+			throw new IllegalArgumentException("replayLimitOrder() given qty <= 0");
+		}
+		quote.setPrice(clipPrice(quote.getPrice()));
+		boolean isBid = "bid".equals(quote.getSide());
+		OrderTree otherSide = isBid ? asks : bids;
+		boolean canCross = otherSide.getnOrders() > 0 && (isBid ?
+				quote.getPrice() >= otherSide.minPrice() :
+				quote.getPrice() <= otherSide.maxPrice());
+		if (canCross) {
+			return processLimitOrder(quote, verbose, false);
+		}
+		quote.setNextOrderOrderId(this.nextQuoteID);
+		if (isBid) {
+			this.bids.insertOrder(quote);
+		} else {
+			this.asks.insertOrder(quote);
+		}
+		this.nextQuoteID += 1;
+		return null;
+	}
+
+	/**
+	 * @param order
+	 * @return true if this instance is still resting in the book (not filled or cancelled)
+	 */
+	public boolean isResting(OrderOrderbook order) {
+		OrderTree orderTree = "bid".equals(order.getSide()) ? bids : asks;
+		return orderTree.getOrder(order.getNextOrderOrderId()) == order;
+	}
+
+	/**
+	 * Updates the quantity of a resting order in place , keeping its price level
+	 *
+	 * @param order    resting order
+	 * @param quantity new quantity
+	 * @param time
+	 */
+	public synchronized void updateRestingQuantity(OrderOrderbook order, double quantity, long time) {
+		this.time = time;
+		OrderTree orderTree = "bid".equals(order.getSide()) ? bids : asks;
+		orderTree.updateOrderQty(quantity, order.getNextOrderOrderId());
+	}
+
 	public synchronized boolean cancelOrder(String side, int qId, long time) {
 
 		this.time = time;
@@ -1,5 +1,7 @@
 package com.lambda.investing.trading_engine_connector.paper.market;
 
+import com.lambda.investing.connector.metrics.LatencyRecorder;
+import com.lambda.investing.connector.metrics.Metrics;
 import com.lambda.investing.model.asset.Instrument;
 import com.lambda.investing.model.exception.LambdaTradingException;
 import com.lambda.investing.model.market_data.Depth;
@@ -19,6 +21,8 @@ public class OrderbookManager {
 	private static final int MAX_SIZE_CACHE_MARKETMAKER_CLIENT_ORDER_ID = 2500;
 	private static final int MAX_SIZE_CACHE_ALGOS_CLIENT_ORDER_ID = 250;
 	private static final boolean NOTIFY_DEPTH_ONLY_ON_MM = true;//if false slower backtest and recursive errors can happened
+	//only the algorithms requests , market maker replay is not timed
+	private static final LatencyRecorder ORDER_REQUEST_LATENCY = Metrics.getLatencyRecorder(Metrics.ORDER_REQUEST);
 
 	public static String MARKET_MAKER_ALGORITHM_INFO = ALGORITHM_INFO_MM;
 	Logger logger = LogManager.getLogger(OrderbookManager.class);
@@ -33,6 +37,14 @@ public class OrderbookManager {
 	private Map<Integer, String> mmBidLevelToClientOrderId;
 	private Map<Integer, String> mmAskLevelToClientOrderId;
 
+	//market replay resting orders per level
+	private OrderOrderbook[] mmBidLevelOrders;
+	private OrderOrderbook[] mmAskLevelOrders;
+	private double[] mmBidLevelPrices;
+	private double[] mmAskLevelPrices;
+	private boolean marketMakerOrdersNotReplayed = false;
+	private boolean marketReplayDepth = true;//if false market maker depth is sent as OrderRequest per level
+
 	private Map<String, OrderRequest> marketMakerCacheOrderRequest;
 	private Map<String, OrderRequest> algosCacheOrderRequest;
 
@@ -55,6 +67,11 @@ public class OrderbookManager {
 		asyncNotification = new ConcurrentHashMap<>();
 		marketMakerActiveOrders = new ConcurrentHashMap<>();
 
+		mmBidLevelOrders = new OrderOrderbook[Depth.MAX_DEPTH];
+		mmAskLevelOrders = new OrderOrderbook[Depth.MAX_DEPTH];
+		mmBidLevelPrices = new double[Depth.MAX_DEPTH];
+		mmAskLevelPrices = new double[Depth.MAX_DEPTH];
+
 		marketMakerCacheOrderRequest = new LinkedHashMap<String, OrderRequest>(
 				MAX_SIZE_CACHE_MARKETMAKER_CLIENT_ORDER_ID) {
 
@@ -193,6 +210,180 @@ public class OrderbookManager {
 
 	}
 
+	/**
+	 * Market replay of the depth: diffs the new levels against the resting market maker orders and updates them in place.
+	 * No OrderRequest , clientOrderId or ExecutionReport is generated for the market maker
+	 *
+	 * @param depth new depth to replay
+	 */
+	private void replayOrderbook(Depth depth) {
+		if (depth.getTimestamp() < lastTimestamp) {
+			return;
+		}
+		lastTimestamp = depth.getTimestamp();
+		long timestamp = depth.getTimestamp();
+
+		if (marketMakerOrdersNotReplayed) {
+			//market maker orders from trades are not level orders
+			cleanNotReplayedMarketMakerOrders(timestamp);
+			marketMakerOrdersNotReplayed = false;
+		}
+
+		//first remove the levels that moved, new levels can't cross stale market maker orders
+		removeMovedLevels(mmBidLevelOrders, mmBidLevelPrices, depth.getBids(), depth.getBidsQuantities(), depth,
+				timestamp);
+		removeMovedLevels(mmAskLevelOrders, mmAskLevelPrices, depth.getAsks(), depth.getAsksQuantities(), depth,
+				timestamp);
+
+		replayLevels(getSide(Verb.Buy), mmBidLevelOrders, mmBidLevelPrices, depth.getBids(),
+				depth.getBidsQuantities(), depth, timestamp);
+		replayLevels(getSide(Verb.Sell), mmAskLevelOrders, mmAskLevelPrices, depth.getAsks(),
+				depth.getAsksQuantities(), depth, timestamp);
+
+		try {
+			Instrument instrument = Instrument.getInstrument(depth.getInstrument());
+			notifyDepthSnapshot(orderbook.getOrderbookDepth(instrument));
+		} catch (Exception e) {
+			logger.error("error notifying depth replay {}", depth.getInstrument(), e);
+		}
+	}
+
+	private boolean isValidLevel(Double[] prices, Double[] quantities, int level, Depth depth) {
+		if (level >= depth.getLevels() || prices == null || quantities == null || level >= prices.length
+				|| level >= quantities.length) {
+			return false;
+		}
+		Double price = prices[level];
+		Double quantity = quantities[level];
+		return price != null && quantity != null && Double.isFinite(price) && Double.isFinite(quantity)
+				&& quantity > 0;
+	}
+
+	private boolean containsLevel(Double[] prices, Double[] quantities, Depth depth, double price) {
+		for (int level = 0; prices != null && level < prices.length; level++) {
+			if (isValidLevel(prices, quantities, level, depth) && prices[level] == price) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return slot of the resting market maker order at price , -1 if none
+	 */
+	private int findRestingSlot(OrderOrderbook[] levelOrders, double[] levelPrices, double price) {
+		for (int slot = 0; slot < levelOrders.length; slot++) {
+			OrderOrderbook levelOrder = levelOrders[slot];
+			if (levelOrder != null && levelPrices[slot] == price && orderbook.isResting(levelOrder)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private int findFreeSlot(OrderOrderbook[] levelOrders) {
+		for (int slot = 0; slot < levelOrders.length; slot++) {
+			OrderOrderbook levelOrder = levelOrders[slot];
+			if (levelOrder == null || !orderbook.isResting(levelOrder)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Cancels the resting market maker orders whose price is not in the new depth , levels are matched by price
+	 * so a shifted book keeps the orders of the prices still there
+	 */
+	private void removeMovedLevels(OrderOrderbook[] levelOrders, double[] levelPrices, Double[] prices,
+			Double[] quantities, Depth depth, long timestamp) {
+		for (int slot = 0; slot < levelOrders.length; slot++) {
+			OrderOrderbook levelOrder = levelOrders[slot];
+			if (levelOrder == null || !orderbook.isResting(levelOrder)) {
+				continue;
+			}
+			if (!containsLevel(prices, quantities, depth, levelPrices[slot])) {
+				orderbook.cancelOrder(levelOrder.getSide(), levelOrder.getNextOrderOrderId(), timestamp);
+			}
+		}
+	}
+
+	private void replayLevels(String side, OrderOrderbook[] levelOrders, double[] levelPrices, Double[] prices,
+			Double[] quantities, Depth depth, long timestamp) {
+		for (int level = 0; prices != null && level < prices.length; level++) {
+			if (!isValidLevel(prices, quantities, level, depth)) {
+				continue;
+			}
+			double price = prices[level];
+			double quantity = quantities[level];
+			int slot = findRestingSlot(levelOrders, levelPrices, price);
+			if (slot >= 0) {
+				//same price => only quantity
+				OrderOrderbook levelOrder = levelOrders[slot];
+				if (levelOrder.getQuantity() != quantity) {
+					orderbook.updateRestingQuantity(levelOrder, quantity, timestamp);
+				}
+				continue;
+			}
+
+			//new price level or filled => rest it in a free slot
+			slot = findFreeSlot(levelOrders);
+			if (slot < 0) {
+				logger.warn("no free market maker slot for {} level {} on {}", side, level, depth.getInstrument());
+				continue;
+			}
+			OrderOrderbook levelOrder = levelOrders[slot];
+			if (levelOrder == null) {
+				String clientOrderId = String.format("%s_%s_%d", MARKET_MAKER_ALGORITHM_INFO, side, slot);
+				levelOrder = new OrderOrderbook(timestamp, true, quantity, orderId.getAndIncrement(), side, price,
+						MARKET_MAKER_ALGORITHM_INFO, clientOrderId);
+				levelOrders[slot] = levelOrder;
+			}
+			levelOrder.setTimestamp(timestamp);
+			levelOrder.setPrice(price);
+			levelOrder.setQuantity(quantity);
+			levelPrices[slot] = price;
+			try {
+				OrderReport orderReport = orderbook.replayLimitOrder(levelOrder, verbose);
+				if (orderReport != null) {
+					for (Trade trade : orderReport.getTrades()) {
+						if (isMMOnlyTrade(trade)) {
+							continue;
+						}
+						notifyAlgorithmsTrade(trade);
+					}
+				}
+			} catch (LambdaTradingException e) {
+				logger.warn("can't replay {} level {} on {}", side, level, depth.getInstrument(), e);
+			}
+		}
+	}
+
+	private boolean isReplayedLevelOrder(OrderOrderbook orderOrderbook) {
+		OrderOrderbook[] levelOrders = "bid".equals(orderOrderbook.getSide()) ? mmBidLevelOrders : mmAskLevelOrders;
+		for (OrderOrderbook levelOrder : levelOrders) {
+			if (levelOrder == orderOrderbook) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void cleanNotReplayedMarketMakerOrders(long timestamp) {
+		OrderTree[] orderTrees = new OrderTree[] { orderbook.getBids(), orderbook.getAsks() };
+		for (OrderTree orderTree : orderTrees) {
+			for (OrderOrderbook orderOrderbook : orderTree.orderMap.values()) {
+				if (!orderOrderbook.getAlgorithmInfo().equalsIgnoreCase(MARKET_MAKER_ALGORITHM_INFO)) {
+					continue;
+				}
+				if (isReplayedLevelOrder(orderOrderbook)) {
+					continue;
+				}
+				orderbook.cancelOrder(orderOrderbook.getSide(), orderOrderbook.getNextOrderOrderId(), timestamp);
+			}
+		}
+	}
+
 	private void cleanOrderbookDepth(List<String> mmOrdersNotToDelete, Verb verb, Long timestamp) {
 		OrderTree orderTree = null;
 		if (verb.equals(Verb.Sell)) {
@@ -217,6 +408,10 @@ public class OrderbookManager {
 
 	}
 
+	public void setMarketReplayDepth(boolean marketReplayDepth) {
+		this.marketReplayDepth = marketReplayDepth;
+	}
+
 	/**
 	 * When a depth is read clean previous orders from MM and send the new snapshost
 	 *
@@ -225,7 +420,11 @@ public class OrderbookManager {
 	 */
 	public synchronized void refreshMarketMakerDepth(Depth depth) {
 		//clean market making orders
-		this.fillOrderbook(depth);
+		if (marketReplayDepth) {
+			this.replayOrderbook(depth);
+		} else {
+			this.fillOrderbook(depth);
+		}
 
 	}
 
@@ -351,6 +550,44 @@ public class OrderbookManager {
 		paperTradingEngineConnector.notifyTrade(tradeNotify);
 	}
 
+	private void notifyAlgorithmsTrade(Trade trade) {
+		String buyAlgorithm = trade.getBuyerAlgorithmInfo();
+		String sellAlgorithm = trade.getSellerAlgorithmInfo();
+
+		List<String> clientOrderIdToNotify = new ArrayList<>();
+
+		if (!buyAlgorithm.equalsIgnoreCase(MARKET_MAKER_ALGORITHM_INFO)) {
+			clientOrderIdToNotify.add(trade.getBuyerClientOrderId());
+		}
+		if (!sellAlgorithm.equalsIgnoreCase(MARKET_MAKER_ALGORITHM_INFO)) {
+			clientOrderIdToNotify.add(trade.getSellerClientOrderId());
+		}
+
+		for (String clientOrderId : clientOrderIdToNotify) {
+			OrderRequest orderRequest1 = algosCacheOrderRequest.get(clientOrderId);
+			if (orderRequest1 == null) {
+				logger.error("cant find algo orderRequest {} ", clientOrderId);
+				continue;
+			}
+			ExecutionReport executionReport1 = executionReportMap
+					.getOrDefault(clientOrderId, new ExecutionReport(orderRequest1));
+
+			updateOrderResult(executionReport1, trade);
+			//update my map
+			executionReportMap.put(clientOrderId, executionReport1);
+
+			boolean isExecuted = (executionReport1.getExecutionReportStatus() == (ExecutionReportStatus.PartialFilled)
+					|| executionReport1.getExecutionReportStatus() == (ExecutionReportStatus.CompletellyFilled));
+
+			if (isExecuted) {
+				//cancels -> deletion are already notified
+				//new orders -> active are already notified
+				notifyExecutionReport(executionReport1);
+			}
+
+		}
+	}
+
 	public boolean treatOrderReport(OrderReport orderReport, OrderRequest orderRequest,
 			boolean isMarketMakerDepthUpdate) {
 		boolean isNewOrModifyOrder =
@@ -385,48 +622,7 @@ public class OrderbookManager {
 						}
 						continue;
 					}
-					String buyAlgorithm = trade.getBuyerAlgorithmInfo();
-					String sellAlgorithm = trade.getSellerAlgorithmInfo();
-
-					List<String> clientOrderIdToNotify = new ArrayList<>();
-
-					if (!buyAlgorithm.equalsIgnoreCase(MARKET_MAKER_ALGORITHM_INFO)) {
-						clientOrderIdToNotify.add(trade.getBuyerClientOrderId());
-					}
-					if (!sellAlgorithm.equalsIgnoreCase(MARKET_MAKER_ALGORITHM_INFO)) {
-						clientOrderIdToNotify.add(trade.getSellerClientOrderId());
-					}
-
-					for (String clientOrderId : clientOrderIdToNotify) {
-						OrderRequest orderRequest1 = algosCacheOrderRequest.get(clientOrderId);
-						if (orderRequest1 == null) {
-							logger.error("cant find algo orderRequest {} ", clientOrderId);
-							continue;
-						}
-						ExecutionReport executionReport1 = executionReportMap
-								.getOrDefault(clientOrderId, new ExecutionReport(orderRequest1));
-
-
-						updateOrderResult(executionReport1, trade);
-						//update my map
-						executionReportMap.put(clientOrderId, executionReport1);
-
-						boolean isExecuted = (
-								executionReport1.getExecutionReportStatus() == (ExecutionReportStatus.PartialFilled)
-										|| executionReport1.getExecutionReportStatus()
-										== (ExecutionReportStatus.CompletellyFilled));
-
-						if (isExecuted) {
-							//cancels -> deletion are already notified
-							//new orders -> active are already notified
-							notifyExecutionReport(executionReport1);
-							//notify position updates
-							//						String refdataId = instrumentManager.getIdFromInstrument(isin);
-							//						notifyPosition(orderFromMap.getClientId(), refdataId, isin, quantity, this.bookId);
-
-						}
-
-					}
+					notifyAlgorithmsTrade(trade);
 				}
 			}
 		}
@@ -495,7 +691,10 @@ public class OrderbookManager {
 	 * @return
 	 */
 	public boolean orderRequest(OrderRequest orderRequest) {
-		return orderRequest(orderRequest, false, false);
+		long startNanos = Metrics.nanoTime();
+		boolean output = orderRequest(orderRequest, false, false);
+		ORDER_REQUEST_LATENCY.recordSince(startNanos);
+		return output;
 	}
 
 	/***
@@ -512,6 +711,7 @@ public class OrderbookManager {
 		String beforeOrderbook = "";
 		String orderRequestStr = "";
 		if (isMarketMaker) {
+			marketMakerOrdersNotReplayed = true;
 			marketMakerActiveOrders.put(orderRequest.getClientOrderId(), orderRequest);
 			marketMakerCacheOrderRequest.put(orderRequest.getClientOrderId(), orderRequest);
 		} else {
@@ -656,20 +856,26 @@ public class OrderbookManager {
 	//to be called after market making new depth clean-depth
 	public void notifyDepthAsync(String instrumentPk) {
 		Depth lastSnapshotToNotify = asyncNotification.get(instrumentPk);
+		if (notifyDepthSnapshot(lastSnapshotToNotify)) {
+			asyncNotification.remove(instrumentPk);
+		}
+	}
+
+	private boolean notifyDepthSnapshot(Depth lastSnapshotToNotify) {
 		if (lastSnapshotToNotify.getBids().length == 0 || lastSnapshotToNotify.getAsks().length == 0) {
 			//something is wrong .... not all levels
-			return;
+			return false;
 		}
 		if (lastSnapshotToNotify.getBestBid() > lastSnapshotToNotify.getBestAsk()) {
 			//			logger.warn("Wrong depth makes no sense to notify");
-			return;
+			return false;
 		}
 
 		//print depth status
 		//		logger.info(lastSnapshotToNotify.prettyPrint());
 
 		this.paperTradingEngineConnector.notifyDepth(lastSnapshotToNotify);
-		asyncNotification.remove(instrumentPk);
+		return true;
 	}
 
 }
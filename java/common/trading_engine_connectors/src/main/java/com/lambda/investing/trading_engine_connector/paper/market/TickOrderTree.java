@@ -0,0 +1,381 @@
+package com.lambda.investing.trading_engine_connector.paper.market;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * OrderTree storing the price levels in a ring ladder indexed by integer ticks (price / priceTick)
+ * Best bid / best ask are O(1) and depth snapshots walk an occupancy bitmap of the ladder without copying keys
+ * => cost grows with the number of levels and not with the price span (64 ticks per empty word)
+ * The ladder only has to cover the span between the worst and the best level alive, it grows when needed
+ * Off-tick prices or a span bigger than MAX_CAPACITY ticks move the levels to the TreeMap of OrderTree until reset
+ */
+public class TickOrderTree extends OrderTree {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final int MIN_CAPACITY = 64;//one bitmap word
+	private static final int MAX_CAPACITY = 1 << 30;
+	private static final double OFF_TICK_TOLERANCE = 1E-6;//fraction of tick
+
+	private final double priceTick;
+	private OrderList[] levels;
+	private long[] levelTicks;
+	private double[] levelPrices;
+	private long[] occupied;//bit per slot
+	private int mask;
+	private long minTick;
+	private long maxTick;
+	private boolean ladder = true;//false => levels in the OrderTree TreeMap
+
+	public TickOrderTree(double priceTick) {
+		this(priceTick, DEFAULT_CAPACITY);
+	}
+
+	public TickOrderTree(double priceTick, int capacity) {
+		super();
+		if (priceTick <= 0) {
+			throw new IllegalArgumentException("TickOrderTree priceTick must be positive " + priceTick);
+		}
+		this.priceTick = priceTick;
+		allocate(nextPowerOfTwo(Math.max(capacity, MIN_CAPACITY)));
+		this.minTick = Long.MAX_VALUE;
+		this.maxTick = Long.MIN_VALUE;
+	}
+
+	/**
+	 * @return power of two >= value or -1 if bigger than MAX_CAPACITY
+	 */
+	private static int nextPowerOfTwo(long value) {
+		long output = 1;
+		while (output < value) {
+			output <<= 1;
+		}
+		if (output > MAX_CAPACITY) {
+			return -1;
+		}
+		return (int) output;
+	}
+
+	private void allocate(int capacity) {
+		levels = new OrderList[capacity];
+		levelTicks = new long[capacity];
+		levelPrices = new double[capacity];
+		occupied = new long[capacity >>> 6];
+		mask = capacity - 1;
+	}
+
+	private long toTick(double price) {
+		return Math.round(price / priceTick);
+	}
+
+	private boolean isOnTick(double price) {
+		double ticks = price / priceTick;
+		return Math.abs(ticks - Math.rint(ticks)) <= OFF_TICK_TOLERANCE;
+	}
+
+	private int slot(long tick) {
+		return (int) (tick & mask);
+	}
+
+	private void setOccupied(int slot) {
+		occupied[slot >>> 6] |= 1L << (slot & 63);
+	}
+
+	private void clearOccupied(int slot) {
+		occupied[slot >>> 6] &= ~(1L << (slot & 63));
+	}
+
+	/**
+	 * @return first tick with a level from tick in the direction , outside [minTick,maxTick] if none
+	 */
+	private long nextOccupiedTick(long tick, boolean ascending) {
+		while (tick >= minTick && tick <= maxTick) {
+			int slot = slot(tick);
+			int bit = slot & 63;
+			long word = occupied[slot >>> 6];
+			if (ascending) {
+				word &= -1L << bit;
+				if (word != 0) {
+					long output = tick + (Long.numberOfTrailingZeros(word) - bit);
+					return output <= maxTick ? output : maxTick + 1;
+				}
+				tick += 64 - bit;
+			} else {
+				word &= -1L >>> (63 - bit);
+				if (word != 0) {
+					long output = tick - (bit - (63 - Long.numberOfLeadingZeros(word)));
+					return output >= minTick ? output : minTick - 1;
+				}
+				tick -= bit + 1;
+			}
+		}
+		return tick;
+	}
+
+	public double getPriceTick() {
+		return priceTick;
+	}
+
+	public int getCapacity() {
+		return levels.length;
+	}
+
+	/**
+	 * @return false if the levels were moved to the TreeMap
+	 */
+	public synchronized boolean isLadder() {
+		return ladder;
+	}
+
+	@Override public synchronized void reset() {
+		super.reset();
+		if (levels != null) {
+			Arrays.fill(levels, null);
+			Arrays.fill(occupied, 0L);
+		}
+		minTick = Long.MAX_VALUE;
+		maxTick = Long.MIN_VALUE;
+		ladder = true;
+	}
+
+	/**
+	 * Moves the levels alive to the TreeMap of OrderTree , the ladder is not used until reset
+	 */
+	private void fallbackToTree(String reason) {
+		logger.warn("TickOrderTree priceTick {} -> TreeMap levels: {}", priceTick, reason);
+		if (depth > 0) {
+			long tick = nextOccupiedTick(minTick, true);
+			while (tick <= maxTick) {
+				int slot = slot(tick);
+				priceTree.put(levelPrices[slot], levels[slot]);
+				priceMap.put(levelPrices[slot], levels[slot]);
+				tick = nextOccupiedTick(tick + 1, true);
+			}
+		}
+		Arrays.fill(levels, null);
+		Arrays.fill(occupied, 0L);
+		minTick = Long.MAX_VALUE;
+		maxTick = Long.MIN_VALUE;
+		ladder = false;
+	}
+
+	/**
+	 * Grows the ladder if the new tick doesn't fit in the current span
+	 *
+	 * @param tick new level to add
+	 * @return false if the span is too big for a ladder
+	 */
+	private boolean ensureCapacity(long tick) {
+		if (depth == 0) {
+			return true;
+		}
+		long newMin = Math.min(minTick, tick);
+		long newMax = Math.max(maxTick, tick);
+		long span = newMax - newMin + 1;
+		if (span <= levels.length) {
+			return true;
+		}
+		int capacity = nextPowerOfTwo(span * 2);
+		if (capacity < 0) {
+			return false;
+		}
+		OrderList[] oldLevels = levels;
+		long[] oldTicks = levelTicks;
+		double[] oldPrices = levelPrices;
+		allocate(capacity);
+		for (int oldSlot = 0; oldSlot < oldLevels.length; oldSlot++) {
+			if (oldLevels[oldSlot] == null) {
+				continue;
+			}
+			int newSlot = slot(oldTicks[oldSlot]);
+			levels[newSlot] = oldLevels[oldSlot];
+			levelTicks[newSlot] = oldTicks[oldSlot];
+			levelPrices[newSlot] = oldPrices[oldSlot];
+			setOccupied(newSlot);
+		}
+		return true;
+	}
+
+	private int findSlot(double price) {
+		if (depth == 0 || !isOnTick(price)) {
+			return -1;
+		}
+		long tick = toTick(price);
+		if (tick < minTick || tick > maxTick) {
+			return -1;
+		}
+		int slot = slot(tick);
+		if (levels[slot] == null || levelTicks[slot] != tick) {
+			return -1;
+		}
+		return slot;
+	}
+
+	@Override public synchronized OrderList getPriceList(double price) {
+		if (!ladder) {
+			return super.getPriceList(price);
+		}
+		int slot = findSlot(price);
+		if (slot < 0) {
+			return null;
+		}
+		return levels[slot];
+	}
+
+	@Override public synchronized boolean priceExists(double price) {
+		if (!ladder) {
+			return super.priceExists(price);
+		}
+		return findSlot(price) >= 0;
+	}
+
+	@Override public synchronized void createPrice(double price) {
+		if (ladder && !isOnTick(price)) {
+			fallbackToTree("price " + price + " is not a multiple of the tick");
+		}
+		long tick = toTick(price);
+		if (ladder && !ensureCapacity(tick)) {
+			fallbackToTree("span to " + price + " bigger than " + MAX_CAPACITY + " ticks");
+		}
+		if (!ladder) {
+			super.createPrice(price);
+			return;
+		}
+		int slot = slot(tick);
+		depth += 1;
+		levels[slot] = new OrderList();
+		levelTicks[slot] = tick;
+		levelPrices[slot] = price;
+		setOccupied(slot);
+		if (tick < minTick) {
+			minTick = tick;
+		}
+		if (tick > maxTick) {
+			maxTick = tick;
+		}
+	}
+
+	@Override public synchronized void removePrice(double price) {
+		if (!ladder) {
+			super.removePrice(price);
+			return;
+		}
+		int slot = findSlot(price);
+		if (slot < 0) {
+			return;
+		}
+		long tick = levelTicks[slot];
+		levels[slot] = null;
+		clearOccupied(slot);
+		depth -= 1;
+		if (depth == 0) {
+			minTick = Long.MAX_VALUE;
+			maxTick = Long.MIN_VALUE;
+			return;
+		}
+		if (tick == minTick) {
+			minTick = nextOccupiedTick(tick + 1, true);
+		}
+		if (tick == maxTick) {
+			maxTick = nextOccupiedTick(tick - 1, false);
+		}
+	}
+
+	@Override public synchronized Double maxPrice() {
+		if (!ladder) {
+			return super.maxPrice();
+		}
+		if (this.depth > 0) {
+			return levelPrices[slot(maxTick)];
+		} else {
+			return null;
+		}
+	}
+
+	@Override public synchronized Double minPrice() {
+		if (!ladder) {
+			return super.minPrice();
+		}
+		if (this.depth > 0) {
+			return levelPrices[slot(minTick)];
+		} else {
+			return null;
+		}
+	}
+
+	@Override public synchronized OrderList maxPriceList() {
+		if (!ladder) {
+			return super.maxPriceList();
+		}
+		if (this.depth > 0) {
+			return levels[slot(maxTick)];
+		} else {
+			return null;
+		}
+	}
+
+	@Override public synchronized OrderList minPriceList() {
+		if (!ladder) {
+			return super.minPriceList();
+		}
+		if (this.depth > 0) {
+			return levels[slot(minTick)];
+		} else {
+			return null;
+		}
+	}
+
+	@Override public synchronized int fillLevels(boolean descending, int maxLevels, Double[] prices,
+			Double[] quantities, String[] algorithmsInfo) {
+		if (!ladder) {
+			return super.fillLevels(descending, maxLevels, prices, quantities, algorithmsInfo);
+		}
+		int level = 0;
+		if (depth == 0) {
+			return level;
+		}
+		boolean ascending = !descending;
+		long tick = nextOccupiedTick(descending ? maxTick : minTick, ascending);
+		while (level < maxLevels && tick >= minTick && tick <= maxTick) {
+			int slot = slot(tick);
+			OrderList orderList = levels[slot];
+			prices[level] = levelPrices[slot];
+			quantities[level] = orderList.getVolume();
+			algorithmsInfo[level] = orderList.getAlgorithms();
+			level++;
+			tick = nextOccupiedTick(descending ? tick - 1 : tick + 1, ascending);
+		}
+		return level;
+	}
+
+	@Override public synchronized List<Double> getPriceTreeList(boolean descending) {
+		if (!ladder) {
+			return super.getPriceTreeList(descending);
+		}
+		List<Double> output = new ArrayList<>(depth);
+		if (depth == 0) {
+			return output;
+		}
+		boolean ascending = !descending;
+		long tick = nextOccupiedTick(descending ? maxTick : minTick, ascending);
+		while (tick >= minTick && tick <= maxTick) {
+			output.add(levelPrices[slot(tick)]);
+			tick = nextOccupiedTick(descending ? tick - 1 : tick + 1, ascending);
+		}
+		return output;
+	}
+
+	public String toString() {
+		StringBuilder outString = new StringBuilder();
+		outString.append("| The Book:\n" + "| Max price = " + maxPrice() + "\n| Min price = " + minPrice()
+				+ "\n| Volume in book = " + getVolume() + "\n| Depth of book = " + getDepth() + "\n| Orders in book = "
+				+ getnOrders() + "\n| Length of tree = " + length() + "\n");
+		for (Double price : getPriceTreeList(false)) {
+			outString.append(getPriceList(price).toString());
+			outString.append("|\n");
+		}
+		return outString.toString();
+	}
+
+}
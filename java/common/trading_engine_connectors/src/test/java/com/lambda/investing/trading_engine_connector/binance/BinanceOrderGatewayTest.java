@@ -0,0 +1,171 @@
+package com.lambda.investing.trading_engine_connector.binance;
+
+import com.binance.api.client.BinanceApiAsyncRestClient;
+import com.binance.api.client.BinanceApiCallback;
+import com.binance.api.client.domain.account.NewOrder;
+import com.binance.api.client.domain.account.NewOrderResponse;
+import com.binance.api.client.domain.account.request.CancelOrderRequest;
+import com.binance.api.client.domain.account.request.CancelOrderResponse;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.trading.OrderRequest;
+import com.lambda.investing.model.trading.OrderRequestAction;
+import com.lambda.investing.model.trading.OrderType;
+import com.lambda.investing.model.trading.Verb;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinanceOrderGatewayTest {
+
+	private Instrument instrument;
+	private boolean pipelineCancelReplace;
+	private long pendingTimeoutMs;
+
+	private final List<NewOrder> newOrders = new ArrayList<>();
+	private final List<BinanceApiCallback<NewOrderResponse>> newOrderCallbacks = new ArrayList<>();
+	private final List<CancelOrderRequest> cancels = new ArrayList<>();
+	private final List<BinanceApiCallback<CancelOrderResponse>> cancelCallbacks = new ArrayList<>();
+	private final List<String> accepted = new ArrayList<>();
+	private final List<String> rejected = new ArrayList<>();
+	private BinanceOrderGateway orderGateway;
+
+	@Before public void setUp() {
+		instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		instrument.getPrimaryKey();
+		pipelineCancelReplace = BinanceOrderGateway.PIPELINE_CANCEL_REPLACE;
+		pendingTimeoutMs = BinanceOrderGateway.PENDING_TIMEOUT_MS;
+
+		//responses are sent by the test calling the callbacks captured
+		BinanceApiAsyncRestClient asyncRestClient = (BinanceApiAsyncRestClient) Proxy
+				.newProxyInstance(getClass().getClassLoader(), new Class[] { BinanceApiAsyncRestClient.class },
+						(proxy, method, args) -> {
+							if (method.getName().equals("newOrder")) {
+								newOrders.add((NewOrder) args[0]);
+								newOrderCallbacks.add((BinanceApiCallback<NewOrderResponse>) args[1]);
+							} else if (method.getName().equals("cancelOrder")) {
+								cancels.add((CancelOrderRequest) args[0]);
+								cancelCallbacks.add((BinanceApiCallback<CancelOrderResponse>) args[1]);
+							} else {
+								throw new UnsupportedOperationException(method.getName());
+							}
+							return null;
+						});
+		orderGateway = new BinanceOrderGateway(asyncRestClient, new BinanceOrderGateway.BinanceOrderGatewayListener() {
+
+			@Override public void onAccepted(OrderRequest orderRequest) {
+				accepted.add(orderRequest.getClientOrderId());
+			}
+
+			@Override public void onRejected(OrderRequest orderRequest, String reason) {
+				rejected.add(orderRequest.getClientOrderId());
+			}
+		});
+	}
+
+	@After public void tearDown() {
+		BinanceOrderGateway.PIPELINE_CANCEL_REPLACE = pipelineCancelReplace;
+		BinanceOrderGateway.PENDING_TIMEOUT_MS = pendingTimeoutMs;
+	}
+
+	private OrderRequest createOrderRequest(OrderRequestAction action, String clientOrderId,
+			String origClientOrderId) {
+		OrderRequest orderRequest = new OrderRequest();
+		orderRequest.setInstrument(instrument.getPrimaryKey());
+		orderRequest.setOrderRequestAction(action);
+		orderRequest.setOrderType(OrderType.Limit);
+		orderRequest.setVerb(Verb.Buy);
+		orderRequest.setPrice(100.0);
+		orderRequest.setQuantity(0.5);
+		orderRequest.setClientOrderId(clientOrderId);
+		orderRequest.setOrigClientOrderId(origClientOrderId);
+		return orderRequest;
+	}
+
+	@Test public void testResponsesCorrelatedByClientOrderId() {
+		orderGateway.sendOrder(createOrderRequest(OrderRequestAction.Send, "first", null));
+		orderGateway.sendOrder(createOrderRequest(OrderRequestAction.Send, "second", null));
+		Assert.assertEquals(2, orderGateway.getPendingRequests());
+		Assert.assertEquals("second", newOrders.get(1).getNewClientOrderId());
+
+		//out of order responses
+		newOrderCallbacks.get(1).onResponse(new NewOrderResponse());
+		newOrderCallbacks.get(0).onFailure(new RuntimeException("insufficient balance"));
+		Assert.assertEquals(0, orderGateway.getPendingRequests());
+		Assert.assertEquals(1, accepted.size());
+		Assert.assertEquals("second", accepted.get(0));
+		Assert.assertEquals(1, rejected.size());
+		Assert.assertEquals("first", rejected.get(0));
+
+		//duplicated response is ignored
+		newOrderCallbacks.get(1).onResponse(new NewOrderResponse());
+		Assert.assertEquals(1, accepted.size());
+	}
+
+	@Test public void testModifyWaitsCancelByDefault() {
+		Assert.assertFalse(BinanceOrderGateway.PIPELINE_CANCEL_REPLACE);
+		orderGateway.modifyOrder(createOrderRequest(OrderRequestAction.Modify, "replace", "original"), "cancel");
+		Assert.assertEquals(1, cancels.size());
+		Assert.assertEquals("original", cancels.get(0).getOrigClientOrderId());
+		Assert.assertEquals(0, newOrders.size());
+
+		//original filled => cancel fails and the replace is rejected without sending it
+		cancelCallbacks.get(0).onFailure(new RuntimeException("Unknown order sent."));
+		Assert.assertEquals(0, newOrders.size());
+		Assert.assertEquals(1, rejected.size());
+		Assert.assertEquals("replace", rejected.get(0));
+		Assert.assertEquals(0, orderGateway.getPendingRequests());
+	}
+
+	@Test public void testPipelinedCancelRejectedCancelsReplace() {
+		BinanceOrderGateway.PIPELINE_CANCEL_REPLACE = true;
+		orderGateway.modifyOrder(createOrderRequest(OrderRequestAction.Modify, "replace", "original"), "cancel");
+		Assert.assertEquals(1, cancels.size());
+		Assert.assertEquals(1, newOrders.size());
+
+		//cancel fails before the replace is accepted => replace cancelled when accepted
+		cancelCallbacks.get(0).onFailure(new RuntimeException("Unknown order sent."));
+		Assert.assertEquals(1, cancels.size());
+		newOrderCallbacks.get(0).onResponse(new NewOrderResponse());
+		Assert.assertEquals(2, cancels.size());
+		Assert.assertEquals("replace", cancels.get(1).getOrigClientOrderId());
+
+		//replace accepted before the cancel status is received => cancelled at once
+		orderGateway.modifyOrder(createOrderRequest(OrderRequestAction.Modify, "replace2", "original2"), "cancel2");
+		newOrderCallbacks.get(1).onResponse(new NewOrderResponse());
+		Assert.assertEquals(3, cancels.size());
+		cancelCallbacks.get(2).onResponse(new CancelOrderResponse());//not CANCELED status
+		Assert.assertEquals(4, cancels.size());
+		Assert.assertEquals("replace2", cancels.get(3).getOrigClientOrderId());
+
+		//rejected replace is not cancelled
+		orderGateway.modifyOrder(createOrderRequest(OrderRequestAction.Modify, "replace3", "original3"), "cancel3");
+		cancelCallbacks.get(4).onFailure(new RuntimeException("Unknown order sent."));
+		newOrderCallbacks.get(2).onFailure(new RuntimeException("insufficient balance"));
+		Assert.assertEquals(5, cancels.size());
+		Assert.assertEquals(0, orderGateway.getPendingRequests());
+	}
+
+	@Test public void testPendingWithoutResponsePurged() {
+		BinanceOrderGateway.PENDING_TIMEOUT_MS = -1000;//all expired
+		int requests = 1026;
+		for (int request = 0; request < requests; request++) {
+			orderGateway.sendOrder(createOrderRequest(OrderRequestAction.Send, "order" + request, null));
+		}
+		//purged when the pending requests were more than 1024
+		Assert.assertEquals(1, orderGateway.getPendingRequests());
+
+		//late response of a purged request is not notified
+		newOrderCallbacks.get(0).onResponse(new NewOrderResponse());
+		Assert.assertEquals(0, accepted.size());
+		newOrderCallbacks.get(requests - 1).onResponse(new NewOrderResponse());
+		Assert.assertEquals(1, accepted.size());
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.lambda.investing.trading_engine_connector.paper.market;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import com.lambda.investing.trading_engine_connector.paper.PaperExecutionReportConnectorPublisher;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Random;
+
+public class OrderbookManagerTest {
+
+	private static final double TICK = 0.01;
+	Instrument instrument;
+	PaperExecutionReportConnectorPublisher paperExecutionReportConnectorPublisher;
+
+	public OrderbookManagerTest() {
+		instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setPriceTick(TICK);
+		instrument.getPrimaryKey();
+		paperExecutionReportConnectorPublisher = Mockito.mock(PaperExecutionReportConnectorPublisher.class);
+	}
+
+	private Depth createDepth(long timestamp, double mid, int levels, Random random) {
+		Depth depth = new Depth();
+		depth.setInstrument(instrument.getPrimaryKey());
+		depth.setTimestamp(timestamp);
+		Double[] bids = new Double[levels];
+		Double[] asks = new Double[levels];
+		Double[] bidsQuantities = new Double[levels];
+		Double[] asksQuantities = new Double[levels];
+		for (int level = 0; level < levels; level++) {
+			bids[level] = Math.round((mid - TICK * (level + 1)) / TICK) * TICK;
+			asks[level] = Math.round((mid + TICK * (level + 1)) / TICK) * TICK;
+			bidsQuantities[level] = 1.0 + random.nextInt(5);
+			asksQuantities[level] = 1.0 + random.nextInt(5);
+		}
+		depth.setBids(bids);
+		depth.setAsks(asks);
+		depth.setBidsQuantities(bidsQuantities);
+		depth.setAsksQuantities(asksQuantities);
+		depth.setLevelsFromData();
+		return depth;
+	}
+
+	private OrderbookManager createOrderbookManager(boolean marketReplay) {
+		OrderbookManager orderbookManager = new OrderbookManager(new Orderbook(TICK, true),
+				paperExecutionReportConnectorPublisher);
+		orderbookManager.setMarketReplayDepth(marketReplay);
+		return orderbookManager;
+	}
+
+	@Test public void testReplayUpdatesInPlace() {
+		OrderbookManager orderbookManager = createOrderbookManager(true);
+		Random random = new Random(1);
+		orderbookManager.refreshMarketMakerDepth(createDepth(1, 100.0, 5, random));
+		OrderTree bids = orderbookManager.getOrderbook().getBids();
+		Assert.assertEquals(5, bids.getnOrders().intValue());
+		OrderOrderbook bestBidOrder = bids.maxPriceList().getHeadOrder();
+
+		//same prices => same orders
+		Depth sameLevels = createDepth(2, 100.0, 5, random);
+		orderbookManager.refreshMarketMakerDepth(sameLevels);
+		Assert.assertSame(bestBidOrder, bids.maxPriceList().getHeadOrder());
+		Assert.assertEquals(sameLevels.getBestBidQty(), bids.maxPriceList().getVolume(), 1E-9);
+
+		//less levels => old levels removed
+		orderbookManager.refreshMarketMakerDepth(createDepth(3, 100.0, 3, random));
+		Assert.assertEquals(3, bids.getnOrders().intValue());
+		Assert.assertEquals(3, orderbookManager.getOrderbook().getAsks().getnOrders().intValue());
+	}
+
+	@Test public void testReplayShiftKeepsSamePrices() {
+		OrderbookManager orderbookManager = createOrderbookManager(true);
+		Random random = new Random(3);
+		orderbookManager.refreshMarketMakerDepth(createDepth(1, 100.0, 5, random));
+		OrderTree bids = orderbookManager.getOrderbook().getBids();
+		OrderTree asks = orderbookManager.getOrderbook().getAsks();
+		OrderOrderbook bestBidOrder = bids.maxPriceList().getHeadOrder();
+		double bestAsk = asks.minPrice();
+		double bestBid = bids.maxPrice();
+
+		//one tick up => best bid moves to level 1 and best ask is removed , same order objects at same prices
+		orderbookManager.refreshMarketMakerDepth(createDepth(2, 100.0 + TICK, 5, random));
+		Assert.assertEquals(5, bids.getnOrders().intValue());
+		Assert.assertEquals(5, asks.getnOrders().intValue());
+		Assert.assertSame(bestBidOrder, bids.getPriceList(bestBid).getHeadOrder());
+		Assert.assertEquals(bestBid + TICK, bids.maxPrice(), 1E-9);
+		Assert.assertNotSame(bestBidOrder, bids.maxPriceList().getHeadOrder());
+		Assert.assertFalse(asks.priceExists(bestAsk));
+	}
+
+	private static void assertLevels(Double[] expected, Double[] actual) {
+		Assert.assertEquals(expected.length, actual.length);
+		for (int level = 0; level < expected.length; level++) {
+			Assert.assertEquals(expected[level], actual[level], 1E-9);
+		}
+	}
+
+	@Test public void testReplayBookEqualsDepth() {
+		OrderbookManager replayManager = createOrderbookManager(true);
+		Random random = new Random(2);
+		double mid = 100.0;
+		for (int tick = 0; tick < 500; tick++) {
+			mid += (random.nextInt(5) - 2) * TICK;
+			int levels = 1 + random.nextInt(Depth.MAX_DEPTH);
+			Depth depth = createDepth(tick, mid, levels, random);
+			replayManager.refreshMarketMakerDepth(depth);
+
+			Depth replayDepth = replayManager.getOrderbook().getOrderbookDepth(instrument);
+			assertLevels(depth.getBids(), replayDepth.getBids());
+			assertLevels(depth.getAsks(), replayDepth.getAsks());
+			assertLevels(depth.getBidsQuantities(), replayDepth.getBidsQuantities());
+			assertLevels(depth.getAsksQuantities(), replayDepth.getAsksQuantities());
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.lambda.investing.trading_engine_connector.paper.market;
+
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.market_data.Depth;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.lambda.investing.trading_engine_connector.paper.market.OrderbookManager.MARKET_MAKER_ALGORITHM_INFO;
+
+public class TickOrderTreeTest {
+
+	private static final double TICK = 0.01;
+	Instrument instrument;
+
+	public TickOrderTreeTest() {
+		instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setPriceTick(TICK);
+	}
+
+	private OrderOrderbook createOrder(long time, String side, double price, double quantity, int orderId) {
+		return new OrderOrderbook(time, true, quantity, orderId, side, price, MARKET_MAKER_ALGORITHM_INFO,
+				String.valueOf(orderId));
+	}
+
+	@Test public void testBestPrices() throws Exception {
+		Orderbook orderbook = new Orderbook(TICK, true);
+		Assert.assertNull(orderbook.getBestBid());
+		Assert.assertNull(orderbook.getBestOffer());
+
+		orderbook.processOrder(createOrder(1, "bid", 100.00, 1, 0), false);
+		orderbook.processOrder(createOrder(2, "bid", 99.98, 1, 1), false);
+		orderbook.processOrder(createOrder(3, "ask", 100.05, 1, 2), false);
+		orderbook.processOrder(createOrder(4, "ask", 100.10, 1, 3), false);
+
+		Assert.assertEquals(100.00, orderbook.getBestBid(), 1E-9);
+		Assert.assertEquals(99.98, orderbook.getWorstBid(), 1E-9);
+		Assert.assertEquals(100.05, orderbook.getBestOffer(), 1E-9);
+		Assert.assertEquals(100.10, orderbook.getWorstOffer(), 1E-9);
+
+		//cancel best bid
+		Assert.assertTrue(orderbook.cancelOrder("bid", 0, 5));
+		Assert.assertEquals(99.98, orderbook.getBestBid(), 1E-9);
+		Assert.assertEquals(1, orderbook.getBids().getDepth().intValue());
+
+		//market buy sweeps best ask
+		OrderOrderbook marketOrder = new OrderOrderbook(6, false, 1, 4, "bid", null, "algo", "4");
+		orderbook.processOrder(marketOrder, false);
+		Assert.assertEquals(100.10, orderbook.getBestOffer(), 1E-9);
+	}
+
+	@Test public void testLadderGrowsAndWraps() throws Exception {
+		TickOrderTree tickOrderTree = new TickOrderTree(TICK, 4);
+		int orderId = 0;
+		for (double price = 100.0; price < 101.0; price += TICK) {
+			OrderOrderbook order = createOrder(orderId, "bid", price, 1, orderId);
+			order.setNextOrderOrderId(orderId);
+			tickOrderTree.insertOrder(order);
+			orderId++;
+		}
+		Assert.assertEquals(orderId, tickOrderTree.getDepth().intValue());
+		Assert.assertTrue(tickOrderTree.getCapacity() >= orderId);
+		Assert.assertEquals(100.0, tickOrderTree.minPrice(), 1E-9);
+
+		//remove all but last, best price keeps moving
+		for (int id = 0; id < orderId - 1; id++) {
+			tickOrderTree.removeOrderByID(id);
+		}
+		Assert.assertEquals(1, tickOrderTree.getDepth().intValue());
+		Assert.assertEquals(tickOrderTree.maxPrice(), tickOrderTree.minPrice());
+	}
+
+	@Test public void testSameDepthAsTreeMap() throws Exception {
+		Orderbook treeOrderbook = new Orderbook(TICK, false);
+		Orderbook tickOrderbook = new Orderbook(TICK, true);
+		Random random = new Random(42);
+		for (int orderId = 0; orderId < 2000; orderId++) {
+			String side = random.nextBoolean() ? "bid" : "ask";
+			double offset = random.nextInt(50) * TICK;
+			double price = side.equals("bid") ? 100.0 - offset : 100.01 + offset;
+			double quantity = 1 + random.nextInt(10);
+			treeOrderbook.processOrder(createOrder(orderId, side, price, quantity, orderId), false);
+			tickOrderbook.processOrder(createOrder(orderId, side, price, quantity, orderId), false);
+
+			if (random.nextInt(3) == 0) {
+				int cancelId = random.nextInt(orderId + 1);
+				Assert.assertEquals(treeOrderbook.cancelOrder(side, cancelId, orderId),
+						tickOrderbook.cancelOrder(side, cancelId, orderId));
+			}
+
+			Depth treeDepth = treeOrderbook.getOrderbookDepth(instrument);
+			Depth tickDepth = tickOrderbook.getOrderbookDepth(instrument);
+			Assert.assertArrayEquals(treeDepth.getBids(), tickDepth.getBids());
+			Assert.assertArrayEquals(treeDepth.getAsks(), tickDepth.getAsks());
+			Assert.assertArrayEquals(treeDepth.getBidsQuantities(), tickDepth.getBidsQuantities());
+			Assert.assertArrayEquals(treeDepth.getAsksQuantities(), tickDepth.getAsksQuantities());
+		}
+	}
+
+	private void insert(TickOrderTree tickOrderTree, double price, int orderId) {
+		OrderOrderbook order = createOrder(orderId, "bid", price, 1, orderId);
+		order.setNextOrderOrderId(orderId);
+		tickOrderTree.insertOrder(order);
+	}
+
+	@Test public void testSparseLevels() throws Exception {
+		TickOrderTree tickOrderTree = new TickOrderTree(TICK, 64);
+		double[] prices = new double[] { 1.0, 1.63, 1.64, 50.0, 99.99 };
+		for (int orderId = 0; orderId < prices.length; orderId++) {
+			insert(tickOrderTree, prices[orderId], orderId);
+		}
+		Assert.assertTrue(tickOrderTree.isLadder());
+		Double[] levelPrices = new Double[10];
+		int levels = tickOrderTree.fillLevels(true, 10, levelPrices, new Double[10], new String[10]);
+		Assert.assertEquals(prices.length, levels);
+		for (int level = 0; level < levels; level++) {
+			Assert.assertEquals(prices[prices.length - 1 - level], levelPrices[level], 1E-9);
+		}
+		Assert.assertEquals(prices.length, tickOrderTree.getPriceTreeList(false).size());
+
+		tickOrderTree.removeOrderByID(0);
+		tickOrderTree.removeOrderByID(4);
+		Assert.assertEquals(1.63, tickOrderTree.minPrice(), 1E-9);
+		Assert.assertEquals(50.0, tickOrderTree.maxPrice(), 1E-9);
+	}
+
+	@Test public void testFallbackToTree() throws Exception {
+		TickOrderTree tickOrderTree = new TickOrderTree(TICK);
+		insert(tickOrderTree, 100.0, 0);
+		insert(tickOrderTree, 100.02, 1);
+		//off tick price is not merged with 100.0
+		Assert.assertFalse(tickOrderTree.priceExists(100.004));
+		insert(tickOrderTree, 100.004, 2);
+		Assert.assertFalse(tickOrderTree.isLadder());
+		Assert.assertEquals(3, tickOrderTree.getDepth().intValue());
+		Assert.assertEquals(1, (long) tickOrderTree.getPriceList(100.0).getLength());
+		Assert.assertEquals(100.02, tickOrderTree.maxPrice(), 1E-9);
+		Assert.assertEquals(100.0, tickOrderTree.minPrice(), 1E-9);
+
+		//span bigger than the max ladder
+		tickOrderTree.reset();
+		Assert.assertTrue(tickOrderTree.isLadder());
+		insert(tickOrderTree, 0.01, 3);
+		insert(tickOrderTree, 1E8, 4);
+		Assert.assertFalse(tickOrderTree.isLadder());
+		Assert.assertEquals(Arrays.asList(1E8, 0.01), tickOrderTree.getPriceTreeList(true));
+	}
+
+}
@@ -168,6 +168,12 @@ public class App {
 
 		}
 
+		if (args[0].trim().startsWith("[")) {
+			//list of configurations -> parameter sweep in this JVM
+			runSweep(args[0]);
+			return;
+		}
+
 		InputConfiguration inputConfiguration = GSON.fromJson(args[0], InputConfiguration.class);
 		System.out.println("-----");
 		System.out.println(args[0]);
@@ -176,44 +182,19 @@ public class App {
 		logger.info("{}", args[0]);
 		logger.info("----");
 		try {
-			Resource resource = new FileSystemResource("application.properties");
-			if (!resource.exists()) {
-				//when running from ide
-				resource = new ClassPathResource("application.properties");
-			}
-			Properties props = PropertiesLoaderUtils.loadProperties(resource);
-
-			String outputPath = props.getProperty("output.path");
-			if (outputPath != null) {
-				System.out.println("Override OUTPUT_PATH to " + outputPath);
-				Configuration.OUTPUT_PATH = outputPath;
-			} else {
-				System.out.println("default OUTPUT_PATH to " + Configuration.OUTPUT_PATH);
-			}
-			new File(outputPath).mkdirs();
-
-			String inputPath = props.getProperty("parquet.path");
-			if (inputPath != null) {
-				System.out.println("Override DATA_PATH to " + inputPath);
-				Configuration.DATA_PATH = inputPath;
-			} else {
-				System.out.println("default DATA_PATH from " + Configuration.DATA_PATH);
-			}
-
-			String tempPath = props.getProperty("temp.path");
-			if (tempPath != null) {
-				System.out.println("Override TEMP_PATH to " + tempPath);
-				Configuration.TEMP_PATH = tempPath;
-			} else {
-				System.out.println("default TEMP_PATH from " + Configuration.TEMP_PATH);
-			}
-
-
+			Properties props = loadProperties();
 
 			BacktestConfiguration backtestConfiguration = inputConfiguration.getBacktestConfiguration();
 
 			OrdinaryBacktest ordinaryBacktest = new OrdinaryBacktest(backtestConfiguration);
 			ordinaryBacktest.setSingleThread(true);
+			String dayShards = props.getProperty("day.shards");//threads replaying days in parallel
+			if (dayShards != null && Integer.parseInt(dayShards.trim()) > 0) {
+				OrdinaryBacktest.DAY_SHARDS_THREADS = Integer.parseInt(dayShards.trim());
+				ordinaryBacktest.setDaySharded(true);
+				ordinaryBacktest.start();
+				System.exit(0);
+			}
 			ordinaryBacktest.start();
 
 			//
@@ -226,4 +207,58 @@ public class App {
 
 	}
 
+	private Properties loadProperties() throws IOException {
+		Resource resource = new FileSystemResource("application.properties");
+		if (!resource.exists()) {
+			//when running from ide
+			resource = new ClassPathResource("application.properties");
+		}
+		Properties props = PropertiesLoaderUtils.loadProperties(resource);
+
+		String outputPath = props.getProperty("output.path");
+		if (outputPath != null) {
+			System.out.println("Override OUTPUT_PATH to " + outputPath);
+			Configuration.OUTPUT_PATH = outputPath;
+		} else {
+			System.out.println("default OUTPUT_PATH to " + Configuration.OUTPUT_PATH);
+		}
+		new File(outputPath).mkdirs();
+
+		String inputPath = props.getProperty("parquet.path");
+		if (inputPath != null) {
+			System.out.println("Override DATA_PATH to " + inputPath);
+			Configuration.DATA_PATH = inputPath;
+		} else {
+			System.out.println("default DATA_PATH from " + Configuration.DATA_PATH);
+		}
+
+		String tempPath = props.getProperty("temp.path");
+		if (tempPath != null) {
+			System.out.println("Override TEMP_PATH to " + tempPath);
+			Configuration.TEMP_PATH = tempPath;
+		} else {
+			System.out.println("default TEMP_PATH from " + Configuration.TEMP_PATH);
+		}
+		return props;
+	}
+
+	private void runSweep(String content) {
+		InputConfiguration[] inputConfigurations = GSON.fromJson(content, InputConfiguration[].class);
+		logger.info("parameter sweep of {} configurations", inputConfigurations.length);
+		try {
+			Properties props = loadProperties();
+			int threads = Runtime.getRuntime().availableProcessors();
+			String sweepThreads = props.getProperty("sweep.threads");
+			if (sweepThreads != null) {
+				threads = Integer.parseInt(sweepThreads.trim());
+			}
+			new ParameterSweep(inputConfigurations, threads).run();
+			System.exit(0);
+		} catch (Exception e) {
+			logger.error("error in parameter sweep ", e);
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
 }
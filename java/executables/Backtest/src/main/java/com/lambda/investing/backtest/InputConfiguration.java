@@ -51,7 +51,16 @@ import java.util.Map;
 	}
 
 	public BacktestConfiguration getBacktestConfiguration() throws Exception {
-		return backtest.getBacktestConfiguration(algorithm.getAlgorithm());
+		BacktestConfiguration backtestConfiguration = backtest.getBacktestConfiguration(algorithm.getAlgorithm());
+		//same parameters and instrument for the day shards
+		backtestConfiguration.setAlgorithmFactory(() -> {
+			try {
+				return backtest.getBacktestConfiguration(algorithm.getAlgorithm()).getAlgorithm();
+			} catch (Exception e) {
+				throw new IllegalStateException("can't create algorithm " + algorithm.getAlgorithmName(), e);
+			}
+		});
+		return backtestConfiguration;
 	}
 
 	@Getter @Setter private class Backtest {
@@ -0,0 +1,167 @@
+package com.lambda.investing.backtest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.lambda.investing.algorithmic_trading.Algorithm;
+import com.lambda.investing.algorithmic_trading.PnlSnapshot;
+import com.lambda.investing.backtest_engine.BacktestConfiguration;
+import com.lambda.investing.backtest_engine.ordinary.OrdinaryBacktest;
+import com.lambda.investing.market_data_connector.parquet_file_reader.ParquetFileConfiguration;
+import com.lambda.investing.market_data_connector.parquet_file_reader.ParquetMarketDataStore;
+import com.lambda.investing.model.exception.LambdaException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Runs a list of InputConfiguration in the same JVM , one single thread OrdinaryBacktest per thread
+ * Parquet files are loaded once in a ParquetMarketDataStore shared by all the backtests
+ */
+public class ParameterSweep {
+
+	protected Logger logger = LogManager.getLogger(ParameterSweep.class);
+
+	private final List<BacktestConfiguration> backtestConfigurations = new ArrayList<>();
+	private final ParquetMarketDataStore marketDataStore = new ParquetMarketDataStore();
+	private final int threads;
+	private final AtomicInteger finished = new AtomicInteger(0);
+	private final AtomicInteger failed = new AtomicInteger(0);
+	private long backtestTimeoutMs = 6 * 60 * 60 * 1000L;//a backtest not finished in this time is stopped and failed
+
+	public ParameterSweep(InputConfiguration[] inputConfigurations, int threads) throws Exception {
+		this(getBacktestConfigurations(inputConfigurations), threads);
+	}
+
+	ParameterSweep(List<BacktestConfiguration> backtestConfigurations, int threads) {
+		this.threads = Math.max(1, threads);
+		for (BacktestConfiguration backtestConfiguration : backtestConfigurations) {
+			backtestConfiguration.setParquetMarketDataStore(marketDataStore);
+			this.backtestConfigurations.add(backtestConfiguration);
+		}
+	}
+
+	private static List<BacktestConfiguration> getBacktestConfigurations(InputConfiguration[] inputConfigurations)
+			throws Exception {
+		//algorithms are created in the main thread
+		List<BacktestConfiguration> output = new ArrayList<>();
+		for (InputConfiguration inputConfiguration : inputConfigurations) {
+			output.add(inputConfiguration.getBacktestConfiguration());
+		}
+		return output;
+	}
+
+	public void setBacktestTimeoutMs(long backtestTimeoutMs) {
+		this.backtestTimeoutMs = backtestTimeoutMs;
+	}
+
+	int getFinished() {
+		return finished.get();
+	}
+
+	int getFailed() {
+		return failed.get();
+	}
+
+	private void preload() throws Exception {
+		Set<String> loaded = new HashSet<>();
+		for (BacktestConfiguration backtestConfiguration : backtestConfigurations) {
+			String key = backtestConfiguration.getInstrument().getPrimaryKey() + backtestConfiguration.getStartTime()
+					+ backtestConfiguration.getEndTime();
+			if (!loaded.add(key)) {
+				continue;
+			}
+			marketDataStore.preload(new ParquetFileConfiguration(backtestConfiguration.getInstrument(),
+					backtestConfiguration.getStartTime(), backtestConfiguration.getEndTime()));
+		}
+		logger.info("{} parquet files loaded in memory", marketDataStore.size());
+	}
+
+	public void run() throws Exception {
+		long start = System.currentTimeMillis();
+		preload();
+		System.out.println(
+				"sweep of " + backtestConfigurations.size() + " backtests in " + threads + " threads , " + marketDataStore
+						.size() + " files loaded in " + (System.currentTimeMillis() - start) / 1000 + " seconds");
+
+		ThreadFactoryBuilder threadFactoryBuilder = new ThreadFactoryBuilder();
+		threadFactoryBuilder.setNameFormat("ParameterSweep-%d");
+		ExecutorService sweepPool = Executors.newFixedThreadPool(threads, threadFactoryBuilder.build());
+		for (BacktestConfiguration backtestConfiguration : backtestConfigurations) {
+			sweepPool.submit(() -> runBacktest(backtestConfiguration));
+		}
+		sweepPool.shutdown();
+		//every backtest is bounded by backtestTimeoutMs
+		int rounds = (backtestConfigurations.size() + threads - 1) / threads;
+		if (!sweepPool.awaitTermination(backtestTimeoutMs * (rounds + 1), TimeUnit.MILLISECONDS)) {
+			logger.error("sweep not finished in {} rounds of {} ms => interrupting the backtests", rounds,
+					backtestTimeoutMs);
+			sweepPool.shutdownNow();
+		}
+		System.out.println(
+				"sweep finished in " + (System.currentTimeMillis() - start) / 1000 + " seconds with " + failed.get()
+						+ " failed backtests");
+		marketDataStore.clear();
+	}
+
+	/**
+	 * Blocks the pool thread until the backtest reading thread has published all the files or backtestTimeoutMs ,
+	 * the backtest is always stopped to release its threads
+	 */
+	private void runBacktest(BacktestConfiguration backtestConfiguration) {
+		Algorithm algorithm = backtestConfiguration.getAlgorithm();
+		long start = System.currentTimeMillis();
+		OrdinaryBacktest ordinaryBacktest = null;
+		try {
+			algorithm.setExitOnStop(false);
+			CountDownLatch endOfFile = new CountDownLatch(1);
+			ordinaryBacktest = new OrdinaryBacktest(backtestConfiguration);
+			ordinaryBacktest.setSingleThread(true);
+			ordinaryBacktest.setExitOnLoadError(false);
+			ordinaryBacktest.registerEndOfFile(endOfFile::countDown);
+			ordinaryBacktest.start();
+			if (!endOfFile.await(backtestTimeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new LambdaException("end of file not received in " + backtestTimeoutMs + " ms");
+			}
+			printResult(backtestConfiguration, System.currentTimeMillis() - start);
+		} catch (Exception e) {
+			failed.incrementAndGet();
+			logger.error("error in backtest {}", algorithm.getAlgorithmInfo(), e);
+			System.err.println("error in backtest " + algorithm.getAlgorithmInfo() + " " + e.getMessage());
+		} finally {
+			if (ordinaryBacktest != null) {
+				try {
+					ordinaryBacktest.stop();
+				} catch (Exception e) {
+					logger.error("error stopping backtest {}", algorithm.getAlgorithmInfo(), e);
+				}
+			}
+		}
+	}
+
+	private void printResult(BacktestConfiguration backtestConfiguration, long elapsedMs) {
+		Algorithm algorithm = backtestConfiguration.getAlgorithm();
+		PnlSnapshot pnlSnapshot = algorithm
+				.getLastPnlSnapshot(backtestConfiguration.getInstrument().getPrimaryKey());
+		String result;
+		if (pnlSnapshot == null) {
+			result = "no trades";
+		} else {
+			result = String.format("trades=%d totalPnl=%.4f realizedPnl=%.4f unrealizedPnl=%.4f position=%.4f",
+					pnlSnapshot.numberOfTrades.get(), pnlSnapshot.totalPnl, pnlSnapshot.realizedPnl,
+					pnlSnapshot.unrealizedPnl, pnlSnapshot.netPosition);
+		}
+		String line = String.format("[%d/%d] %s %s in %d seconds", finished.incrementAndGet(),
+				backtestConfigurations.size(), algorithm.getAlgorithmInfo(), result, elapsedMs / 1000);
+		System.out.println(line);
+		logger.info(line);
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.lambda.investing.backtest;
+
+import com.lambda.investing.algorithmic_trading.Algorithm;
+import com.lambda.investing.backtest_engine.BacktestConfiguration;
+import com.lambda.investing.model.asset.Instrument;
+import com.lambda.investing.model.messaging.Command;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class ParameterSweepTest {
+
+	private BacktestConfiguration createBacktestConfiguration(Algorithm algorithm) throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setSymbol("btcusdt");
+		instrument.setMarket("binance");
+		instrument.getPrimaryKey();
+		BacktestConfiguration backtestConfiguration = new BacktestConfiguration();
+		backtestConfiguration.setAlgorithm(algorithm);
+		backtestConfiguration.setInstrument(instrument);
+		backtestConfiguration.setBacktestSource("parquet");
+		//without files
+		backtestConfiguration.setStartTime("20000101");
+		backtestConfiguration.setEndTime("20000101");
+		backtestConfiguration.setInitialSleepSeconds(0);
+		return backtestConfiguration;
+	}
+
+	@Test(timeout = 60000) public void testAlgorithmErrorOnReadingThread() throws Exception {
+		//errors are not caught by the connectors => kill the reading thread of the single thread backtest
+		Algorithm failingAlgorithm = new Algorithm("failing_sweep_test", new HashMap<>()) {
+
+			@Override public String printAlgo() {
+				return "failing_sweep_test";
+			}
+
+			@Override public boolean onCommandUpdate(Command command) {
+				if (command.getMessage().equalsIgnoreCase(Command.ClassMessage.stop.name())) {
+					throw new AssertionError("algorithm failed on stop");
+				}
+				return super.onCommandUpdate(command);
+			}
+		};
+
+		ParameterSweep parameterSweep = new ParameterSweep(
+				Arrays.asList(createBacktestConfiguration(failingAlgorithm)), 1);
+		parameterSweep.setBacktestTimeoutMs(30000);
+		//end of file is notified even if the reading thread dies
+		parameterSweep.run();
+		Assert.assertEquals(1, parameterSweep.getFinished());
+		Assert.assertEquals(0, parameterSweep.getFailed());
+	}
+
+}